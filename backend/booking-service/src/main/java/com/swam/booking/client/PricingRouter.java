@@ -0,0 +1,130 @@
+package com.swam.booking.client;
+
+import com.swam.booking.dto.BatchPriceCalculationRequest;
+import com.swam.booking.dto.BatchPriceCalculationResponse;
+import com.swam.booking.dto.OccupancyEvent;
+import com.swam.booking.dto.PriceCalculationRequest;
+import com.swam.booking.dto.RestrictionCheckRequest;
+import com.swam.booking.dto.RestrictionCheckResponse;
+import com.swam.pricing.engine.CityTaxMissingException;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.InvalidQuoteException;
+import com.swam.pricing.engine.QuoteBreakdown;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.CityTaxRequiredException;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link PricingServiceClient} injected in the services. Single quotes are computed in process on the replicated
+ * rate snapshot when {@code app.pricing.mode=local} and the replica is fresh, with the same engine pricing-service
+ * runs; otherwise, and for every other call, the request goes to pricing-service over HTTP.
+ */
+@Primary
+@Component
+public class PricingRouter implements PricingServiceClient {
+
+    private final PricingServiceClient remote;
+    private final RateSnapshotReplica replica;
+
+    public PricingRouter(@Qualifier("remotePricingClient") PricingServiceClient remote, RateSnapshotReplica replica) {
+        this.remote = remote;
+        this.replica = replica;
+    }
+
+    @Override
+    public PriceBreakdown calculateQuote(PriceCalculationRequest request) {
+        RateSnapshotReplica.Replica local = replica.isEnabled() ? replica.fresh() : null;
+        if (local == null) {
+            return remote.calculateQuote(request);
+        }
+        QuoteBreakdown quote;
+        try {
+            quote = local.getEngine().price(toEngineRequest(request), local.getSnapshot(), false);
+        } catch (CityTaxMissingException ex) {
+            // same domain errors as the HTTP path
+            throw new CityTaxRequiredException();
+        } catch (InvalidQuoteException ex) {
+            throw new InvalidPricingRequestException(ex.getMessage());
+        }
+        return toPriceBreakdown(quote);
+    }
+
+    @Override
+    public BatchPriceCalculationResponse calculateBatch(BatchPriceCalculationRequest request) {
+        return remote.calculateBatch(request);
+    }
+
+    @Override
+    public RestrictionCheckResponse checkRestrictions(RestrictionCheckRequest request) {
+        return remote.checkRestrictions(request);
+    }
+
+    @Override
+    public void occupancyChanged(OccupancyEvent event) {
+        remote.occupancyChanged(event);
+    }
+
+    @Override
+    public SnapshotVersion getRateSnapshotVersion() {
+        return remote.getRateSnapshotVersion();
+    }
+
+    @Override
+    public RateSnapshot getRateSnapshot() {
+        return remote.getRateSnapshot();
+    }
+
+    // same fields as the JSON body sent to pricing-service
+    static com.swam.pricing.engine.PriceCalculationRequest toEngineRequest(PriceCalculationRequest request) {
+        List<com.swam.pricing.engine.PriceCalculationRequest.GuestProfile> guests = null;
+        if (request.getGuests() != null) {
+            guests = new ArrayList<>(request.getGuests().size());
+            for (PriceCalculationRequest.GuestProfile guest : request.getGuests()) {
+                guests.add(com.swam.pricing.engine.PriceCalculationRequest.GuestProfile.builder()
+                        .type(guest.getType() != null ? GuestType.valueOf(guest.getType().name()) : null)
+                        .taxExempt(guest.isTaxExempt())
+                        .taxExemptMotivation(guest.getTaxExemptMotivation())
+                        .days(guest.getDays())
+                        .build());
+            }
+        }
+        List<com.swam.pricing.engine.PriceCalculationRequest.BillableExtraItem> extras = null;
+        if (request.getExtras() != null) {
+            extras = new ArrayList<>(request.getExtras().size());
+            for (PriceCalculationRequest.BillableExtraItem extra : request.getExtras()) {
+                extras.add(new com.swam.pricing.engine.PriceCalculationRequest.BillableExtraItem(
+                        extra.getUnitPrice(), extra.getQuantity()));
+            }
+        }
+        return com.swam.pricing.engine.PriceCalculationRequest.builder()
+                .resourceId(request.getResourceId())
+                .checkIn(request.getCheckIn())
+                .checkOut(request.getCheckOut())
+                .guests(guests)
+                .manualDiscount(request.getManualDiscount())
+                .depositAmount(request.getDepositAmount())
+                .extras(extras)
+                .build();
+    }
+
+    // a single quote has no nightly lines, the amounts are copied as they are
+    static PriceBreakdown toPriceBreakdown(QuoteBreakdown quote) {
+        return PriceBreakdown.builder()
+                .baseAmount(quote.getBaseAmount())
+                .extrasAmount(quote.getExtrasAmount())
+                .taxAmount(quote.getTaxAmount())
+                .discountAmount(quote.getDiscountAmount())
+                .depositAmount(quote.getDepositAmount())
+                .finalTotal(quote.getFinalTotal())
+                .rateCardVersion(quote.getRateCardVersion())
+                .build();
+    }
+}
@@ -1,15 +1,40 @@
 package com.swam.booking.client;
 
+import com.swam.booking.dto.BatchPriceCalculationRequest;
+import com.swam.booking.dto.BatchPriceCalculationResponse;
+import com.swam.booking.dto.OccupancyEvent;
 import com.swam.booking.dto.PriceCalculationRequest;
+import com.swam.booking.dto.RestrictionCheckRequest;
+import com.swam.booking.dto.RestrictionCheckResponse;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
 import com.swam.shared.dto.PriceBreakdown;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
 // "url" prende l'indirizzo dalla configurazione
-@FeignClient(name = "pricing-service", url = "${PRICING_URI:http://localhost:8082}")
+// not primary: services get PricingRouter, which quotes in process when app.pricing.mode=local
+@FeignClient(name = "pricing-service", url = "${PRICING_URI:http://localhost:8082}",
+        qualifiers = "remotePricingClient", primary = false)
 public interface PricingServiceClient {
 
     @PostMapping("/api/pricing/calculate")
     PriceBreakdown calculateQuote(@RequestBody PriceCalculationRequest request);
-}
\ No newline at end of file
+
+    @PostMapping("/api/pricing/calculate/batch")
+    BatchPriceCalculationResponse calculateBatch(@RequestBody BatchPriceCalculationRequest request);
+
+    @PostMapping("/api/pricing/restrictions/check")
+    RestrictionCheckResponse checkRestrictions(@RequestBody RestrictionCheckRequest request);
+
+    @PostMapping("/api/pricing/occupancy/events")
+    void occupancyChanged(@RequestBody OccupancyEvent event);
+
+    @GetMapping("/api/pricing/rate-card/snapshot/version")
+    SnapshotVersion getRateSnapshotVersion();
+
+    @GetMapping("/api/pricing/rate-card/snapshot")
+    RateSnapshot getRateSnapshot();
+}
@@ -0,0 +1,103 @@
+package com.swam.booking.client;
+
+import com.swam.pricing.engine.QuoteEngine;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Local copy of the pricing-service rate snapshot, used to quote in process when {@code app.pricing.mode=local}.
+ * The version is polled on a fixed delay and the snapshot downloaded only when it moved. When pricing-service cannot
+ * be reached for longer than {@code app.pricing.snapshot-max-age} the copy is considered stale and quotes go back
+ * to HTTP, so a replica never prices on an old rate card for long.
+ */
+@Slf4j
+@Component
+public class RateSnapshotReplica {
+
+    private final PricingServiceClient remote;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private volatile Replica current;
+
+    @Autowired
+    public RateSnapshotReplica(@Qualifier("remotePricingClient") PricingServiceClient remote,
+                               @Value("${app.pricing.mode:remote}") String mode,
+                               @Value("${app.pricing.snapshot-max-age:30s}") Duration maxAge) {
+        this(remote, mode, maxAge, Clock.systemUTC());
+    }
+
+    RateSnapshotReplica(PricingServiceClient remote, String mode, Duration maxAge, Clock clock) {
+        this.remote = remote;
+        this.enabled = "local".equalsIgnoreCase(mode);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.pricing.snapshot-refresh-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            SnapshotVersion version = remote.getRateSnapshotVersion();
+            Replica replica = current;
+            if (replica != null && replica.snapshot.getSnapshotVersion().equals(version)) {
+                current = new Replica(replica.snapshot, replica.engine, clock.instant());
+                return;
+            }
+            RateSnapshot snapshot = remote.getRateSnapshot();
+            current = new Replica(snapshot, new QuoteEngine(snapshot.isFixedPoint(), snapshot.getOccupancyUplift()), clock.instant());
+            log.info("Rate snapshot replicated: rate card version {}, occupancy version {}",
+                    snapshot.getVersion(), snapshot.getOccupancyVersion());
+        } catch (RuntimeException ex) {
+            log.warn("Rate snapshot refresh failed, keeping version {}: {}",
+                    current != null ? current.snapshot.getVersion() : null, ex.getMessage());
+        }
+    }
+
+    // the snapshot and its engine, null when disabled, not replicated yet or not confirmed within the max age
+    public Replica fresh() {
+        Replica replica = current;
+        if (replica == null || replica.checkedAt.plus(maxAge).isBefore(clock.instant())) {
+            return null;
+        }
+        return replica;
+    }
+
+    public static final class Replica {
+        private final RateSnapshot snapshot;
+        private final QuoteEngine engine;
+        // last time pricing-service confirmed this is still the current version
+        private final Instant checkedAt;
+
+        Replica(RateSnapshot snapshot, QuoteEngine engine, Instant checkedAt) {
+            this.snapshot = snapshot;
+            this.engine = engine;
+            this.checkedAt = checkedAt;
+        }
+
+        public RateSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public QuoteEngine getEngine() {
+            return engine;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.swam.booking.client;
+
+import com.swam.booking.dto.ResourceSummary;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import java.util.List;
+
+@FeignClient(name = "resource-service", url = "${RESOURCE_URI:http://localhost:8081}")
+public interface ResourceServiceClient {
+
+    @GetMapping("/api/resources")
+    List<ResourceSummary> getAllResources();
+}
@@ -0,0 +1,30 @@
+package com.swam.booking.controller;
+
+import com.swam.booking.dto.AvailableResourceQuote;
+import com.swam.booking.service.AvailabilitySearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/bookings/availability")
+@RequiredArgsConstructor
+public class AvailabilityController {
+
+    private final AvailabilitySearchService availabilitySearchService;
+
+    // free resources for the stay with their price, cheapest first
+    @GetMapping
+    public ResponseEntity<List<AvailableResourceQuote>> searchAvailable(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(defaultValue = "1") int adults,
+            @RequestParam(defaultValue = "0") int children,
+            @RequestParam(defaultValue = "0") int infants) {
+        return ResponseEntity.ok(availabilitySearchService.searchAvailable(checkIn, checkOut, adults, children, infants));
+    }
+}
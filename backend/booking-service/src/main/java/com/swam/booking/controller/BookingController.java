@@ -1,19 +1,27 @@
 package com.swam.booking.controller;
 
 import com.swam.booking.dto.*;
+import com.swam.booking.service.AvailabilityMatrixService;
 import com.swam.booking.service.BookingService;
+import com.swam.booking.service.ForwardBookService;
 import com.swam.resource.dto.BulkDeleteRequest;
 import com.swam.shared.enums.PaymentStatus;
+import com.swam.shared.exceptions.InvalidAvailabilityRequestException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 @Slf4j
 @RestController
@@ -22,6 +30,8 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService bookingService;
+    private final ForwardBookService forwardBookService;
+    private final AvailabilityMatrixService availabilityMatrixService;
 
     @PostMapping
     public ResponseEntity<BookingResponse> createBooking(@Valid @RequestBody CreateBookingRequest request) {
@@ -133,6 +143,58 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getUnavailablePeriods(resourceId, excludeBookingId));
     }
 
+    // occupied periods of every resource in [from, to) in one call, for the planning board;
+    // ?encoding=bitset|rle or the matching Accept media type returns the compact form, which has no details:
+    // asking for both is rejected with 400
+    @GetMapping("/availability-matrix")
+    public ResponseEntity<?> getAvailabilityMatrix(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> resourceIds,
+            @RequestParam(defaultValue = "false") boolean details,
+            @RequestParam(required = false) String encoding,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        OccupancyEncoding format = encoding != null ? OccupancyEncoding.of(encoding) : encodingAccepted(accept);
+        if (format == OccupancyEncoding.PERIODS) {
+            return ResponseEntity.ok(availabilityMatrixService.getMatrix(from, to, resourceIds, details));
+        }
+        if (details) {
+            throw new InvalidAvailabilityRequestException("i dettagli non sono disponibili con la codifica "
+                    + format.name().toLowerCase(Locale.ROOT));
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(availabilityMatrixService.getEncodedMatrix(from, to, resourceIds, format));
+    }
+
+    private static OccupancyEncoding encodingAccepted(String accept) {
+        if (accept != null) {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                for (OccupancyEncoding candidate : OccupancyEncoding.values()) {
+                    if (candidate != OccupancyEncoding.PERIODS
+                            && mediaType.equalsTypeAndSubtype(MediaType.parseMediaType(candidate.getMediaType()))) {
+                        return candidate;
+                    }
+                }
+            }
+        }
+        return OccupancyEncoding.PERIODS;
+    }
+
+    // future non-cancelled bookings with their quote requests, one JSON object per line
+    @GetMapping(value = "/forward-book", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportForwardBook() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(forwardBookService::export);
+    }
+
+    // active stays from today on, the occupancy counters of pricing-service are rebuilt from these
+    @GetMapping("/occupancy")
+    public ResponseEntity<List<OccupancyEvent>> exportOccupancy() {
+        return ResponseEntity.ok(forwardBookService.occupancy());
+    }
+
     // updates the payment status of a booking
     @PatchMapping("/{id}/payment-status")
     public ResponseEntity<BookingResponse> updatePaymentStatus(
@@ -10,10 +10,13 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -74,4 +77,11 @@ public class Booking {
 
     @LastModifiedDate
     private LocalDateTime updatedAt;
+
+    // resource, dates and status as last read from or written to Mongo, kept by NightReservations to skip the
+    // night claims of a write that does not change them; never stored
+    @Transient
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String claimedStay;
 }
\ No newline at end of file
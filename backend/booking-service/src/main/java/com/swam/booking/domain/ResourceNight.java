@@ -0,0 +1,36 @@
+package com.swam.booking.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// one night of one resource held by a booking; the id is (resourceId, date), so a night can only be inserted once
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "resource_nights")
+public class ResourceNight {
+
+    @Id
+    private String id;
+    private String resourceId;
+    private LocalDate date;
+    @Indexed
+    private String bookingId;
+    // when the night was inserted, the reconciliation leaves alone the claims of writes still in flight
+    private Instant claimedAt;
+
+    public static ResourceNight of(String resourceId, LocalDate date, String bookingId, Instant claimedAt) {
+        return new ResourceNight(idOf(resourceId, date), resourceId, date, bookingId, claimedAt);
+    }
+
+    public static String idOf(String resourceId, LocalDate date) {
+        return resourceId + ":" + date;
+    }
+}
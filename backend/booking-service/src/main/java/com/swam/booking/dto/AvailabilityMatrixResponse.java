@@ -0,0 +1,19 @@
+package com.swam.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// occupied periods of every resource in [from, to), keyed by resource id; periods are not clipped to the window
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityMatrixResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private Map<String, List<UnavailablePeriodResponse>> resources;
+}
@@ -0,0 +1,21 @@
+package com.swam.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.ResourceType;
+import lombok.Builder;
+import lombok.Data;
+
+// free resource for the searched stay with its quote; price is null when pricing failed for it
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AvailableResourceQuote {
+    private String resourceId;
+    private String resourceName;
+    private ResourceType resourceType;
+    private int capacity;
+    private PriceBreakdown price;
+    private String pricingErrorCode;
+    private String pricingErrorMessage;
+}
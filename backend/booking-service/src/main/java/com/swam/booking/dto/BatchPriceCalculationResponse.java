@@ -0,0 +1,30 @@
+package com.swam.booking.dto;
+
+import com.swam.shared.dto.PriceBreakdown;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// results of pricing-service batch quotes, one per request item in the same order
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPriceCalculationResponse {
+    private long rateCardVersion;
+    private List<ItemResult> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private PriceBreakdown breakdown;
+        private String errorCode;
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,35 @@
+package com.swam.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Compact form of {@link AvailabilityMatrixResponse}: the occupied nights of each resource over [from, to).
+ * Night {@code i}, with {@code 0 <= i < days}, is the night starting on epoch day {@code fromEpochDay + i}
+ * (days since 1970-01-01); a booking occupies the nights from its check-in to the day before its check-out,
+ * clipped to the window.
+ * <ul>
+ *   <li>{@code BITSET}: {@code bitsets} maps each resource to base64 (RFC 4648, padded) of {@code ceil(days / 8)} bytes.
+ *   Night {@code i} is occupied when bit {@code i % 8} of byte {@code i / 8} is set, bit 0 being the least
+ *   significant; the unused bits of the last byte are 0.</li>
+ *   <li>{@code RLE}: {@code runs} maps each resource to run lengths in nights, alternating free and occupied and
+ *   starting with a free run, 0 when the window starts occupied. The runs add up to {@code days}.</li>
+ * </ul>
+ * As in the periods form, a resource not listed is free for the whole window.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EncodedAvailabilityMatrixResponse {
+    private LocalDate from;
+    private LocalDate to;
+    private long fromEpochDay;
+    private int days;
+    private OccupancyEncoding encoding;
+    private Map<String, String> bitsets;
+    private Map<String, int[]> runs;
+}
@@ -0,0 +1,14 @@
+package com.swam.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of the forward book export: the booking and the quote request that prices it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForwardBookingLine {
+    private String bookingId;
+    private PriceCalculationRequest request;
+}
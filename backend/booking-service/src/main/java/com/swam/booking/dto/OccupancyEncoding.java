@@ -0,0 +1,30 @@
+package com.swam.booking.dto;
+
+import com.swam.shared.exceptions.InvalidAvailabilityRequestException;
+
+import java.util.Locale;
+
+// payload formats of the availability matrix, chosen with ?encoding= or with the media type in the Accept header
+public enum OccupancyEncoding {
+    PERIODS("application/json"),
+    BITSET("application/vnd.swam.occupancy-bitset+json"),
+    RLE("application/vnd.swam.occupancy-rle+json");
+
+    private final String mediaType;
+
+    OccupancyEncoding(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static OccupancyEncoding of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidAvailabilityRequestException("codifica sconosciuta '" + name + "'");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.swam.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// current state of a booking for the occupancy counters of pricing-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyEvent {
+    private String bookingId;
+    private String resourceId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private boolean active;     // false once cancelled or deleted
+}
@@ -0,0 +1,21 @@
+package com.swam.booking.dto;
+
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// resource as returned by resource-service
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceSummary {
+    private String id;
+    private String name;
+    private ResourceType type;
+    private int capacity;
+    private ResourceStatus status;
+}
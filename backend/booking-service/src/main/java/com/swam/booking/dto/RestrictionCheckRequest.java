@@ -0,0 +1,17 @@
+package com.swam.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestrictionCheckRequest {
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private List<String> resourceIds;
+}
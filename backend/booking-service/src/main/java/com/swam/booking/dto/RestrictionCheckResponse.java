@@ -0,0 +1,27 @@
+package com.swam.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestrictionCheckResponse {
+
+    private long rateCardVersion;
+    private List<ResourceRestriction> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ResourceRestriction {
+        private String resourceId;
+        private boolean allowed;
+        private Integer minNights;
+    }
+}
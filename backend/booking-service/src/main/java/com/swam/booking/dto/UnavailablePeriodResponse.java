@@ -1,5 +1,7 @@
 package com.swam.booking.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.swam.shared.enums.BookingStatus;
 import lombok.Builder;
 import lombok.Data;
 
@@ -7,8 +9,12 @@ import java.time.LocalDate;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 // DTO representing a period during which a resource is unavailable
 public class UnavailablePeriodResponse {
     private LocalDate start;
     private LocalDate end;
-}
\ No newline at end of file
+    // only when the booking details are requested
+    private String bookingId;
+    private BookingStatus status;
+}
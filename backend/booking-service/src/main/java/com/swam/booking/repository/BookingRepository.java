@@ -2,12 +2,14 @@ package com.swam.booking.repository;
 
 import com.swam.booking.domain.Booking;
 import com.swam.shared.enums.BookingStatus;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends MongoRepository<Booking, String> {
@@ -58,6 +60,22 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     @Query("{ 'resourceId': ?0, 'status': { $ne: 'CANCELLED' } }")
     List<Booking> findActiveByResourceId(String resourceId);
 
+    // resource ids of all active bookings overlapping the interval, across every resource in one query
+    @Query(value = "{ " +
+            "  'status': { $ne: 'CANCELLED' }, " +
+            "  'checkIn': { $lt: ?1 }, " +
+            "  'checkOut': { $gt: ?0 } " +
+            "}", fields = "{ 'resourceId': 1 }")
+    List<Booking> findActiveOverlappingResourceIds(LocalDate checkIn, LocalDate checkOut);
+
+    // active bookings overlapping the window across every resource, with only the fields of the availability matrix
+    @Query(value = "{ " +
+            "  'status': { $ne: 'CANCELLED' }, " +
+            "  'checkIn': { $lt: ?1 }, " +
+            "  'checkOut': { $gt: ?0 } " +
+            "}", fields = "{ 'resourceId': 1, 'checkIn': 1, 'checkOut': 1, 'status': 1 }")
+    List<Booking> findActiveInWindow(LocalDate from, LocalDate to);
+
     // find bookings by group id
     List<Booking> findByGroupId(String groupId);
 
@@ -70,4 +88,15 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     // find all bookings within a date range
     @Query("{ 'checkIn': { $gte: ?0 }, 'checkOut': { $lte: ?1 } }")
     List<Booking> findByDateRange(LocalDate startDate, LocalDate endDate);
-}
\ No newline at end of file
+
+    // forward book: active bookings not yet checked out after the given day, read through a cursor
+    @Query("{ 'status': { $ne: 'CANCELLED' }, 'checkOut': { $gt: ?0 } }")
+    Stream<Booking> streamForwardBook(LocalDate today);
+
+    // occupancy rebuild of pricing-service: resource and dates of the active stays not yet checked out, one aggregation
+    @Aggregation(pipeline = {
+            "{ $match: { 'status': { $ne: 'CANCELLED' }, 'checkOut': { $gt: ?0 } } }",
+            "{ $project: { 'resourceId': 1, 'checkIn': 1, 'checkOut': 1 } }"
+    })
+    List<Booking> aggregateOccupancy(LocalDate today);
+}
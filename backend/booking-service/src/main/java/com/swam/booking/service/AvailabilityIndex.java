@@ -0,0 +1,329 @@
+package com.swam.booking.service;
+
+import com.swam.booking.domain.Booking;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active stays of every resource kept in memory, so a booking write on a taken slot is rejected without the overlap query.
+ * Each resource holds its stays sorted by check-in in plain arrays, replaced on every change: a check is a binary
+ * search plus a scan bounded by the longest stay of the resource.
+ * <p>
+ * Built at startup from the stays not yet checked out and updated from the Mongo events of every booking write.
+ * A scheduled rebuild reconciles it with Mongo; stays that differ are counted on {@code booking.availability.index.drift}.
+ * A conflict names the stay in the way, which the caller re-reads before rejecting. A "free" answer is trusted only
+ * while the night reservations guard every write; a stay before the covered range or an index not built yet is
+ * answered as not covered, and the caller asks Mongo.
+ */
+@Slf4j
+@Component
+public class AvailabilityIndex extends AbstractMongoEventListener<Booking> {
+
+    private final BookingRepository bookingRepository;
+    private final boolean enabled;
+    private final Clock clock;
+    private final Counter drift;
+
+    // null until the first build
+    private volatile Generation current;
+    // non-null while a rebuild is reading Mongo, guarded by this
+    private List<Stay> pendingReplay;
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    public AvailabilityIndex(BookingRepository bookingRepository,
+                             @Value("${booking.availability-index.enabled:true}") boolean enabled,
+                             MeterRegistry meterRegistry) {
+        this(bookingRepository, enabled, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    AvailabilityIndex(BookingRepository bookingRepository, boolean enabled, MeterRegistry meterRegistry, Clock clock) {
+        this.bookingRepository = bookingRepository;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.drift = Counter.builder("booking.availability.index.drift")
+                .description("Stays found different from Mongo by the reconciliation of the availability index")
+                .register(meterRegistry);
+    }
+
+    // whether [checkIn, checkOut) is free, or the indexed stay overlapping it; not covered when the index cannot tell
+    public Answer lookup(String resourceId, LocalDate checkIn, LocalDate checkOut, String excludeBookingId) {
+        Generation generation = current;
+        if (!enabled || generation == null || checkIn.toEpochDay() < generation.coveredFrom) {
+            return Answer.NOT_COVERED;
+        }
+        ResourceStays stays = generation.byResource.get(resourceId);
+        return new Answer(true,
+                stays != null ? stays.conflict(checkIn.toEpochDay(), checkOut.toEpochDay(), excludeBookingId) : null);
+    }
+
+    // conflictingBookingId null on a covered answer means free
+    public record Answer(boolean covered, String conflictingBookingId) {
+        static final Answer NOT_COVERED = new Answer(false, null);
+
+        public boolean free() {
+            return covered && conflictingBookingId == null;
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Booking> event) {
+        Booking booking = event.getSource();
+        apply(booking.getId(), Stay.of(booking));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Booking> event) {
+        for (String id : OccupancyEventPublisher.deletedIds(event.getSource())) {
+            apply(id, null);
+        }
+    }
+
+    // stay null removes the booking
+    synchronized void apply(String bookingId, Stay stay) {
+        if (!enabled || bookingId == null) {
+            return;
+        }
+        if (pendingReplay != null) {
+            pendingReplay.add(stay != null ? stay : Stay.removed(bookingId));
+        }
+        if (current != null) {
+            current.put(bookingId, stay);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::scheduledRebuild, "booking-availability-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // periodic reconciliation, also drops the stays already checked out
+    @Scheduled(cron = "${booking.availability-index.reconcile-cron:0 */10 * * * *}")
+    public void scheduledRebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException ex) {
+            log.warn("Availability index rebuild failed, keeping the current one: {}", ex.getMessage());
+        }
+    }
+
+    // reloads the active stays from Mongo and swaps the index, returns the number of stays that differed
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pendingReplay = new ArrayList<>();
+            }
+            try {
+                LocalDate today = LocalDate.now(clock);
+                Generation rebuilt = new Generation(today.toEpochDay());
+                for (Booking booking : bookingRepository.aggregateOccupancy(today)) {
+                    rebuilt.put(booking.getId(), Stay.of(booking));
+                }
+                int differences;
+                synchronized (this) {
+                    for (Stay stay : pendingReplay) {
+                        rebuilt.put(stay.bookingId, stay.resourceId != null ? stay : null);
+                    }
+                    differences = current != null ? current.differences(rebuilt) : 0;
+                    current = rebuilt;
+                }
+                if (differences > 0) {
+                    drift.increment(differences);
+                    log.warn("Availability index reconciled: {} stays differed from Mongo", differences);
+                }
+                log.debug("Availability index rebuilt: {} stays", rebuilt.byBooking.size());
+                return differences;
+            } finally {
+                synchronized (this) {
+                    pendingReplay = null;
+                }
+            }
+        }
+    }
+
+    private static final class Stay {
+        final String bookingId;
+        final String resourceId;
+        final long checkIn;
+        final long checkOut;
+
+        Stay(String bookingId, String resourceId, long checkIn, long checkOut) {
+            this.bookingId = bookingId;
+            this.resourceId = resourceId;
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+        }
+
+        // null when the booking does not hold its resource
+        static Stay of(Booking booking) {
+            if (booking.getStatus() == BookingStatus.CANCELLED || booking.getResourceId() == null
+                    || booking.getCheckIn() == null || booking.getCheckOut() == null
+                    || !booking.getCheckOut().isAfter(booking.getCheckIn())) {
+                return null;
+            }
+            return new Stay(booking.getId(), booking.getResourceId(),
+                    booking.getCheckIn().toEpochDay(), booking.getCheckOut().toEpochDay());
+        }
+
+        static Stay removed(String bookingId) {
+            return new Stay(bookingId, null, 0, 0);
+        }
+
+        boolean sameAs(Stay other) {
+            return other != null && Objects.equals(resourceId, other.resourceId)
+                    && checkIn == other.checkIn && checkOut == other.checkOut;
+        }
+    }
+
+    // one build of the index; readers only touch byResource, writers hold the index lock
+    private static final class Generation {
+        // first night the index answers for, earlier stays are not loaded
+        final long coveredFrom;
+        final Map<String, ResourceStays> byResource = new ConcurrentHashMap<>();
+        final Map<String, Stay> byBooking = new HashMap<>();
+
+        Generation(long coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+
+        void put(String bookingId, Stay stay) {
+            Stay previous = stay != null ? byBooking.put(bookingId, stay) : byBooking.remove(bookingId);
+            if (previous != null) {
+                byResource.computeIfPresent(previous.resourceId, (id, stays) -> stays.without(bookingId));
+            }
+            if (stay != null) {
+                byResource.compute(stay.resourceId, (id, stays) -> (stays != null ? stays : ResourceStays.EMPTY).with(stay));
+            }
+        }
+
+        // stays of this generation still in the covered range of next that are missing or different there, and vice versa
+        int differences(Generation next) {
+            Set<String> ids = new HashSet<>(next.byBooking.keySet());
+            for (Map.Entry<String, Stay> entry : byBooking.entrySet()) {
+                if (entry.getValue().checkOut > next.coveredFrom) {
+                    ids.add(entry.getKey());
+                }
+            }
+            int count = 0;
+            for (String id : ids) {
+                Stay stay = byBooking.get(id);
+                if (stay == null || !stay.sameAs(next.byBooking.get(id))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    // stays of one resource sorted by check-in, never modified once published
+    private static final class ResourceStays {
+        static final ResourceStays EMPTY = new ResourceStays(new long[0], new long[0], new String[0], 0);
+
+        final long[] checkIns;
+        final long[] checkOuts;
+        final String[] bookingIds;
+        // no stay starting before checkIn - longestStay can reach checkIn
+        final long longestStay;
+
+        ResourceStays(long[] checkIns, long[] checkOuts, String[] bookingIds, long longestStay) {
+            this.checkIns = checkIns;
+            this.checkOuts = checkOuts;
+            this.bookingIds = bookingIds;
+            this.longestStay = longestStay;
+        }
+
+        String conflict(long checkIn, long checkOut, String excludeBookingId) {
+            // last stay starting before the check-out, then back while a stay can still reach the check-in
+            int i = firstIndexNotBefore(checkOut) - 1;
+            for (; i >= 0 && checkIns[i] > checkIn - longestStay; i--) {
+                if (checkOuts[i] > checkIn && !bookingIds[i].equals(excludeBookingId)) {
+                    return bookingIds[i];
+                }
+            }
+            return null;
+        }
+
+        ResourceStays with(Stay stay) {
+            int n = checkIns.length;
+            int at = firstIndexNotBefore(stay.checkIn);
+            long[] ins = new long[n + 1];
+            long[] outs = new long[n + 1];
+            String[] ids = new String[n + 1];
+            System.arraycopy(checkIns, 0, ins, 0, at);
+            System.arraycopy(checkOuts, 0, outs, 0, at);
+            System.arraycopy(bookingIds, 0, ids, 0, at);
+            ins[at] = stay.checkIn;
+            outs[at] = stay.checkOut;
+            ids[at] = stay.bookingId;
+            System.arraycopy(checkIns, at, ins, at + 1, n - at);
+            System.arraycopy(checkOuts, at, outs, at + 1, n - at);
+            System.arraycopy(bookingIds, at, ids, at + 1, n - at);
+            return new ResourceStays(ins, outs, ids, Math.max(longestStay, stay.checkOut - stay.checkIn));
+        }
+
+        // the longest stay is kept: a bound too large only makes the scan longer, the next rebuild tightens it
+        ResourceStays without(String bookingId) {
+            int at = Arrays.asList(bookingIds).indexOf(bookingId);
+            if (at < 0) {
+                return this;
+            }
+            int n = checkIns.length;
+            long[] ins = new long[n - 1];
+            long[] outs = new long[n - 1];
+            String[] ids = new String[n - 1];
+            System.arraycopy(checkIns, 0, ins, 0, at);
+            System.arraycopy(checkOuts, 0, outs, 0, at);
+            System.arraycopy(bookingIds, 0, ids, 0, at);
+            System.arraycopy(checkIns, at + 1, ins, at, n - at - 1);
+            System.arraycopy(checkOuts, at + 1, outs, at, n - at - 1);
+            System.arraycopy(bookingIds, at + 1, ids, at, n - at - 1);
+            return new ResourceStays(ins, outs, ids, longestStay);
+        }
+
+        private int firstIndexNotBefore(long day) {
+            int low = 0;
+            int high = checkIns.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (checkIns[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.swam.booking.service;
+
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.AvailabilityMatrixResponse;
+import com.swam.booking.dto.EncodedAvailabilityMatrixResponse;
+import com.swam.booking.dto.OccupancyEncoding;
+import com.swam.booking.dto.UnavailablePeriodResponse;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.exceptions.InvalidBookingDateException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// occupied periods of the whole property for the planning board: one range query grouped by resource
+@Slf4j
+@Service
+public class AvailabilityMatrixService {
+
+    private final BookingRepository bookingRepository;
+    private final MongoTemplate mongoTemplate;
+    private final int maxDays;
+
+    public AvailabilityMatrixService(BookingRepository bookingRepository,
+                                     MongoTemplate mongoTemplate,
+                                     @Value("${booking.availability-matrix.max-days:366}") int maxDays) {
+        this.bookingRepository = bookingRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.maxDays = maxDays;
+    }
+
+    // the window query bounds on checkOut first: most stored bookings end before the window
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureWindowIndex() {
+        try {
+            mongoTemplate.indexOps(Booking.class).ensureIndex(new Index()
+                    .on("checkOut", Sort.Direction.ASC)
+                    .on("checkIn", Sort.Direction.ASC)
+                    .named("active_window"));
+        } catch (RuntimeException ex) {
+            log.warn("Could not ensure the availability matrix index: {}", ex.getMessage());
+        }
+    }
+
+    // resourceIds, when given, restricts the matrix and lists free resources too; details adds booking id and status
+    public AvailabilityMatrixResponse getMatrix(LocalDate from, LocalDate to, List<String> resourceIds, boolean details) {
+        Map<String, List<UnavailablePeriodResponse>> resources = new TreeMap<>();
+        for (Map.Entry<String, List<Booking>> entry : staysByResource(from, to, resourceIds).entrySet()) {
+            List<UnavailablePeriodResponse> periods = new ArrayList<>(entry.getValue().size());
+            for (Booking booking : entry.getValue()) {
+                UnavailablePeriodResponse.UnavailablePeriodResponseBuilder period = UnavailablePeriodResponse.builder()
+                        .start(booking.getCheckIn())
+                        .end(booking.getCheckOut());
+                if (details) {
+                    period.bookingId(booking.getId()).status(booking.getStatus());
+                }
+                periods.add(period.build());
+            }
+            resources.put(entry.getKey(), periods);
+        }
+        return new AvailabilityMatrixResponse(from, to, resources);
+    }
+
+    // same matrix as one bitset or run-length array per resource, see EncodedAvailabilityMatrixResponse
+    public EncodedAvailabilityMatrixResponse getEncodedMatrix(LocalDate from, LocalDate to, List<String> resourceIds,
+                                                              OccupancyEncoding encoding) {
+        Map<String, List<Booking>> stays = staysByResource(from, to, resourceIds);
+        int days = (int) ChronoUnit.DAYS.between(from, to);
+        Map<String, String> bitsets = encoding == OccupancyEncoding.BITSET ? new TreeMap<>() : null;
+        Map<String, int[]> runs = encoding == OccupancyEncoding.RLE ? new TreeMap<>() : null;
+        for (Map.Entry<String, List<Booking>> entry : stays.entrySet()) {
+            byte[] nights = occupiedNights(entry.getValue(), from.toEpochDay(), days);
+            if (bitsets != null) {
+                bitsets.put(entry.getKey(), Base64.getEncoder().encodeToString(nights));
+            } else {
+                runs.put(entry.getKey(), runLengths(nights, days));
+            }
+        }
+        return EncodedAvailabilityMatrixResponse.builder()
+                .from(from)
+                .to(to)
+                .fromEpochDay(from.toEpochDay())
+                .days(days)
+                .encoding(encoding)
+                .bitsets(bitsets)
+                .runs(runs)
+                .build();
+    }
+
+    // active stays of the window grouped by resource and sorted by check-in, from a single query
+    private Map<String, List<Booking>> staysByResource(LocalDate from, LocalDate to, List<String> resourceIds) {
+        if (from == null || to == null || !to.isAfter(from)) {
+            throw new InvalidBookingDateException("La data di fine deve essere successiva alla data di inizio.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > maxDays) {
+            throw new InvalidBookingDateException("L'intervallo richiesto non può superare " + maxDays + " giorni.");
+        }
+
+        Map<String, List<Booking>> stays = new TreeMap<>();
+        boolean restricted = resourceIds != null && !resourceIds.isEmpty();
+        if (restricted) {
+            for (String resourceId : resourceIds) {
+                stays.put(resourceId, new ArrayList<>());
+            }
+        }
+        for (Booking booking : bookingRepository.findActiveInWindow(from, to)) {
+            List<Booking> resourceStays = restricted
+                    ? stays.get(booking.getResourceId())
+                    : stays.computeIfAbsent(booking.getResourceId(), id -> new ArrayList<>());
+            if (resourceStays != null) {
+                resourceStays.add(booking);
+            }
+        }
+        for (List<Booking> resourceStays : stays.values()) {
+            resourceStays.sort(Comparator.comparing(Booking::getCheckIn));
+        }
+        return stays;
+    }
+
+    // bit i of the result, least significant first, is the night fromEpochDay + i
+    static byte[] occupiedNights(List<Booking> stays, long fromEpochDay, int days) {
+        byte[] nights = new byte[(days + 7) / 8];
+        for (Booking stay : stays) {
+            long first = Math.max(stay.getCheckIn().toEpochDay() - fromEpochDay, 0);
+            long last = Math.min(stay.getCheckOut().toEpochDay() - fromEpochDay, days);
+            for (long i = first; i < last; i++) {
+                nights[(int) (i >>> 3)] |= (byte) (1 << (i & 7));
+            }
+        }
+        return nights;
+    }
+
+    // alternating free and occupied run lengths, starting with a free one
+    static int[] runLengths(byte[] nights, int days) {
+        List<Integer> runs = new ArrayList<>();
+        boolean occupied = false;
+        int length = 0;
+        for (int i = 0; i < days; i++) {
+            boolean night = (nights[i >>> 3] & (1 << (i & 7))) != 0;
+            if (night != occupied) {
+                runs.add(length);
+                occupied = night;
+                length = 0;
+            }
+            length++;
+        }
+        runs.add(length);
+        return runs.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
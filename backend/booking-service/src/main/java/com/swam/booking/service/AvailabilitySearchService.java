@@ -0,0 +1,144 @@
+package com.swam.booking.service;
+
+import com.swam.booking.client.PricingServiceClient;
+import com.swam.booking.client.ResourceServiceClient;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.*;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.GuestType;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.exceptions.InvalidBookingDateException;
+import com.swam.shared.exceptions.InvalidGuestDataException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// "what can I sell for these dates": free resources of the whole property priced in one batch, cheapest first
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvailabilitySearchService {
+
+    private final BookingRepository bookingRepository;
+    private final ResourceServiceClient resourceClient;
+    private final PricingServiceClient pricingClient;
+
+    public List<AvailableResourceQuote> searchAvailable(LocalDate checkIn, LocalDate checkOut,
+                                                        int adults, int children, int infants) {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new InvalidBookingDateException("La data di check-out deve essere successiva alla data di check-in.");
+        }
+        if (adults < 1) {
+            throw new InvalidGuestDataException("adults", "è richiesto almeno un adulto");
+        }
+        if (children < 0 || infants < 0) {
+            throw new InvalidGuestDataException("children/infants", "il numero di ospiti non può essere negativo");
+        }
+        int guestCount = adults + children + infants;
+
+        // one query for the busy resources of the whole property
+        Set<String> busyResourceIds = new HashSet<>();
+        for (Booking booking : bookingRepository.findActiveOverlappingResourceIds(checkIn, checkOut)) {
+            busyResourceIds.add(booking.getResourceId());
+        }
+
+        List<ResourceSummary> candidates = new ArrayList<>();
+        for (ResourceSummary resource : resourceClient.getAllResources()) {
+            if (resource.getStatus() == ResourceStatus.AVAILABLE
+                    && resource.getCapacity() >= guestCount
+                    && !busyResourceIds.contains(resource.getId())) {
+                candidates.add(resource);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // stay rules such as min stays are checked for every candidate in one call, before any pricing
+        candidates = withoutRestricted(candidates, checkIn, checkOut);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        // one batch call prices every candidate on the same rate card snapshot
+        List<PriceCalculationRequest.GuestProfile> guests = guestProfiles(checkIn, checkOut, adults, children, infants);
+        List<PriceCalculationRequest> items = new ArrayList<>(candidates.size());
+        for (ResourceSummary resource : candidates) {
+            items.add(PriceCalculationRequest.builder()
+                    .resourceId(resource.getId())
+                    .checkIn(checkIn)
+                    .checkOut(checkOut)
+                    .guests(guests)
+                    .build());
+        }
+        List<BatchPriceCalculationResponse.ItemResult> results =
+                pricingClient.calculateBatch(new BatchPriceCalculationRequest(items)).getResults();
+
+        List<AvailableResourceQuote> quotes = new ArrayList<>(candidates.size());
+        for (BatchPriceCalculationResponse.ItemResult result : results) {
+            ResourceSummary resource = candidates.get(result.getIndex());
+            quotes.add(AvailableResourceQuote.builder()
+                    .resourceId(resource.getId())
+                    .resourceName(resource.getName())
+                    .resourceType(resource.getType())
+                    .capacity(resource.getCapacity())
+                    .price(result.getBreakdown())
+                    .pricingErrorCode(result.getErrorCode())
+                    .pricingErrorMessage(result.getErrorMessage())
+                    .build());
+        }
+
+        // cheapest first, resources that could not be priced at the end
+        quotes.sort(Comparator.comparing(AvailableResourceQuote::getPrice,
+                        Comparator.nullsLast(Comparator.comparing(PriceBreakdown::getFinalTotal, Comparator.nullsLast(Comparator.naturalOrder()))))
+                .thenComparing(AvailableResourceQuote::getResourceName, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        log.debug("Availability search {} - {}: {} free resources, {} busy", checkIn, checkOut, quotes.size(), busyResourceIds.size());
+        return quotes;
+    }
+
+    private List<ResourceSummary> withoutRestricted(List<ResourceSummary> candidates, LocalDate checkIn, LocalDate checkOut) {
+        List<String> resourceIds = candidates.stream().map(ResourceSummary::getId).toList();
+        RestrictionCheckResponse restrictions =
+                pricingClient.checkRestrictions(new RestrictionCheckRequest(checkIn, checkOut, resourceIds));
+
+        Set<String> restricted = new HashSet<>();
+        for (RestrictionCheckResponse.ResourceRestriction restriction : restrictions.getResults()) {
+            if (!restriction.isAllowed()) {
+                restricted.add(restriction.getResourceId());
+            }
+        }
+        if (restricted.isEmpty()) {
+            return candidates;
+        }
+        List<ResourceSummary> allowed = new ArrayList<>(candidates.size());
+        for (ResourceSummary resource : candidates) {
+            if (!restricted.contains(resource.getId())) {
+                allowed.add(resource);
+            }
+        }
+        return allowed;
+    }
+
+    // every guest stays the whole period
+    private List<PriceCalculationRequest.GuestProfile> guestProfiles(LocalDate checkIn, LocalDate checkOut,
+                                                                     int adults, int children, int infants) {
+        int nights = (int) ChronoUnit.DAYS.between(checkIn, checkOut);
+        List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>(adults + children + infants);
+        addGuests(guests, GuestType.ADULT, adults, nights);
+        addGuests(guests, GuestType.CHILD, children, nights);
+        addGuests(guests, GuestType.INFANT, infants, nights);
+        return guests;
+    }
+
+    private void addGuests(List<PriceCalculationRequest.GuestProfile> guests, GuestType type, int count, int nights) {
+        for (int i = 0; i < count; i++) {
+            guests.add(PriceCalculationRequest.GuestProfile.builder().type(type).days(nights).build());
+        }
+    }
+}
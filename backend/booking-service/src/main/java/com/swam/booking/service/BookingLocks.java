@@ -0,0 +1,92 @@
+package com.swam.booking.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the read-check-write of booking mutations inside this instance: a mutation holds the lock stripe of
+ * every resource it reads or claims, and of the group it rewrites. Mutations on different resources map to different
+ * stripes and run in parallel; two keys on the same stripe only wait for each other, never conflict.
+ * Stripes are always taken in ascending order, so mutations holding several never deadlock.
+ * The wait for the stripes is published as the {@code booking.lock.wait} timer.
+ * <p>
+ * This only covers one instance; the night reservations are what makes a double booking impossible across instances.
+ */
+@Component
+public class BookingLocks {
+
+    private final ReentrantLock[] stripes;
+    private final Timer resourceWait;
+    private final Timer groupWait;
+
+    public BookingLocks(@Value("${booking.locks.stripes:1024}") int stripes, MeterRegistry meterRegistry) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("booking.locks.stripes must be a power of two: " + stripes);
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.resourceWait = waitTimer("resource", meterRegistry);
+        this.groupWait = waitTimer("group", meterRegistry);
+    }
+
+    public static String resource(String resourceId) {
+        return resourceId != null ? "resource:" + resourceId : null;
+    }
+
+    public static String group(String groupId) {
+        return groupId != null ? "group:" + groupId : null;
+    }
+
+    // runs the action holding the stripes of every non-null key
+    public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        boolean group = false;
+        for (String key : keys) {
+            if (key != null) {
+                indexes.add(stripeOf(key));
+                group |= key.startsWith("group:");
+            }
+        }
+
+        long start = System.nanoTime();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+            (group ? groupWait : resourceWait).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return action.get();
+        } finally {
+            // release what was actually taken, in reverse order
+            Integer[] taken = indexes.toArray(new Integer[0]);
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[taken[i]].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(String key) {
+        int hash = key.hashCode();
+        // spread the high bits, like HashMap, since the mask only keeps the low ones
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private static Timer waitTimer(String scope, MeterRegistry meterRegistry) {
+        return Timer.builder("booking.lock.wait")
+                .description("Time a booking mutation waited for its lock stripes")
+                .tag("scope", scope)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -21,7 +21,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -33,9 +36,16 @@ public class BookingService {
     private final CustomerService customerService;
     private final ExtraOptionService extraOptionService;
     private final PricingServiceClient pricingClient;
+    private final AvailabilityIndex availabilityIndex;
+    private final BookingLocks bookingLocks;
+    private final NightReservations nightReservations;
 
     @Transactional
     public BookingResponse createBooking(CreateBookingRequest request) {
+        return locked(() -> createBookingLocked(request), BookingLocks.resource(request.getResourceId()));
+    }
+
+    private BookingResponse createBookingLocked(CreateBookingRequest request) {
 
         // validate input dates
         validateDates(request.getResourceId(), request.getCheckIn(), request.getCheckOut(), null);
@@ -68,12 +78,18 @@ public class BookingService {
                 .updatedAt(null)
                 .build();
 
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     @Transactional
     public BookingResponse updateBooking(String bookingId, CreateBookingRequest request) {
-        Booking booking = getBookingOrThrow(bookingId);
+        // the stay can move: both the resource it leaves and the one it takes
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId()),
+                BookingLocks.resource(request.getResourceId())), booking -> updateBookingLocked(booking, request));
+    }
+
+    private BookingResponse updateBookingLocked(Booking booking, CreateBookingRequest request) {
+        String bookingId = booking.getId();
 
         if (booking.getStatus() == BookingStatus.CANCELLED || booking.getStatus() == BookingStatus.CHECKED_OUT) {
             throw new IllegalStateException("Non può essere modificata una prenotazione conclusa o cancellata.");
@@ -116,13 +132,19 @@ public class BookingService {
         booking.getPriceBreakdown().setDepositAmount(request.getDepositAmount());
 
         booking.setUpdatedAt(LocalDateTime.now());
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     // updates the extras of an existing booking (and linked group bookings)
     @Transactional
     public BookingResponse updateBookingExtras(String bookingId, UpdateBookingExtrasRequest request) {
-        Booking booking = getBookingOrThrow(bookingId);
+        // rewrites the whole group
+        return lockedOn(bookingId, current -> Arrays.asList(groupKey(current)),
+                booking -> updateBookingExtrasLocked(booking, request));
+    }
+
+    private BookingResponse updateBookingExtrasLocked(Booking booking, UpdateBookingExtrasRequest request) {
+        String bookingId = booking.getId();
 
         if (booking.getStatus() == BookingStatus.CANCELLED) {
             throw new IllegalStateException("Non puoi modificare gli extra di una prenotazione cancellata.");
@@ -175,7 +197,12 @@ public class BookingService {
     // edit stay details (dates, resource) of an existing booking
     @Transactional
     public BookingResponse updateBookingStay(String bookingId, EditBookingStayRequest request) {
-        Booking booking = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId()),
+                BookingLocks.resource(request.getResourceId())), booking -> updateBookingStayLocked(booking, request));
+    }
+
+    private BookingResponse updateBookingStayLocked(Booking booking, EditBookingStayRequest request) {
+        String bookingId = booking.getId();
 
         if (booking.getStatus() == BookingStatus.CANCELLED || booking.getStatus() == BookingStatus.CHECKED_OUT) {
             throw new IllegalStateException("Non puoi modificare una prenotazione conclusa o cancellata.");
@@ -196,14 +223,18 @@ public class BookingService {
             booking.setUpdatedAt(LocalDateTime.now());
         }
 
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     // cancels an existing booking by setting its status to CANCELLED
     @Transactional
     public BookingResponse cancelBooking(String bookingId) {
-        Booking booking = getBookingOrThrow(bookingId);
+        // frees the nights of its resource and changes the status its group is rewritten with
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId()),
+                groupKey(current)), this::cancelBookingLocked);
+    }
 
+    private BookingResponse cancelBookingLocked(Booking booking) {
         if (booking.getStatus() == BookingStatus.CANCELLED) {
             throw new IllegalStateException("La prenotazione è già stata cancellata.");
         }
@@ -216,7 +247,7 @@ public class BookingService {
         booking.setStatus(BookingStatus.CANCELLED);
         booking.setUpdatedAt(LocalDateTime.now());
 
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     // soft delete of the selected booking
@@ -241,7 +272,11 @@ public class BookingService {
 
     @Transactional
     public BookingResponse checkIn(String bookingId, CheckInRequest request) {
-        Booking booking = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId())),
+                booking -> checkInLocked(booking, request));
+    }
+
+    private BookingResponse checkInLocked(Booking booking, CheckInRequest request) {
 
         if (booking.getStatus() == BookingStatus.CHECKED_IN) {
             throw new IllegalStateException("La prenotazione ha già effettuato il check-in.");
@@ -304,13 +339,17 @@ public class BookingService {
         booking.setStatus(BookingStatus.CHECKED_IN);
         booking.setUpdatedAt(LocalDateTime.now());
 
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     //TODO: gestione prenotazione split da unificare con check-out
     @Transactional
     public BookingResponse checkOut(String bookingId, CheckOutRequest request) {
-        Booking booking = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId())),
+                booking -> checkOutLocked(booking, request));
+    }
+
+    private BookingResponse checkOutLocked(Booking booking, CheckOutRequest request) {
 
         if (booking.getStatus() != BookingStatus.CHECKED_IN) {
             throw new InvalidBookingDateException("Il Check-out richiede stato CHECKED_IN.");
@@ -319,16 +358,27 @@ public class BookingService {
         List<BookingExtra> finalExtras = processExtras(request.getExtras());
         booking.setExtras(finalExtras);
 
-        List<PriceCalculationRequest.BillableExtraItem> billableExtras = finalExtras.stream()
+        PriceCalculationRequest pricingRequest = pricingRequest(booking, finalExtras,
+                booking.getPriceBreakdown().getDepositAmount());
+
+        // call pricing service to calculate final price
+        PriceBreakdown finalPriceBreakdown = pricingClient.calculateQuote(pricingRequest);
+        booking.setPriceBreakdown(finalPriceBreakdown);
+        booking.setStatus(BookingStatus.CHECKED_OUT);
+        booking.setUpdatedAt(LocalDateTime.now());
+
+        return mapToResponse(save(booking));
+    }
+
+    // quote request for the whole stay: main guest and companions with their own nights, extras at their snapshot price
+    static PriceCalculationRequest pricingRequest(Booking booking, List<BookingExtra> extras, BigDecimal depositAmount) {
+        List<PriceCalculationRequest.BillableExtraItem> billableExtras = extras.stream()
                 .map(extra -> new PriceCalculationRequest.BillableExtraItem(
                         extra.getPriceSnapshot(),
                         extra.getQuantity()
                 ))
                 .collect(Collectors.toList());
 
-        // calculate max days of booking
-        int maxBookingDays = (int) java.time.temporal.ChronoUnit.DAYS.between(booking.getCheckIn(), booking.getCheckOut());
-
         // creation of full guest list (main + companions)
         List<Guest> allGuests = new ArrayList<>();
         allGuests.add(booking.getMainGuest());
@@ -358,22 +408,14 @@ public class BookingService {
                 .collect(Collectors.toList());
 
         // creation of pricing request
-        PriceCalculationRequest pricingRequest = PriceCalculationRequest.builder()
+        return PriceCalculationRequest.builder()
                 .resourceId(booking.getResourceId())
                 .checkIn(booking.getCheckIn())
                 .checkOut(booking.getCheckOut())
                 .guests(guestProfiles)
-                .depositAmount(booking.getPriceBreakdown().getDepositAmount())
+                .depositAmount(depositAmount)
                 .extras(billableExtras)
                 .build();
-
-        // call pricing service to calculate final price
-        PriceBreakdown finalPriceBreakdown = pricingClient.calculateQuote(pricingRequest);
-        booking.setPriceBreakdown(finalPriceBreakdown);
-        booking.setStatus(BookingStatus.CHECKED_OUT);
-        booking.setUpdatedAt(LocalDateTime.now());
-
-        return mapToResponse(bookingRepository.save(booking));
     }
 
     public List<BookingResponse> getAllBookings() {
@@ -419,7 +461,11 @@ public class BookingService {
 
     @Transactional
     public BookingResponse confirmBooking(String bookingId, boolean hasPaidDeposit) {
-        Booking booking = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId())),
+                booking -> confirmBookingLocked(booking, hasPaidDeposit));
+    }
+
+    private BookingResponse confirmBookingLocked(Booking booking, boolean hasPaidDeposit) {
 
         if (booking.getStatus() != BookingStatus.PENDING)
             throw new IllegalStateException("Impossibile confermare una prenotazione che non è in attesa.");
@@ -435,7 +481,7 @@ public class BookingService {
         // update booking status to CONFIRMED
         booking.setStatus(BookingStatus.CONFIRMED);
         booking.setUpdatedAt(LocalDateTime.now());
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     // checks date validity and availability
@@ -444,6 +490,17 @@ public class BookingService {
             throw new InvalidBookingDateException("La data di check-out deve essere successiva alla data di check-in.");
         }
 
+        // answered in memory when the index covers the dates: a free slot is trusted while the night claims guard the
+        // write, a conflict is re-read by id and rejects when the stay still holds the slot; anything else asks Mongo
+        AvailabilityIndex.Answer answer = availabilityIndex.lookup(resourceId, in, out, excludeBookingId);
+        if (answer.free() && nightReservations.isEnabled()) {
+            return;
+        }
+        if (answer.conflictingBookingId() != null && bookingRepository.findById(answer.conflictingBookingId())
+                .filter(b -> holds(b, resourceId, in, out)).isPresent()) {
+            throw new SlotNotAvailableException(resourceId);
+        }
+
         List<Booking> overlaps;
 
         if (excludeBookingId == null) {
@@ -460,6 +517,13 @@ public class BookingService {
         }
     }
 
+    // same rule as the overlap query
+    private static boolean holds(Booking booking, String resourceId, LocalDate in, LocalDate out) {
+        return booking.getStatus() != BookingStatus.CANCELLED && resourceId.equals(booking.getResourceId())
+                && booking.getCheckIn() != null && booking.getCheckIn().isBefore(out)
+                && booking.getCheckOut() != null && booking.getCheckOut().isAfter(in);
+    }
+
     // retrieves the current guest and performs validation for check-in status
     private static Guest getGuest(CreateBookingRequest request, Booking booking) {
         Guest currentGuest = booking.getMainGuest();
@@ -489,23 +553,79 @@ public class BookingService {
         return result;
     }
 
+    // the nights claimed for a write are given back when the write itself fails
+    private Booking save(Booking booking) {
+        try {
+            return bookingRepository.save(booking);
+        } catch (RuntimeException ex) {
+            try {
+                nightReservations.release(booking.getId());
+            } catch (RuntimeException releaseFailure) {
+                // left to the reconciliation, the write failure is the one reported
+                ex.addSuppressed(releaseFailure);
+            }
+            throw ex;
+        }
+    }
+
+    // runs a read-check-write holding the lock stripes of the given keys
+    private <T> T locked(Supplier<T> action, String... keys) {
+        return bookingLocks.withLocks(Arrays.asList(keys), action);
+    }
+
+    // the keys of a mutation depend on the stored booking: it is read again under the locks and handed to the action,
+    // or, when a concurrent write moved or regrouped it in between, the locks are taken again on its new keys
+    private <T> T lockedOn(String bookingId, Function<Booking, List<String>> keysOf, Function<Booking, T> action) {
+        List<String> keys = keysOf.apply(getBookingOrThrow(bookingId));
+        while (true) {
+            List<String> held = keys;
+            Attempt<T> attempt = bookingLocks.withLocks(held, () -> {
+                Booking booking = getBookingOrThrow(bookingId);
+                List<String> current = keysOf.apply(booking);
+                return current.equals(held) ? new Attempt<>(action.apply(booking), null) : new Attempt<>(null, current);
+            });
+            if (attempt.retryOn() == null) {
+                return attempt.result();
+            }
+            keys = attempt.retryOn();
+        }
+    }
+
+    private record Attempt<T>(T result, List<String> retryOn) {
+    }
+
+    // a booking without a group yet is keyed by its id, the id a split or extension turns into a group
+    private static String groupKey(Booking booking) {
+        return BookingLocks.group(booking.getGroupId() != null ? booking.getGroupId() : booking.getId());
+    }
+
     private Booking getBookingOrThrow(String id) {
         return bookingRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Booking not found"));
     }
 
     @Transactional
     public BookingResponse updatePaymentStatus(String bookingId, PaymentStatus newStatus) {
-        Booking booking = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId())),
+                booking -> updatePaymentStatusLocked(booking, newStatus));
+    }
+
+    private BookingResponse updatePaymentStatusLocked(Booking booking, PaymentStatus newStatus) {
         validatePaymentStatusTransition(booking.getPaymentStatus(), newStatus);
         booking.setPaymentStatus(newStatus);
         booking.setUpdatedAt(LocalDateTime.now());
-        return mapToResponse(bookingRepository.save(booking));
+        return mapToResponse(save(booking));
     }
 
     // update booking guests during CHECKED_IN status
     @Transactional
     public BookingResponse updateBookingCheckIn(String bookingId, CheckInRequest request) {
-        Booking currentBooking = getBookingOrThrow(bookingId);
+        // rewrites the whole group
+        return lockedOn(bookingId, current -> Arrays.asList(groupKey(current)),
+                booking -> updateBookingCheckInLocked(booking, request));
+    }
+
+    private BookingResponse updateBookingCheckInLocked(Booking currentBooking, CheckInRequest request) {
+        String bookingId = currentBooking.getId();
 
         if (currentBooking.getStatus() != BookingStatus.CHECKED_IN) {
             throw new IllegalStateException("Modifica consentita solo per prenotazioni nello stato CHECKED_IN.");
@@ -586,8 +706,13 @@ public class BookingService {
     // extend an existing booking by creating a new linked booking segment
     @Transactional
     public BookingResponse extendStayWithSplit(String currentBookingId, ExtendBookingRequest request) {
-        Booking currentBooking = getBookingOrThrow(currentBookingId);
+        // the new segment joins the group of the current booking
+        return lockedOn(currentBookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId()),
+                BookingLocks.resource(request.getNewResourceId()), groupKey(current)),
+                booking -> extendStayWithSplitLocked(booking, request));
+    }
 
+    private BookingResponse extendStayWithSplitLocked(Booking currentBooking, ExtendBookingRequest request) {
         LocalDate newSegmentStart = currentBooking.getCheckOut();
         LocalDate newSegmentEnd = request.getNewCheckOutDate();
 
@@ -607,7 +732,12 @@ public class BookingService {
     // split an existing booking into two linked segments at the specified date
     @Transactional
     public List<BookingResponse> splitBooking(String bookingId, SplitBookingRequest request) {
-        Booking original = getBookingOrThrow(bookingId);
+        return lockedOn(bookingId, current -> Arrays.asList(BookingLocks.resource(current.getResourceId()),
+                BookingLocks.resource(request.getNewResourceId()), groupKey(current)),
+                original -> splitBookingLocked(original, request));
+    }
+
+    private List<BookingResponse> splitBookingLocked(Booking original, SplitBookingRequest request) {
         LocalDate splitDate = request.getSplitDate();
 
         // new resource must be free for the second part
@@ -617,7 +747,7 @@ public class BookingService {
 
         // update original booking to end at split date
         original.setCheckOut(splitDate);
-        Booking savedOriginal = bookingRepository.save(original);
+        Booking savedOriginal = save(original);
 
         // creates the second booking segment
         Booking secondPart = createLinkedSegment(savedOriginal, request.getNewResourceId(), splitDate, originalEndDate);
@@ -630,7 +760,7 @@ public class BookingService {
         // manage groupId
         if (original.getGroupId() == null) {
             original.setGroupId(java.util.UUID.randomUUID().toString());
-            bookingRepository.save(original);
+            save(original);
         }
 
         // clone
@@ -658,7 +788,7 @@ public class BookingService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return bookingRepository.save(nextSegment);
+        return save(nextSegment);
     }
 
     private void validatePaymentStatusTransition(PaymentStatus current, PaymentStatus next) {
@@ -678,6 +808,7 @@ public class BookingService {
                     .discountAmount(booking.getPriceBreakdown().getDiscountAmount())
                     .extrasAmount(booking.getPriceBreakdown().getExtrasAmount())
                     .finalTotal(booking.getPriceBreakdown().getFinalTotal())
+                    .rateCardVersion(booking.getPriceBreakdown().getRateCardVersion())
                     .build();
         }
 
@@ -0,0 +1,78 @@
+package com.swam.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.domain.BookingExtra;
+import com.swam.booking.dto.ForwardBookingLine;
+import com.swam.booking.dto.OccupancyEvent;
+import com.swam.booking.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// streams the forward book as NDJSON for the pricing what-if, one booking in memory at a time,
+// and lists the stays the occupancy counters of pricing-service are rebuilt from
+@Slf4j
+@Service
+public class ForwardBookService {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final BookingRepository bookingRepository;
+    private final ObjectWriter writer;
+    private final Clock clock;
+
+    public ForwardBookService(BookingRepository bookingRepository, ObjectMapper objectMapper) {
+        this(bookingRepository, objectMapper, Clock.systemDefaultZone());
+    }
+
+    ForwardBookService(BookingRepository bookingRepository, ObjectMapper objectMapper, Clock clock) {
+        this.bookingRepository = bookingRepository;
+        this.writer = objectMapper.writerFor(ForwardBookingLine.class);
+        this.clock = clock;
+    }
+
+    // returns the number of bookings written
+    public long export(OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<Booking> bookings = bookingRepository.streamForwardBook(LocalDate.now(clock))) {
+            Iterator<Booking> iterator = bookings.iterator();
+            while (iterator.hasNext()) {
+                Booking booking = iterator.next();
+                if (booking.getMainGuest() == null) {
+                    continue;
+                }
+                BigDecimal deposit = booking.getPriceBreakdown() != null
+                        ? booking.getPriceBreakdown().getDepositAmount()
+                        : null;
+                List<BookingExtra> extras = booking.getExtras() != null ? booking.getExtras() : List.of();
+                out.write(writer.writeValueAsBytes(
+                        new ForwardBookingLine(booking.getId(), BookingService.pricingRequest(booking, extras, deposit))));
+                out.write(NEWLINE);
+                written++;
+            }
+        }
+        out.flush();
+        log.debug("Forward book exported: {} bookings", written);
+        return written;
+    }
+
+    public List<OccupancyEvent> occupancy() {
+        List<Booking> stays = bookingRepository.aggregateOccupancy(LocalDate.now(clock));
+        List<OccupancyEvent> events = new ArrayList<>(stays.size());
+        for (Booking stay : stays) {
+            events.add(new OccupancyEvent(stay.getId(), stay.getResourceId(), stay.getCheckIn(), stay.getCheckOut(), true));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,348 @@
+package com.swam.booking.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.domain.ResourceNight;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import com.swam.shared.exceptions.SlotNotAvailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes double bookings impossible without transactions or locks: before a booking is written, each night it holds
+ * from today on is inserted in {@code resource_nights}, whose id is (resourceId, date). Mongo accepts a given id once, so of two
+ * concurrent writes on the same night exactly one gets it; the other one removes the nights it did insert and fails
+ * with {@link SlotNotAvailableException}, before the booking document is touched. Writes on different resources
+ * never touch the same documents.
+ * <p>
+ * Hooked on the Mongo events like {@link OccupancyEventPublisher}, so every write path is covered: nights no longer
+ * held (shorter stay, other resource, cancellation, delete) are released after the write succeeded. A write that
+ * fails after its nights were claimed gives them back through {@link #release(String)}, called by the service; the
+ * nights left behind by a write that never got there (a crash, another write path) are dropped by a periodic
+ * reconciliation once older than {@link #CLAIM_GRACE}. A write that keeps the resource, the dates and the cancelled
+ * flag of the booking as it was read claims and releases nothing.
+ * Existing bookings are claimed at startup; nights already past are purged every day.
+ */
+@Slf4j
+@Component
+public class NightReservations extends AbstractMongoEventListener<Booking> {
+
+    private static final int DUPLICATE_KEY = 11000;
+    // longer than any booking write, a younger claim may belong to a save still running
+    static final Duration CLAIM_GRACE = Duration.ofMinutes(10);
+
+    private final MongoTemplate mongoTemplate;
+    private final BookingRepository bookingRepository;
+    private final BookingLocks bookingLocks;
+    private final boolean enabled;
+    private final Clock clock;
+
+    @Autowired
+    public NightReservations(MongoTemplate mongoTemplate,
+                             BookingRepository bookingRepository,
+                             BookingLocks bookingLocks,
+                             @Value("${booking.night-reservations.enabled:true}") boolean enabled) {
+        this(mongoTemplate, bookingRepository, bookingLocks, enabled, Clock.systemDefaultZone());
+    }
+
+    NightReservations(MongoTemplate mongoTemplate, BookingRepository bookingRepository, BookingLocks bookingLocks,
+                      boolean enabled, Clock clock) {
+        this.mongoTemplate = mongoTemplate;
+        this.bookingRepository = bookingRepository;
+        this.bookingLocks = bookingLocks;
+        this.enabled = enabled;
+        this.clock = clock;
+    }
+
+    // while true, two bookings can never be written on the same night whatever the overlap checks answered
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Booking> event) {
+        if (!enabled) {
+            return;
+        }
+        Booking booking = event.getSource();
+        // the nights need the id of a new booking before it is inserted
+        boolean created = booking.getId() == null;
+        if (created) {
+            booking.setId(new ObjectId().toHexString());
+        } else if (stayKey(booking).equals(storedStay(booking))) {
+            // check-in, payment, guests: the stored claims still match, even a night shared before the claims existed
+            return;
+        }
+        List<ResourceNight> wanted = nights(booking, LocalDate.now(clock), clock.instant());
+        if (wanted.isEmpty()) {
+            return;
+        }
+        Set<String> held = created ? Set.of() : heldIds(booking.getId());
+        List<ResourceNight> missing = new ArrayList<>(wanted.size());
+        for (ResourceNight night : wanted) {
+            if (!held.contains(night.getId())) {
+                missing.add(night);
+            }
+        }
+        claim(booking.getId(), booking.getResourceId(), missing);
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Booking> event) {
+        if (!enabled) {
+            return;
+        }
+        Booking booking = event.getSource();
+        String stay = stayKey(booking);
+        if (!stay.equals(booking.getClaimedStay())) {
+            mongoTemplate.remove(Query.query(Criteria.where("bookingId").is(booking.getId()).and("_id").nin(heldBy(booking))),
+                    ResourceNight.class);
+            booking.setClaimedStay(stay);
+        }
+    }
+
+    @Override
+    public void onAfterConvert(AfterConvertEvent<Booking> event) {
+        Booking booking = event.getSource();
+        booking.setClaimedStay(stayKey(booking));
+    }
+
+    // gives back the nights claimed for a write that failed: those the stored booking does not hold, all when it is gone
+    public void release(String bookingId) {
+        if (!enabled || bookingId == null) {
+            return;
+        }
+        Booking stored = bookingRepository.findById(bookingId).orElse(null);
+        mongoTemplate.remove(Query.query(Criteria.where("bookingId").is(bookingId).and("_id").nin(heldBy(stored))),
+                ResourceNight.class);
+    }
+
+    // drops the claims older than the grace period that no stored booking holds, returns the nights removed
+    @Scheduled(cron = "${booking.night-reservations.reconcile-cron:0 */15 * * * *}")
+    public long reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        Instant cutoff = clock.instant().minus(CLAIM_GRACE);
+        Criteria settled = new Criteria().orOperator(Criteria.where("claimedAt").lt(cutoff),
+                Criteria.where("claimedAt").exists(false));
+        Query claims = Query.query(Criteria.where("date").gte(LocalDate.now(clock)).andOperator(settled));
+        List<String> bookingIds = mongoTemplate.findDistinct(claims, "bookingId", ResourceNight.class, String.class);
+        Map<String, Booking> stored = new HashMap<>();
+        for (Booking booking : bookingRepository.findAllById(bookingIds)) {
+            stored.put(booking.getId(), booking);
+        }
+        long removed = 0;
+        for (String bookingId : bookingIds) {
+            Query orphans = Query.query(Criteria.where("bookingId").is(bookingId).and("_id").nin(heldBy(stored.get(bookingId)))
+                    .andOperator(settled));
+            removed += mongoTemplate.remove(orphans, ResourceNight.class).getDeletedCount();
+        }
+        if (removed > 0) {
+            log.warn("Night reservations reconciled: {} nights held by no booking released", removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Booking> event) {
+        if (!enabled) {
+            return;
+        }
+        List<String> ids = OccupancyEventPublisher.deletedIds(event.getSource());
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("bookingId").in(ids)), ResourceNight.class);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::backfill, "booking-night-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // claims the nights of the bookings written before the reservations existed, returns the nights inserted
+    public long backfill() {
+        mongoTemplate.indexOps(ResourceNight.class).ensureIndex(new Index("bookingId", Sort.Direction.ASC));
+        long inserted = 0;
+        for (Booking stay : bookingRepository.aggregateOccupancy(LocalDate.now(clock))) {
+            inserted += bookingLocks.withLocks(List.of(BookingLocks.resource(stay.getResourceId())), () -> backfill(stay));
+        }
+        log.info("Night reservations backfilled: {} nights claimed", inserted);
+        return inserted;
+    }
+
+    // held against the mutations of the resource, so a cancel or move of the stay cannot run between insert and check
+    private long backfill(Booking stay) {
+        List<ResourceNight> nights = nights(stay, LocalDate.now(clock), clock.instant());
+        if (nights.isEmpty()) {
+            return 0;
+        }
+        Set<Integer> failed = new HashSet<>();
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResourceNight.class);
+        operations.insert(nights);
+        try {
+            operations.execute();
+        } catch (BulkOperationException ex) {
+            long foreign = 0;
+            for (BulkWriteError error : ex.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw ex;
+                }
+                failed.add(error.getIndex());
+                ResourceNight holder = mongoTemplate.findById(nights.get(error.getIndex()).getId(), ResourceNight.class);
+                if (holder != null && !stay.getId().equals(holder.getBookingId())) {
+                    foreign++;
+                }
+            }
+            if (foreign > 0) {
+                log.warn("Booking {} shares {} nights of resource {} with other bookings", stay.getId(), foreign,
+                        stay.getResourceId());
+            }
+        }
+        if (failed.size() == nights.size()) {
+            return 0;
+        }
+        // the stay was read before the lock: nights inserted for a booking cancelled, moved or deleted since then
+        // would outlive the release of that write, so they are checked against the booking as stored now
+        Set<String> stale = new HashSet<>();
+        for (int i = 0; i < nights.size(); i++) {
+            if (!failed.contains(i)) {
+                stale.add(nights.get(i).getId());
+            }
+        }
+        int claimed = stale.size();
+        heldBy(bookingRepository.findById(stay.getId()).orElse(null)).forEach(stale::remove);
+        if (!stale.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(stale).and("bookingId").is(stay.getId())),
+                    ResourceNight.class);
+            log.debug("Booking {} changed during the backfill, {} nights given back", stay.getId(), stale.size());
+        }
+        return claimed - stale.size();
+    }
+
+    // past nights can no longer be sold, their reservations are dropped
+    @Scheduled(cron = "${booking.night-reservations.purge-cron:0 30 3 * * *}")
+    public void purgePastNights() {
+        if (!enabled) {
+            return;
+        }
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("date").lt(LocalDate.now(clock))), ResourceNight.class)
+                .getDeletedCount();
+        log.debug("Purged {} past night reservations", removed);
+    }
+
+    private void claim(String bookingId, String resourceId, List<ResourceNight> nights) {
+        if (nights.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResourceNight.class);
+        operations.insert(nights);
+        try {
+            operations.execute();
+        } catch (BulkOperationException ex) {
+            // unordered: every night but the failed ones was inserted, give them back before failing
+            Set<Integer> failed = new HashSet<>();
+            boolean conflict = true;
+            for (BulkWriteError error : ex.getErrors()) {
+                failed.add(error.getIndex());
+                conflict &= error.getCode() == DUPLICATE_KEY;
+            }
+            List<String> inserted = new ArrayList<>();
+            for (int i = 0; i < nights.size(); i++) {
+                if (!failed.contains(i)) {
+                    inserted.add(nights.get(i).getId());
+                }
+            }
+            if (!inserted.isEmpty()) {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").in(inserted).and("bookingId").is(bookingId)),
+                        ResourceNight.class);
+            }
+            if (!conflict) {
+                throw ex;
+            }
+            log.debug("Booking {} lost {} nights of resource {} to a concurrent booking", bookingId, failed.size(), resourceId);
+            throw new SlotNotAvailableException(resourceId);
+        }
+    }
+
+    private Set<String> heldIds(String bookingId) {
+        Query query = Query.query(Criteria.where("bookingId").is(bookingId));
+        query.fields().include("_id");
+        Set<String> ids = new HashSet<>();
+        for (ResourceNight night : mongoTemplate.find(query, ResourceNight.class)) {
+            ids.add(night.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> heldBy(Booking booking) {
+        List<String> ids = new ArrayList<>();
+        for (ResourceNight night : nights(booking, null, null)) {
+            ids.add(night.getId());
+        }
+        return ids;
+    }
+
+    // stay as last read or written, read again when the booking was not loaded through Mongo; null when not stored
+    private String storedStay(Booking booking) {
+        if (booking.getClaimedStay() != null) {
+            return booking.getClaimedStay();
+        }
+        return bookingRepository.findById(booking.getId()).map(NightReservations::stayKey).orElse(null);
+    }
+
+    // what the claims depend on: the status only matters as cancelled or not
+    private static String stayKey(Booking booking) {
+        return booking.getResourceId() + "|" + booking.getCheckIn() + "|" + booking.getCheckOut() + "|"
+                + (booking.getStatus() == BookingStatus.CANCELLED);
+    }
+
+    // nights the booking holds from the given day (all when null), none when it is cancelled or null
+    private static List<ResourceNight> nights(Booking booking, LocalDate from, Instant claimedAt) {
+        if (booking == null || booking.getStatus() == BookingStatus.CANCELLED || booking.getResourceId() == null
+                || booking.getCheckIn() == null || booking.getCheckOut() == null) {
+            return List.of();
+        }
+        List<ResourceNight> nights = new ArrayList<>();
+        LocalDate first = from != null && from.isAfter(booking.getCheckIn()) ? from : booking.getCheckIn();
+        for (LocalDate night = first; night.isBefore(booking.getCheckOut()); night = night.plusDays(1)) {
+            nights.add(ResourceNight.of(booking.getResourceId(), night, booking.getId(), claimedAt));
+        }
+        return nights;
+    }
+}
@@ -0,0 +1,88 @@
+package com.swam.booking.service;
+
+import com.swam.booking.client.PricingServiceClient;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.OccupancyEvent;
+import com.swam.shared.enums.BookingStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends the new state of every saved or deleted booking to pricing-service, which keeps the occupancy counters.
+ * Catching the Mongo events covers every write path (create, modify, split, cancel, bulk delete) in one place.
+ * Events go out on a single background thread, in write order, and never slow down or fail the booking write:
+ * a lost event is corrected by the nightly rebuild of the counters.
+ */
+@Slf4j
+@Component
+public class OccupancyEventPublisher extends AbstractMongoEventListener<Booking> {
+
+    private final PricingServiceClient pricingClient;
+    private final Executor sender;
+
+    @Autowired
+    public OccupancyEventPublisher(PricingServiceClient pricingClient) {
+        this(pricingClient, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-occupancy-events");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    OccupancyEventPublisher(PricingServiceClient pricingClient, Executor sender) {
+        this.pricingClient = pricingClient;
+        this.sender = sender;
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Booking> event) {
+        Booking booking = event.getSource();
+        publish(new OccupancyEvent(booking.getId(), booking.getResourceId(), booking.getCheckIn(), booking.getCheckOut(),
+                booking.getStatus() != BookingStatus.CANCELLED));
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Booking> event) {
+        for (String id : deletedIds(event.getSource())) {
+            publish(new OccupancyEvent(id, null, null, null, false));
+        }
+    }
+
+    // ids of the delete filter: a single _id for deleteById, {_id: {$in: [...]}} for deleteAllById
+    static List<String> deletedIds(Document filter) {
+        Object id = filter.get("_id");
+        if (id instanceof Document operators && operators.get("$in") instanceof Collection<?> ids) {
+            List<String> result = new ArrayList<>(ids.size());
+            for (Object value : ids) {
+                result.add(String.valueOf(value));
+            }
+            return result;
+        }
+        if (id == null || id instanceof Document) {
+            log.debug("Delete filter without plain ids, left to the occupancy rebuild: {}", filter.toJson());
+            return List.of();
+        }
+        return List.of(String.valueOf(id));
+    }
+
+    private void publish(OccupancyEvent event) {
+        sender.execute(() -> {
+            try {
+                pricingClient.occupancyChanged(event);
+            } catch (RuntimeException ex) {
+                log.warn("Occupancy event for booking {} not delivered: {}", event.getBookingId(), ex.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.swam.booking.client;
+
+import com.swam.booking.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.GuestType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PricingRouterTest {
+
+    private static final Instant NOW = Instant.parse("2024-08-01T10:00:00Z");
+
+    private final PricingServiceClient remote = mock(PricingServiceClient.class);
+    private final Clock clock = mock(Clock.class);
+
+    private final RateSnapshot snapshot = RateSnapshot.of(3, false,
+            List.of(new RateSnapshot.SeasonEntry("AUG", LocalDate.of(2024, 8, 1), LocalDate.of(2024, 8, 31))),
+            List.of(new RateSnapshot.RateEntry("AUG-room-101", "AUG", "room-101", new BigDecimal("100.00"),
+                    new BigDecimal("10.00"), new BigDecimal("5.00"), BigDecimal.ZERO)),
+            new RateSnapshot.CityTaxEntry(true, new BigDecimal("2.00"), BigDecimal.ZERO, BigDecimal.ZERO, 14, 7),
+            List.of(), 0, null);
+
+    @Test
+    @DisplayName("Local mode - quotes computed in process on the replicated snapshot")
+    void localMode_ShouldQuoteInProcess() {
+        PricingRouter router = new PricingRouter(remote, replicated("local"));
+
+        PriceBreakdown quote = router.calculateQuote(request());
+
+        // 3 nights x (100 + 2 x 10) + city tax 3 nights x 2 adults x 2
+        assertEquals(0, new BigDecimal("360.00").compareTo(quote.getBaseAmount()));
+        assertEquals(0, new BigDecimal("12.00").compareTo(quote.getTaxAmount()));
+        assertEquals(3L, quote.getRateCardVersion());
+        verify(remote, never()).calculateQuote(any());
+    }
+
+    @Test
+    @DisplayName("Local mode - stale or missing snapshot falls back to HTTP")
+    void localMode_ShouldFallBackWhenStale() {
+        RateSnapshotReplica replica = replicated("local");
+        PricingRouter router = new PricingRouter(remote, replica);
+        when(remote.calculateQuote(any())).thenReturn(new PriceBreakdown());
+
+        // pricing-service unreachable for longer than the max age
+        when(remote.getRateSnapshotVersion()).thenThrow(new IllegalStateException("pricing down"));
+        when(clock.instant()).thenReturn(NOW.plusSeconds(31));
+        replica.refresh();
+        router.calculateQuote(request());
+
+        PricingRouter empty = new PricingRouter(remote, new RateSnapshotReplica(remote, "local", Duration.ofSeconds(30), clock));
+        empty.calculateQuote(request());
+
+        verify(remote, times(2)).calculateQuote(any());
+    }
+
+    @Test
+    @DisplayName("Remote mode - quotes always go to pricing-service, no snapshot is fetched")
+    void remoteMode_ShouldCallPricingService() {
+        RateSnapshotReplica replica = new RateSnapshotReplica(remote, "remote", Duration.ofSeconds(30), clock);
+        replica.refresh();
+        new PricingRouter(remote, replica).calculateQuote(request());
+
+        verify(remote).calculateQuote(request());
+        verify(remote, never()).getRateSnapshot();
+    }
+
+    @Test
+    @DisplayName("Refresh - the snapshot is downloaded again only when its version moves")
+    void refresh_ShouldFetchOnlyNewVersions() {
+        RateSnapshotReplica replica = replicated("local");
+        replica.refresh();
+        verify(remote, times(1)).getRateSnapshot();
+
+        when(remote.getRateSnapshotVersion()).thenReturn(new SnapshotVersion(3, 1));
+        replica.refresh();
+        verify(remote, times(2)).getRateSnapshot();
+    }
+
+    private RateSnapshotReplica replicated(String mode) {
+        when(clock.instant()).thenReturn(NOW);
+        when(remote.getRateSnapshotVersion()).thenReturn(snapshot.getSnapshotVersion());
+        when(remote.getRateSnapshot()).thenReturn(snapshot);
+        RateSnapshotReplica replica = new RateSnapshotReplica(remote, mode, Duration.ofSeconds(30), clock);
+        replica.refresh();
+        return replica;
+    }
+
+    private static PriceCalculationRequest request() {
+        return PriceCalculationRequest.builder()
+                .resourceId("room-101")
+                .checkIn(LocalDate.of(2024, 8, 10))
+                .checkOut(LocalDate.of(2024, 8, 13))
+                .guests(List.of(
+                        PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(3).build(),
+                        PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(3).build()))
+                .build();
+    }
+}
@@ -1,11 +1,17 @@
 package com.swam.booking.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swam.booking.dto.AvailabilityMatrixResponse;
 import com.swam.booking.dto.BookingResponse;
 import com.swam.booking.dto.CheckInRequest;
 import com.swam.booking.dto.CheckOutRequest;
 import com.swam.booking.dto.CreateBookingRequest;
+import com.swam.booking.dto.EncodedAvailabilityMatrixResponse;
+import com.swam.booking.dto.OccupancyEncoding;
+import com.swam.booking.dto.UnavailablePeriodResponse;
+import com.swam.booking.service.AvailabilityMatrixService;
 import com.swam.booking.service.BookingService;
+import com.swam.booking.service.ForwardBookService;
 import com.swam.shared.dto.PriceBreakdown;
 import com.swam.shared.enums.*;
 import org.junit.jupiter.api.DisplayName;
@@ -21,12 +27,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -39,6 +47,12 @@ class BookingControllerTest {
     @MockBean
     private BookingService bookingService;
 
+    @MockBean
+    private ForwardBookService forwardBookService;
+
+    @MockBean
+    private AvailabilityMatrixService availabilityMatrixService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -187,4 +201,86 @@ class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.resourceId").value("room-102"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /api/bookings/availability-matrix -> occupied periods of every resource")
+    void availabilityMatrix_ShouldGroupPeriodsByResource() throws Exception {
+        LocalDate from = LocalDate.of(2024, 8, 1);
+        LocalDate to = LocalDate.of(2024, 9, 30);
+        AvailabilityMatrixResponse matrix = new AvailabilityMatrixResponse(from, to, Map.of(
+                "room-101", List.of(UnavailablePeriodResponse.builder()
+                        .start(LocalDate.of(2024, 8, 10)).end(LocalDate.of(2024, 8, 15))
+                        .bookingId("book-1").status(BookingStatus.CONFIRMED).build()),
+                "room-102", List.of(UnavailablePeriodResponse.builder()
+                        .start(LocalDate.of(2024, 8, 12)).end(LocalDate.of(2024, 8, 13)).build())));
+
+        when(availabilityMatrixService.getMatrix(from, to, null, true)).thenReturn(matrix);
+
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-09-30")
+                        .param("details", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resources['room-101'][0].start").value("2024-08-10"))
+                .andExpect(jsonPath("$.resources['room-101'][0].bookingId").value("book-1"))
+                .andExpect(jsonPath("$.resources['room-102'][0].end").value("2024-08-13"))
+                // details are omitted, not null
+                .andExpect(jsonPath("$.resources['room-102'][0].bookingId").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/bookings/availability-matrix -> compact form chosen by Accept header or encoding")
+    void availabilityMatrix_ShouldReturnCompactEncoding() throws Exception {
+        LocalDate from = LocalDate.of(2024, 8, 1);
+        LocalDate to = LocalDate.of(2024, 8, 11);
+        EncodedAvailabilityMatrixResponse matrix = EncodedAvailabilityMatrixResponse.builder()
+                .from(from).to(to).fromEpochDay(from.toEpochDay()).days(10)
+                .encoding(OccupancyEncoding.BITSET)
+                .bitsets(Map.of("room-101", "AwM="))
+                .build();
+
+        when(availabilityMatrixService.getEncodedMatrix(from, to, null, OccupancyEncoding.BITSET)).thenReturn(matrix);
+
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-08-11")
+                        .accept(OccupancyEncoding.BITSET.getMediaType()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(OccupancyEncoding.BITSET.getMediaType()))
+                .andExpect(jsonPath("$.bitsets['room-101']").value("AwM="))
+                .andExpect(jsonPath("$.runs").doesNotExist());
+
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-08-11")
+                        .param("encoding", "bitset"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days").value(10));
+
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-08-11")
+                        .param("encoding", "zip"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/bookings/availability-matrix -> details with a compact encoding is a bad request")
+    void availabilityMatrix_ShouldRejectDetailsWithCompactEncoding() throws Exception {
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-08-11")
+                        .param("details", "true")
+                        .param("encoding", "rle"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/bookings/availability-matrix")
+                        .param("from", "2024-08-01")
+                        .param("to", "2024-08-11")
+                        .param("details", "true")
+                        .accept(OccupancyEncoding.BITSET.getMediaType()))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(availabilityMatrixService);
+    }
+}
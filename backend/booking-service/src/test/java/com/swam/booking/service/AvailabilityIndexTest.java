@@ -0,0 +1,144 @@
+package com.swam.booking.service;
+
+import com.swam.booking.domain.Booking;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AvailabilityIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 8, 1);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AvailabilityIndex index = new AvailabilityIndex(bookingRepository, true, meterRegistry,
+            Clock.fixed(TODAY.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+
+    @Test
+    @DisplayName("Overlap - same rule as the Mongo query, touching stays are free")
+    void lookup_ShouldMatchOverlapRule() {
+        when(bookingRepository.aggregateOccupancy(TODAY)).thenReturn(List.of(
+                stay("b1", "room-101", "2024-08-10", "2024-08-15"),
+                stay("b2", "room-101", "2024-08-20", "2024-08-21"),
+                // a long stay starting well before the checked interval
+                stay("b3", "room-102", "2024-08-01", "2024-09-01")));
+        index.rebuild();
+
+        assertFree(index.lookup("room-101", date("2024-08-05"), date("2024-08-10"), null));
+        assertFree(index.lookup("room-101", date("2024-08-15"), date("2024-08-20"), null));
+        assertBusy("b1", index.lookup("room-101", date("2024-08-14"), date("2024-08-16"), null));
+        assertBusy(index.lookup("room-101", date("2024-08-09"), date("2024-08-22"), null));
+        assertBusy("b3", index.lookup("room-102", date("2024-08-25"), date("2024-08-26"), null));
+        // the booking being edited does not conflict with itself
+        assertFree(index.lookup("room-101", date("2024-08-12"), date("2024-08-18"), "b1"));
+        assertFree(index.lookup("room-103", date("2024-08-12"), date("2024-08-18"), null));
+    }
+
+    @Test
+    @DisplayName("Unknown - before the first build or before today the index does not answer")
+    void lookup_ShouldDeferWhenNotCovered() {
+        assertNotCovered(index.lookup("room-101", date("2024-08-05"), date("2024-08-10"), null));
+
+        when(bookingRepository.aggregateOccupancy(TODAY)).thenReturn(List.of());
+        index.rebuild();
+
+        assertFree(index.lookup("room-101", date("2024-08-05"), date("2024-08-10"), null));
+        // a stay seen after the build but starting before today is only reported from today on
+        saved(stay("b1", "room-101", "2024-07-29", "2024-08-03"));
+        assertNotCovered(index.lookup("room-101", date("2024-07-30"), date("2024-08-02"), null));
+        assertBusy("b1", index.lookup("room-101", date("2024-08-01"), date("2024-08-02"), null));
+    }
+
+    @Test
+    @DisplayName("Writes - saves, moves, cancellations and deletes update the index")
+    void events_ShouldUpdateIndex() {
+        when(bookingRepository.aggregateOccupancy(TODAY)).thenReturn(List.of());
+        index.rebuild();
+
+        Booking booking = stay("b1", "room-101", "2024-08-10", "2024-08-15");
+        saved(booking);
+        assertBusy("b1", index.lookup("room-101", date("2024-08-12"), date("2024-08-13"), null));
+
+        // moved to another resource
+        booking.setResourceId("room-102");
+        saved(booking);
+        assertFree(index.lookup("room-101", date("2024-08-12"), date("2024-08-13"), null));
+        assertBusy("b1", index.lookup("room-102", date("2024-08-12"), date("2024-08-13"), null));
+
+        booking.setStatus(BookingStatus.CANCELLED);
+        saved(booking);
+        assertFree(index.lookup("room-102", date("2024-08-12"), date("2024-08-13"), null));
+
+        saved(stay("b2", "room-103", "2024-08-10", "2024-08-15"));
+        index.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", "b2"), Booking.class, "bookings"));
+        assertFree(index.lookup("room-103", date("2024-08-12"), date("2024-08-13"), null));
+    }
+
+    @Test
+    @DisplayName("Reconciliation - differences with Mongo are corrected and counted")
+    void rebuild_ShouldCountDrift() {
+        when(bookingRepository.aggregateOccupancy(TODAY)).thenReturn(List.of(stay("b1", "room-101", "2024-08-10", "2024-08-15")));
+        index.rebuild();
+        // a write the index never saw, and one it saw that did not reach Mongo
+        saved(stay("b2", "room-101", "2024-08-20", "2024-08-22"));
+        when(bookingRepository.aggregateOccupancy(any())).thenReturn(List.of(
+                stay("b1", "room-101", "2024-08-10", "2024-08-15"),
+                stay("b3", "room-102", "2024-08-10", "2024-08-15")));
+
+        assertEquals(2, index.rebuild());
+        assertEquals(2.0, meterRegistry.counter("booking.availability.index.drift").count());
+        assertFree(index.lookup("room-101", date("2024-08-20"), date("2024-08-22"), null));
+        assertBusy("b3", index.lookup("room-102", date("2024-08-12"), date("2024-08-13"), null));
+    }
+
+    private static void assertFree(AvailabilityIndex.Answer answer) {
+        assertTrue(answer.free(), answer.toString());
+    }
+
+    private static void assertBusy(AvailabilityIndex.Answer answer) {
+        assertTrue(answer.covered());
+        assertNotNull(answer.conflictingBookingId());
+    }
+
+    private static void assertBusy(String bookingId, AvailabilityIndex.Answer answer) {
+        assertTrue(answer.covered());
+        assertEquals(bookingId, answer.conflictingBookingId());
+    }
+
+    private static void assertNotCovered(AvailabilityIndex.Answer answer) {
+        assertFalse(answer.covered());
+        assertFalse(answer.free());
+    }
+
+    private void saved(Booking booking) {
+        index.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+    }
+
+    private static Booking stay(String id, String resourceId, String checkIn, String checkOut) {
+        return Booking.builder()
+                .id(id)
+                .resourceId(resourceId)
+                .checkIn(date(checkIn))
+                .checkOut(date(checkOut))
+                .status(BookingStatus.CONFIRMED)
+                .build();
+    }
+
+    private static LocalDate date(String value) {
+        return LocalDate.parse(value);
+    }
+}
@@ -0,0 +1,123 @@
+package com.swam.booking.service;
+
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.AvailabilityMatrixResponse;
+import com.swam.booking.dto.EncodedAvailabilityMatrixResponse;
+import com.swam.booking.dto.OccupancyEncoding;
+import com.swam.booking.dto.UnavailablePeriodResponse;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import com.swam.shared.exceptions.InvalidBookingDateException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvailabilityMatrixServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 8, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 9, 30);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final AvailabilityMatrixService service =
+            new AvailabilityMatrixService(bookingRepository, mock(MongoTemplate.class), 366);
+
+    @Test
+    @DisplayName("Matrix - one window query grouped by resource, periods sorted by start")
+    void getMatrix_ShouldGroupByResource() {
+        when(bookingRepository.findActiveInWindow(FROM, TO)).thenReturn(List.of(
+                stay("b2", "room-101", "2024-08-20", "2024-08-22"),
+                stay("b3", "room-102", "2024-07-28", "2024-08-03"),
+                stay("b1", "room-101", "2024-08-10", "2024-08-15")));
+
+        AvailabilityMatrixResponse matrix = service.getMatrix(FROM, TO, null, false);
+
+        assertEquals(List.of("room-101", "room-102"), List.copyOf(matrix.getResources().keySet()));
+        List<UnavailablePeriodResponse> room101 = matrix.getResources().get("room-101");
+        assertEquals(List.of(LocalDate.parse("2024-08-10"), LocalDate.parse("2024-08-20")),
+                room101.stream().map(UnavailablePeriodResponse::getStart).toList());
+        assertNull(room101.get(0).getBookingId());
+        // a stay starting before the window is returned whole
+        assertEquals(LocalDate.parse("2024-07-28"), matrix.getResources().get("room-102").get(0).getStart());
+        verify(bookingRepository, times(1)).findActiveInWindow(FROM, TO);
+    }
+
+    @Test
+    @DisplayName("Matrix - requested resources are listed even when free, others are left out")
+    void getMatrix_ShouldRestrictToRequestedResources() {
+        when(bookingRepository.findActiveInWindow(FROM, TO)).thenReturn(List.of(
+                stay("b1", "room-101", "2024-08-10", "2024-08-15"),
+                stay("b2", "room-102", "2024-08-10", "2024-08-15")));
+
+        AvailabilityMatrixResponse matrix = service.getMatrix(FROM, TO, List.of("room-101", "room-103"), true);
+
+        assertEquals(List.of("room-101", "room-103"), List.copyOf(matrix.getResources().keySet()));
+        assertEquals("b1", matrix.getResources().get("room-101").get(0).getBookingId());
+        assertEquals(BookingStatus.CONFIRMED, matrix.getResources().get("room-101").get(0).getStatus());
+        assertTrue(matrix.getResources().get("room-103").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Matrix - empty, reversed or too long windows are rejected")
+    void getMatrix_ShouldRejectInvalidWindow() {
+        assertThrows(InvalidBookingDateException.class, () -> service.getMatrix(FROM, FROM, null, false));
+        assertThrows(InvalidBookingDateException.class, () -> service.getMatrix(TO, FROM, null, false));
+        assertThrows(InvalidBookingDateException.class, () -> service.getMatrix(FROM, FROM.plusDays(367), null, false));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    @DisplayName("Bitset - one bit per night of the window, least significant first, stays clipped")
+    void getEncodedMatrix_ShouldEncodeBitset() {
+        LocalDate from = LocalDate.of(2024, 8, 1);
+        LocalDate to = LocalDate.of(2024, 8, 11);
+        when(bookingRepository.findActiveInWindow(from, to)).thenReturn(List.of(
+                stay("b1", "room-101", "2024-07-30", "2024-08-03"),
+                stay("b2", "room-101", "2024-08-09", "2024-08-20")));
+
+        EncodedAvailabilityMatrixResponse matrix = service.getEncodedMatrix(from, to, null, OccupancyEncoding.BITSET);
+
+        assertEquals(from.toEpochDay(), matrix.getFromEpochDay());
+        assertEquals(10, matrix.getDays());
+        assertNull(matrix.getRuns());
+        // nights 0, 1, 8 and 9 occupied
+        byte[] nights = Base64.getDecoder().decode(matrix.getBitsets().get("room-101"));
+        assertArrayEquals(new byte[]{0b0000_0011, 0b0000_0011}, nights);
+    }
+
+    @Test
+    @DisplayName("RLE - alternating free and occupied runs, starting free, adding up to the window")
+    void getEncodedMatrix_ShouldEncodeRunLengths() {
+        LocalDate from = LocalDate.of(2024, 8, 1);
+        LocalDate to = LocalDate.of(2024, 8, 31);
+        when(bookingRepository.findActiveInWindow(from, to)).thenReturn(List.of(
+                stay("b1", "room-101", "2024-08-05", "2024-08-10"),
+                // back to back stays make one run
+                stay("b2", "room-101", "2024-08-10", "2024-08-12"),
+                stay("b3", "room-102", "2024-07-20", "2024-08-02")));
+
+        EncodedAvailabilityMatrixResponse matrix =
+                service.getEncodedMatrix(from, to, List.of("room-101", "room-102", "room-103"), OccupancyEncoding.RLE);
+
+        assertNull(matrix.getBitsets());
+        assertArrayEquals(new int[]{4, 7, 19}, matrix.getRuns().get("room-101"));
+        assertArrayEquals(new int[]{0, 1, 29}, matrix.getRuns().get("room-102"));
+        assertArrayEquals(new int[]{30}, matrix.getRuns().get("room-103"));
+    }
+
+    private static Booking stay(String id, String resourceId, String checkIn, String checkOut) {
+        return Booking.builder()
+                .id(id)
+                .resourceId(resourceId)
+                .checkIn(LocalDate.parse(checkIn))
+                .checkOut(LocalDate.parse(checkOut))
+                .status(BookingStatus.CONFIRMED)
+                .build();
+    }
+}
@@ -0,0 +1,153 @@
+package com.swam.booking.service;
+
+import com.swam.booking.client.PricingServiceClient;
+import com.swam.booking.client.ResourceServiceClient;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.*;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.GuestType;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import com.swam.shared.exceptions.InvalidBookingDateException;
+import com.swam.shared.exceptions.InvalidGuestDataException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilitySearchServiceTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.of(2024, 8, 12);
+    private static final LocalDate CHECK_OUT = LocalDate.of(2024, 8, 19);
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private ResourceServiceClient resourceClient;
+
+    @Mock
+    private PricingServiceClient pricingClient;
+
+    @InjectMocks
+    private AvailabilitySearchService availabilitySearchService;
+
+    @Test
+    @DisplayName("Search - returns free resources priced in one batch, cheapest first")
+    void searchAvailable_ShouldReturnFreeResourcesSortedByPrice() {
+        when(bookingRepository.findActiveOverlappingResourceIds(CHECK_IN, CHECK_OUT))
+                .thenReturn(List.of(Booking.builder().resourceId("busy").build()));
+        when(resourceClient.getAllResources()).thenReturn(List.of(
+                resource("expensive", 4, ResourceStatus.AVAILABLE),
+                resource("busy", 4, ResourceStatus.AVAILABLE),
+                resource("small", 2, ResourceStatus.AVAILABLE),
+                resource("maintenance", 4, ResourceStatus.MAINTENANCE),
+                resource("cheap", 3, ResourceStatus.AVAILABLE),
+                resource("norate", 3, ResourceStatus.AVAILABLE)));
+        when(pricingClient.checkRestrictions(any(RestrictionCheckRequest.class))).thenReturn(allowedAll());
+        when(pricingClient.calculateBatch(any(BatchPriceCalculationRequest.class))).thenReturn(
+                BatchPriceCalculationResponse.builder().results(List.of(
+                        priced(0, "900.00"),
+                        priced(1, "450.00"),
+                        BatchPriceCalculationResponse.ItemResult.builder()
+                                .index(2).errorCode("PRICING_ERROR").errorMessage("Prezzo mancante").build()))
+                        .build());
+
+        List<AvailableResourceQuote> result = availabilitySearchService.searchAvailable(CHECK_IN, CHECK_OUT, 2, 1, 0);
+
+        assertEquals(List.of("cheap", "expensive", "norate"),
+                result.stream().map(AvailableResourceQuote::getResourceId).toList());
+        assertEquals(new BigDecimal("450.00"), result.get(0).getPrice().getFinalTotal());
+        assertNull(result.get(2).getPrice());
+        assertEquals("PRICING_ERROR", result.get(2).getPricingErrorCode());
+
+        ArgumentCaptor<BatchPriceCalculationRequest> captor = ArgumentCaptor.forClass(BatchPriceCalculationRequest.class);
+        verify(pricingClient, times(1)).calculateBatch(captor.capture());
+        PriceCalculationRequest item = captor.getValue().getItems().get(0);
+        assertEquals("expensive", item.getResourceId());
+        assertEquals(3, item.getGuests().size());
+        assertEquals(2, item.getGuests().stream().filter(g -> g.getType() == GuestType.ADULT).count());
+        assertTrue(item.getGuests().stream().allMatch(g -> g.getDays() == 7));
+    }
+
+    @Test
+    @DisplayName("Search - no pricing call when nothing is free")
+    void searchAvailable_ShouldSkipPricingWhenNothingFree() {
+        when(bookingRepository.findActiveOverlappingResourceIds(CHECK_IN, CHECK_OUT))
+                .thenReturn(List.of(Booking.builder().resourceId("only").build()));
+        when(resourceClient.getAllResources()).thenReturn(List.of(resource("only", 4, ResourceStatus.AVAILABLE)));
+
+        assertTrue(availabilitySearchService.searchAvailable(CHECK_IN, CHECK_OUT, 2, 0, 0).isEmpty());
+        verifyNoInteractions(pricingClient);
+    }
+
+    @Test
+    @DisplayName("Search - resources failing a stay restriction are dropped before pricing")
+    void searchAvailable_ShouldDropRestrictedResources() {
+        when(bookingRepository.findActiveOverlappingResourceIds(CHECK_IN, CHECK_OUT)).thenReturn(List.of());
+        when(resourceClient.getAllResources()).thenReturn(List.of(
+                resource("minstay", 4, ResourceStatus.AVAILABLE),
+                resource("open", 4, ResourceStatus.AVAILABLE)));
+        when(pricingClient.checkRestrictions(any(RestrictionCheckRequest.class))).thenReturn(
+                RestrictionCheckResponse.builder().results(List.of(
+                        new RestrictionCheckResponse.ResourceRestriction("minstay", false, 10),
+                        new RestrictionCheckResponse.ResourceRestriction("open", true, null)))
+                        .build());
+        when(pricingClient.calculateBatch(any(BatchPriceCalculationRequest.class))).thenReturn(
+                BatchPriceCalculationResponse.builder().results(List.of(priced(0, "500.00"))).build());
+
+        List<AvailableResourceQuote> result = availabilitySearchService.searchAvailable(CHECK_IN, CHECK_OUT, 2, 0, 0);
+
+        assertEquals(List.of("open"), result.stream().map(AvailableResourceQuote::getResourceId).toList());
+        ArgumentCaptor<RestrictionCheckRequest> restrictionCaptor = ArgumentCaptor.forClass(RestrictionCheckRequest.class);
+        verify(pricingClient).checkRestrictions(restrictionCaptor.capture());
+        assertEquals(List.of("minstay", "open"), restrictionCaptor.getValue().getResourceIds());
+        ArgumentCaptor<BatchPriceCalculationRequest> batchCaptor = ArgumentCaptor.forClass(BatchPriceCalculationRequest.class);
+        verify(pricingClient).calculateBatch(batchCaptor.capture());
+        assertEquals(1, batchCaptor.getValue().getItems().size());
+    }
+
+    @Test
+    @DisplayName("Search - invalid dates or guest mix are rejected")
+    void searchAvailable_ShouldValidateInput() {
+        assertThrows(InvalidBookingDateException.class,
+                () -> availabilitySearchService.searchAvailable(CHECK_OUT, CHECK_IN, 2, 0, 0));
+        assertThrows(InvalidGuestDataException.class,
+                () -> availabilitySearchService.searchAvailable(CHECK_IN, CHECK_OUT, 0, 1, 0));
+        verifyNoInteractions(bookingRepository, resourceClient, pricingClient);
+    }
+
+    private ResourceSummary resource(String id, int capacity, ResourceStatus status) {
+        return ResourceSummary.builder()
+                .id(id)
+                .name(id.toUpperCase())
+                .type(ResourceType.DOUBLE_ROOM)
+                .capacity(capacity)
+                .status(status)
+                .build();
+    }
+
+    private BatchPriceCalculationResponse.ItemResult priced(int index, String total) {
+        return BatchPriceCalculationResponse.ItemResult.builder()
+                .index(index)
+                .breakdown(PriceBreakdown.builder().finalTotal(new BigDecimal(total)).build())
+                .build();
+    }
+
+    private RestrictionCheckResponse allowedAll() {
+        return RestrictionCheckResponse.builder().results(List.of()).build();
+    }
+}
@@ -0,0 +1,254 @@
+package com.swam.booking.service;
+
+import com.swam.booking.client.PricingServiceClient;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.BookingResponse;
+import com.swam.booking.dto.CreateBookingRequest;
+import com.swam.booking.dto.EditBookingStayRequest;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import com.swam.shared.enums.PaymentStatus;
+import com.swam.shared.exceptions.SlotNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BookingLocksTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 8, 1);
+    private static final String[] RESOURCES = {"room-101", "room-102", "room-103", "room-104"};
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BookingLocks locks = new BookingLocks(1024, meterRegistry);
+
+    // in-memory bookings collection: copies in and out, like documents
+    private final Map<String, Booking> store = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    // the index stays off and no nights are claimed: the locks alone keep the resource free of overlaps
+    private final BookingService bookingService = new BookingService(bookingRepository, mock(CustomerService.class),
+            mock(ExtraOptionService.class), mock(PricingServiceClient.class),
+            new AvailabilityIndex(bookingRepository, false, meterRegistry), locks, mock(NightReservations.class));
+
+    @Test
+    @DisplayName("Stress - thousands of concurrent overlapping creates and moves never double book a resource")
+    void concurrentMutations_ShouldNeverOverlap() throws Exception {
+        inMemoryRepository();
+        int requests = 4000;
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            Random random = new Random(i);
+            futures.add(pool.submit(() -> {
+                go.await();
+                String resourceId = RESOURCES[random.nextInt(RESOURCES.length)];
+                LocalDate checkIn = START.plusDays(random.nextInt(60));
+                LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(5));
+                try {
+                    List<String> existing = new ArrayList<>(store.keySet());
+                    if (random.nextInt(4) == 0 && !existing.isEmpty()) {
+                        EditBookingStayRequest request = new EditBookingStayRequest();
+                        request.setResourceId(resourceId);
+                        request.setCheckIn(checkIn);
+                        request.setCheckOut(checkOut);
+                        bookingService.updateBookingStay(existing.get(random.nextInt(existing.size())), request);
+                    } else {
+                        bookingService.createBooking(CreateBookingRequest.builder()
+                                .resourceId(resourceId).checkIn(checkIn).checkOut(checkOut).build());
+                    }
+                    accepted.incrementAndGet();
+                } catch (SlotNotAvailableException ex) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(requests, accepted.get() + rejected.get());
+        assertTrue(accepted.get() > 0 && rejected.get() > 0);
+        assertEquals(0, conflicts());
+        // one wait per request, plus one per move that found its booking moved by another one before the lock
+        assertTrue(meterRegistry.get("booking.lock.wait").tag("scope", "resource").timer().count() >= requests);
+    }
+
+    @Test
+    @DisplayName("Striping - the same resource waits, another resource proceeds")
+    void withLocks_ShouldSerializeOnlySameKey() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            pool.submit(() -> locks.withLocks(List.of(BookingLocks.resource("room-101")), () -> {
+                holding.countDown();
+                await(release);
+                return null;
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            Future<String> other = pool.submit(() ->
+                    locks.withLocks(List.of(BookingLocks.resource("room-102")), () -> "done"));
+            assertEquals("done", other.get(5, TimeUnit.SECONDS));
+
+            // keys in any order and repeated, taken once in stripe order
+            Future<String> same = pool.submit(() -> locks.withLocks(List.of(BookingLocks.resource("room-102"),
+                    BookingLocks.resource("room-101"), BookingLocks.resource("room-101")), () -> "done"));
+            Thread.sleep(100);
+            assertFalse(same.isDone());
+
+            release.countDown();
+            assertEquals("done", same.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Keys - a booking moved between the read and the lock is locked again on its new resource")
+    void cancelBooking_ShouldRelockWhenBookingMoved() {
+        Booking before = Booking.builder().id("b1").resourceId("room-101").status(BookingStatus.CONFIRMED).build();
+        Booking moved = Booking.builder().id("b1").resourceId("room-102").status(BookingStatus.CONFIRMED).build();
+        when(bookingRepository.findById("b1")).thenReturn(Optional.of(before), Optional.of(moved), Optional.of(moved));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BookingResponse response = bookingService.cancelBooking("b1");
+
+        assertEquals(BookingStatus.CANCELLED, response.getStatus());
+        assertEquals("room-102", response.getResourceId());
+        // first on the stale keys, then on the ones read under the lock
+        verify(bookingRepository, times(3)).findById("b1");
+        assertEquals(2, meterRegistry.get("booking.lock.wait").tag("scope", "group").timer().count());
+    }
+
+    @Test
+    @DisplayName("Keys - a payment update waits for a stay move holding the resource, and saves the moved stay")
+    void updatePaymentStatus_ShouldWaitForResourceLock() throws Exception {
+        Booking stored = Booking.builder().id("b1").resourceId("room-101").status(BookingStatus.CONFIRMED)
+                .paymentStatus(PaymentStatus.UNPAID).build();
+        Booking moved = Booking.builder().id("b1").resourceId("room-102").status(BookingStatus.CONFIRMED)
+                .paymentStatus(PaymentStatus.UNPAID).build();
+        when(bookingRepository.findById("b1")).thenReturn(Optional.of(stored));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<BookingResponse> payment = locks.withLocks(List.of(BookingLocks.resource("room-101")), () -> {
+                Future<BookingResponse> submitted = pool.submit(() ->
+                        bookingService.updatePaymentStatus("b1", PaymentStatus.DEPOSIT_PAID));
+                sleep(100);
+                assertFalse(submitted.isDone());
+                // the move commits while the payment update waits
+                when(bookingRepository.findById("b1")).thenReturn(Optional.of(moved));
+                return submitted;
+            });
+
+            BookingResponse response = payment.get(5, TimeUnit.SECONDS);
+            assertEquals("room-102", response.getResourceId());
+            assertEquals(PaymentStatus.DEPOSIT_PAID, response.getPaymentStatus());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void inMemoryRepository() {
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            if (booking.getId() == null) {
+                booking.setId("b" + ids.incrementAndGet());
+            }
+            // widen the window between the overlap check and the write
+            Thread.yield();
+            store.put(booking.getId(), copy(booking));
+            return booking;
+        });
+        when(bookingRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(store.get(invocation.<String>getArgument(0))).map(BookingLocksTest::copy));
+        when(bookingRepository.findOverlaps(anyString(), any(), any()))
+                .thenAnswer(invocation -> overlaps(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2), null));
+        when(bookingRepository.findOverlapsExcluding(anyString(), any(), any(), anyString()))
+                .thenAnswer(invocation -> overlaps(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                        invocation.getArgument(3)));
+    }
+
+    private List<Booking> overlaps(String resourceId, LocalDate checkIn, LocalDate checkOut, String excludeBookingId) {
+        List<Booking> overlaps = new ArrayList<>();
+        for (Booking booking : store.values()) {
+            if (booking.getResourceId().equals(resourceId) && !booking.getId().equals(excludeBookingId)
+                    && booking.getStatus() != BookingStatus.CANCELLED
+                    && booking.getCheckIn().isBefore(checkOut) && booking.getCheckOut().isAfter(checkIn)) {
+                overlaps.add(booking);
+            }
+        }
+        return overlaps;
+    }
+
+    private long conflicts() {
+        List<Booking> bookings = new ArrayList<>(store.values());
+        long conflicts = 0;
+        for (int i = 0; i < bookings.size(); i++) {
+            for (int j = i + 1; j < bookings.size(); j++) {
+                Booking a = bookings.get(i);
+                Booking b = bookings.get(j);
+                if (a.getResourceId().equals(b.getResourceId())
+                        && a.getCheckIn().isBefore(b.getCheckOut()) && b.getCheckIn().isBefore(a.getCheckOut())) {
+                    conflicts++;
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private static Booking copy(Booking booking) {
+        return Booking.builder()
+                .id(booking.getId())
+                .resourceId(booking.getResourceId())
+                .checkIn(booking.getCheckIn())
+                .checkOut(booking.getCheckOut())
+                .status(booking.getStatus())
+                .paymentStatus(booking.getPaymentStatus())
+                .createdAt(booking.getCreatedAt())
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -9,12 +9,14 @@ import com.swam.booking.repository.BookingRepository;
 import com.swam.shared.dto.PriceBreakdown;
 import com.swam.shared.enums.BookingStatus;
 import com.swam.shared.enums.GuestType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
@@ -35,6 +37,9 @@ class BookingServiceMotivationTaxExemptTest {
     @Mock private PricingServiceClient pricingClient;
     @Mock private ExtraOptionService extraOptionService;
     @Mock private CustomerService customerService;
+    @Mock private AvailabilityIndex availabilityIndex;
+    @Mock private NightReservations nightReservations;
+    @Spy private BookingLocks bookingLocks = new BookingLocks(16, new SimpleMeterRegistry());
 
     @InjectMocks
     private BookingService bookingService;
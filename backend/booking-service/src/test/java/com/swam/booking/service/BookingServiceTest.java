@@ -10,12 +10,16 @@ import com.swam.shared.dto.PriceBreakdown;
 import com.swam.shared.enums.*;
 import com.swam.shared.exceptions.InvalidBookingDateException;
 import com.swam.shared.exceptions.SlotNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -26,6 +30,8 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,9 +43,23 @@ class BookingServiceTest {
     @Mock
     private CustomerService customerService;
 
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private NightReservations nightReservations;
+
+    @Spy
+    private BookingLocks bookingLocks = new BookingLocks(16, new SimpleMeterRegistry());
+
     @InjectMocks
     private BookingService bookingService;
 
+    @BeforeEach
+    void indexNotBuilt() {
+        lenient().when(availabilityIndex.lookup(any(), any(), any(), any())).thenReturn(AvailabilityIndex.Answer.NOT_COVERED);
+    }
+
     @Test
     @DisplayName("Check: Should create pending booking when data is valid")
     void createBooking_ShouldCreatePendingBooking_WhenDataIsValid() {
@@ -169,4 +189,87 @@ class BookingServiceTest {
         assertThrows(InvalidBookingDateException.class,
                 () -> bookingService.checkIn("book-1", new CheckInRequest()));
     }
+
+    @Test
+    @DisplayName("Check: Should reject without the overlap query when the indexed conflict is confirmed by id")
+    void createBooking_ShouldRejectOnConfirmedIndexedConflict() {
+        CreateBookingRequest request = stayRequest("res-1", 10, 15);
+        when(availabilityIndex.lookup(eq("res-1"), any(), any(), isNull()))
+                .thenReturn(new AvailabilityIndex.Answer(true, "book-9"));
+        when(bookingRepository.findById("book-9")).thenReturn(Optional.of(Booking.builder()
+                .id("book-9").resourceId("res-1").status(BookingStatus.CONFIRMED)
+                .checkIn(request.getCheckIn().plusDays(2)).checkOut(request.getCheckOut().plusDays(2))
+                .build()));
+
+        assertThrows(SlotNotAvailableException.class, () -> bookingService.createBooking(request));
+        verify(bookingRepository, never()).findOverlaps(anyString(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Check: Should confirm on Mongo when the index sees the slot free or its conflict is stale")
+    void createBooking_ShouldQueryOverlapsUnlessIndexedConflictConfirmed() {
+        CreateBookingRequest request = stayRequest("res-1", 10, 15);
+        // the indexed stay was cancelled meanwhile, the overlap query still finds another one
+        when(availabilityIndex.lookup(eq("res-1"), any(), any(), isNull()))
+                .thenReturn(new AvailabilityIndex.Answer(true, "book-9"));
+        when(bookingRepository.findById("book-9")).thenReturn(Optional.of(Booking.builder()
+                .id("book-9").resourceId("res-1").status(BookingStatus.CANCELLED)
+                .checkIn(request.getCheckIn()).checkOut(request.getCheckOut())
+                .build()));
+        when(bookingRepository.findOverlaps("res-1", request.getCheckIn(), request.getCheckOut()))
+                .thenReturn(List.of(Booking.builder().id("book-10").build()));
+
+        assertThrows(SlotNotAvailableException.class, () -> bookingService.createBooking(request));
+
+        // free in the index, but no night claims guard the write
+        when(availabilityIndex.lookup(eq("res-1"), any(), any(), isNull()))
+                .thenReturn(new AvailabilityIndex.Answer(true, null));
+        assertThrows(SlotNotAvailableException.class, () -> bookingService.createBooking(request));
+
+        // night claims on, but dates the index does not cover
+        lenient().when(nightReservations.isEnabled()).thenReturn(true);
+        when(availabilityIndex.lookup(eq("res-1"), any(), any(), isNull())).thenReturn(AvailabilityIndex.Answer.NOT_COVERED);
+        assertThrows(SlotNotAvailableException.class, () -> bookingService.createBooking(request));
+        verify(bookingRepository, times(3)).findOverlaps("res-1", request.getCheckIn(), request.getCheckOut());
+    }
+
+    @Test
+    @DisplayName("Check: Should trust a free answer of the index while the night claims guard the write")
+    void createBooking_ShouldSkipOverlapQueryWhenIndexFreeAndClaimsOn() {
+        CreateBookingRequest request = stayRequest("res-1", 10, 15);
+        when(nightReservations.isEnabled()).thenReturn(true);
+        when(availabilityIndex.lookup(eq("res-1"), any(), any(), isNull()))
+                .thenReturn(new AvailabilityIndex.Answer(true, null));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertNotNull(bookingService.createBooking(request));
+        verify(bookingRepository, never()).findOverlaps(anyString(), any(), any());
+        verify(bookingRepository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Check: Should give back the claimed nights when the booking write fails")
+    void createBooking_ShouldReleaseNightsWhenSaveFails() {
+        CreateBookingRequest request = stayRequest("res-1", 10, 15);
+        when(bookingRepository.findOverlaps(anyString(), any(), any())).thenReturn(Collections.emptyList());
+        // the id is assigned by the claim, before the insert fails
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            invocation.<Booking>getArgument(0).setId("book-1");
+            throw new DataAccessResourceFailureException("write failed");
+        });
+
+        assertThrows(DataAccessResourceFailureException.class, () -> bookingService.createBooking(request));
+        verify(nightReservations).release("book-1");
+    }
+
+    private static CreateBookingRequest stayRequest(String resourceId, int fromDays, int toDays) {
+        return CreateBookingRequest.builder()
+                .resourceId(resourceId)
+                .checkIn(LocalDate.now().plusDays(fromDays))
+                .checkOut(LocalDate.now().plusDays(toDays))
+                .guestFirstName("Mario")
+                .guestLastName("Rossi")
+                .guestEmail("mario@test.com")
+                .build();
+    }
 }
\ No newline at end of file
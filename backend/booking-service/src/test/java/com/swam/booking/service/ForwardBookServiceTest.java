@@ -0,0 +1,74 @@
+package com.swam.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.domain.BookingExtra;
+import com.swam.booking.domain.Guest;
+import com.swam.booking.dto.ForwardBookingLine;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.GuestType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ForwardBookServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 8, 1);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    @DisplayName("Export - one quote request per line, guests with their own nights")
+    void export_ShouldWriteOneLinePerBooking() throws Exception {
+        Booking withCompanion = Booking.builder()
+                .id("b1")
+                .resourceId("room-101")
+                .checkIn(LocalDate.of(2024, 8, 10))
+                .checkOut(LocalDate.of(2024, 8, 15))
+                .mainGuest(Guest.builder().guestType(GuestType.ADULT).build())
+                .companions(List.of(Guest.builder().guestType(GuestType.CHILD)
+                        .departureDate(LocalDate.of(2024, 8, 12)).build()))
+                .extras(List.of(BookingExtra.builder().priceSnapshot(new BigDecimal("5.00")).quantity(2).build()))
+                .priceBreakdown(PriceBreakdown.builder().depositAmount(new BigDecimal("100.00")).build())
+                .build();
+        Booking withoutBreakdown = Booking.builder()
+                .id("b2")
+                .resourceId("room-102")
+                .checkIn(LocalDate.of(2024, 9, 1))
+                .checkOut(LocalDate.of(2024, 9, 3))
+                .mainGuest(Guest.builder().guestType(GuestType.ADULT).build())
+                .build();
+        when(bookingRepository.streamForwardBook(TODAY)).thenReturn(Stream.of(withCompanion, withoutBreakdown));
+
+        ForwardBookService service = new ForwardBookService(bookingRepository, objectMapper,
+                Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, service.export(out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        ForwardBookingLine first = objectMapper.readValue(lines[0], ForwardBookingLine.class);
+        assertEquals("b1", first.getBookingId());
+        assertEquals(List.of(5, 2), first.getRequest().getGuests().stream().map(g -> g.getDays()).toList());
+        assertEquals(new BigDecimal("100.00"), first.getRequest().getDepositAmount());
+        assertEquals(1, first.getRequest().getExtras().size());
+        ForwardBookingLine second = objectMapper.readValue(lines[1], ForwardBookingLine.class);
+        assertNull(second.getRequest().getDepositAmount());
+        assertTrue(second.getRequest().getExtras().isEmpty());
+    }
+}
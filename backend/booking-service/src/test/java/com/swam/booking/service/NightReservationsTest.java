@@ -0,0 +1,231 @@
+package com.swam.booking.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.DeleteResult;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.domain.ResourceNight;
+import com.swam.booking.repository.BookingRepository;
+import com.swam.shared.enums.BookingStatus;
+import com.swam.shared.exceptions.SlotNotAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NightReservationsTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations operations = mock(BulkOperations.class);
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final Clock clock = Clock.fixed(Instant.parse("2024-08-01T10:00:00Z"), ZoneOffset.UTC);
+    private final NightReservations reservations = new NightReservations(mongoTemplate, bookingRepository,
+            new BookingLocks(16, new SimpleMeterRegistry()), true, clock);
+
+    @Test
+    @DisplayName("Create - every night of a new booking is claimed before the insert")
+    void beforeConvert_ShouldClaimNightsOfNewBooking() {
+        bulkInsert();
+        Booking booking = booking(null, "2024-08-10", "2024-08-13");
+
+        reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings"));
+
+        assertNotNull(booking.getId());
+        assertEquals(List.of("room-101:2024-08-10", "room-101:2024-08-11", "room-101:2024-08-12"), inserted());
+        // a new booking holds nothing yet
+        verify(mongoTemplate, never()).find(any(Query.class), eq(ResourceNight.class));
+    }
+
+    @Test
+    @DisplayName("Conflict - nights taken by another booking are given back and the write fails")
+    void beforeConvert_ShouldRollBackOnConflict() {
+        bulkInsert();
+        BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), 1);
+        when(operations.execute()).thenThrow(new BulkOperationException("E11000", new MongoBulkWriteException(
+                BulkWriteResult.acknowledged(2, 0, 0, 0, List.of()), List.of(duplicate), null, new ServerAddress())));
+        Booking booking = booking(null, "2024-08-10", "2024-08-13");
+
+        assertThrows(SlotNotAvailableException.class,
+                () -> reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings")));
+
+        ArgumentCaptor<Query> rollback = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(rollback.capture(), eq(ResourceNight.class));
+        Document filter = rollback.getValue().getQueryObject();
+        assertEquals(List.of("room-101:2024-08-10", "room-101:2024-08-12"), ((Document) filter.get("_id")).get("$in"));
+        assertEquals(booking.getId(), filter.get("bookingId"));
+    }
+
+    @Test
+    @DisplayName("Edit - only the new nights are claimed, the old ones released after the save")
+    void edit_ShouldClaimNewNightsAndReleaseOldOnes() {
+        bulkInsert();
+        when(mongoTemplate.find(any(Query.class), eq(ResourceNight.class))).thenReturn(List.of(
+                ResourceNight.of("room-101", LocalDate.of(2024, 8, 10), "b1", null),
+                ResourceNight.of("room-101", LocalDate.of(2024, 8, 11), "b1", null)));
+        Booking booking = booking("b1", "2024-08-11", "2024-08-13");
+
+        reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings"));
+        reservations.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+
+        assertEquals(List.of("room-101:2024-08-12"), inserted());
+        ArgumentCaptor<Query> release = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(release.capture(), eq(ResourceNight.class));
+        Document filter = release.getValue().getQueryObject();
+        assertEquals("b1", filter.get("bookingId"));
+        assertEquals(List.of("room-101:2024-08-11", "room-101:2024-08-12"), ((Document) filter.get("_id")).get("$nin"));
+    }
+
+    @Test
+    @DisplayName("Cancel - a cancelled booking claims nothing and releases every night")
+    void cancel_ShouldReleaseEveryNight() {
+        Booking booking = booking("b1", "2024-08-10", "2024-08-13");
+        booking.setStatus(BookingStatus.CANCELLED);
+
+        reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings"));
+        reservations.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(ResourceNight.class));
+        ArgumentCaptor<Query> release = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(release.capture(), eq(ResourceNight.class));
+        assertEquals(List.of(), ((Document) release.getValue().getQueryObject().get("_id")).get("$nin"));
+    }
+
+    @Test
+    @DisplayName("Unchanged stay - a check-in or payment write claims and releases nothing")
+    void unchangedStay_ShouldNotTouchClaims() {
+        Booking booking = booking("b1", "2024-08-10", "2024-08-13");
+        reservations.onAfterConvert(new AfterConvertEvent<>(new Document(), booking, "bookings"));
+        booking.setStatus(BookingStatus.CHECKED_IN);
+
+        reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings"));
+        reservations.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+
+        verifyNoInteractions(mongoTemplate);
+        verify(bookingRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Past nights - a stay started before today claims its nights from today on")
+    void beforeConvert_ShouldNotClaimPastNights() {
+        bulkInsert();
+        Booking booking = booking(null, "2024-07-30", "2024-08-03");
+
+        reservations.onBeforeConvert(new BeforeConvertEvent<>(booking, "bookings"));
+
+        assertEquals(List.of("room-101:2024-08-01", "room-101:2024-08-02"), inserted());
+    }
+
+    @Test
+    @DisplayName("Failed write - the nights the stored booking does not hold are given back")
+    void release_ShouldDropNightsNotHeldByStoredBooking() {
+        when(bookingRepository.findById("b1")).thenReturn(Optional.of(booking("b1", "2024-08-10", "2024-08-12")));
+        when(mongoTemplate.remove(any(Query.class), eq(ResourceNight.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        reservations.release("b1");
+        // a booking that was never inserted holds nothing
+        reservations.release("b2");
+
+        ArgumentCaptor<Query> release = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).remove(release.capture(), eq(ResourceNight.class));
+        Document stored = release.getAllValues().get(0).getQueryObject();
+        assertEquals("b1", stored.get("bookingId"));
+        assertEquals(List.of("room-101:2024-08-10", "room-101:2024-08-11"), ((Document) stored.get("_id")).get("$nin"));
+        Document gone = release.getAllValues().get(1).getQueryObject();
+        assertEquals("b2", gone.get("bookingId"));
+        assertEquals(List.of(), ((Document) gone.get("_id")).get("$nin"));
+    }
+
+    @Test
+    @DisplayName("Reconcile - claims past the grace period that no stored booking holds are dropped")
+    void reconcile_ShouldDropOrphanClaims() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("bookingId"), eq(ResourceNight.class), eq(String.class)))
+                .thenReturn(List.of("b1", "b2"));
+        when(bookingRepository.findAllById(List.of("b1", "b2"))).thenReturn(List.of(booking("b1", "2024-08-10", "2024-08-11")));
+        when(mongoTemplate.remove(any(Query.class), eq(ResourceNight.class)))
+                .thenReturn(DeleteResult.acknowledged(0), DeleteResult.acknowledged(3));
+
+        assertEquals(3, reservations.reconcile());
+
+        ArgumentCaptor<Query> orphans = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).remove(orphans.capture(), eq(ResourceNight.class));
+        Document held = orphans.getAllValues().get(0).getQueryObject();
+        assertEquals(List.of("room-101:2024-08-10"), ((Document) held.get("_id")).get("$nin"));
+        Document orphan = orphans.getAllValues().get(1).getQueryObject();
+        assertEquals("b2", orphan.get("bookingId"));
+        assertEquals(List.of(), ((Document) orphan.get("_id")).get("$nin"));
+        // claims younger than the grace period may belong to a write still running
+        assertTrue(orphan.get("$and").toString().contains("claimedAt"));
+    }
+
+    @Test
+    @DisplayName("Backfill - nights of a stay cancelled after it was read are given back")
+    void backfill_ShouldGiveBackNightsOfChangedStay() {
+        bulkInsert();
+        IndexOperations indexOps = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(ResourceNight.class)).thenReturn(indexOps);
+        when(bookingRepository.aggregateOccupancy(LocalDate.of(2024, 8, 1))).thenReturn(List.of(
+                booking("b1", "2024-08-10", "2024-08-12"), booking("b2", "2024-08-20", "2024-08-21")));
+        Booking cancelled = booking("b1", "2024-08-10", "2024-08-12");
+        cancelled.setStatus(BookingStatus.CANCELLED);
+        when(bookingRepository.findById("b1")).thenReturn(Optional.of(cancelled));
+        when(bookingRepository.findById("b2")).thenReturn(Optional.of(booking("b2", "2024-08-20", "2024-08-21")));
+
+        assertEquals(1, reservations.backfill());
+
+        ArgumentCaptor<Query> release = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(release.capture(), eq(ResourceNight.class));
+        Document filter = release.getValue().getQueryObject();
+        assertEquals("b1", filter.get("bookingId"));
+        assertEquals(Set.of("room-101:2024-08-10", "room-101:2024-08-11"),
+                Set.copyOf((Collection<?>) ((Document) filter.get("_id")).get("$in")));
+    }
+
+    private void bulkInsert() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ResourceNight.class)).thenReturn(operations);
+        when(operations.insert(anyList())).thenReturn(operations);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> inserted() {
+        ArgumentCaptor<List<ResourceNight>> nights = ArgumentCaptor.forClass(List.class);
+        verify(operations).insert(nights.capture());
+        return nights.getValue().stream().map(ResourceNight::getId).toList();
+    }
+
+    private static Booking booking(String id, String checkIn, String checkOut) {
+        return Booking.builder()
+                .id(id)
+                .resourceId("room-101")
+                .checkIn(LocalDate.parse(checkIn))
+                .checkOut(LocalDate.parse(checkOut))
+                .status(BookingStatus.CONFIRMED)
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.swam.booking.service;
+
+import com.swam.booking.client.PricingServiceClient;
+import com.swam.booking.domain.Booking;
+import com.swam.booking.dto.OccupancyEvent;
+import com.swam.shared.enums.BookingStatus;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OccupancyEventPublisherTest {
+
+    private final PricingServiceClient pricingClient = mock(PricingServiceClient.class);
+    // events sent inline instead of on the background thread
+    private final OccupancyEventPublisher publisher = new OccupancyEventPublisher(pricingClient, Runnable::run);
+
+    @Test
+    @DisplayName("Save - the booking state is sent, cancelled bookings as inactive")
+    void save_ShouldSendBookingState() {
+        Booking booking = Booking.builder()
+                .id("b1")
+                .resourceId("room-101")
+                .checkIn(LocalDate.of(2024, 8, 10))
+                .checkOut(LocalDate.of(2024, 8, 15))
+                .status(BookingStatus.CONFIRMED)
+                .build();
+        publisher.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+        booking.setStatus(BookingStatus.CANCELLED);
+        publisher.onAfterSave(new AfterSaveEvent<>(booking, new Document(), "bookings"));
+
+        verify(pricingClient).occupancyChanged(
+                new OccupancyEvent("b1", "room-101", LocalDate.of(2024, 8, 10), LocalDate.of(2024, 8, 15), true));
+        verify(pricingClient).occupancyChanged(
+                new OccupancyEvent("b1", "room-101", LocalDate.of(2024, 8, 10), LocalDate.of(2024, 8, 15), false));
+    }
+
+    @Test
+    @DisplayName("Delete - single and bulk deletes release every booking, a pricing failure is swallowed")
+    void delete_ShouldReleaseDeletedBookings() {
+        ObjectId id = new ObjectId();
+        doThrow(new IllegalStateException("pricing down"))
+                .when(pricingClient).occupancyChanged(new OccupancyEvent("b2", null, null, null, false));
+
+        publisher.onAfterDelete(new AfterDeleteEvent<>(new Document("_id", "b1"), Booking.class, "bookings"));
+        publisher.onAfterDelete(new AfterDeleteEvent<>(
+                new Document("_id", new Document("$in", List.of("b2", id))), Booking.class, "bookings"));
+
+        verify(pricingClient).occupancyChanged(new OccupancyEvent("b1", null, null, null, false));
+        verify(pricingClient).occupancyChanged(new OccupancyEvent(id.toHexString(), null, null, null, false));
+        assertTrue(OccupancyEventPublisher.deletedIds(new Document("status", "CANCELLED")).isEmpty());
+    }
+}
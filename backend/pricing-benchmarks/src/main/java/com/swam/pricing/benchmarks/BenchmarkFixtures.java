@@ -0,0 +1,128 @@
+package com.swam.pricing.benchmarks;
+
+import com.swam.pricing.domain.CityTaxRule;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.service.OccupancyService;
+import com.swam.pricing.service.PricingEngineService;
+import com.swam.pricing.service.QuoteCache;
+import com.swam.pricing.service.RateCardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+// deterministic rate cards and requests shared by the benchmarks
+final class BenchmarkFixtures {
+
+    static final String RESOURCE_ID = "ROOM-101";
+    static final LocalDate CHECK_IN = LocalDate.of(2024, 6, 1);
+
+    // the seasons cover two full years so every stay length fits
+    private static final LocalDate CALENDAR_START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate CALENDAR_END = LocalDate.of(2025, 12, 31);
+
+    private BenchmarkFixtures() {
+    }
+
+    static RateCardService rateCardService(int seasonCount) {
+        List<Season> seasons = new ArrayList<>();
+        List<SeasonalRate> rates = new ArrayList<>();
+
+        long days = ChronoUnit.DAYS.between(CALENDAR_START, CALENDAR_END) + 1;
+        long length = Math.max(1, days / seasonCount);
+        LocalDate start = CALENDAR_START;
+
+        for (int i = 0; i < seasonCount; i++) {
+            LocalDate end = i == seasonCount - 1 ? CALENDAR_END : start.plusDays(length - 1);
+
+            Season season = new Season();
+            season.setId("S" + i);
+            season.setName("Stagione " + i);
+            season.setStartDate(start);
+            season.setEndDate(end);
+            seasons.add(season);
+
+            SeasonalRate rate = new SeasonalRate();
+            rate.setId("R" + i);
+            rate.setSeasonId(season.getId());
+            rate.setResourceId(RESOURCE_ID);
+            rate.setBasePrice(new BigDecimal(60 + (i % 7) * 10 + ".00"));
+            rate.setAdultPrice(new BigDecimal("25.00"));
+            rate.setChildPrice(new BigDecimal("12.50"));
+            rate.setInfantPrice(new BigDecimal("0.00"));
+            rates.add(rate);
+
+            start = end.plusDays(1);
+        }
+
+        RateCardService service = new RateCardService(
+                InMemoryRepositories.seasons(seasons),
+                InMemoryRepositories.rates(rates),
+                InMemoryRepositories.cityTax(cityTaxRule()),
+                InMemoryRepositories.noStayRules(),
+                List.of(),
+                noOccupancy(),
+                Duration.ofHours(24),
+                1000);
+        service.reload();
+        return service;
+    }
+
+    // every quote is computed: the cache is switched off
+    static PricingEngineService pricingEngineService(RateCardService rateCardService, boolean fixedPoint) {
+        return new PricingEngineService(rateCardService,
+                new QuoteCache(false, 1, Duration.ofMinutes(1), new SimpleMeterRegistry()), noOccupancy(), fixedPoint);
+    }
+
+    // occupancy pricing switched off, the clients are never called
+    private static OccupancyService noOccupancy() {
+        return new OccupancyService(null, null, false, "");
+    }
+
+    static CityTaxRule cityTaxRule() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setId("CITY_TAX");
+        rule.setEnabled(true);
+        rule.setAmountPerAdult(new BigDecimal("2.50"));
+        rule.setAmountPerChild(new BigDecimal("1.00"));
+        rule.setAmountPerInfant(BigDecimal.ZERO);
+        rule.setMaxNightsCap(7);
+        return rule;
+    }
+
+    // guests mix adults, children and infants; every third guest leaves early and every fifth is tax exempt
+    static PriceCalculationRequest request(int nights, int guestCount, int extrasCount) {
+        List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>(guestCount);
+        for (int i = 0; i < guestCount; i++) {
+            GuestType type = i % 4 == 3 ? GuestType.CHILD : (i % 10 == 9 ? GuestType.INFANT : GuestType.ADULT);
+            int days = i % 3 == 2 ? Math.max(1, nights - 1 - i % nights) : nights;
+            guests.add(PriceCalculationRequest.GuestProfile.builder()
+                    .type(type)
+                    .days(days)
+                    .taxExempt(i % 5 == 4)
+                    .build());
+        }
+
+        List<PriceCalculationRequest.BillableExtraItem> extras = new ArrayList<>(extrasCount);
+        for (int i = 0; i < extrasCount; i++) {
+            extras.add(new PriceCalculationRequest.BillableExtraItem(new BigDecimal(3 + i % 5 + ".50"), 1 + i % 3));
+        }
+
+        return PriceCalculationRequest.builder()
+                .resourceId(RESOURCE_ID)
+                .checkIn(CHECK_IN)
+                .checkOut(CHECK_IN.plusDays(nights))
+                .guests(guests)
+                .extras(extras)
+                .manualDiscount(new BigDecimal("10.00"))
+                .depositAmount(new BigDecimal("50.00"))
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.swam.pricing.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: accepts the usual JMH command line and writes JSON results by default
+ * (to {@code jmh-result.json}) so runs on different commits can be compared.
+ * <p>
+ * {@code java -jar pricing-benchmarks/target/benchmarks.jar -p nights=7,90 -rff before.json}
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(PricingEngineBenchmark.class.getSimpleName());
+        }
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,48 @@
+package com.swam.pricing.benchmarks;
+
+import com.swam.pricing.domain.CityTaxRule;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.repository.CityTaxRuleRepository;
+import com.swam.pricing.repository.SeasonRepository;
+import com.swam.pricing.repository.SeasonalRateRepository;
+import com.swam.pricing.repository.StayRuleRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+// repository stubs serving fixed lists from findAll(), enough to load a RateCard without Mongo
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static SeasonRepository seasons(List<Season> seasons) {
+        return stub(SeasonRepository.class, seasons);
+    }
+
+    static SeasonalRateRepository rates(List<SeasonalRate> rates) {
+        return stub(SeasonalRateRepository.class, rates);
+    }
+
+    static CityTaxRuleRepository cityTax(CityTaxRule rule) {
+        return stub(CityTaxRuleRepository.class, rule != null ? List.of(rule) : List.of());
+    }
+
+    static StayRuleRepository noStayRules() {
+        return stub(StayRuleRepository.class, List.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, List<?> content) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            return switch (method.getName()) {
+                case "findAll" -> content;
+                case "toString" -> "InMemory" + type.getSimpleName();
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            };
+        });
+    }
+}
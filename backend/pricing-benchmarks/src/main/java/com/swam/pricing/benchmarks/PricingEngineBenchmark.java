@@ -0,0 +1,62 @@
+package com.swam.pricing.benchmarks;
+
+import com.swam.pricing.domain.CityTaxRule;
+import com.swam.pricing.engine.OccupancyUplift;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.QuoteEngine;
+import com.swam.pricing.service.PricingEngineService;
+import com.swam.pricing.service.RateCardService;
+import com.swam.shared.dto.PriceBreakdown;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// full quote through PricingEngineService and city tax alone through the engine, on an in-memory rate card, no quote cache
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingEngineBenchmark {
+
+    @Param({"1", "7", "30", "90"})
+    public int nights;
+
+    @Param({"1", "4", "20"})
+    public int guests;
+
+    @Param({"4", "52"})
+    public int seasons;
+
+    @Param({"0", "10"})
+    public int extras;
+
+    @Param({"false", "true"})
+    public boolean fixedPoint;
+
+    private PricingEngineService engine;
+    private QuoteEngine quoteEngine;
+    private PriceCalculationRequest request;
+    private CityTaxRule cityTaxRule;
+
+    @Setup
+    public void setup() {
+        RateCardService rateCardService = BenchmarkFixtures.rateCardService(seasons);
+        engine = BenchmarkFixtures.pricingEngineService(rateCardService, fixedPoint);
+        quoteEngine = new QuoteEngine(fixedPoint, OccupancyUplift.NONE);
+        request = BenchmarkFixtures.request(nights, guests, extras);
+        cityTaxRule = rateCardService.current().getCityTaxRule();
+    }
+
+    @Benchmark
+    public PriceBreakdown calculatePrice() {
+        return engine.calculatePrice(request);
+    }
+
+    @Benchmark
+    public BigDecimal calculateCityTax() {
+        return quoteEngine.calculateCityTax(request, cityTaxRule);
+    }
+}
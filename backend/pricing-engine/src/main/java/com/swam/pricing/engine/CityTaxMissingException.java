@@ -0,0 +1,9 @@
+package com.swam.pricing.engine;
+
+// the snapshot has no enabled city tax rule, every quote needs one
+public class CityTaxMissingException extends RuntimeException {
+
+    public CityTaxMissingException() {
+        super("Regola Tassa di Soggiorno mancante o disabilitata.");
+    }
+}
@@ -0,0 +1,8 @@
+package com.swam.pricing.engine;
+
+// guest types priced by the engine, same names as the GuestType of the services so the JSON is unchanged
+public enum GuestType {
+    ADULT,
+    CHILD,
+    INFANT
+}
@@ -0,0 +1,9 @@
+package com.swam.pricing.engine;
+
+// request the engine cannot price; the message is the reason only, the services wrap it in their domain exception
+public class InvalidQuoteException extends RuntimeException {
+
+    public InvalidQuoteException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,52 @@
+package com.swam.pricing.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a long count of minor units (cents) for the pricing hot path.
+ * <p>
+ * Rounding: amounts are converted with {@link RoundingMode#HALF_UP} to {@value #SCALE} decimals, so any input
+ * already expressed in cents converts exactly. Results are always returned with scale {@value #SCALE}.
+ * An input below the cent is rounded here while the BigDecimal path keeps it exact, the one case where the two
+ * paths quote differently.
+ * <p>
+ * Overflow: every operation is exact and throws {@link ArithmeticException} instead of wrapping around.
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    private MinorUnits() {
+    }
+
+    public static long of(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long times(long cents, long quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    // share of an amount in basis points (1/100 of a percent), rounded HALF_UP like BigDecimal
+    public static long percentOf(long cents, long basisPoints) {
+        long scaled = Math.multiplyExact(cents, basisPoints);
+        long half = scaled < 0 ? -5_000 : 5_000;
+        return Math.addExact(scaled, half) / 10_000;
+    }
+}
@@ -0,0 +1,33 @@
+package com.swam.pricing.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// occupancy uplifts in force, per resource type name and night (epoch day); nights outside every tier are left out
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyTable implements OccupancyUplift {
+
+    private Map<String, String> resourceTypes;
+    private Map<String, Map<Long, Long>> basisPoints;
+
+    @Override
+    public boolean hasTiers() {
+        return basisPoints != null;
+    }
+
+    @Override
+    public long basisPoints(String resourceId, long epochDay) {
+        String type = resourceTypes != null ? resourceTypes.get(resourceId) : null;
+        Map<Long, Long> nights = type != null && basisPoints != null ? basisPoints.get(type) : null;
+        if (nights == null) {
+            return 0;
+        }
+        Long value = nights.get(epochDay);
+        return value != null ? value : 0;
+    }
+}
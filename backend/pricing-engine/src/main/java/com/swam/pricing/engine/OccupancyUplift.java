@@ -0,0 +1,56 @@
+package com.swam.pricing.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Occupancy tier of each night as a percentage on its nightly price. The uplift is rounded per night, so a stay
+ * gives the same base however it is segmented; both arithmetic paths share the loop below.
+ */
+public interface OccupancyUplift {
+
+    // occupancy pricing switched off
+    OccupancyUplift NONE = new OccupancyUplift() {
+        @Override
+        public boolean hasTiers() {
+            return false;
+        }
+
+        @Override
+        public long basisPoints(String resourceId, long epochDay) {
+            return 0;
+        }
+    };
+
+    boolean hasTiers();
+
+    // uplift of the night starting on epochDay for the resource, in basis points, 0 outside every tier
+    long basisPoints(String resourceId, long epochDay);
+
+    // occupancy uplift of the nights [start, start + nights) priced nightlyCents each
+    default long upliftCents(String resourceId, LocalDate start, int nights, long nightlyCents) {
+        long total = 0;
+        long first = start.toEpochDay();
+        for (long day = first; day < first + nights; day++) {
+            long basisPoints = basisPoints(resourceId, day);
+            if (basisPoints != 0) {
+                total = MinorUnits.add(total, MinorUnits.percentOf(nightlyCents, basisPoints));
+            }
+        }
+        return total;
+    }
+
+    default BigDecimal uplift(String resourceId, LocalDate start, int nights, BigDecimal nightly) {
+        BigDecimal total = BigDecimal.ZERO;
+        long first = start.toEpochDay();
+        for (long day = first; day < first + nights; day++) {
+            long basisPoints = basisPoints(resourceId, day);
+            if (basisPoints != 0) {
+                total = total.add(nightly.multiply(BigDecimal.valueOf(basisPoints))
+                        .divide(BigDecimal.valueOf(10_000), MinorUnits.SCALE, RoundingMode.HALF_UP));
+            }
+        }
+        return total;
+    }
+}
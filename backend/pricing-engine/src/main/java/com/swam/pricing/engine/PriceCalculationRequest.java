@@ -1,5 +1,4 @@
-package com.swam.pricing.dto;
-import com.swam.shared.enums.GuestType;
+package com.swam.pricing.engine;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
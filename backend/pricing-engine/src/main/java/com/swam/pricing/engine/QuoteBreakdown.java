@@ -0,0 +1,28 @@
+package com.swam.pricing.engine;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// amounts of a quote as computed by the engine; the services map it to their PriceBreakdown field by field
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuoteBreakdown {
+    private BigDecimal baseAmount;
+    private BigDecimal extrasAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal discountAmount;
+    private BigDecimal depositAmount;
+    private BigDecimal finalTotal;
+    private Long rateCardVersion;
+
+    // only filled when an itemized quote is requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private QuoteNightlyLines nightlyLines;
+}
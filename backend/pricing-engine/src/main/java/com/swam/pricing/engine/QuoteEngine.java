@@ -0,0 +1,587 @@
+package com.swam.pricing.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quote computation on a {@link RateSource}: no I/O, no framework, no shared mutable state, so the same instance
+ * can be used from any thread. Results and errors are engine types ({@link QuoteBreakdown}, {@link InvalidQuoteException},
+ * {@link CityTaxMissingException}), the services map them to their own DTOs and domain exceptions. pricing-service wraps it with the rate card lookup and the quote cache; other services
+ * embed it on a replicated {@link RateSnapshot} and get identical breakdowns.
+ */
+@Slf4j
+public class QuoteEngine {
+
+    private static final GuestType[] GUEST_TYPE_VALUES = GuestType.values();
+    private static final int GUEST_TYPES = GUEST_TYPE_VALUES.length;
+
+    // long cents arithmetic instead of BigDecimal, see MinorUnits for rounding
+    private final boolean fixedPoint;
+    private final OccupancyUplift occupancy;
+
+    public QuoteEngine(boolean fixedPoint, OccupancyUplift occupancy) {
+        this.fixedPoint = fixedPoint;
+        this.occupancy = occupancy;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    // prices the request against a given snapshot, itemized adds the per-night lines computed from the same segments
+    public QuoteBreakdown price(PriceCalculationRequest request, RateSource rateCard, boolean itemized) {
+        // price each run of identical nights once instead of night by night
+        List<StaySegment> segments = segmentStay(request, rateCard);
+
+        QuoteBreakdown breakdown = null;
+        boolean minorUnits = fixedPoint;
+        if (minorUnits) {
+            try {
+                breakdown = calculateInMinorUnits(request, rateCard, segments);
+            } catch (ArithmeticException ex) {
+                // amounts beyond the long range of cents: the exact BigDecimal path still handles them
+                log.warn("Fixed-point pricing overflow for resource {}, falling back to BigDecimal", request.getResourceId());
+                minorUnits = false;
+            }
+        }
+        if (breakdown == null) {
+            breakdown = calculateInBigDecimal(request, rateCard, segments);
+        }
+
+        if (itemized) {
+            breakdown.setNightlyLines(nightlyLines(request, rateCard.getStayRuleTable(), segments, minorUnits));
+        }
+        return breakdown;
+    }
+
+    /**
+     * Quote of {@code next} derived from the quote of {@code previous} on the same snapshot, when only the check-out
+     * moved: only the nights between the two check-outs are priced and added to or removed from the previous base.
+     * City tax, extras and the rest are recomputed from the guests, which does not depend on the number of nights.
+     */
+    public QuoteBreakdown calculateMovedCheckOut(PriceCalculationRequest previous, BigDecimal previousBase,
+                                                 PriceCalculationRequest next, RateSource rateCard) {
+        boolean extended = next.getCheckOut().isAfter(previous.getCheckOut());
+        PriceCalculationRequest side = extended ? next : previous;
+        LocalDate from = extended ? previous.getCheckOut() : next.getCheckOut();
+        LocalDate to = extended ? next.getCheckOut() : previous.getCheckOut();
+
+        List<StaySegment> window = List.of();
+        if (from.isBefore(to)) {
+            StayQuoteRequest.Segment nights = new StayQuoteRequest.Segment(side.getResourceId(), from, to);
+            int offset = (int) ChronoUnit.DAYS.between(side.getCheckIn(), from);
+            window = segmentStay(partRequest(nights, side.getGuests(), offset), rateCard);
+        }
+
+        if (fixedPoint) {
+            try {
+                long delta = baseAmountCents(window, rateCard.getStayRuleTable());
+                long base = MinorUnits.of(previousBase);
+                return breakdownInMinorUnits(next, rateCard, extended ? MinorUnits.add(base, delta) : MinorUnits.subtract(base, delta));
+            } catch (ArithmeticException ex) {
+                log.warn("Fixed-point pricing overflow for resource {}, falling back to a full quote", next.getResourceId());
+                return price(next, rateCard, false);
+            }
+        }
+        BigDecimal delta = baseAmount(window, rateCard.getStayRuleTable(), false);
+        return breakdownInBigDecimal(next, rateCard, extended ? previousBase.add(delta) : previousBase.subtract(delta));
+    }
+
+    // one quote for a stay split across resources, every segment priced on the same snapshot
+    public StayQuoteResponse calculateStayPrice(StayQuoteRequest request, RateSource rateCard) {
+        validateStay(request);
+        List<StayQuoteRequest.Segment> parts = request.getSegments();
+        LocalDate checkIn = parts.get(0).getCheckIn();
+
+        // the whole stay as a single request: guest days, tax cap, extras, discount and deposit apply once
+        PriceCalculationRequest whole = PriceCalculationRequest.builder()
+                .resourceId(parts.get(0).getResourceId())
+                .checkIn(checkIn)
+                .checkOut(parts.get(parts.size() - 1).getCheckOut())
+                .guests(request.getGuests())
+                .manualDiscount(request.getManualDiscount())
+                .depositAmount(request.getDepositAmount())
+                .extras(request.getExtras())
+                .build();
+
+        List<List<StaySegment>> partRuns = new ArrayList<>(parts.size());
+        List<StaySegment> allRuns = new ArrayList<>();
+        for (StayQuoteRequest.Segment part : parts) {
+            int offset = (int) ChronoUnit.DAYS.between(checkIn, part.getCheckIn());
+            List<StaySegment> runs = segmentStay(partRequest(part, request.getGuests(), offset), rateCard);
+            partRuns.add(runs);
+            allRuns.addAll(runs);
+        }
+
+        if (fixedPoint) {
+            try {
+                return stayQuote(whole, rateCard, parts, partRuns, allRuns, true);
+            } catch (ArithmeticException ex) {
+                log.warn("Fixed-point pricing overflow for stay starting {}, falling back to BigDecimal", checkIn);
+            }
+        }
+        return stayQuote(whole, rateCard, parts, partRuns, allRuns, false);
+    }
+
+    private StayQuoteResponse stayQuote(PriceCalculationRequest whole, RateSource rateCard,
+                                        List<StayQuoteRequest.Segment> parts, List<List<StaySegment>> partRuns,
+                                        List<StaySegment> allRuns, boolean minorUnits) {
+        QuoteBreakdown total = minorUnits
+                ? calculateInMinorUnits(whole, rateCard, allRuns)
+                : calculateInBigDecimal(whole, rateCard, allRuns);
+
+        List<StayQuoteResponse.SegmentSubtotal> subtotals = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            StayQuoteRequest.Segment part = parts.get(i);
+            int from = (int) ChronoUnit.DAYS.between(whole.getCheckIn(), part.getCheckIn());
+            int nights = (int) ChronoUnit.DAYS.between(part.getCheckIn(), part.getCheckOut());
+            // nights declared beyond the stay are taxed on the last segment, as in the single quote
+            int to = i == parts.size() - 1 ? Integer.MAX_VALUE : from + nights;
+
+            subtotals.add(StayQuoteResponse.SegmentSubtotal.builder()
+                    .resourceId(part.getResourceId())
+                    .checkIn(part.getCheckIn())
+                    .checkOut(part.getCheckOut())
+                    .nights(nights)
+                    .baseAmount(baseAmount(partRuns.get(i), rateCard.getStayRuleTable(), minorUnits))
+                    .taxAmount(cityTaxShare(whole.getGuests(), rateCard.getCityTaxRule(), from, to, minorUnits))
+                    .build());
+        }
+
+        return StayQuoteResponse.builder()
+                .total(total)
+                .segments(subtotals)
+                .build();
+    }
+
+    private void validateStay(StayQuoteRequest request) {
+        if (request == null || request.getSegments() == null || request.getSegments().isEmpty()) {
+            throw new InvalidQuoteException("il soggiorno non contiene segmenti");
+        }
+        if (request.getGuests() == null) {
+            throw new InvalidQuoteException("lista ospiti mancante");
+        }
+        LocalDate previousCheckOut = null;
+        for (StayQuoteRequest.Segment part : request.getSegments()) {
+            if (part == null || part.getResourceId() == null || part.getCheckIn() == null || part.getCheckOut() == null) {
+                throw new InvalidQuoteException("risorsa, check-in e check-out sono obbligatori per ogni segmento");
+            }
+            if (!part.getCheckOut().isAfter(part.getCheckIn())) {
+                throw new InvalidQuoteException("il check-out di un segmento deve seguire il check-in");
+            }
+            if (previousCheckOut != null && !previousCheckOut.equals(part.getCheckIn())) {
+                throw new InvalidQuoteException("i segmenti devono essere contigui: atteso check-in " + previousCheckOut);
+            }
+            previousCheckOut = part.getCheckOut();
+        }
+    }
+
+    // the segment seen as a single stay: each guest keeps the nights falling inside it
+    private PriceCalculationRequest partRequest(StayQuoteRequest.Segment part,
+                                                List<PriceCalculationRequest.GuestProfile> guests, int offset) {
+        int nights = (int) ChronoUnit.DAYS.between(part.getCheckIn(), part.getCheckOut());
+        List<PriceCalculationRequest.GuestProfile> partGuests = new ArrayList<>(guests.size());
+        for (PriceCalculationRequest.GuestProfile guest : guests) {
+            partGuests.add(PriceCalculationRequest.GuestProfile.builder()
+                    .type(guest.getType())
+                    .taxExempt(guest.isTaxExempt())
+                    .days(Math.max(0, Math.min(guest.getDays() - offset, nights)))
+                    .build());
+        }
+        return PriceCalculationRequest.builder()
+                .resourceId(part.getResourceId())
+                .checkIn(part.getCheckIn())
+                .checkOut(part.getCheckOut())
+                .guests(partGuests)
+                .build();
+    }
+
+    // nights of every segment plus the weekday and occupancy uplifts falling in it
+    private BigDecimal baseAmount(List<StaySegment> segments, StayRuleTable rules, boolean minorUnits) {
+        if (minorUnits) {
+            return MinorUnits.toBigDecimal(baseAmountCents(segments, rules));
+        }
+        BigDecimal amount = BigDecimal.ZERO;
+        for (StaySegment segment : segments) {
+            BigDecimal nightly = nightlyCost(segment);
+            amount = amount.add(nightly.multiply(BigDecimal.valueOf(segment.getNights())));
+            if (rules.hasUplifts()) {
+                amount = amount.add(rules.uplift(segment.getRate().getResourceId(), segment.getStartDate(),
+                        segment.getNights(), nightly));
+            }
+            if (occupancy.hasTiers()) {
+                amount = amount.add(occupancy.uplift(segment.getRate().getResourceId(), segment.getStartDate(),
+                        segment.getNights(), nightly));
+            }
+        }
+        return amount;
+    }
+
+    private long baseAmountCents(List<StaySegment> segments, StayRuleTable rules) {
+        long cents = 0;
+        for (StaySegment segment : segments) {
+            long nightly = nightlyCostCents(segment);
+            cents = MinorUnits.add(cents, MinorUnits.times(nightly, segment.getNights()));
+            if (rules.hasUplifts()) {
+                cents = MinorUnits.add(cents, rules.upliftCents(segment.getRate().getResourceId(),
+                        segment.getStartDate(), segment.getNights(), nightly));
+            }
+            if (occupancy.hasTiers()) {
+                cents = MinorUnits.add(cents, occupancy.upliftCents(segment.getRate().getResourceId(),
+                        segment.getStartDate(), segment.getNights(), nightly));
+            }
+        }
+        return cents;
+    }
+
+    // city tax of the stay nights [from, to): each guest is taxed on the first maxNightsCap nights of the stay
+    private BigDecimal cityTaxShare(List<PriceCalculationRequest.GuestProfile> guests, RateSource.CityTaxView rule,
+                                    int from, int to, boolean minorUnits) {
+        long cents = 0;
+        BigDecimal amount = BigDecimal.ZERO;
+        for (PriceCalculationRequest.GuestProfile guest : guests) {
+            if (guest.isTaxExempt() || guest.getDays() <= 0) {
+                continue;
+            }
+            int taxedNights = Math.min(Math.min(guest.getDays(), rule.getMaxNightsCap()), to) - from;
+            if (taxedNights <= 0) {
+                continue;
+            }
+
+            BigDecimal rate = null;
+            if (guest.getType() == GuestType.ADULT) rate = rule.getAmountPerAdult();
+            else if (guest.getType() == GuestType.CHILD) rate = rule.getAmountPerChild();
+            else if (guest.getType() == GuestType.INFANT) rate = rule.getAmountPerInfant();
+
+            if (rate == null || rate.compareTo(BigDecimal.ZERO) <= 0) {
+                continue;
+            }
+            if (minorUnits) {
+                cents = MinorUnits.add(cents, MinorUnits.times(MinorUnits.of(rate), taxedNights));
+            } else {
+                amount = amount.add(rate.multiply(BigDecimal.valueOf(taxedNights)));
+            }
+        }
+        return minorUnits ? MinorUnits.toBigDecimal(cents) : amount;
+    }
+
+    // expands the segments into one column entry per night, nightly amounts use the same arithmetic as the totals
+    private QuoteNightlyLines nightlyLines(PriceCalculationRequest request, StayRuleTable rules, List<StaySegment> segments,
+                                      boolean minorUnits) {
+        int nights = 0;
+        for (StaySegment segment : segments) {
+            nights += segment.getNights();
+        }
+
+        List<String> seasonIds = new ArrayList<>();
+        int[] season = new int[nights];
+        int[] adults = new int[nights];
+        int[] children = new int[nights];
+        int[] infants = new int[nights];
+        BigDecimal[] amounts = new BigDecimal[nights];
+
+        int night = 0;
+        for (StaySegment segment : segments) {
+            String seasonId = segment.getSeason().getId();
+            int seasonIndex = seasonIds.indexOf(seasonId);
+            if (seasonIndex < 0) {
+                seasonIndex = seasonIds.size();
+                seasonIds.add(seasonId);
+            }
+            BigDecimal amount = minorUnits ? MinorUnits.toBigDecimal(nightlyCostCents(segment)) : nightlyCost(segment);
+
+            int end = night + segment.getNights();
+            Arrays.fill(season, night, end, seasonIndex);
+            Arrays.fill(adults, night, end, segment.getAdults());
+            Arrays.fill(children, night, end, segment.getChildren());
+            Arrays.fill(infants, night, end, segment.getInfants());
+            Arrays.fill(amounts, night, end, amount);
+            boolean occupancyTiers = occupancy.hasTiers();
+            if (rules.hasUplifts() || occupancyTiers) {
+                // uplifts differ night by night inside a segment
+                String resourceId = segment.getRate().getResourceId();
+                long cents = MinorUnits.of(amount);
+                for (int i = night; i < end; i++) {
+                    LocalDate date = segment.getStartDate().plusDays(i - night);
+                    if (minorUnits) {
+                        long nightCents = MinorUnits.add(cents, rules.upliftCents(resourceId, date, 1, cents));
+                        if (occupancyTiers) {
+                            nightCents = MinorUnits.add(nightCents, occupancy.upliftCents(resourceId, date, 1, cents));
+                        }
+                        amounts[i] = MinorUnits.toBigDecimal(nightCents);
+                    } else {
+                        BigDecimal nightAmount = amount.add(rules.uplift(resourceId, date, 1, amount));
+                        amounts[i] = occupancyTiers ? nightAmount.add(occupancy.uplift(resourceId, date, 1, amount)) : nightAmount;
+                    }
+                }
+            }
+            night = end;
+        }
+
+        return QuoteNightlyLines.builder()
+                .firstNight(request.getCheckIn())
+                .seasonIds(seasonIds)
+                .season(season)
+                .adults(adults)
+                .children(children)
+                .infants(infants)
+                .amounts(amounts)
+                .build();
+    }
+
+    private QuoteBreakdown calculateInBigDecimal(PriceCalculationRequest request, RateSource rateCard, List<StaySegment> segments) {
+        return breakdownInBigDecimal(request, rateCard, baseAmount(segments, rateCard.getStayRuleTable(), false));
+    }
+
+    // everything but the nights: city tax, extras, discount and deposit on top of an already priced base
+    private QuoteBreakdown breakdownInBigDecimal(PriceCalculationRequest request, RateSource rateCard, BigDecimal baseAmount) {
+        // calculate city tax
+        BigDecimal taxAmount = calculateCityTax(request, rateCard.getCityTaxRule());
+
+        // calculate extras
+        BigDecimal extrasTotal = BigDecimal.ZERO;
+        if (request.getExtras() != null) {
+            for (PriceCalculationRequest.BillableExtraItem item : request.getExtras()) {
+                if (item.getUnitPrice() != null && item.getQuantity() > 0) {
+                    BigDecimal itemCost = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                    extrasTotal = extrasTotal.add(itemCost);
+                }
+            }
+        }
+
+        BigDecimal discount = request.getManualDiscount() != null ? request.getManualDiscount() : BigDecimal.ZERO;
+        long stayDiscount = stayDiscountBasisPoints(request, rateCard);
+        if (stayDiscount > 0) {
+            discount = discount.add(baseAmount.multiply(BigDecimal.valueOf(stayDiscount))
+                    .divide(BigDecimal.valueOf(10_000), MinorUnits.SCALE, RoundingMode.HALF_UP));
+        }
+        BigDecimal deposit = request.getDepositAmount() != null ? request.getDepositAmount() : BigDecimal.ZERO;
+
+        BigDecimal subTotal = baseAmount.add(taxAmount).add(extrasTotal);
+        BigDecimal finalTotal = subTotal.subtract(discount).subtract(deposit);
+
+        if (finalTotal.compareTo(BigDecimal.ZERO) < 0) {
+            finalTotal = BigDecimal.ZERO;
+        }
+
+        return QuoteBreakdown.builder()
+                .baseAmount(baseAmount)
+                .taxAmount(taxAmount)
+                .extrasAmount(extrasTotal)
+                .discountAmount(discount)
+                .depositAmount(deposit)
+                .finalTotal(finalTotal)
+                .rateCardVersion(rateCard.getVersion())
+                .build();
+    }
+
+    // same rules as calculateInBigDecimal on long cents, BigDecimal is only built for the breakdown
+    private QuoteBreakdown calculateInMinorUnits(PriceCalculationRequest request, RateSource rateCard, List<StaySegment> segments) {
+        return breakdownInMinorUnits(request, rateCard, baseAmountCents(segments, rateCard.getStayRuleTable()));
+    }
+
+    private QuoteBreakdown breakdownInMinorUnits(PriceCalculationRequest request, RateSource rateCard, long baseAmount) {
+        long taxAmount = calculateCityTaxCents(request, rateCard.getCityTaxRule());
+
+        long extrasTotal = 0;
+        if (request.getExtras() != null) {
+            for (PriceCalculationRequest.BillableExtraItem item : request.getExtras()) {
+                if (item.getUnitPrice() != null && item.getQuantity() > 0) {
+                    extrasTotal = MinorUnits.add(extrasTotal, MinorUnits.times(MinorUnits.of(item.getUnitPrice()), item.getQuantity()));
+                }
+            }
+        }
+
+        long discount = MinorUnits.add(MinorUnits.of(request.getManualDiscount()),
+                MinorUnits.percentOf(baseAmount, stayDiscountBasisPoints(request, rateCard)));
+        long deposit = MinorUnits.of(request.getDepositAmount());
+
+        long subTotal = MinorUnits.add(MinorUnits.add(baseAmount, taxAmount), extrasTotal);
+        long finalTotal = Math.max(0, MinorUnits.subtract(MinorUnits.subtract(subTotal, discount), deposit));
+
+        return QuoteBreakdown.builder()
+                .baseAmount(MinorUnits.toBigDecimal(baseAmount))
+                .taxAmount(MinorUnits.toBigDecimal(taxAmount))
+                .extrasAmount(MinorUnits.toBigDecimal(extrasTotal))
+                .discountAmount(MinorUnits.toBigDecimal(discount))
+                .depositAmount(MinorUnits.toBigDecimal(deposit))
+                .finalTotal(MinorUnits.toBigDecimal(finalTotal))
+                .rateCardVersion(rateCard.getVersion())
+                .build();
+    }
+
+    // largest length-of-stay discount earned by the request, reported together with the manual discount
+    private long stayDiscountBasisPoints(PriceCalculationRequest request, RateSource rateCard) {
+        int nights = (int) ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+        return rateCard.getStayRuleTable().discountBasisPoints(request.getResourceId(), request.getCheckIn(), nights);
+    }
+
+    /**
+     * Splits the stay into maximal runs of nights with the same season and the same active guest counts.
+     * Guest departures are swept once in offset order, the season is looked up once per run.
+     */
+    public List<StaySegment> segmentStay(PriceCalculationRequest request, RateSource rateCard) {
+        long totalNights = ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+        if (totalNights <= 0) {
+            return List.of();
+        }
+        int nights = (int) totalNights;
+
+        // a guest staying d nights is active on nights [0, d): encode (departure offset, type) and sort once
+        List<PriceCalculationRequest.GuestProfile> guests = request.getGuests();
+        int[] departures = new int[guests.size()];
+        int departureCount = 0;
+        int adults = 0;
+        int children = 0;
+        int infants = 0;
+
+        for (PriceCalculationRequest.GuestProfile guest : guests) {
+            if (guest.getType() == null || guest.getDays() <= 0) {
+                continue;
+            }
+            switch (guest.getType()) {
+                case ADULT -> adults++;
+                case CHILD -> children++;
+                case INFANT -> infants++;
+            }
+            if (guest.getDays() < nights) {
+                departures[departureCount++] = guest.getDays() * GUEST_TYPES + guest.getType().ordinal();
+            }
+        }
+        Arrays.sort(departures, 0, departureCount);
+
+        List<StaySegment> segments = new ArrayList<>();
+        int departureIndex = 0;
+        int night = 0;
+
+        while (night < nights) {
+            LocalDate date = request.getCheckIn().plusDays(night);
+
+            RateSource.SeasonView season = rateCard.findSeason(date)
+                    .orElseThrow(() -> new RuntimeException("Nessuna tariffa definita per il " + date));
+
+            RateSource.RateView rate = rateCard.findRate(season.getId(), request.getResourceId())
+                    .orElseThrow(() -> new RuntimeException("Prezzo mancante per risorsa " + request.getResourceId()));
+
+            // the run ends at the next departure or at the end of the season, whichever comes first
+            long seasonEnd = ChronoUnit.DAYS.between(request.getCheckIn(), season.getEndDate()) + 1;
+            int runEnd = (int) Math.min(nights, seasonEnd);
+            if (departureIndex < departureCount) {
+                runEnd = Math.min(runEnd, departures[departureIndex] / GUEST_TYPES);
+            }
+
+            segments.add(new StaySegment(date, runEnd - night, season, rate, adults, children, infants));
+            night = runEnd;
+
+            // apply every departure happening at the new offset
+            while (departureIndex < departureCount && departures[departureIndex] / GUEST_TYPES == night) {
+                switch (GUEST_TYPE_VALUES[departures[departureIndex] % GUEST_TYPES]) {
+                    case ADULT -> adults--;
+                    case CHILD -> children--;
+                    case INFANT -> infants--;
+                }
+                departureIndex++;
+            }
+        }
+
+        return segments;
+    }
+
+    // cost of a single night of the segment for the active guests
+    private BigDecimal nightlyCost(StaySegment segment) {
+        RateSource.RateView rate = segment.getRate();
+        BigDecimal nightlyCost = rate.getBasePrice();
+
+        if (rate.getAdultPrice() != null) {
+            nightlyCost = nightlyCost.add(rate.getAdultPrice().multiply(BigDecimal.valueOf(segment.getAdults())));
+        }
+        if (rate.getChildPrice() != null) {
+            nightlyCost = nightlyCost.add(rate.getChildPrice().multiply(BigDecimal.valueOf(segment.getChildren())));
+        }
+        if (rate.getInfantPrice() != null && segment.getInfants() > 0) {
+            nightlyCost = nightlyCost.add(rate.getInfantPrice().multiply(BigDecimal.valueOf(segment.getInfants())));
+        }
+        return nightlyCost;
+    }
+
+    private long nightlyCostCents(StaySegment segment) {
+        RateSource.RateView rate = segment.getRate();
+        long nightlyCost = MinorUnits.of(rate.getBasePrice());
+        nightlyCost = MinorUnits.add(nightlyCost, MinorUnits.times(MinorUnits.of(rate.getAdultPrice()), segment.getAdults()));
+        nightlyCost = MinorUnits.add(nightlyCost, MinorUnits.times(MinorUnits.of(rate.getChildPrice()), segment.getChildren()));
+        nightlyCost = MinorUnits.add(nightlyCost, MinorUnits.times(MinorUnits.of(rate.getInfantPrice()), segment.getInfants()));
+        return nightlyCost;
+    }
+
+    public BigDecimal calculateCityTax(PriceCalculationRequest req, RateSource.CityTaxView rule) {
+        if (rule == null || !rule.isEnabled()) {
+            throw new CityTaxMissingException();
+        }
+
+        BigDecimal totalTax = BigDecimal.ZERO;
+        int globalCap = rule.getMaxNightsCap();
+
+        for (PriceCalculationRequest.GuestProfile guest : req.getGuests()) {
+
+            if (guest.isTaxExempt()) {
+                continue;
+            }
+
+            // check days of stay
+            if (guest.getDays() <= 0) {
+                continue;
+            }
+
+            // calculate chargeable nights for this guest
+            int chargeableNights = Math.min(guest.getDays(), globalCap);
+
+            // calculate rate based on guest type
+            BigDecimal rate = BigDecimal.ZERO;
+
+            if (guest.getType() == GuestType.ADULT) rate = rule.getAmountPerAdult();
+            else if (guest.getType() == GuestType.CHILD) rate = rule.getAmountPerChild();
+            else if (guest.getType() == GuestType.INFANT) rate = rule.getAmountPerInfant();
+
+            if (rate != null && rate.compareTo(BigDecimal.ZERO) > 0) {
+                totalTax = totalTax.add(rate.multiply(BigDecimal.valueOf(chargeableNights)));
+            }
+        }
+
+        return totalTax;
+    }
+
+    private long calculateCityTaxCents(PriceCalculationRequest req, RateSource.CityTaxView rule) {
+        if (rule == null || !rule.isEnabled()) {
+            throw new CityTaxMissingException();
+        }
+
+        long totalTax = 0;
+        int globalCap = rule.getMaxNightsCap();
+
+        for (PriceCalculationRequest.GuestProfile guest : req.getGuests()) {
+            if (guest.isTaxExempt() || guest.getDays() <= 0) {
+                continue;
+            }
+
+            int chargeableNights = Math.min(guest.getDays(), globalCap);
+
+            long rate = 0;
+            if (guest.getType() == GuestType.ADULT) rate = MinorUnits.of(rule.getAmountPerAdult());
+            else if (guest.getType() == GuestType.CHILD) rate = MinorUnits.of(rule.getAmountPerChild());
+            else if (guest.getType() == GuestType.INFANT) rate = MinorUnits.of(rule.getAmountPerInfant());
+
+            if (rate > 0) {
+                totalTax = MinorUnits.add(totalTax, MinorUnits.times(rate, chargeableNights));
+            }
+        }
+
+        return totalTax;
+    }
+}
@@ -0,0 +1,25 @@
+package com.swam.pricing.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// per-night lines of an itemized quote in columnar form, night i is firstNight + i; same layout as NightlyLines
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuoteNightlyLines {
+    private LocalDate firstNight;
+    private List<String> seasonIds;
+    private int[] season;
+    private int[] adults;
+    private int[] children;
+    private int[] infants;
+    private BigDecimal[] amounts;
+}
@@ -0,0 +1,201 @@
+package com.swam.pricing.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Self-contained copy of a rate card with plain values, meant to be serialized and replicated to other services.
+ * It carries the occupancy uplifts in force and the arithmetic mode of the engine that exported it, so
+ * {@code new QuoteEngine(s.isFixedPoint(), s.getOccupancyUplift())} prices exactly like pricing-service on the same versions.
+ * Lookups are indexed on first use; a snapshot must not be modified once quotes are computed on it.
+ */
+@Data
+@NoArgsConstructor
+public class RateSnapshot implements RateSource {
+
+    private long version;
+    private long occupancyVersion;
+    private boolean fixedPoint;
+    private List<SeasonEntry> seasons;
+    private List<RateEntry> rates;
+    private CityTaxEntry cityTaxRule;
+    private List<StayRuleEntry> stayRules;
+    private OccupancyTable occupancy;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile Index index;
+
+    public static RateSnapshot of(long version, boolean fixedPoint,
+                                  Collection<? extends SeasonView> seasons,
+                                  Collection<? extends RateView> rates,
+                                  CityTaxView cityTax,
+                                  Collection<? extends StayRuleView> stayRules,
+                                  long occupancyVersion,
+                                  OccupancyTable occupancy) {
+        RateSnapshot snapshot = new RateSnapshot();
+        snapshot.version = version;
+        snapshot.fixedPoint = fixedPoint;
+        snapshot.seasons = new ArrayList<>(seasons.size());
+        for (SeasonView s : seasons) {
+            snapshot.seasons.add(new SeasonEntry(s.getId(), s.getStartDate(), s.getEndDate()));
+        }
+        snapshot.rates = new ArrayList<>(rates.size());
+        for (RateView r : rates) {
+            snapshot.rates.add(new RateEntry(r.getId(), r.getSeasonId(), r.getResourceId(),
+                    r.getBasePrice(), r.getAdultPrice(), r.getChildPrice(), r.getInfantPrice()));
+        }
+        if (cityTax != null) {
+            snapshot.cityTaxRule = new CityTaxEntry(cityTax.isEnabled(), cityTax.getAmountPerAdult(),
+                    cityTax.getAmountPerChild(), cityTax.getAmountPerInfant(), cityTax.getMinAge(), cityTax.getMaxNightsCap());
+        }
+        snapshot.stayRules = new ArrayList<>(stayRules.size());
+        for (StayRuleView r : stayRules) {
+            snapshot.stayRules.add(new StayRuleEntry(r.getType(), r.getResourceId(), r.getValidFrom(), r.getValidTo(),
+                    r.getMinNights(), r.getDaysOfWeek() != null ? Set.copyOf(r.getDaysOfWeek()) : null,
+                    r.getPercent(), r.isEnabled()));
+        }
+        snapshot.occupancyVersion = occupancyVersion;
+        snapshot.occupancy = occupancy;
+        return snapshot;
+    }
+
+    @JsonIgnore
+    public SnapshotVersion getSnapshotVersion() {
+        return new SnapshotVersion(version, occupancyVersion);
+    }
+
+    // the occupancy table is left out of the snapshot when occupancy pricing is off
+    @JsonIgnore
+    public OccupancyUplift getOccupancyUplift() {
+        return occupancy != null ? occupancy : OccupancyUplift.NONE;
+    }
+
+    @Override
+    public Optional<SeasonEntry> findSeason(LocalDate date) {
+        List<SeasonEntry> sorted = index().seasons;
+        int low = 0;
+        int high = sorted.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).getStartDate().isAfter(date)) {
+                high = mid - 1;
+            } else {
+                found = mid;
+                low = mid + 1;
+            }
+        }
+        if (found < 0 || sorted.get(found).getEndDate().isBefore(date)) {
+            return Optional.empty();
+        }
+        return Optional.of(sorted.get(found));
+    }
+
+    @Override
+    public Optional<RateEntry> findRate(String seasonId, String resourceId) {
+        Map<String, RateEntry> seasonRates = index().rates.get(seasonId);
+        return seasonRates == null ? Optional.empty() : Optional.ofNullable(seasonRates.get(resourceId));
+    }
+
+    @Override
+    @JsonIgnore
+    public StayRuleTable getStayRuleTable() {
+        return index().stayRuleTable;
+    }
+
+    private Index index() {
+        Index built = index;
+        if (built == null) {
+            built = new Index(this);
+            index = built;
+        }
+        return built;
+    }
+
+    private static final class Index {
+        final List<SeasonEntry> seasons;
+        final Map<String, Map<String, RateEntry>> rates = new HashMap<>();
+        final StayRuleTable stayRuleTable;
+
+        Index(RateSnapshot snapshot) {
+            seasons = new ArrayList<>(snapshot.seasons != null ? snapshot.seasons : List.of());
+            seasons.sort(Comparator.comparing(SeasonEntry::getStartDate));
+            if (snapshot.rates != null) {
+                for (RateEntry rate : snapshot.rates) {
+                    rates.computeIfAbsent(rate.getSeasonId(), k -> new HashMap<>()).put(rate.getResourceId(), rate);
+                }
+            }
+            stayRuleTable = snapshot.stayRules != null ? StayRuleTable.compile(snapshot.stayRules) : StayRuleTable.empty();
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeasonEntry implements SeasonView {
+        private String id;
+        private LocalDate startDate;
+        private LocalDate endDate;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RateEntry implements RateView {
+        private String id;
+        private String seasonId;
+        private String resourceId;
+        private BigDecimal basePrice;
+        private BigDecimal adultPrice;
+        private BigDecimal childPrice;
+        private BigDecimal infantPrice;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CityTaxEntry implements CityTaxView {
+        private boolean enabled;
+        private BigDecimal amountPerAdult;
+        private BigDecimal amountPerChild;
+        private BigDecimal amountPerInfant;
+        private int minAge;
+        private int maxNightsCap;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StayRuleEntry implements StayRuleView {
+        private StayRuleType type;
+        private String resourceId;
+        private LocalDate validFrom;
+        private LocalDate validTo;
+        private Integer minNights;
+        private Set<DayOfWeek> daysOfWeek;
+        private BigDecimal percent;
+        private boolean enabled;
+    }
+}
@@ -0,0 +1,83 @@
+package com.swam.pricing.engine;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read-only view of a rate card as the quote engine sees it. pricing-service implements it with its Mongo documents,
+ * {@link RateSnapshot} with plain values that can be replicated to other services.
+ */
+public interface RateSource {
+
+    long getVersion();
+
+    // season covering the given night
+    Optional<? extends SeasonView> findSeason(LocalDate date);
+
+    Optional<? extends RateView> findRate(String seasonId, String resourceId);
+
+    // null when no rule was ever configured
+    CityTaxView getCityTaxRule();
+
+    StayRuleTable getStayRuleTable();
+
+    interface SeasonView {
+        String getId();
+
+        LocalDate getStartDate();
+
+        LocalDate getEndDate();
+    }
+
+    interface RateView {
+        String getId();
+
+        String getSeasonId();
+
+        String getResourceId();
+
+        BigDecimal getBasePrice();
+
+        BigDecimal getAdultPrice();
+
+        BigDecimal getChildPrice();
+
+        BigDecimal getInfantPrice();
+    }
+
+    interface CityTaxView {
+        boolean isEnabled();
+
+        BigDecimal getAmountPerAdult();
+
+        BigDecimal getAmountPerChild();
+
+        BigDecimal getAmountPerInfant();
+
+        int getMinAge();
+
+        int getMaxNightsCap();
+    }
+
+    interface StayRuleView {
+        StayRuleType getType();
+
+        // null applies to every resource
+        String getResourceId();
+
+        LocalDate getValidFrom();
+
+        LocalDate getValidTo();
+
+        Integer getMinNights();
+
+        Set<DayOfWeek> getDaysOfWeek();
+
+        BigDecimal getPercent();
+
+        boolean isEnabled();
+    }
+}
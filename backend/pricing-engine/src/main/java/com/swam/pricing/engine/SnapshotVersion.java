@@ -0,0 +1,14 @@
+package com.swam.pricing.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// what a replicated snapshot depends on, polled to know when to fetch a new one
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotVersion {
+    private long rateCardVersion;
+    private long occupancyVersion;
+}
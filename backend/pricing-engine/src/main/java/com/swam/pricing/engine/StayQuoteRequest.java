@@ -0,0 +1,33 @@
+package com.swam.pricing.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// one stay split across resources (split or extended bookings), priced as a whole
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StayQuoteRequest {
+    private List<Segment> segments;                              // in order, each check-in equal to the previous check-out
+    private List<PriceCalculationRequest.GuestProfile> guests;   // days counted from the first check-in
+    private BigDecimal manualDiscount;
+    private BigDecimal depositAmount;
+    private List<PriceCalculationRequest.BillableExtraItem> extras;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Segment {
+        private String resourceId;
+        private LocalDate checkIn;
+        private LocalDate checkOut;
+    }
+}
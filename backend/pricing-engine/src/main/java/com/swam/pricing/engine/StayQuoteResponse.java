@@ -0,0 +1,36 @@
+package com.swam.pricing.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StayQuoteResponse {
+
+    // whole stay: city tax capped per guest over all segments, extras, discount and deposit counted once
+    private QuoteBreakdown total;
+
+    // same order as the request segments, base and tax add up to the total
+    private List<SegmentSubtotal> segments;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SegmentSubtotal {
+        private String resourceId;
+        private LocalDate checkIn;
+        private LocalDate checkOut;
+        private int nights;
+        private BigDecimal baseAmount;
+        private BigDecimal taxAmount;   // the taxed nights of each guest are the first ones of the stay
+    }
+}
@@ -0,0 +1,190 @@
+package com.swam.pricing.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Stay rules compiled into a flat decision table: one row per enabled rule, grouped by type, with the validity
+ * as epoch days, the weekdays as a bit mask and the percentages as basis points. Evaluating a stay segment is a
+ * scan of a few primitive columns with no lookup, allocation or per-night loop.
+ * <p>
+ * Weekday uplifts are rounded per night and per rule, so a stay gives the same base however it is segmented.
+ * Length-of-stay discounts do not stack: the largest one matching the check-in wins. Min stays take the largest
+ * matching requirement.
+ */
+public final class StayRuleTable {
+
+    private static final StayRuleTable EMPTY = new StayRuleTable(Rows.EMPTY, Rows.EMPTY, Rows.EMPTY);
+
+    private final Rows uplifts;
+    private final Rows discounts;
+    private final Rows minStays;
+
+    private StayRuleTable(Rows uplifts, Rows discounts, Rows minStays) {
+        this.uplifts = uplifts;
+        this.discounts = discounts;
+        this.minStays = minStays;
+    }
+
+    public static StayRuleTable empty() {
+        return EMPTY;
+    }
+
+    // disabled or incomplete rules are left out
+    public static StayRuleTable compile(Collection<? extends RateSource.StayRuleView> rules) {
+        if (rules.isEmpty()) {
+            return EMPTY;
+        }
+        return new StayRuleTable(
+                Rows.of(rules, StayRuleType.WEEKDAY_UPLIFT),
+                Rows.of(rules, StayRuleType.LENGTH_OF_STAY_DISCOUNT),
+                Rows.of(rules, StayRuleType.MIN_STAY));
+    }
+
+    public boolean hasUplifts() {
+        return uplifts.size > 0;
+    }
+
+    // uplift of the nights [start, start + nights) priced nightlyCents each
+    public long upliftCents(String resourceId, LocalDate start, int nights, long nightlyCents) {
+        long total = 0;
+        long first = start.toEpochDay();
+        long last = first + nights - 1;
+        for (int i = 0; i < uplifts.size; i++) {
+            if (!uplifts.matches(i, resourceId)) {
+                continue;
+            }
+            int count = countNights(Math.max(first, uplifts.from[i]), Math.min(last, uplifts.to[i]), uplifts.dayMask[i]);
+            if (count > 0) {
+                total = MinorUnits.add(total, MinorUnits.times(MinorUnits.percentOf(nightlyCents, uplifts.basisPoints[i]), count));
+            }
+        }
+        return total;
+    }
+
+    public BigDecimal uplift(String resourceId, LocalDate start, int nights, BigDecimal nightly) {
+        BigDecimal total = BigDecimal.ZERO;
+        long first = start.toEpochDay();
+        long last = first + nights - 1;
+        for (int i = 0; i < uplifts.size; i++) {
+            if (!uplifts.matches(i, resourceId)) {
+                continue;
+            }
+            int count = countNights(Math.max(first, uplifts.from[i]), Math.min(last, uplifts.to[i]), uplifts.dayMask[i]);
+            if (count > 0) {
+                BigDecimal perNight = nightly.multiply(BigDecimal.valueOf(uplifts.basisPoints[i]))
+                        .divide(BigDecimal.valueOf(10_000), MinorUnits.SCALE, RoundingMode.HALF_UP);
+                total = total.add(perNight.multiply(BigDecimal.valueOf(count)));
+            }
+        }
+        return total;
+    }
+
+    // largest length-of-stay discount earned by the stay, in basis points of the base
+    public long discountBasisPoints(String resourceId, LocalDate checkIn, int nights) {
+        long best = 0;
+        long day = checkIn.toEpochDay();
+        for (int i = 0; i < discounts.size; i++) {
+            if (discounts.matches(i, resourceId) && discounts.covers(i, day) && nights >= discounts.minNights[i]) {
+                best = Math.max(best, discounts.basisPoints[i]);
+            }
+        }
+        return best;
+    }
+
+    // minimum nights required for a stay starting on checkIn, 0 when unrestricted
+    public int minNights(String resourceId, LocalDate checkIn) {
+        int required = 0;
+        long day = checkIn.toEpochDay();
+        for (int i = 0; i < minStays.size; i++) {
+            if (minStays.matches(i, resourceId) && minStays.covers(i, day)) {
+                required = Math.max(required, minStays.minNights[i]);
+            }
+        }
+        return required;
+    }
+
+    // nights in [first, last] whose weekday is in the mask, without walking every night
+    private static int countNights(long first, long last, int dayMask) {
+        if (last < first) {
+            return 0;
+        }
+        long nights = last - first + 1;
+        int count = (int) (nights / 7) * Integer.bitCount(dayMask);
+        // 1970-01-01 was a Thursday
+        int weekday = (int) Math.floorMod(first + 3, 7L);
+        for (int i = 0; i < nights % 7; i++) {
+            if ((dayMask & (1 << ((weekday + i) % 7))) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class Rows {
+
+        private static final Rows EMPTY = new Rows(0);
+
+        private final String[] resourceId;
+        private final long[] from;
+        private final long[] to;
+        private final int[] minNights;
+        private final int[] dayMask;
+        private final long[] basisPoints;
+        private int size;
+
+        private Rows(int capacity) {
+            resourceId = new String[capacity];
+            from = new long[capacity];
+            to = new long[capacity];
+            minNights = new int[capacity];
+            dayMask = new int[capacity];
+            basisPoints = new long[capacity];
+        }
+
+        static Rows of(Collection<? extends RateSource.StayRuleView> rules, StayRuleType type) {
+            Rows rows = new Rows(rules.size());
+            for (RateSource.StayRuleView rule : rules) {
+                if (!rule.isEnabled() || rule.getType() != type) {
+                    continue;
+                }
+                int mask = 0;
+                if (rule.getDaysOfWeek() != null) {
+                    for (DayOfWeek day : rule.getDaysOfWeek()) {
+                        mask |= 1 << (day.getValue() - 1);
+                    }
+                }
+                int nights = rule.getMinNights() != null ? rule.getMinNights() : 0;
+                boolean complete = switch (type) {
+                    case WEEKDAY_UPLIFT -> mask != 0 && rule.getPercent() != null;
+                    case LENGTH_OF_STAY_DISCOUNT -> nights > 0 && rule.getPercent() != null;
+                    case MIN_STAY -> nights > 0;
+                };
+                if (!complete) {
+                    continue;
+                }
+                int i = rows.size++;
+                rows.resourceId[i] = rule.getResourceId();
+                rows.from[i] = rule.getValidFrom() != null ? rule.getValidFrom().toEpochDay() : Long.MIN_VALUE;
+                rows.to[i] = rule.getValidTo() != null ? rule.getValidTo().toEpochDay() : Long.MAX_VALUE;
+                rows.minNights[i] = nights;
+                rows.dayMask[i] = mask;
+                rows.basisPoints[i] = rule.getPercent() != null
+                        ? rule.getPercent().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact()
+                        : 0;
+            }
+            return rows;
+        }
+
+        boolean matches(int i, String resource) {
+            return resourceId[i] == null || resourceId[i].equals(resource);
+        }
+
+        boolean covers(int i, long day) {
+            return day >= from[i] && day <= to[i];
+        }
+    }
+}
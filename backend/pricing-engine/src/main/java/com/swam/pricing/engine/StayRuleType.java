@@ -0,0 +1,10 @@
+package com.swam.pricing.engine;
+
+public enum StayRuleType {
+    // percent off the base of stays of at least minNights
+    LENGTH_OF_STAY_DISCOUNT,
+    // percent on the nightly price of the nights falling on daysOfWeek
+    WEEKDAY_UPLIFT,
+    // stays shorter than minNights cannot be sold
+    MIN_STAY
+}
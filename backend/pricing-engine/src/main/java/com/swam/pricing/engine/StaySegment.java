@@ -0,0 +1,21 @@
+package com.swam.pricing.engine;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+// maximal run of consecutive nights sharing the same season, rate and active guest counts
+@Value
+public class StaySegment {
+    LocalDate startDate;
+    int nights;
+    RateSource.SeasonView season;
+    RateSource.RateView rate;
+    int adults;
+    int children;
+    int infants;
+
+    public LocalDate getEndDate() {
+        return startDate.plusDays(nights);
+    }
+}
@@ -4,8 +4,10 @@ import com.swam.shared.exceptions.GlobalExceptionHandler;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @Import(GlobalExceptionHandler.class)
 public class PricingApplication {
     public static void main(String[] args) {
@@ -0,0 +1,76 @@
+package com.swam.pricing.client;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.swam.pricing.dto.ForwardBooking;
+import com.swam.pricing.dto.OccupancyEvent;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// reads the forward book (future, non-cancelled bookings) streamed by booking-service as NDJSON, and the stays
+// occupying resources from today on
+@Component
+public class BookingExportClient {
+
+    private final RestClient restClient;
+    private final ObjectReader reader;
+    private final int maxBookings;
+
+    public BookingExportClient(RestClient.Builder restClientBuilder,
+                               ObjectMapper objectMapper,
+                               @Value("${pricing.revenue.booking-service-url:http://localhost:8083}") String bookingServiceUrl,
+                               @Value("${pricing.revenue.max-bookings:200000}") int maxBookings) {
+        this.restClient = restClientBuilder.baseUrl(bookingServiceUrl).build();
+        this.reader = objectMapper.readerFor(ForwardBooking.class);
+        this.maxBookings = maxBookings;
+    }
+
+    public List<ForwardBooking> fetchForwardBook() {
+        return restClient.get()
+                .uri("/api/bookings/forward-book")
+                .accept(MediaType.parseMediaType("application/x-ndjson"))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        throw new IllegalStateException("export prenotazioni non disponibile: " + response.getStatusCode());
+                    }
+                    return read(response.getBody());
+                });
+    }
+
+    // one aggregation on booking-service: resource and dates of every active stay not yet checked out
+    public List<OccupancyEvent> fetchOccupancy() {
+        List<OccupancyEvent> stays = restClient.get()
+                .uri("/api/bookings/occupancy")
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<OccupancyEvent>>() {});
+        return stays != null ? stays : List.of();
+    }
+
+    // one JSON object per line, parsed as it arrives
+    List<ForwardBooking> read(InputStream body) {
+        List<ForwardBooking> bookings = new ArrayList<>();
+        try (MappingIterator<ForwardBooking> lines = reader.readValues(body)) {
+            while (lines.hasNextValue()) {
+                if (bookings.size() == maxBookings) {
+                    throw new InvalidPricingRequestException(
+                            String.format("il portafoglio prenotazioni supera il massimo di %d", maxBookings));
+                }
+                bookings.add(lines.nextValue());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bookings;
+    }
+}
@@ -0,0 +1,29 @@
+package com.swam.pricing.client;
+
+import com.swam.pricing.dto.ResourceUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+// resource list of resource-service, read when the occupancy counters are rebuilt
+@Component
+public class ResourceDirectoryClient {
+
+    private final RestClient restClient;
+
+    public ResourceDirectoryClient(RestClient.Builder restClientBuilder,
+                                   @Value("${pricing.occupancy.resource-service-url:http://localhost:8081}") String resourceServiceUrl) {
+        this.restClient = restClientBuilder.baseUrl(resourceServiceUrl).build();
+    }
+
+    public List<ResourceUnit> fetchResources() {
+        List<ResourceUnit> resources = restClient.get()
+                .uri("/api/resources")
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<ResourceUnit>>() {});
+        return resources != null ? resources : List.of();
+    }
+}
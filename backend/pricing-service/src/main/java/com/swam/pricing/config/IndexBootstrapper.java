@@ -0,0 +1,130 @@
+package com.swam.pricing.config;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.IndexReport;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the pricing documents ({@code @CompoundIndex}) in the background once the
+ * application is ready, instead of Spring Data's blocking auto-index creation.
+ * A failing index never stops the others nor the service: for a unique index the duplicate keys preventing it are
+ * collected in the report, available until the next run.
+ */
+@Slf4j
+@Component
+public class IndexBootstrapper {
+
+    static final List<Class<?>> DOCUMENTS = List.of(Season.class, SeasonalRate.class, RateCalendarEntry.class);
+    private static final int MAX_DUPLICATE_GROUPS = 100;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    private volatile IndexReport report = IndexReport.builder()
+            .status(IndexReport.Status.PENDING)
+            .ensured(List.of())
+            .failures(List.of())
+            .build();
+
+    public IndexBootstrapper(MongoTemplate mongoTemplate,
+                             @Value("${pricing.indexes.bootstrap:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::ensureIndexes, "pricing-index-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public IndexReport getReport() {
+        return report;
+    }
+
+    public synchronized IndexReport ensureIndexes() {
+        report = IndexReport.builder().status(IndexReport.Status.RUNNING).ensured(List.of()).failures(List.of()).build();
+
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        List<String> ensured = new ArrayList<>();
+        List<IndexReport.Failure> failures = new ArrayList<>();
+
+        for (Class<?> document : DOCUMENTS) {
+            String collection = mongoTemplate.getCollectionName(document);
+            IndexOperations operations = mongoTemplate.indexOps(document);
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                String name = index.getIndexOptions().getString("name");
+                try {
+                    operations.ensureIndex(index);
+                    ensured.add(collection + "." + name);
+                } catch (DataAccessException ex) {
+                    log.error("Index {}.{} could not be created: {}", collection, name, ex.getMessage());
+                    failures.add(IndexReport.Failure.builder()
+                            .collection(collection)
+                            .index(name)
+                            .message(ex.getMostSpecificCause().getMessage())
+                            .duplicates(Boolean.TRUE.equals(index.getIndexOptions().getBoolean("unique"))
+                                    ? findDuplicates(collection, index.getIndexKeys())
+                                    : null)
+                            .build());
+                }
+            }
+        }
+
+        report = IndexReport.builder()
+                .status(IndexReport.Status.DONE)
+                .ensured(List.copyOf(ensured))
+                .failures(List.copyOf(failures))
+                .build();
+        log.info("Pricing indexes: {} ensured, {} failed", ensured.size(), failures.size());
+        return report;
+    }
+
+    // groups of documents sharing the key of a unique index
+    private List<IndexReport.Duplicate> findDuplicates(String collection, Document keys) {
+        String[] fields = keys.keySet().toArray(new String[0]);
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group(fields).count().as("count").push("_id").as("ids"),
+                Aggregation.match(Criteria.where("count").gt(1)),
+                Aggregation.limit(MAX_DUPLICATE_GROUPS));
+
+        List<IndexReport.Duplicate> duplicates = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            Object key = group.get("_id");
+            List<String> ids = new ArrayList<>();
+            for (Object id : group.getList("ids", Object.class)) {
+                ids.add(String.valueOf(id));
+            }
+            duplicates.add(new IndexReport.Duplicate(
+                    key instanceof Document document ? new LinkedHashMap<>(document) : Collections.singletonMap(fields[0], key),
+                    group.getInteger("count"),
+                    ids));
+        }
+        log.warn("{} duplicate key groups in {} on {}", duplicates.size(), collection, keys.toJson());
+        return duplicates;
+    }
+}
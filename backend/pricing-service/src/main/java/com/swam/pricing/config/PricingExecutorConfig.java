@@ -0,0 +1,52 @@
+package com.swam.pricing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PricingExecutorConfig {
+
+    // bounded pool shared by the CPU-bound batch pricing work
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService pricingExecutor(@Value("${pricing.batch.parallelism:4}") int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "pricing-batch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Math.max(1, parallelism), threadFactory);
+    }
+
+    // single worker applying published rate cards to the rate calendar, one at a time in publication order
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService rateCalendarExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pricing-rate-calendar");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // work-stealing pool for the revenue simulation, kept apart from the common pool and the batch workers
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool revenueForkJoinPool(@Value("${pricing.revenue.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("pricing-revenue-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ForkJoinPool(threads, threadFactory, null, false);
+    }
+}
@@ -1,14 +1,34 @@
 package com.swam.pricing.controller;
 
+import com.swam.pricing.config.IndexBootstrapper;
 import com.swam.pricing.domain.*;
 import com.swam.pricing.dto.*;
+import com.swam.pricing.service.BatchPricingService;
+import com.swam.pricing.service.OccupancyService;
 import com.swam.pricing.service.PricingEngineService;
 import com.swam.pricing.service.PricingManagementService;
+import com.swam.pricing.service.QuoteTokenService;
+import com.swam.pricing.service.RateCalendarService;
+import com.swam.pricing.service.RateCardService;
+import com.swam.pricing.service.RateImportService;
+import com.swam.pricing.service.RateSnapshotService;
+import com.swam.pricing.service.RevenueSimulationService;
 import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.ResourceType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
+import com.swam.pricing.engine.StayQuoteRequest;
+import com.swam.pricing.engine.StayQuoteResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,6 +38,15 @@ public class PricingController {
 
     private final PricingEngineService engineService;
     private final PricingManagementService managementService;
+    private final RateCardService rateCardService;
+    private final BatchPricingService batchPricingService;
+    private final RateCalendarService rateCalendarService;
+    private final QuoteTokenService quoteTokenService;
+    private final RateImportService rateImportService;
+    private final IndexBootstrapper indexBootstrapper;
+    private final RevenueSimulationService revenueSimulationService;
+    private final OccupancyService occupancyService;
+    private final RateSnapshotService rateSnapshotService;
 
     @PostMapping("/seasons")
     public ResponseEntity<Season> createSeason(@RequestBody CreateSeasonRequest request) {
@@ -50,6 +79,26 @@ public class PricingController {
         return ResponseEntity.ok(managementService.setRate(request));
     }
 
+    // bulk upsert from a CSV (with header) or NDJSON stream, errors reported per line
+    @PostMapping(value = "/rates/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<RateImportReport> importRates(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        InputStream body) {
+        RateImportService.Format format = MediaType.parseMediaType(contentType).getSubtype().contains("csv")
+                ? RateImportService.Format.CSV
+                : RateImportService.Format.NDJSON;
+        return ResponseEntity.ok(rateImportService.importRates(body, format));
+    }
+
+    @PostMapping("/rates/clone-season")
+    public ResponseEntity<BulkRateOperationResult> cloneSeasonRates(@RequestBody CloneSeasonRatesRequest request) {
+        return ResponseEntity.ok(managementService.cloneSeasonRates(request));
+    }
+
+    @PostMapping("/rates/adjust")
+    public ResponseEntity<BulkRateOperationResult> adjustRates(@RequestBody AdjustRatesRequest request) {
+        return ResponseEntity.ok(managementService.adjustRates(request));
+    }
+
     @GetMapping("/rates")
     public ResponseEntity<List<SeasonalRate>> getRates(@RequestParam String seasonId) {
         return ResponseEntity.ok(managementService.getRatesBySeason(seasonId));
@@ -78,9 +127,142 @@ public class PricingController {
         return ResponseEntity.ok(managementService.getCityTax());
     }
 
+    // version of the rate card currently used for quotes
+    @GetMapping("/rate-card/version")
+    public ResponseEntity<Long> getRateCardVersion() {
+        return ResponseEntity.ok(rateCardService.currentVersion());
+    }
+
+    // versions still available for asOfVersion quotes, oldest first
+    @GetMapping("/rate-card/versions")
+    public ResponseEntity<List<RateCardVersionInfo>> getRateCardVersions() {
+        return ResponseEntity.ok(rateCardService.versions());
+    }
+
+    // self-contained copy of the current rate card and occupancy uplifts, for services quoting in process
+    @GetMapping("/rate-card/snapshot")
+    public ResponseEntity<RateSnapshot> getRateSnapshot() {
+        return ResponseEntity.ok(rateSnapshotService.current());
+    }
+
+    // polled by the replicas, cheap: the snapshot is fetched only when this changes
+    @GetMapping("/rate-card/snapshot/version")
+    public ResponseEntity<SnapshotVersion> getRateSnapshotVersion() {
+        return ResponseEntity.ok(rateSnapshotService.currentVersion());
+    }
+
+    // outcome of the background index creation, with the duplicates blocking a unique index
+    @GetMapping("/indexes")
+    public ResponseEntity<IndexReport> getIndexReport() {
+        return ResponseEntity.ok(indexBootstrapper.getReport());
+    }
+
+    // materialized nightly prices of a resource, one indexed range read
+    @GetMapping("/rate-calendar")
+    public ResponseEntity<List<RateCalendarEntry>> getRateCalendar(
+            @RequestParam String resourceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(rateCalendarService.getRange(resourceId, from, to));
+    }
+
+    // full rewrite of the calendar from the current rate card, returns the nights written
+    @PostMapping("/rate-calendar/rebuild")
+    public ResponseEntity<Long> rebuildRateCalendar() {
+        return ResponseEntity.ok(rateCalendarService.rebuild(rateCardService.current()));
+    }
+
+    // itemized=true adds the per-night lines as parallel arrays, asOfVersion prices on a retained older rate card
+    // and, for a superseded one, on the occupancy uplifts recorded when it was superseded
     @PostMapping("/calculate")
-    public ResponseEntity<PriceBreakdown> calculateQuote(@RequestBody PriceCalculationRequest request) {
-        PriceBreakdown breakdown = engineService.calculatePrice(request);
+    public ResponseEntity<PriceBreakdown> calculateQuote(@RequestBody PriceCalculationRequest request,
+                                                         @RequestParam(defaultValue = "false") boolean itemized,
+                                                         @RequestParam(required = false) Long asOfVersion) {
+        PriceBreakdown breakdown;
+        if (asOfVersion != null) {
+            breakdown = itemized
+                    ? engineService.calculateItemizedPrice(request, asOfVersion)
+                    : engineService.calculatePrice(request, asOfVersion.longValue());
+        } else {
+            breakdown = itemized
+                    ? engineService.calculateItemizedPrice(request)
+                    : engineService.calculatePrice(request);
+        }
         return ResponseEntity.ok(breakdown);
     }
-}
\ No newline at end of file
+
+    // quote returned with a token, see /calculate/requote
+    @PostMapping("/calculate/tokenized")
+    public ResponseEntity<PriceBreakdown> calculateTokenizedQuote(@RequestBody PriceCalculationRequest request) {
+        return ResponseEntity.ok(quoteTokenService.quote(request));
+    }
+
+    // new check-out for a tokenized quote: only the added or removed nights are priced
+    @PostMapping("/calculate/requote")
+    public ResponseEntity<PriceBreakdown> requote(@RequestBody RequoteRequest request) {
+        return ResponseEntity.ok(quoteTokenService.requote(request));
+    }
+
+    // split or extended stay across resources: one combined breakdown plus per-segment subtotals
+    @PostMapping("/calculate/stay")
+    public ResponseEntity<StayQuoteResponse> calculateStayQuote(@RequestBody StayQuoteRequest request) {
+        return ResponseEntity.ok(engineService.calculateStayPrice(request));
+    }
+
+    // prices a list of quotes in order, failing items are reported per item
+    @PostMapping("/calculate/batch")
+    public ResponseEntity<BatchPriceCalculationResponse> calculateBatch(@RequestBody BatchPriceCalculationRequest request) {
+        return ResponseEntity.ok(batchPricingService.calculateBatch(request.getItems()));
+    }
+
+    // length-of-stay discounts, weekday uplifts and min stays, compiled into the rate card
+    @PostMapping("/stay-rules")
+    public ResponseEntity<StayRule> saveStayRule(@RequestBody StayRule rule) {
+        return ResponseEntity.ok(managementService.saveStayRule(rule));
+    }
+
+    @GetMapping("/stay-rules")
+    public ResponseEntity<List<StayRule>> getStayRules() {
+        return ResponseEntity.ok(managementService.getStayRules());
+    }
+
+    @DeleteMapping("/stay-rules/{id}")
+    public ResponseEntity<Void> deleteStayRule(@PathVariable String id) {
+        managementService.deleteStayRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // which resources may sell the stay, no pricing involved
+    @PostMapping("/restrictions/check")
+    public ResponseEntity<RestrictionCheckResponse> checkRestrictions(@RequestBody RestrictionCheckRequest request) {
+        return ResponseEntity.ok(engineService.checkRestrictions(request));
+    }
+
+    // forward book priced on the current and on the proposed rate card, nothing is saved
+    @PostMapping("/simulations/revenue")
+    public ResponseEntity<RevenueSimulationResponse> simulateRevenue(@RequestBody RevenueSimulationRequest request) {
+        return ResponseEntity.ok(revenueSimulationService.simulate(request));
+    }
+
+    // booking created, modified, cancelled or deleted: its current state, sent by booking-service
+    @PostMapping("/occupancy/events")
+    public ResponseEntity<Void> occupancyEvent(@RequestBody OccupancyEvent event) {
+        occupancyService.apply(event);
+        return ResponseEntity.accepted().build();
+    }
+
+    // sold and sellable units per night, type omitted for every type
+    @GetMapping("/occupancy")
+    public ResponseEntity<List<OccupancyDay>> getOccupancy(
+            @RequestParam(required = false) ResourceType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(occupancyService.report(type, from, to));
+    }
+
+    // recomputes the counters from booking-service and resource-service, returns the stays counted
+    @PostMapping("/occupancy/rebuild")
+    public ResponseEntity<Integer> rebuildOccupancy() {
+        return ResponseEntity.ok(occupancyService.rebuild());
+    }
+}
@@ -1,5 +1,6 @@
 package com.swam.pricing.domain;
 
+import com.swam.pricing.engine.RateSource;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -7,7 +8,10 @@ import java.math.BigDecimal;
 
 @Data
 @Document(collection = "city_tax_rules")
-public class CityTaxRule {
+public class CityTaxRule implements RateSource.CityTaxView {
+    // there is a single rule: every update replaces this document in place
+    public static final String SINGLETON_ID = "city-tax";
+
     @Id
     private String id;
 
@@ -0,0 +1,36 @@
+package com.swam.pricing.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// materialized nightly prices of a resource, derived from seasons and seasonal rates
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "rate_calendar")
+@CompoundIndex(name = "resource_date", def = "{ 'resourceId': 1, 'date': 1 }", unique = true)
+public class RateCalendarEntry {
+    @Id
+    private String id;
+
+    private String resourceId;
+    private LocalDate date;
+    private String seasonId;
+
+    // write pass that last wrote the night, nights of an older pass in a rewritten range are stale
+    private String generation;
+
+    private BigDecimal basePrice;
+    private BigDecimal adultPrice;
+    private BigDecimal childPrice;
+    private BigDecimal infantPrice;
+}
@@ -0,0 +1,338 @@
+package com.swam.pricing.domain;
+
+import com.swam.pricing.engine.RateSource;
+import com.swam.pricing.engine.StayRuleTable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable in-memory snapshot of everything the pricing engine needs:
+ * seasons sorted by start date, seasonal rates keyed by (seasonId, resourceId), the city tax rule and the stay
+ * rules, kept both as documents and compiled into a {@link StayRuleTable}.
+ * <p>
+ * Every patch returns a new card with an incremented version; untouched rate maps are shared
+ * between versions. Documents are copied on the way in, so later mutations by the caller never
+ * leak into a published snapshot; the instances handed out must be treated as read-only.
+ */
+public final class RateCard implements RateSource {
+
+    private static final Comparator<Season> BY_START_DATE = Comparator.comparing(Season::getStartDate);
+
+    private final long version;
+    private final List<Season> seasons;
+    private final Map<String, Map<String, SeasonalRate>> ratesBySeason;
+    private final Map<String, SeasonalRate> ratesById;
+    private final CityTaxRule cityTaxRule;
+    private final List<StayRule> stayRules;
+    private final StayRuleTable stayRuleTable;
+
+    private RateCard(long version,
+                     List<Season> seasons,
+                     Map<String, Map<String, SeasonalRate>> ratesBySeason,
+                     Map<String, SeasonalRate> ratesById,
+                     CityTaxRule cityTaxRule,
+                     List<StayRule> stayRules,
+                     StayRuleTable stayRuleTable) {
+        this.version = version;
+        this.seasons = seasons;
+        this.ratesBySeason = ratesBySeason;
+        this.ratesById = ratesById;
+        this.cityTaxRule = cityTaxRule;
+        this.stayRules = stayRules;
+        this.stayRuleTable = stayRuleTable;
+    }
+
+    public static RateCard empty() {
+        return new RateCard(0, List.of(), Map.of(), Map.of(), null, List.of(), StayRuleTable.empty());
+    }
+
+    public static RateCard of(long version,
+                              Collection<Season> seasons,
+                              Collection<SeasonalRate> rates,
+                              CityTaxRule cityTaxRule) {
+        return of(version, seasons, rates, cityTaxRule, List.of());
+    }
+
+    public static RateCard of(long version,
+                              Collection<Season> seasons,
+                              Collection<SeasonalRate> rates,
+                              CityTaxRule cityTaxRule,
+                              Collection<StayRule> stayRules) {
+        List<Season> sortedSeasons = new ArrayList<>(seasons.size());
+        for (Season season : seasons) {
+            sortedSeasons.add(copy(season));
+        }
+        sortedSeasons.sort(BY_START_DATE);
+
+        Map<String, Map<String, SeasonalRate>> bySeason = new HashMap<>();
+        Map<String, SeasonalRate> byId = new HashMap<>();
+        for (SeasonalRate rate : rates) {
+            SeasonalRate snapshot = copy(rate);
+            bySeason.computeIfAbsent(snapshot.getSeasonId(), k -> new HashMap<>())
+                    .put(snapshot.getResourceId(), snapshot);
+            if (snapshot.getId() != null) {
+                byId.put(snapshot.getId(), snapshot);
+            }
+        }
+        bySeason.replaceAll((k, v) -> Collections.unmodifiableMap(v));
+
+        List<StayRule> rules = new ArrayList<>(stayRules.size());
+        for (StayRule rule : stayRules) {
+            rules.add(copy(rule));
+        }
+
+        return new RateCard(version,
+                Collections.unmodifiableList(sortedSeasons),
+                Collections.unmodifiableMap(bySeason),
+                Collections.unmodifiableMap(byId),
+                copy(cityTaxRule),
+                Collections.unmodifiableList(rules),
+                StayRuleTable.compile(rules));
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Season> getSeasons() {
+        return seasons;
+    }
+
+    @Override
+    public CityTaxRule getCityTaxRule() {
+        return cityTaxRule;
+    }
+
+    public List<StayRule> getStayRules() {
+        return stayRules;
+    }
+
+    @Override
+    public StayRuleTable getStayRuleTable() {
+        return stayRuleTable;
+    }
+
+    // season covering the given night, seasons never overlap (enforced by PricingManagementService)
+    @Override
+    public Optional<Season> findSeason(LocalDate date) {
+        int index = indexOfSeasonStartingOnOrBefore(date);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        Season candidate = seasons.get(index);
+        return candidate.getEndDate().isBefore(date) ? Optional.empty() : Optional.of(candidate);
+    }
+
+    // seasons overlapping [from, to], same semantics as SeasonRepository.findSeasonsInInterval
+    public List<Season> findSeasonsInInterval(LocalDate from, LocalDate to) {
+        List<Season> result = new ArrayList<>();
+        for (Season season : seasons) {
+            if (season.getStartDate().isAfter(to)) {
+                break;
+            }
+            if (!season.getEndDate().isBefore(from)) {
+                result.add(season);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<SeasonalRate> findRate(String seasonId, String resourceId) {
+        Map<String, SeasonalRate> rates = ratesBySeason.get(seasonId);
+        return rates == null ? Optional.empty() : Optional.ofNullable(rates.get(resourceId));
+    }
+
+    public Optional<Season> findSeasonById(String seasonId) {
+        for (Season season : seasons) {
+            if (season.getId().equals(seasonId)) {
+                return Optional.of(season);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // rates of a season keyed by resourceId
+    public Map<String, SeasonalRate> findRatesOfSeason(String seasonId) {
+        return ratesBySeason.getOrDefault(seasonId, Map.of());
+    }
+
+    public Collection<SeasonalRate> getRates() {
+        return ratesById.values();
+    }
+
+    // --- copy-on-write patches, each one bumps the version ---
+
+    public RateCard withSeason(Season season) {
+        List<Season> updated = new ArrayList<>(seasons.size() + 1);
+        for (Season s : seasons) {
+            if (!s.getId().equals(season.getId())) {
+                updated.add(s);
+            }
+        }
+        updated.add(copy(season));
+        updated.sort(BY_START_DATE);
+        return new RateCard(version + 1, Collections.unmodifiableList(updated), ratesBySeason, ratesById, cityTaxRule,
+                stayRules, stayRuleTable);
+    }
+
+    public RateCard withoutSeason(String seasonId) {
+        List<Season> updated = new ArrayList<>(seasons);
+        updated.removeIf(s -> s.getId().equals(seasonId));
+        return new RateCard(version + 1, Collections.unmodifiableList(updated), ratesBySeason, ratesById, cityTaxRule,
+                stayRules, stayRuleTable);
+    }
+
+    public RateCard withRate(SeasonalRate rate) {
+        SeasonalRate snapshot = copy(rate);
+        Map<String, Map<String, SeasonalRate>> bySeason = new HashMap<>(ratesBySeason);
+        Map<String, SeasonalRate> byId = new HashMap<>(ratesById);
+
+        // the rate may have moved to another season/resource
+        SeasonalRate previous = snapshot.getId() != null ? byId.get(snapshot.getId()) : null;
+        if (previous != null) {
+            removeFrom(bySeason, previous);
+        }
+
+        Map<String, SeasonalRate> seasonRates = new HashMap<>(bySeason.getOrDefault(snapshot.getSeasonId(), Map.of()));
+        seasonRates.put(snapshot.getResourceId(), snapshot);
+        bySeason.put(snapshot.getSeasonId(), Collections.unmodifiableMap(seasonRates));
+        if (snapshot.getId() != null) {
+            byId.put(snapshot.getId(), snapshot);
+        }
+
+        return new RateCard(version + 1, seasons,
+                Collections.unmodifiableMap(bySeason), Collections.unmodifiableMap(byId), cityTaxRule,
+                stayRules, stayRuleTable);
+    }
+
+    public RateCard withoutRate(String rateId) {
+        SeasonalRate previous = ratesById.get(rateId);
+        if (previous == null) {
+            return new RateCard(version + 1, seasons, ratesBySeason, ratesById, cityTaxRule, stayRules, stayRuleTable);
+        }
+        Map<String, Map<String, SeasonalRate>> bySeason = new HashMap<>(ratesBySeason);
+        Map<String, SeasonalRate> byId = new HashMap<>(ratesById);
+        removeFrom(bySeason, previous);
+        byId.remove(rateId);
+
+        return new RateCard(version + 1, seasons,
+                Collections.unmodifiableMap(bySeason), Collections.unmodifiableMap(byId), cityTaxRule,
+                stayRules, stayRuleTable);
+    }
+
+    public RateCard withCityTaxRule(CityTaxRule rule) {
+        return new RateCard(version + 1, seasons, ratesBySeason, ratesById, copy(rule), stayRules, stayRuleTable);
+    }
+
+    // the table is recompiled from the rule documents, rules are few and change rarely
+    public RateCard withStayRule(StayRule rule) {
+        List<StayRule> updated = new ArrayList<>(stayRules.size() + 1);
+        for (StayRule r : stayRules) {
+            if (!r.getId().equals(rule.getId())) {
+                updated.add(r);
+            }
+        }
+        updated.add(copy(rule));
+        return new RateCard(version + 1, seasons, ratesBySeason, ratesById, cityTaxRule,
+                Collections.unmodifiableList(updated), StayRuleTable.compile(updated));
+    }
+
+    public RateCard withoutStayRule(String ruleId) {
+        List<StayRule> updated = new ArrayList<>(stayRules);
+        updated.removeIf(r -> r.getId().equals(ruleId));
+        return new RateCard(version + 1, seasons, ratesBySeason, ratesById, cityTaxRule,
+                Collections.unmodifiableList(updated), StayRuleTable.compile(updated));
+    }
+
+    private int indexOfSeasonStartingOnOrBefore(LocalDate date) {
+        int low = 0;
+        int high = seasons.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (seasons.get(mid).getStartDate().isAfter(date)) {
+                high = mid - 1;
+            } else {
+                found = mid;
+                low = mid + 1;
+            }
+        }
+        return found;
+    }
+
+    private static void removeFrom(Map<String, Map<String, SeasonalRate>> bySeason, SeasonalRate rate) {
+        Map<String, SeasonalRate> seasonRates = bySeason.get(rate.getSeasonId());
+        if (seasonRates == null) {
+            return;
+        }
+        Map<String, SeasonalRate> remaining = new HashMap<>(seasonRates);
+        remaining.remove(rate.getResourceId());
+        if (remaining.isEmpty()) {
+            bySeason.remove(rate.getSeasonId());
+        } else {
+            bySeason.put(rate.getSeasonId(), Collections.unmodifiableMap(remaining));
+        }
+    }
+
+    private static Season copy(Season source) {
+        Season s = new Season();
+        s.setId(source.getId());
+        s.setName(source.getName());
+        s.setStartDate(source.getStartDate());
+        s.setEndDate(source.getEndDate());
+        return s;
+    }
+
+    private static SeasonalRate copy(SeasonalRate source) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(source.getId());
+        r.setSeasonId(source.getSeasonId());
+        r.setResourceId(source.getResourceId());
+        r.setBasePrice(source.getBasePrice());
+        r.setAdultPrice(source.getAdultPrice());
+        r.setChildPrice(source.getChildPrice());
+        r.setInfantPrice(source.getInfantPrice());
+        return r;
+    }
+
+    private static CityTaxRule copy(CityTaxRule source) {
+        if (source == null) {
+            return null;
+        }
+        CityTaxRule r = new CityTaxRule();
+        r.setId(source.getId());
+        r.setEnabled(source.isEnabled());
+        r.setAmountPerAdult(source.getAmountPerAdult());
+        r.setAmountPerChild(source.getAmountPerChild());
+        r.setAmountPerInfant(source.getAmountPerInfant());
+        r.setMinAge(source.getMinAge());
+        r.setMaxNightsCap(source.getMaxNightsCap());
+        return r;
+    }
+
+    private static StayRule copy(StayRule source) {
+        StayRule r = new StayRule();
+        r.setId(source.getId());
+        r.setName(source.getName());
+        r.setType(source.getType());
+        r.setResourceId(source.getResourceId());
+        r.setValidFrom(source.getValidFrom());
+        r.setValidTo(source.getValidTo());
+        r.setMinNights(source.getMinNights());
+        r.setDaysOfWeek(source.getDaysOfWeek() != null ? Set.copyOf(source.getDaysOfWeek()) : null);
+        r.setPercent(source.getPercent());
+        r.setEnabled(source.isEnabled());
+        return r;
+    }
+}
@@ -1,13 +1,16 @@
 package com.swam.pricing.domain;
 
+import com.swam.pricing.engine.RateSource;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDate;
 
 @Data
 @Document(collection = "seasons")
-public class Season {
+@CompoundIndex(name = "start_end", def = "{ 'startDate': 1, 'endDate': 1 }")
+public class Season implements RateSource.SeasonView {
     @Id
     private String id;
     private String name;
@@ -1,13 +1,16 @@
 package com.swam.pricing.domain;
 
+import com.swam.pricing.engine.RateSource;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.math.BigDecimal;
 
 @Data
 @Document(collection = "seasonal_rates")
-public class SeasonalRate {
+@CompoundIndex(name = "season_resource", def = "{ 'seasonId': 1, 'resourceId': 1 }", unique = true)
+public class SeasonalRate implements RateSource.RateView {
     @Id
     private String id;
 
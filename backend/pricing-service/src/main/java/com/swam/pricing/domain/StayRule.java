@@ -0,0 +1,36 @@
+package com.swam.pricing.domain;
+
+import com.swam.pricing.engine.RateSource;
+import com.swam.pricing.engine.StayRuleType;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+// declarative pricing rule, compiled into the StayRuleTable of every published rate card
+@Data
+@Document(collection = "stay_rules")
+public class StayRule implements RateSource.StayRuleView {
+
+    @Id
+    private String id;
+    private String name;
+    private StayRuleType type;
+
+    // null applies to every resource
+    private String resourceId;
+
+    // open ended when null; matched on the check-in, on each night for WEEKDAY_UPLIFT
+    private LocalDate validFrom;
+    private LocalDate validTo;
+
+    private Integer minNights;
+    private Set<DayOfWeek> daysOfWeek;
+    private BigDecimal percent;
+
+    private boolean enabled = true;
+}
@@ -0,0 +1,13 @@
+package com.swam.pricing.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class AdjustRatesRequest {
+    private String seasonId;            // optional, every season when null
+    private List<String> resourceIds;   // optional, every resource when empty
+    private BigDecimal percent;         // +10 raises prices by 10%, -10 lowers them
+}
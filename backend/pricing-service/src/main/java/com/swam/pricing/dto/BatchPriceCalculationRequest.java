@@ -0,0 +1,15 @@
+package com.swam.pricing.dto;
+
+import com.swam.pricing.engine.PriceCalculationRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPriceCalculationRequest {
+    private List<PriceCalculationRequest> items;
+}
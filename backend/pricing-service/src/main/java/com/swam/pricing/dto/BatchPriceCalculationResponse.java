@@ -0,0 +1,35 @@
+package com.swam.pricing.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.swam.shared.dto.PriceBreakdown;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPriceCalculationResponse {
+
+    // every item of the batch was priced against this rate card version
+    private long rateCardVersion;
+
+    // same order as the request items
+    private List<ItemResult> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private int index;
+        private PriceBreakdown breakdown; // null when the item failed
+        private String errorCode;
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,13 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRateOperationResult {
+    private long affectedRates;
+    private long rateCardVersion;
+}
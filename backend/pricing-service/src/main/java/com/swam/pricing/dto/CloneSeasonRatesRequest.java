@@ -0,0 +1,12 @@
+package com.swam.pricing.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CloneSeasonRatesRequest {
+    private String sourceSeasonId;
+    private String targetSeasonId;
+    private List<String> resourceIds;   // optional, all resources of the source season when empty
+}
@@ -0,0 +1,15 @@
+package com.swam.pricing.dto;
+
+import com.swam.pricing.engine.PriceCalculationRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one booking of the forward book with the quote request that prices it, as exported by booking-service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForwardBooking {
+    private String bookingId;
+    private PriceCalculationRequest request;
+}
@@ -0,0 +1,44 @@
+package com.swam.pricing.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexReport {
+
+    public enum Status { PENDING, RUNNING, DONE }
+
+    private Status status;
+    private List<String> ensured;          // "collection.index"
+    private List<Failure> failures;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Failure {
+        private String collection;
+        private String index;
+        private String message;
+        private List<Duplicate> duplicates;   // only for unique indexes, first groups only
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Duplicate {
+        private Map<String, Object> key;
+        private int count;
+        private List<String> ids;
+    }
+}
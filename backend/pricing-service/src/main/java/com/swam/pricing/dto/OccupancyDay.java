@@ -0,0 +1,22 @@
+package com.swam.pricing.dto;
+
+import com.swam.shared.enums.ResourceType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyDay {
+    private LocalDate date;
+    private ResourceType type;
+    private int sold;
+    private int total;
+    private BigDecimal upliftPercent;   // multiplier of the matching tier, as a percentage on the nightly price
+}
@@ -0,0 +1,19 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// full current state of a booking as sent by booking-service on create, modify, cancel and delete
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyEvent {
+    private String bookingId;
+    private String resourceId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private boolean active;     // false once cancelled or deleted
+}
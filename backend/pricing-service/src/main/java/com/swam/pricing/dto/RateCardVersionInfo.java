@@ -0,0 +1,18 @@
+package com.swam.pricing.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RateCardVersionInfo {
+    private long version;
+    private Instant publishedAt;
+    private Instant supersededAt;   // null for the current version
+}
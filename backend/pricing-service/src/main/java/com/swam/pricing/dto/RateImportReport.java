@@ -0,0 +1,33 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class RateImportReport {
+
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long failed;
+
+    // first errors only, failed keeps the full count
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    // rate card version published after the import, null when nothing was written
+    private Long rateCardVersion;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,18 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// moves the check-out of a previously quoted stay, guests staying until the old check-out follow it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequoteRequest {
+    private String quoteToken;
+    private LocalDate newCheckOut;
+}
@@ -0,0 +1,19 @@
+package com.swam.pricing.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// resource as returned by resource-service, only what the occupancy counters need
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ResourceUnit {
+    private String id;
+    private ResourceType type;
+    private ResourceStatus status;
+}
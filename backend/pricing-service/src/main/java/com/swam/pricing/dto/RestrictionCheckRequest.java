@@ -0,0 +1,18 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// one stay checked against the stay restrictions of several resources
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestrictionCheckRequest {
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private List<String> resourceIds;
+}
@@ -0,0 +1,30 @@
+package com.swam.pricing.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestrictionCheckResponse {
+
+    private long rateCardVersion;
+
+    // same order as the requested resources
+    private List<ResourceRestriction> results;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ResourceRestriction {
+        private String resourceId;
+        private boolean allowed;
+        // minimum nights required for this check-in, null when unrestricted
+        private Integer minNights;
+    }
+}
@@ -0,0 +1,20 @@
+package com.swam.pricing.dto;
+
+import com.swam.pricing.domain.Season;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class RevenueSimulationRequest {
+
+    // proposed seasons: an existing id moves or renames that season, a new id adds one
+    private List<Season> seasons = new ArrayList<>();
+
+    // proposed rates, upserted on (seasonId, resourceId) like POST /rates
+    private List<SetRateRequest> rates = new ArrayList<>();
+
+    // forward book to price, fetched from booking-service when absent
+    private List<ForwardBooking> bookings;
+}
@@ -0,0 +1,43 @@
+package com.swam.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+
+// revenue is base + extras - discount: city tax is collected for the municipality and the deposit is only a payment
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueSimulationResponse {
+
+    // current rate card the proposal was applied to
+    private long rateCardVersion;
+
+    private long pricedBookings;
+    // bookings that could not be priced on either card, left out of every total
+    private long failedBookings;
+
+    private BigDecimal currentRevenue;
+    private BigDecimal proposedRevenue;
+    private BigDecimal delta;
+
+    // by check-in month, oldest first
+    private List<MonthDelta> months;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MonthDelta {
+        private YearMonth month;
+        private long bookings;
+        private BigDecimal currentRevenue;
+        private BigDecimal proposedRevenue;
+        private BigDecimal delta;
+    }
+}
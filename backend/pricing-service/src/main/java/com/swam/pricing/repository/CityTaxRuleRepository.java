@@ -2,4 +2,8 @@ package com.swam.pricing.repository;
 import com.swam.pricing.domain.CityTaxRule;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface CityTaxRuleRepository extends MongoRepository<CityTaxRule, String> {}
\ No newline at end of file
+public interface CityTaxRuleRepository extends MongoRepository<CityTaxRule, String> {
+
+    // rules left from before the fixed id
+    long deleteByIdNot(String id);
+}
\ No newline at end of file
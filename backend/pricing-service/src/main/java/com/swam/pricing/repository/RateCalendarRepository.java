@@ -0,0 +1,27 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import org.springframework.data.mongodb.repository.DeleteQuery;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RateCalendarRepository extends MongoRepository<RateCalendarEntry, String>, RateCalendarRepositoryCustom {
+
+    // nights of a resource in [from, to], served by the (resourceId, date) index
+    @Query(value = "{ 'resourceId': ?0, 'date': { $gte: ?1, $lte: ?2 } }", sort = "{ 'date': 1 }")
+    List<RateCalendarEntry> findRange(String resourceId, LocalDate from, LocalDate to);
+
+    // nights of a resource in [from, to] left over from an older write pass, i.e. no longer priced
+    @DeleteQuery("{ 'resourceId': ?0, 'date': { $gte: ?1, $lte: ?2 }, 'generation': { $ne: ?3 } }")
+    void deleteRangeNotWrittenBy(String resourceId, LocalDate from, LocalDate to, String generation);
+
+    // every night left over from an older write pass, after a full rebuild
+    @DeleteQuery("{ 'generation': { $ne: ?0 } }")
+    void deleteNotWrittenBy(String generation);
+
+    @DeleteQuery("{ 'date': { $lt: ?0 } }")
+    void deleteBefore(LocalDate date);
+}
@@ -0,0 +1,12 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+
+import java.util.List;
+
+// calendar writes that replace nights in place, so readers never see a night missing while it is rewritten
+public interface RateCalendarRepositoryCustom {
+
+    // replaces the night of each entry matched on (resourceId, date), inserting it when absent; one round trip
+    void upsertAll(List<RateCalendarEntry> entries);
+}
@@ -0,0 +1,31 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RateCalendarRepositoryImpl implements RateCalendarRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void upsertAll(List<RateCalendarEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RateCalendarEntry.class);
+        for (RateCalendarEntry entry : entries) {
+            // the entry carries no _id: a replaced night keeps its own, an inserted one gets a new one
+            Query night = Query.query(Criteria.where("resourceId").is(entry.getResourceId()).and("date").is(entry.getDate()));
+            bulk.replaceOne(night, entry, FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+}
@@ -5,7 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.Optional;
 import java.util.List;
 
-public interface SeasonalRateRepository extends MongoRepository<SeasonalRate, String> {
+public interface SeasonalRateRepository extends MongoRepository<SeasonalRate, String>, SeasonalRateRepositoryCustom {
     Optional<SeasonalRate> findBySeasonIdAndResourceId(String seasonId, String resourceId);
     List<SeasonalRate> findBySeasonId(String seasonId);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.swam.pricing.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+// bulk rate operations executed inside Mongo, one round trip whatever the number of rates
+public interface SeasonalRateRepositoryCustom {
+
+    // copies the rates of a season onto another one, replacing the target rate of the same resource; returns the rates copied
+    long cloneSeasonRates(String sourceSeasonId, String targetSeasonId, Collection<String> resourceIds);
+
+    // scales every price by (1 + percent / 100), rounded HALF_UP to cents; null season or resources mean all; returns the rates changed
+    long scalePrices(String seasonId, Collection<String> resourceIds, BigDecimal percent);
+}
@@ -0,0 +1,113 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.SeasonalRate;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class SeasonalRateRepositoryImpl implements SeasonalRateRepositoryCustom {
+
+    static final List<String> PRICE_FIELDS = List.of("basePrice", "adultPrice", "childPrice", "infantPrice");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public long cloneSeasonRates(String sourceSeasonId, String targetSeasonId, Collection<String> resourceIds) {
+        String collection = mongoTemplate.getCollectionName(SeasonalRate.class);
+        Document filter = filter(sourceSeasonId, resourceIds);
+
+        long copied = mongoTemplate.getCollection(collection).countDocuments(filter);
+        if (copied > 0) {
+            mongoTemplate.getCollection(collection).aggregate(clonePipeline(collection, filter, targetSeasonId)).toCollection();
+        }
+        return copied;
+    }
+
+    @Override
+    public long scalePrices(String seasonId, Collection<String> resourceIds, BigDecimal percent) {
+        String collection = mongoTemplate.getCollectionName(SeasonalRate.class);
+        return mongoTemplate.getCollection(collection)
+                .updateMany(filter(seasonId, resourceIds), scalePipeline(percent))
+                .getModifiedCount();
+    }
+
+    /**
+     * Source rates joined with the target rate of the same resource: the existing _id is reused so $merge replaces
+     * it, otherwise _id is dropped and $merge inserts a new document.
+     */
+    static List<Document> clonePipeline(String collection, Document filter, String targetSeasonId) {
+        Document lookup = new Document("from", collection)
+                .append("let", new Document("resource", "$resourceId"))
+                .append("pipeline", List.of(
+                        new Document("$match", new Document("$expr", new Document("$and", List.of(
+                                new Document("$eq", List.of("$seasonId", targetSeasonId)),
+                                new Document("$eq", List.of("$resourceId", "$$resource")))))),
+                        new Document("$project", new Document("_id", 1))))
+                .append("as", "existing");
+
+        Document project = new Document("_id", new Document("$ifNull",
+                List.of(new Document("$arrayElemAt", List.of("$existing._id", 0)), "$$REMOVE")))
+                .append("_class", 1)
+                .append("seasonId", new Document("$literal", targetSeasonId))
+                .append("resourceId", 1);
+        PRICE_FIELDS.forEach(field -> project.append(field, 1));
+
+        return List.of(
+                new Document("$match", filter),
+                new Document("$lookup", lookup),
+                new Document("$project", project),
+                new Document("$merge", new Document("into", collection)
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+    }
+
+    // prices are stored as strings: convert, scale in cents, round half up and write back as "units.cc"
+    static List<Document> scalePipeline(BigDecimal percent) {
+        Decimal128 centsFactor = new Decimal128(BigDecimal.ONE.add(percent.movePointLeft(2)).movePointRight(2));
+        Document set = new Document();
+        for (String field : PRICE_FIELDS) {
+            set.append(field, scaledPrice("$" + field, centsFactor));
+        }
+        return List.of(new Document("$set", set));
+    }
+
+    private static Document scaledPrice(String field, Decimal128 centsFactor) {
+        Document cents = new Document("$toLong", new Document("$floor", new Document("$add", List.of(
+                new Document("$multiply", List.of(new Document("$toDecimal", field), centsFactor)),
+                new Decimal128(new BigDecimal("0.5"))))));
+
+        Document units = new Document("$toString", new Document("$toLong", new Document("$divide", List.of(
+                new Document("$subtract", List.of("$$cents", new Document("$mod", List.of("$$cents", 100L)))), 100L))));
+        Document hundredths = new Document("$substrCP", List.of(
+                new Document("$toString", new Document("$add", List.of(100L, new Document("$mod", List.of("$$cents", 100L))))), 1, 2));
+
+        Document formatted = new Document("$let", new Document("vars", new Document("cents", cents))
+                .append("in", new Document("$concat", List.of(units, ".", hundredths))));
+
+        // null or missing prices are left untouched
+        return new Document("$cond", List.of(
+                new Document("$eq", Arrays.asList(new Document("$ifNull", Arrays.asList(field, null)), null)),
+                field,
+                formatted));
+    }
+
+    private static Document filter(String seasonId, Collection<String> resourceIds) {
+        Document filter = new Document();
+        if (seasonId != null) {
+            filter.append("seasonId", seasonId);
+        }
+        if (resourceIds != null && !resourceIds.isEmpty()) {
+            filter.append("resourceId", new Document("$in", new ArrayList<>(resourceIds)));
+        }
+        return filter;
+    }
+}
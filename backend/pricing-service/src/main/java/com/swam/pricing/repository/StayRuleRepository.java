@@ -0,0 +1,6 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.StayRule;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface StayRuleRepository extends MongoRepository<StayRule, String> {}
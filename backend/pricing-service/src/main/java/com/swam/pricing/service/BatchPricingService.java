@@ -0,0 +1,117 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.dto.BatchPriceCalculationResponse;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.exceptions.DomainException;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+// prices many quotes in one call: one rate card snapshot for the whole batch, items split across a bounded pool
+@Slf4j
+@Service
+public class BatchPricingService {
+
+    private final PricingEngineService engineService;
+    private final RateCardService rateCardService;
+    private final ExecutorService pricingExecutor;
+    private final int parallelism;
+    private final int maxItems;
+
+    public BatchPricingService(PricingEngineService engineService,
+                               RateCardService rateCardService,
+                               @Qualifier("pricingExecutor") ExecutorService pricingExecutor,
+                               @Value("${pricing.batch.parallelism:4}") int parallelism,
+                               @Value("${pricing.batch.max-items:1000}") int maxItems) {
+        this.engineService = engineService;
+        this.rateCardService = rateCardService;
+        this.pricingExecutor = pricingExecutor;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxItems = maxItems;
+    }
+
+    public BatchPriceCalculationResponse calculateBatch(List<PriceCalculationRequest> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidPricingRequestException("il batch non contiene richieste");
+        }
+        if (items.size() > maxItems) {
+            throw new InvalidPricingRequestException(
+                    String.format("il batch contiene %d richieste, massimo consentito %d", items.size(), maxItems));
+        }
+
+        // a single snapshot covers the union of all date ranges and resources
+        RateCard rateCard = rateCardService.current();
+        BatchPriceCalculationResponse.ItemResult[] results = new BatchPriceCalculationResponse.ItemResult[items.size()];
+
+        int chunks = Math.min(parallelism, items.size());
+        int chunkSize = (items.size() + chunks - 1) / chunks;
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunks);
+        for (int from = chunkSize; from < items.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, items.size());
+            futures.add(CompletableFuture.runAsync(() -> priceRange(items, rateCard, results, start, end), pricingExecutor));
+        }
+
+        // the calling thread prices the first chunk itself
+        priceRange(items, rateCard, results, 0, Math.min(chunkSize, items.size()));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        return BatchPriceCalculationResponse.builder()
+                .rateCardVersion(rateCard.getVersion())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    private void priceRange(List<PriceCalculationRequest> items, RateCard rateCard,
+                            BatchPriceCalculationResponse.ItemResult[] results, int start, int end) {
+        for (int i = start; i < end; i++) {
+            results[i] = priceItem(i, items.get(i), rateCard);
+        }
+    }
+
+    // a failing item is reported in place and never fails the batch
+    private BatchPriceCalculationResponse.ItemResult priceItem(int index, PriceCalculationRequest item, RateCard rateCard) {
+        try {
+            validate(item);
+            return BatchPriceCalculationResponse.ItemResult.builder()
+                    .index(index)
+                    .breakdown(engineService.calculatePrice(item, rateCard))
+                    .build();
+        } catch (DomainException ex) {
+            return failure(index, ex.getErrorCode(), ex.getMessage());
+        } catch (RuntimeException ex) {
+            log.debug("Batch item {} failed", index, ex);
+            return failure(index, "PRICING_ERROR", ex.getMessage());
+        }
+    }
+
+    private void validate(PriceCalculationRequest item) {
+        if (item == null) {
+            throw new InvalidPricingRequestException("richiesta vuota");
+        }
+        if (item.getResourceId() == null || item.getCheckIn() == null || item.getCheckOut() == null) {
+            throw new InvalidPricingRequestException("risorsa, check-in e check-out sono obbligatori");
+        }
+        if (item.getGuests() == null) {
+            throw new InvalidPricingRequestException("lista ospiti mancante");
+        }
+    }
+
+    private BatchPriceCalculationResponse.ItemResult failure(int index, String code, String message) {
+        return BatchPriceCalculationResponse.ItemResult.builder()
+                .index(index)
+                .errorCode(code)
+                .errorMessage(message)
+                .build();
+    }
+}
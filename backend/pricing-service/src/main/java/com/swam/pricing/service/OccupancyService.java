@@ -0,0 +1,343 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.client.ResourceDirectoryClient;
+import com.swam.pricing.dto.OccupancyDay;
+import com.swam.pricing.dto.OccupancyEvent;
+import com.swam.pricing.dto.ResourceUnit;
+import com.swam.pricing.engine.OccupancyTable;
+import com.swam.pricing.engine.OccupancyUplift;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-night occupancy of every resource type (sold units / sellable units), kept in memory and updated incrementally
+ * from the booking events sent by booking-service. Quotes read the counters without any remote call: the configured
+ * tiers turn the occupancy of a night into a percentage on its nightly price, rounded per night like the weekday uplifts.
+ * The counters can be rebuilt from scratch with one aggregation on booking-service plus the resource list of
+ * resource-service; events received while a rebuild is fetching are replayed on top of it.
+ */
+@Slf4j
+@Service
+public class OccupancyService implements OccupancyUplift {
+
+    private static final int MAX_REPORT_DAYS = 366;
+
+    private final BookingExportClient bookingClient;
+    private final ResourceDirectoryClient resourceClient;
+    private final boolean enabled;
+    // ascending occupancy thresholds and the uplift of each tier, both in basis points
+    private final long[] thresholds;
+    private final long[] upliftBasisPoints;
+
+    private volatile State state = new State(List.of());
+    // non-null while a rebuild is fetching, guarded by this
+    private List<OccupancyEvent> pendingReplay;
+    private final Object rebuildLock = new Object();
+    // bumped whenever the tier of some night changes, part of the quote cache key
+    private final AtomicLong version = new AtomicLong();
+
+    public OccupancyService(BookingExportClient bookingClient,
+                            ResourceDirectoryClient resourceClient,
+                            @Value("${pricing.occupancy.enabled:true}") boolean enabled,
+                            @Value("${pricing.occupancy.tiers:}") String tiers) {
+        this.bookingClient = bookingClient;
+        this.resourceClient = resourceClient;
+        this.enabled = enabled;
+
+        List<long[]> parsed = parseTiers(tiers);
+        this.thresholds = new long[parsed.size()];
+        this.upliftBasisPoints = new long[parsed.size()];
+        for (int i = 0; i < parsed.size(); i++) {
+            thresholds[i] = parsed.get(i)[0];
+            upliftBasisPoints[i] = parsed.get(i)[1];
+        }
+    }
+
+    // "70:5,90:15" = +5% from 70% occupancy, +15% from 90%
+    static List<long[]> parseTiers(String tiers) {
+        List<long[]> parsed = new ArrayList<>();
+        if (tiers == null || tiers.isBlank()) {
+            return parsed;
+        }
+        long previous = -1;
+        for (String tier : tiers.split(",")) {
+            String[] parts = tier.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid occupancy tier '" + tier + "', expected <occupancy%>:<uplift%>");
+            }
+            long threshold = new BigDecimal(parts[0].trim()).movePointRight(2).longValueExact();
+            long uplift = new BigDecimal(parts[1].trim()).movePointRight(2).longValueExact();
+            if (threshold <= previous || threshold < 0 || threshold > 10_000) {
+                throw new IllegalArgumentException("Occupancy tiers must be ascending between 0 and 100: " + tiers);
+            }
+            if (uplift <= -10_000) {
+                throw new IllegalArgumentException("Occupancy uplift must be greater than -100: " + tier);
+            }
+            parsed.add(new long[]{threshold, uplift});
+            previous = threshold;
+        }
+        return parsed;
+    }
+
+    @Override
+    public boolean hasTiers() {
+        return enabled && thresholds.length > 0;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public long basisPoints(String resourceId, long epochDay) {
+        State current = state;
+        ResourceType type = current.resourceTypes.get(resourceId);
+        if (!hasTiers() || type == null) {
+            return 0;
+        }
+        return tierUplift(current.sold(type, epochDay), current.units(type));
+    }
+
+    // the uplifts in force, for the replicated rate snapshot; null when no tier is configured
+    public synchronized OccupancyTable export() {
+        if (!hasTiers()) {
+            return null;
+        }
+        State current = state;
+        // the engine keys the table by type name, it does not know the ResourceType enum
+        Map<String, Map<Long, Long>> basisPoints = new HashMap<>();
+        for (Map.Entry<ResourceType, Map<Long, Integer>> entry : current.sold.entrySet()) {
+            int units = current.units(entry.getKey());
+            Map<Long, Long> nights = new HashMap<>();
+            entry.getValue().forEach((day, sold) -> {
+                long uplift = tierUplift(sold, units);
+                if (uplift != 0) {
+                    nights.put(day, uplift);
+                }
+            });
+            if (!nights.isEmpty()) {
+                basisPoints.put(entry.getKey().name(), nights);
+            }
+        }
+        Map<String, String> resourceTypes = new HashMap<>();
+        current.resourceTypes.forEach((resourceId, type) -> resourceTypes.put(resourceId, type.name()));
+        return new OccupancyTable(resourceTypes, basisPoints);
+    }
+
+    // applies the new state of a booking; the delta is taken against the last known state, so replays are harmless
+    public synchronized void apply(OccupancyEvent event) {
+        if (event == null || event.getBookingId() == null) {
+            throw new InvalidPricingRequestException("identificativo prenotazione mancante");
+        }
+        if (!enabled) {
+            return;
+        }
+        if (pendingReplay != null) {
+            pendingReplay.add(event);
+        }
+        if (applyTo(state, event)) {
+            version.incrementAndGet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::scheduledRebuild, "pricing-occupancy-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // nightly reconciliation, also drops the nights already past
+    @Scheduled(cron = "${pricing.occupancy.rebuild-cron:0 15 3 * * *}")
+    public void scheduledRebuild() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException ex) {
+            log.warn("Occupancy rebuild failed, keeping the current counters: {}", ex.getMessage());
+        }
+    }
+
+    // recomputes every counter from the resources and the active stays, returns the number of stays counted
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pendingReplay = new ArrayList<>();
+            }
+            try {
+                State rebuilt = new State(resourceClient.fetchResources());
+                for (OccupancyEvent stay : bookingClient.fetchOccupancy()) {
+                    applyTo(rebuilt, stay);
+                }
+                synchronized (this) {
+                    for (OccupancyEvent event : pendingReplay) {
+                        applyTo(rebuilt, event);
+                    }
+                    state = rebuilt;
+                    version.incrementAndGet();
+                }
+                log.info("Occupancy counters rebuilt: {} resources, {} stays", rebuilt.resourceTypes.size(), rebuilt.stays.size());
+                return rebuilt.stays.size();
+            } finally {
+                synchronized (this) {
+                    pendingReplay = null;
+                }
+            }
+        }
+    }
+
+    // sold and sellable units per night of one type, or of every type when type is null
+    public List<OccupancyDay> report(ResourceType type, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new InvalidPricingRequestException("intervallo di date non valido");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_REPORT_DAYS) {
+            throw new InvalidPricingRequestException("l'intervallo non può superare " + MAX_REPORT_DAYS + " giorni");
+        }
+        State current = state;
+        List<ResourceType> types = type != null ? List.of(type) : List.of(ResourceType.values());
+        List<OccupancyDay> days = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            for (ResourceType t : types) {
+                int sold = current.sold(t, date.toEpochDay());
+                int units = current.units(t);
+                days.add(OccupancyDay.builder()
+                        .date(date)
+                        .type(t)
+                        .sold(sold)
+                        .total(units)
+                        .upliftPercent(BigDecimal.valueOf(hasTiers() ? tierUplift(sold, units) : 0, 2))
+                        .build());
+            }
+        }
+        return days;
+    }
+
+    // returns true when the tier of at least one night changed
+    private boolean applyTo(State target, OccupancyEvent event) {
+        OccupancyEvent previous = target.stays.get(event.getBookingId());
+        OccupancyEvent next = occupies(event) ? event : null;
+        if (previous == null && next == null || previous != null && next != null && sameStay(previous, next)) {
+            return false;
+        }
+        boolean changed = false;
+        if (previous != null) {
+            target.stays.remove(event.getBookingId());
+            changed = count(target, previous, -1);
+        }
+        if (next != null) {
+            target.stays.put(event.getBookingId(), next);
+            changed |= count(target, next, 1);
+        }
+        return changed;
+    }
+
+    private boolean count(State target, OccupancyEvent stay, int delta) {
+        ResourceType type = target.resourceTypes.get(stay.getResourceId());
+        if (type == null) {
+            // resource created after the last rebuild, counted from the next one
+            log.debug("Unknown resource {} for booking {}", stay.getResourceId(), stay.getBookingId());
+            return false;
+        }
+        int units = target.units(type);
+        Map<Long, Integer> sold = target.sold.get(type);
+        boolean changed = false;
+        for (long day = stay.getCheckIn().toEpochDay(); day < stay.getCheckOut().toEpochDay(); day++) {
+            int before = sold.getOrDefault(day, 0);
+            int after = before + delta;
+            if (after <= 0) {
+                sold.remove(day);
+            } else {
+                sold.put(day, after);
+            }
+            changed |= tierIndex(before, units) != tierIndex(after, units);
+        }
+        return changed;
+    }
+
+    private static boolean occupies(OccupancyEvent event) {
+        return event.isActive() && event.getResourceId() != null && event.getCheckIn() != null
+                && event.getCheckOut() != null && event.getCheckOut().isAfter(event.getCheckIn());
+    }
+
+    private static boolean sameStay(OccupancyEvent a, OccupancyEvent b) {
+        return Objects.equals(a.getResourceId(), b.getResourceId())
+                && a.getCheckIn().equals(b.getCheckIn())
+                && a.getCheckOut().equals(b.getCheckOut());
+    }
+
+    // number of tiers reached by sold / units
+    private int tierIndex(int sold, int units) {
+        if (units <= 0 || sold <= 0) {
+            return 0;
+        }
+        long occupancy = (long) sold * 10_000 / units;
+        int index = 0;
+        while (index < thresholds.length && thresholds[index] <= occupancy) {
+            index++;
+        }
+        return index;
+    }
+
+    private long tierUplift(int sold, int units) {
+        int index = tierIndex(sold, units);
+        return index == 0 ? 0 : upliftBasisPoints[index - 1];
+    }
+
+    // one generation of counters; readers only touch the concurrent maps, writers hold the service lock
+    private static final class State {
+        final Map<String, ResourceType> resourceTypes = new HashMap<>();
+        final Map<ResourceType, Integer> units = new EnumMap<>(ResourceType.class);
+        final Map<ResourceType, Map<Long, Integer>> sold = new EnumMap<>(ResourceType.class);
+        final Map<String, OccupancyEvent> stays = new HashMap<>();
+
+        State(List<ResourceUnit> resources) {
+            for (ResourceType type : ResourceType.values()) {
+                sold.put(type, new ConcurrentHashMap<>());
+            }
+            for (ResourceUnit resource : resources) {
+                if (resource.getId() == null || resource.getType() == null) {
+                    continue;
+                }
+                resourceTypes.put(resource.getId(), resource.getType());
+                // out of order units cannot be sold, they do not count as inventory
+                if (resource.getStatus() != ResourceStatus.OUT_OF_ORDER) {
+                    units.merge(resource.getType(), 1, Integer::sum);
+                }
+            }
+        }
+
+        int units(ResourceType type) {
+            return units.getOrDefault(type, 0);
+        }
+
+        int sold(ResourceType type, long epochDay) {
+            return sold.get(type).getOrDefault(epochDay, 0);
+        }
+    }
+}
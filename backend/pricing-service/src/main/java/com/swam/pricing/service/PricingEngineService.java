@@ -1,149 +1,182 @@
 package com.swam.pricing.service;
 
 import com.swam.pricing.domain.*;
-import com.swam.pricing.repository.*;
-import com.swam.pricing.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.CityTaxMissingException;
+import com.swam.pricing.engine.InvalidQuoteException;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.QuoteBreakdown;
+import com.swam.pricing.engine.QuoteEngine;
+import com.swam.pricing.engine.QuoteNightlyLines;
+import com.swam.pricing.dto.RestrictionCheckRequest;
+import com.swam.pricing.dto.RestrictionCheckResponse;
+import com.swam.pricing.engine.StayQuoteRequest;
+import com.swam.pricing.engine.StayQuoteResponse;
+import com.swam.shared.dto.NightlyLines;
 import com.swam.shared.dto.PriceBreakdown;
-import com.swam.shared.enums.GuestType;
-import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Service;
 import com.swam.shared.exceptions.CityTaxRequiredException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import com.swam.pricing.engine.StayRuleTable;
+import com.swam.pricing.engine.StaySegment;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 public class PricingEngineService {
 
-    private final SeasonRepository seasonRepository;
-    private final SeasonalRateRepository rateRepository;
-    private final CityTaxRuleRepository taxRepository;
+    private final RateCardService rateCardService;
+    // the computation itself, shared with the services embedding the engine on a replicated snapshot
+    private final QuoteEngine engine;
+    private final QuoteCache quoteCache;
+    private final OccupancyService occupancy;
+
+    public PricingEngineService(RateCardService rateCardService,
+                                QuoteCache quoteCache,
+                                OccupancyService occupancy,
+                                @Value("${pricing.engine.fixed-point:false}") boolean fixedPoint) {
+        this.rateCardService = rateCardService;
+        this.quoteCache = quoteCache;
+        this.occupancy = occupancy;
+        this.engine = new QuoteEngine(fixedPoint, occupancy);
+    }
 
+    // single quote on the current snapshot, served from the quote cache when an equivalent request was already priced
     public PriceBreakdown calculatePrice(PriceCalculationRequest request) {
-        BigDecimal baseAmount = BigDecimal.ZERO;
-
-        List<Season> relevantSeasons = seasonRepository.findSeasonsInInterval(
-                request.getCheckIn(), request.getCheckOut());
-
-        long totalNights = ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+        RateCard rateCard = rateCardService.current();
+        return quoteCache.get(request, rateCard, occupancyVersion(), () -> calculatePrice(request, rateCard));
+    }
 
-        // calculate base amount night by night
-        for (int i = 0; i < totalNights; i++) {
-            LocalDate currentDate = request.getCheckIn().plusDays(i);
+    /**
+     * Same quote on a retained older snapshot, to reproduce a price recorded with its rateCardVersion. A superseded
+     * version is priced with the occupancy uplifts in force when it was superseded, recorded by RateCardService, not
+     * with the live counters; the current version still uses the live ones.
+     */
+    public PriceBreakdown calculatePrice(PriceCalculationRequest request, long asOfVersion) {
+        RateCard rateCard = rateCardService.asOf(asOfVersion);
+        RateCardService.VersionOccupancy recorded = rateCardService.occupancyAsOf(asOfVersion);
+        QuoteEngine asOfEngine = engineFor(recorded);
+        long occupancyVersion = recorded != null ? recorded.version() : occupancyVersion();
+        return quoteCache.get(request, rateCard, occupancyVersion, () -> price(asOfEngine, request, rateCard, false));
+    }
 
-            int currentNightIndex = i;
+    // quote with the per-night lines, computed from the same segments as the totals and never cached
+    public PriceBreakdown calculateItemizedPrice(PriceCalculationRequest request) {
+        return price(request, rateCardService.current(), true);
+    }
 
-            // count active guests for the night
-            long activeAdults = request.getGuests().stream()
-                    .filter(g -> g.getType() == GuestType.ADULT && g.getDays() > currentNightIndex)
-                    .count();
+    public PriceBreakdown calculateItemizedPrice(PriceCalculationRequest request, long asOfVersion) {
+        RateCard rateCard = rateCardService.asOf(asOfVersion);
+        return price(engineFor(rateCardService.occupancyAsOf(asOfVersion)), request, rateCard, true);
+    }
 
-            long activeChildren = request.getGuests().stream()
-                    .filter(g -> g.getType() == GuestType.CHILD && g.getDays() > currentNightIndex)
-                    .count();
+    // the live engine, or one on the occupancy recorded with a superseded version
+    private QuoteEngine engineFor(RateCardService.VersionOccupancy recorded) {
+        return recorded != null ? new QuoteEngine(engine.isFixedPoint(), recorded.uplifts()) : engine;
+    }
 
-            long activeInfants = request.getGuests().stream()
-                    .filter(g -> g.getType() == GuestType.INFANT && g.getDays() > currentNightIndex)
-                    .count();
+    // counters moving a night to another tier change the price without a new rate card version
+    public long occupancyVersion() {
+        return occupancy.version();
+    }
 
-            // season lookup
-            Season activeSeason = relevantSeasons.stream()
-                    .filter(s -> !currentDate.isBefore(s.getStartDate()) && !currentDate.isAfter(s.getEndDate()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Nessuna tariffa definita per il " + currentDate));
+    // prices the request against a given snapshot, no database access
+    public PriceBreakdown calculatePrice(PriceCalculationRequest request, RateCard rateCard) {
+        return price(request, rateCard, false);
+    }
 
-            SeasonalRate rate = rateRepository.findBySeasonIdAndResourceId(activeSeason.getId(), request.getResourceId())
-                    .orElseThrow(() -> new RuntimeException("Prezzo mancante per risorsa " + request.getResourceId()));
+    private PriceBreakdown price(PriceCalculationRequest request, RateCard rateCard, boolean itemized) {
+        return price(engine, request, rateCard, itemized);
+    }
 
-            // calculate nightly cost for active guests
-            BigDecimal nightlyCost = rate.getBasePrice();
+    private static PriceBreakdown price(QuoteEngine engine, PriceCalculationRequest request, RateCard rateCard,
+                                        boolean itemized) {
+        return toPriceBreakdown(translated(() -> engine.price(request, rateCard, itemized)));
+    }
 
-            if (rate.getAdultPrice() != null) {
-                nightlyCost = nightlyCost.add(rate.getAdultPrice().multiply(BigDecimal.valueOf(activeAdults)));
-            }
-            if (rate.getChildPrice() != null) {
-                nightlyCost = nightlyCost.add(rate.getChildPrice().multiply(BigDecimal.valueOf(activeChildren)));
-            }
-            if (rate.getInfantPrice() != null && activeInfants > 0) {
-                nightlyCost = nightlyCost.add(rate.getInfantPrice().multiply(BigDecimal.valueOf(activeInfants)));
-            }
+    // only the nights between the two check-outs are priced, see QuoteEngine
+    public PriceBreakdown calculateMovedCheckOut(PriceCalculationRequest previous, BigDecimal previousBase,
+                                                 PriceCalculationRequest next, RateCard rateCard) {
+        return toPriceBreakdown(translated(() -> engine.calculateMovedCheckOut(previous, previousBase, next, rateCard)));
+    }
 
-            baseAmount = baseAmount.add(nightlyCost);
+    // min-stay restrictions of one stay on many resources, answered from the compiled rules of the current snapshot
+    public RestrictionCheckResponse checkRestrictions(RestrictionCheckRequest request) {
+        if (request == null || request.getCheckIn() == null || request.getCheckOut() == null
+                || !request.getCheckOut().isAfter(request.getCheckIn())) {
+            throw new InvalidPricingRequestException("check-in e check-out validi sono obbligatori");
         }
-
-        // calculate city tax
-        BigDecimal taxAmount = calculateCityTax(request);
-
-        // calculate extras
-        BigDecimal extrasTotal = BigDecimal.ZERO;
-        if (request.getExtras() != null) {
-            for (PriceCalculationRequest.BillableExtraItem item : request.getExtras()) {
-                if (item.getUnitPrice() != null && item.getQuantity() > 0) {
-                    BigDecimal itemCost = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                    extrasTotal = extrasTotal.add(itemCost);
-                }
-            }
+        if (request.getResourceIds() == null) {
+            throw new InvalidPricingRequestException("lista risorse mancante");
         }
-
-        BigDecimal discount = request.getManualDiscount() != null ? request.getManualDiscount() : BigDecimal.ZERO;
-        BigDecimal deposit = request.getDepositAmount() != null ? request.getDepositAmount() : BigDecimal.ZERO;
-
-        BigDecimal subTotal = baseAmount.add(taxAmount).add(extrasTotal);
-        BigDecimal finalTotal = subTotal.subtract(discount).subtract(deposit);
-
-        if (finalTotal.compareTo(BigDecimal.ZERO) < 0) {
-            finalTotal = BigDecimal.ZERO;
+        RateCard rateCard = rateCardService.current();
+        StayRuleTable rules = rateCard.getStayRuleTable();
+        int nights = (int) ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+
+        List<RestrictionCheckResponse.ResourceRestriction> results = new ArrayList<>(request.getResourceIds().size());
+        for (String resourceId : request.getResourceIds()) {
+            int minNights = rules.minNights(resourceId, request.getCheckIn());
+            results.add(new RestrictionCheckResponse.ResourceRestriction(resourceId, nights >= minNights,
+                    minNights > 0 ? minNights : null));
         }
-
-        return PriceBreakdown.builder()
-                .baseAmount(baseAmount)
-                .taxAmount(taxAmount)
-                .extrasAmount(extrasTotal)
-                .discountAmount(discount)
-                .depositAmount(deposit)
-                .finalTotal(finalTotal)
-                .build();
+        return new RestrictionCheckResponse(rateCard.getVersion(), results);
     }
 
-    private BigDecimal calculateCityTax(PriceCalculationRequest req) {
-        CityTaxRule rule = taxRepository.findAll().stream().findFirst().orElse(null);
-
-        if (rule == null || !rule.isEnabled()) {
-            throw new com.swam.shared.exceptions.CityTaxRequiredException();
-        }
-
-        BigDecimal totalTax = BigDecimal.ZERO;
-        int globalCap = rule.getMaxNightsCap();
-
-        for (PriceCalculationRequest.GuestProfile guest : req.getGuests()) {
-
-            if (guest.isTaxExempt()) {
-                continue;
-            }
+    // one quote for a stay split across resources, every segment priced on the same snapshot
+    public StayQuoteResponse calculateStayPrice(StayQuoteRequest request) {
+        return calculateStayPrice(request, rateCardService.current());
+    }
 
-            // check days of stay
-            if (guest.getDays() <= 0) {
-                continue;
-            }
+    public StayQuoteResponse calculateStayPrice(StayQuoteRequest request, RateCard rateCard) {
+        return translated(() -> engine.calculateStayPrice(request, rateCard));
+    }
 
-            // calculate chargeable nights for this guest
-            int chargeableNights = Math.min(guest.getDays(), globalCap);
+    public List<StaySegment> segmentStay(PriceCalculationRequest request, RateCard rateCard) {
+        return engine.segmentStay(request, rateCard);
+    }
 
-            // calculate rate based on guest type
-            BigDecimal rate = BigDecimal.ZERO;
+    BigDecimal calculateCityTax(PriceCalculationRequest req, CityTaxRule rule) {
+        return translated(() -> engine.calculateCityTax(req, rule));
+    }
 
-            if (guest.getType() == GuestType.ADULT) rate = rule.getAmountPerAdult();
-            else if (guest.getType() == GuestType.CHILD) rate = rule.getAmountPerChild();
-            else if (guest.getType() == GuestType.INFANT) rate = rule.getAmountPerInfant();
+    public boolean isFixedPoint() {
+        return engine.isFixedPoint();
+    }
 
-            if (rate != null && rate.compareTo(BigDecimal.ZERO) > 0) {
-                totalTax = totalTax.add(rate.multiply(BigDecimal.valueOf(chargeableNights)));
-            }
+    // the engine has no dependency on shared-kernel: its errors become the domain exceptions of the API here
+    private static <T> T translated(Supplier<T> computation) {
+        try {
+            return computation.get();
+        } catch (CityTaxMissingException ex) {
+            throw new CityTaxRequiredException();
+        } catch (InvalidQuoteException ex) {
+            throw new InvalidPricingRequestException(ex.getMessage());
         }
+    }
 
-        return totalTax;
+    static PriceBreakdown toPriceBreakdown(QuoteBreakdown quote) {
+        QuoteNightlyLines lines = quote.getNightlyLines();
+        return PriceBreakdown.builder()
+                .baseAmount(quote.getBaseAmount())
+                .extrasAmount(quote.getExtrasAmount())
+                .taxAmount(quote.getTaxAmount())
+                .discountAmount(quote.getDiscountAmount())
+                .depositAmount(quote.getDepositAmount())
+                .finalTotal(quote.getFinalTotal())
+                .rateCardVersion(quote.getRateCardVersion())
+                .nightlyLines(lines == null ? null : NightlyLines.builder()
+                        .firstNight(lines.getFirstNight())
+                        .seasonIds(lines.getSeasonIds())
+                        .season(lines.getSeason())
+                        .adults(lines.getAdults())
+                        .children(lines.getChildren())
+                        .infants(lines.getInfants())
+                        .amounts(lines.getAmounts())
+                        .build())
+                .build();
     }
-}
\ No newline at end of file
+}
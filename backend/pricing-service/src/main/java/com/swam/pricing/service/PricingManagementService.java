@@ -4,11 +4,14 @@ import com.swam.pricing.domain.*;
 import com.swam.pricing.dto.*;
 import com.swam.pricing.repository.*;
 import com.swam.shared.exceptions.InvalidBookingDateException;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
 import com.swam.shared.exceptions.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,8 @@ public class PricingManagementService {
     private final SeasonRepository seasonRepository;
     private final SeasonalRateRepository rateRepository;
     private final CityTaxRuleRepository taxRepository;
+    private final StayRuleRepository stayRuleRepository;
+    private final RateCardService rateCardService;
 
     //seasons crud
     @Transactional
@@ -37,7 +42,11 @@ public class PricingManagementService {
         season.setStartDate(request.getStartDate());
         season.setEndDate(request.getEndDate());
 
-        return seasonRepository.save(season);
+        return rateCardService.write(() -> {
+            Season saved = seasonRepository.save(season);
+            rateCardService.seasonSaved(saved);
+            return saved;
+        });
     }
 
     @Transactional
@@ -59,7 +68,11 @@ public class PricingManagementService {
         existing.setStartDate(updatedData.getStartDate());
         existing.setEndDate(updatedData.getEndDate());
 
-        return seasonRepository.save(existing);
+        return rateCardService.write(() -> {
+            Season saved = seasonRepository.save(existing);
+            rateCardService.seasonSaved(saved);
+            return saved;
+        });
     }
 
     public List<Season> getAllSeasons() {
@@ -68,7 +81,10 @@ public class PricingManagementService {
 
     @Transactional
     public void deleteSeason(String seasonId) {
-        seasonRepository.deleteById(seasonId);
+        rateCardService.write(() -> {
+            seasonRepository.deleteById(seasonId);
+            return rateCardService.seasonDeleted(seasonId);
+        });
     }
 
 
@@ -92,7 +108,23 @@ public class PricingManagementService {
         rate.setChildPrice(request.getChildPrice());
         rate.setInfantPrice(request.getInfantPrice());
 
-        return rateRepository.save(rate);
+        return rateCardService.write(() -> {
+            SeasonalRate saved;
+            try {
+                saved = rateRepository.save(rate);
+            } catch (DuplicateKeyException ex) {
+                // a concurrent setRate inserted the same (season, resource) first: update that one instead
+                SeasonalRate winner = rateRepository.findBySeasonIdAndResourceId(request.getSeasonId(), request.getResourceId())
+                        .orElseThrow(() -> ex);
+                winner.setBasePrice(request.getBasePrice());
+                winner.setAdultPrice(request.getAdultPrice());
+                winner.setChildPrice(request.getChildPrice());
+                winner.setInfantPrice(request.getInfantPrice());
+                saved = rateRepository.save(winner);
+            }
+            rateCardService.rateSaved(saved);
+            return saved;
+        });
     }
 
     @Transactional
@@ -107,7 +139,11 @@ public class PricingManagementService {
         rate.setSeasonId(request.getSeasonId());
         rate.setResourceId(request.getResourceId());
 
-        return rateRepository.save(rate);
+        return rateCardService.write(() -> {
+            SeasonalRate saved = rateRepository.save(rate);
+            rateCardService.rateSaved(saved);
+            return saved;
+        });
     }
 
     @Transactional
@@ -115,7 +151,104 @@ public class PricingManagementService {
         if (!rateRepository.existsById(id)) {
             throw new ResourceNotFoundException(id);
         }
-        rateRepository.deleteById(id);
+        rateCardService.write(() -> {
+            rateRepository.deleteById(id);
+            return rateCardService.rateDeleted(id);
+        });
+    }
+
+    // copies every rate of a season onto another one inside Mongo, the rate card is reloaded once
+    public BulkRateOperationResult cloneSeasonRates(CloneSeasonRatesRequest request) {
+        if (request.getSourceSeasonId() == null || request.getTargetSeasonId() == null
+                || request.getSourceSeasonId().equals(request.getTargetSeasonId())) {
+            throw new InvalidPricingRequestException("stagione di origine e di destinazione devono essere diverse");
+        }
+        requireSeason(request.getSourceSeasonId());
+        requireSeason(request.getTargetSeasonId());
+
+        return rateCardService.write(() -> {
+            long copied = rateRepository.cloneSeasonRates(
+                    request.getSourceSeasonId(), request.getTargetSeasonId(), request.getResourceIds());
+            return new BulkRateOperationResult(copied, rateCardService.reload().getVersion());
+        });
+    }
+
+    // scales the prices of the selected rates by a percentage inside Mongo, the rate card is reloaded once
+    public BulkRateOperationResult adjustRates(AdjustRatesRequest request) {
+        if (request.getPercent() == null || request.getPercent().compareTo(BigDecimal.valueOf(-100)) <= 0) {
+            throw new InvalidPricingRequestException("la percentuale deve essere maggiore di -100");
+        }
+        if (request.getSeasonId() != null) {
+            requireSeason(request.getSeasonId());
+        }
+
+        return rateCardService.write(() -> {
+            long changed = rateRepository.scalePrices(request.getSeasonId(), request.getResourceIds(), request.getPercent());
+            return new BulkRateOperationResult(changed, rateCardService.reload().getVersion());
+        });
+    }
+
+    private void requireSeason(String seasonId) {
+        if (!seasonRepository.existsById(seasonId)) {
+            throw new ResourceNotFoundException(seasonId);
+        }
+    }
+
+    // stay rules crud, every write republishes the compiled rules with the rate card
+    public StayRule saveStayRule(StayRule rule) {
+        validateStayRule(rule);
+        return rateCardService.write(() -> {
+            StayRule saved = stayRuleRepository.save(rule);
+            rateCardService.stayRuleSaved(saved);
+            return saved;
+        });
+    }
+
+    public List<StayRule> getStayRules() {
+        return stayRuleRepository.findAll();
+    }
+
+    public void deleteStayRule(String id) {
+        if (!stayRuleRepository.existsById(id)) {
+            throw new ResourceNotFoundException(id);
+        }
+        rateCardService.write(() -> {
+            stayRuleRepository.deleteById(id);
+            return rateCardService.stayRuleDeleted(id);
+        });
+    }
+
+    private void validateStayRule(StayRule rule) {
+        if (rule.getType() == null) {
+            throw new InvalidPricingRequestException("il tipo della regola è obbligatorio");
+        }
+        if (rule.getValidFrom() != null && rule.getValidTo() != null && rule.getValidFrom().isAfter(rule.getValidTo())) {
+            throw new InvalidBookingDateException("La data di inizio deve essere precedente alla data di fine.");
+        }
+        switch (rule.getType()) {
+            case LENGTH_OF_STAY_DISCOUNT -> {
+                requireMinNights(rule);
+                if (rule.getPercent() == null || rule.getPercent().signum() <= 0
+                        || rule.getPercent().compareTo(BigDecimal.valueOf(100)) > 0) {
+                    throw new InvalidPricingRequestException("lo sconto deve essere compreso tra 0 e 100");
+                }
+            }
+            case WEEKDAY_UPLIFT -> {
+                if (rule.getDaysOfWeek() == null || rule.getDaysOfWeek().isEmpty()) {
+                    throw new InvalidPricingRequestException("indicare almeno un giorno della settimana");
+                }
+                if (rule.getPercent() == null || rule.getPercent().compareTo(BigDecimal.valueOf(-100)) <= 0) {
+                    throw new InvalidPricingRequestException("la percentuale deve essere maggiore di -100");
+                }
+            }
+            case MIN_STAY -> requireMinNights(rule);
+        }
+    }
+
+    private void requireMinNights(StayRule rule) {
+        if (rule.getMinNights() == null || rule.getMinNights() < 1) {
+            throw new InvalidPricingRequestException("il numero minimo di notti deve essere almeno 1");
+        }
     }
 
     public List<SeasonalRate> getRatesBySeason(String seasonId) {
@@ -124,11 +257,10 @@ public class PricingManagementService {
 
 
     //city tax crud
-    @Transactional
+    // single upsert on the fixed id, quotes keep using the previous rule until the new snapshot is published
     public CityTaxRule updateCityTax(CityTaxConfig config) {
-        taxRepository.deleteAll();
-
         CityTaxRule rule = new CityTaxRule();
+        rule.setId(CityTaxRule.SINGLETON_ID);
         rule.setEnabled(config.isEnabled());
         rule.setAmountPerAdult(config.getAmountPerAdult());
         rule.setAmountPerChild(config.getAmountPerChild());
@@ -136,11 +268,20 @@ public class PricingManagementService {
         rule.setMinAge(config.getMinAge());
         rule.setMaxNightsCap(config.getMaxNightsCap());
 
-        return taxRepository.save(rule);
+        CityTaxRule saved = rateCardService.write(() -> {
+            CityTaxRule written = taxRepository.save(rule);
+            rateCardService.cityTaxSaved(written);
+            return written;
+        });
+        // the fixed-id rule is in place, older documents can go
+        taxRepository.deleteByIdNot(CityTaxRule.SINGLETON_ID);
+        return saved;
     }
 
+    // served from the rate card snapshot, no database read
     public CityTaxRule getCityTax() {
-        return taxRepository.findAll().stream().findFirst().orElse(new CityTaxRule());
+        CityTaxRule rule = rateCardService.current().getCityTaxRule();
+        return rule != null ? rule : new CityTaxRule();
     }
 
 }
\ No newline at end of file
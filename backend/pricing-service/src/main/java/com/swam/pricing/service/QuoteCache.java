@@ -0,0 +1,140 @@
+package com.swam.pricing.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU/TTL cache of computed quotes.
+ * <p>
+ * The key is the canonical form of the request plus the two versions a price depends on: the rate card version,
+ * which every management write bumps, and the occupancy version, which moves when a night changes occupancy tier.
+ * Neither kind of change can serve a stale price. The first lookup on a newer rate card version also drops every
+ * older entry. Quote tokens are invalidated on the same two versions, see {@link QuoteTokenService}.
+ * <p>
+ * Hit, miss and eviction counters are published as the {@code cache.*} meters with {@code cache=pricing-quotes}.
+ */
+@Slf4j
+@Component
+public class QuoteCache {
+
+    static final String CACHE_NAME = "pricing-quotes";
+
+    private final boolean enabled;
+    private final Cache<Key, PriceBreakdown> cache;
+    private final AtomicLong lastVersion = new AtomicLong(-1);
+
+    public QuoteCache(@Value("${pricing.quote-cache.enabled:true}") boolean enabled,
+                      @Value("${pricing.quote-cache.max-size:10000}") long maxSize,
+                      @Value("${pricing.quote-cache.ttl:10m}") Duration ttl,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    // returns the breakdown of an equivalent request, computing and storing it on a miss; failures are not cached.
+    // callers get their own copy and may set the quote token or any other field without touching the cached one
+    public PriceBreakdown get(PriceCalculationRequest request, RateCard rateCard, long occupancyVersion,
+                              Supplier<PriceBreakdown> calculation) {
+        if (!enabled) {
+            return calculation.get();
+        }
+        observeVersion(rateCard.getVersion());
+        return copy(cache.get(new Key(rateCard.getVersion(), occupancyVersion, canonicalForm(request)), key -> calculation.get()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private void observeVersion(long version) {
+        long seen = lastVersion.get();
+        if (version > seen && lastVersion.compareAndSet(seen, version) && seen >= 0) {
+            log.debug("Rate card moved from v{} to v{}, dropping cached quotes", seen, version);
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Canonical text of everything that affects the price: guests and extras are sorted so their order does not
+     * matter, the exemption motivation is left out since only the exempt flag is priced. Amounts keep their scale
+     * because the BigDecimal path returns it unchanged.
+     */
+    static String canonicalForm(PriceCalculationRequest request) {
+        StringBuilder sb = new StringBuilder(128)
+                .append(request.getResourceId()).append('|')
+                .append(request.getCheckIn()).append('|')
+                .append(request.getCheckOut()).append('|')
+                .append(amount(request.getManualDiscount())).append('|')
+                .append(amount(request.getDepositAmount())).append("|G");
+
+        if (request.getGuests() == null) {
+            sb.append("null");
+        } else {
+            List<String> guests = new ArrayList<>(request.getGuests().size());
+            for (PriceCalculationRequest.GuestProfile guest : request.getGuests()) {
+                guests.add(guest.getType() + ":" + guest.getDays() + ":" + (guest.isTaxExempt() ? 'E' : 'T'));
+            }
+            guests.sort(Comparator.naturalOrder());
+            guests.forEach(g -> sb.append(',').append(g));
+        }
+
+        sb.append("|X");
+        if (request.getExtras() != null) {
+            List<String> extras = new ArrayList<>(request.getExtras().size());
+            for (PriceCalculationRequest.BillableExtraItem item : request.getExtras()) {
+                extras.add(amount(item.getUnitPrice()) + "x" + item.getQuantity());
+            }
+            extras.sort(Comparator.naturalOrder());
+            extras.forEach(e -> sb.append(',').append(e));
+        }
+        return sb.toString();
+    }
+
+    // amounts are immutable; nightly lines are only built for itemized quotes, which are never cached
+    private static PriceBreakdown copy(PriceBreakdown cached) {
+        return PriceBreakdown.builder()
+                .baseAmount(cached.getBaseAmount())
+                .extrasAmount(cached.getExtrasAmount())
+                .taxAmount(cached.getTaxAmount())
+                .discountAmount(cached.getDiscountAmount())
+                .depositAmount(cached.getDepositAmount())
+                .finalTotal(cached.getFinalTotal())
+                .rateCardVersion(cached.getRateCardVersion())
+                .nightlyLines(cached.getNightlyLines())
+                .quoteToken(cached.getQuoteToken())
+                .build();
+    }
+
+    private static String amount(BigDecimal value) {
+        return value != null ? value.toPlainString() : "-";
+    }
+
+    private record Key(long rateCardVersion, long occupancyVersion, String request) {
+    }
+}
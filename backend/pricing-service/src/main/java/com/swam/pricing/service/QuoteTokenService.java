@@ -0,0 +1,125 @@
+package com.swam.pricing.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.dto.RequoteRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Quotes that can be re-priced when the check-out moves.
+ * Every tokenized quote remembers its request, base amount, rate card version and occupancy version for a while;
+ * a re-quote on the same versions only prices the nights between the old and the new check-out, a newer rate card
+ * or a night moved to another occupancy tier means a full quote.
+ */
+@Slf4j
+@Service
+public class QuoteTokenService {
+
+    private final PricingEngineService engineService;
+    private final RateCardService rateCardService;
+    private final Cache<String, QuotedStay> quotes;
+
+    public QuoteTokenService(PricingEngineService engineService,
+                             RateCardService rateCardService,
+                             @Value("${pricing.quote-token.max-size:10000}") long maxSize,
+                             @Value("${pricing.quote-token.ttl:24h}") Duration ttl) {
+        this.engineService = engineService;
+        this.rateCardService = rateCardService;
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // full quote on the current snapshot, returned with a token for later re-quotes
+    public PriceBreakdown quote(PriceCalculationRequest request) {
+        if (request == null || request.getCheckIn() == null || request.getCheckOut() == null || request.getGuests() == null) {
+            throw new InvalidPricingRequestException("check-in, check-out e lista ospiti sono obbligatori");
+        }
+        RateCard rateCard = rateCardService.current();
+        // read before pricing: a tier change racing with the quote only costs a full recompute later
+        long occupancyVersion = engineService.occupancyVersion();
+        return issue(request, rateCard, occupancyVersion, engineService.calculatePrice(request, rateCard));
+    }
+
+    public PriceBreakdown requote(RequoteRequest request) {
+        if (request == null || request.getQuoteToken() == null || request.getNewCheckOut() == null) {
+            throw new InvalidPricingRequestException("token del preventivo e nuova data di check-out sono obbligatori");
+        }
+        QuotedStay previous = quotes.getIfPresent(request.getQuoteToken());
+        if (previous == null) {
+            throw new InvalidPricingRequestException("token del preventivo sconosciuto o scaduto");
+        }
+        if (!request.getNewCheckOut().isAfter(previous.request().getCheckIn())) {
+            throw new InvalidPricingRequestException("il check-out deve seguire il check-in");
+        }
+
+        PriceCalculationRequest next = moveCheckOut(previous.request(), request.getNewCheckOut());
+        RateCard rateCard = rateCardService.current();
+        long occupancyVersion = engineService.occupancyVersion();
+
+        PriceBreakdown breakdown;
+        if (rateCard.getVersion() == previous.rateCardVersion() && occupancyVersion == previous.occupancyVersion()) {
+            breakdown = engineService.calculateMovedCheckOut(previous.request(), previous.baseAmount(), next, rateCard);
+        } else {
+            log.debug("Quote {} priced on v{} occupancy {}, now v{} occupancy {}: full recompute",
+                    request.getQuoteToken(), previous.rateCardVersion(), previous.occupancyVersion(),
+                    rateCard.getVersion(), occupancyVersion);
+            breakdown = engineService.calculatePrice(next, rateCard);
+        }
+        return issue(next, rateCard, occupancyVersion, breakdown);
+    }
+
+    // same stay with a different check-out: guests staying until the old check-out follow it, the others are clipped
+    static PriceCalculationRequest moveCheckOut(PriceCalculationRequest request, LocalDate newCheckOut) {
+        int oldNights = (int) ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+        int newNights = (int) ChronoUnit.DAYS.between(request.getCheckIn(), newCheckOut);
+
+        List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>(request.getGuests().size());
+        for (PriceCalculationRequest.GuestProfile guest : request.getGuests()) {
+            int days = guest.getDays() >= oldNights ? guest.getDays() + newNights - oldNights : Math.min(guest.getDays(), newNights);
+            guests.add(PriceCalculationRequest.GuestProfile.builder()
+                    .type(guest.getType())
+                    .taxExempt(guest.isTaxExempt())
+                    .taxExemptMotivation(guest.getTaxExemptMotivation())
+                    .days(Math.max(0, days))
+                    .build());
+        }
+
+        return PriceCalculationRequest.builder()
+                .resourceId(request.getResourceId())
+                .checkIn(request.getCheckIn())
+                .checkOut(newCheckOut)
+                .guests(guests)
+                .manualDiscount(request.getManualDiscount())
+                .depositAmount(request.getDepositAmount())
+                .extras(request.getExtras())
+                .build();
+    }
+
+    private PriceBreakdown issue(PriceCalculationRequest request, RateCard rateCard, long occupancyVersion,
+                                 PriceBreakdown breakdown) {
+        String token = UUID.randomUUID().toString();
+        quotes.put(token, new QuotedStay(request, breakdown.getBaseAmount(), rateCard.getVersion(), occupancyVersion));
+        breakdown.setQuoteToken(token);
+        return breakdown;
+    }
+
+    private record QuotedStay(PriceCalculationRequest request, BigDecimal baseAmount, long rateCardVersion,
+                              long occupancyVersion) {
+    }
+}
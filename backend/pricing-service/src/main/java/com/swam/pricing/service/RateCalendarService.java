@@ -0,0 +1,303 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.repository.RateCalendarRepository;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps the {@code rate_calendar} collection (resource x night -> prices) in sync with the published rate card
+ * over a rolling horizon starting today.
+ * <p>
+ * The first snapshot rebuilds the whole window; every later one only rewrites the (resource, date range) pairs
+ * touched by the change: the old and new dates of a moved season for every resource priced in it, and the season
+ * range of a rate before and after it was edited, moved or deleted. A daily job drops past nights and
+ * materializes the new tail of the window.
+ * <p>
+ * Nights are rewritten in place: every write pass upserts its nights tagged with a new generation and only then
+ * deletes the nights of the rewritten ranges left from an older generation, so a reader never finds a priced night
+ * missing. Snapshots are applied on a single background worker, in publication order, never on the thread
+ * publishing them while it holds the rate card lock.
+ */
+@Slf4j
+@Service
+public class RateCalendarService implements RateCardListener {
+
+    private static final int WRITE_CHUNK = 5000;
+
+    private final RateCalendarRepository calendarRepository;
+    private final boolean enabled;
+    private final int horizonMonths;
+    private final Executor executor;
+    private final Clock clock;
+
+    // snapshot and last night currently materialized, guarded by this
+    private RateCard materializedCard;
+    private LocalDate materializedUntil;
+
+    @Autowired
+    public RateCalendarService(RateCalendarRepository calendarRepository,
+                               @Value("${pricing.rate-calendar.enabled:true}") boolean enabled,
+                               @Value("${pricing.rate-calendar.horizon-months:18}") int horizonMonths,
+                               @Qualifier("rateCalendarExecutor") Executor executor) {
+        this(calendarRepository, enabled, horizonMonths, executor, Clock.systemDefaultZone());
+    }
+
+    RateCalendarService(RateCalendarRepository calendarRepository, boolean enabled, int horizonMonths,
+                        Executor executor, Clock clock) {
+        this.calendarRepository = calendarRepository;
+        this.enabled = enabled;
+        this.horizonMonths = horizonMonths;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    // only queues the snapshot: the publisher holds the rate card lock and must not wait for Mongo
+    @Override
+    public void rateCardChanged(RateCard previous, RateCard next) {
+        if (enabled) {
+            executor.execute(() -> apply(previous, next));
+        }
+    }
+
+    private synchronized void apply(RateCard previous, RateCard next) {
+        try {
+            if (previous == null || materializedCard == null) {
+                rebuild(next);
+            } else {
+                refresh(previous, next);
+            }
+        } catch (RuntimeException ex) {
+            // the calendar may be partly refreshed: the next snapshot rebuilds the whole window
+            materializedCard = null;
+            log.error("Rate calendar update to rate card v{} failed", next.getVersion(), ex);
+        }
+    }
+
+    // nightly prices of a resource in [from, to], nights outside the horizon or without a rate are absent
+    public List<RateCalendarEntry> getRange(String resourceId, LocalDate from, LocalDate to) {
+        if (resourceId == null || from == null || to == null || to.isBefore(from)) {
+            throw new InvalidPricingRequestException("risorsa e intervallo di date valido sono obbligatori");
+        }
+        return calendarRepository.findRange(resourceId, from, to);
+    }
+
+    // rewrites the whole window from the given snapshot, returns the number of nights written
+    public synchronized long rebuild(RateCard card) {
+        LocalDate from = LocalDate.now(clock);
+        LocalDate to = horizonEnd(from);
+        String generation = newGeneration();
+
+        List<RateCalendarEntry> buffer = new ArrayList<>();
+        long written = 0;
+        for (SeasonalRate rate : card.getRates()) {
+            Optional<Season> season = card.findSeasonById(rate.getSeasonId());
+            if (season.isPresent()) {
+                written += materialize(season.get(), rate, from, to, generation, buffer);
+            }
+        }
+        flush(buffer);
+        // past nights and nights no longer priced, once every current one is in place
+        calendarRepository.deleteNotWrittenBy(generation);
+
+        materializedCard = card;
+        materializedUntil = to;
+        log.info("Rate calendar rebuilt from rate card v{}: {} nights until {}", card.getVersion(), written, to);
+        return written;
+    }
+
+    // moves the window forward: drops past nights and fills the new tail
+    @Scheduled(cron = "${pricing.rate-calendar.roll-cron:0 5 0 * * *}")
+    public synchronized void roll() {
+        if (!enabled || materializedCard == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        LocalDate newEnd = horizonEnd(today);
+        calendarRepository.deleteBefore(today);
+
+        if (newEnd.isAfter(materializedUntil)) {
+            LocalDate from = materializedUntil.plusDays(1);
+            String generation = newGeneration();
+            List<RateCalendarEntry> buffer = new ArrayList<>();
+            for (Season season : materializedCard.findSeasonsInInterval(from, newEnd)) {
+                for (SeasonalRate rate : materializedCard.findRatesOfSeason(season.getId()).values()) {
+                    materialize(season, rate, from, newEnd, generation, buffer);
+                }
+            }
+            flush(buffer);
+            materializedUntil = newEnd;
+        }
+    }
+
+    private void refresh(RateCard previous, RateCard next) {
+        Map<String, List<LocalDate[]>> affected = affectedRanges(previous, next);
+        LocalDate windowStart = LocalDate.now(clock);
+        String generation = newGeneration();
+
+        List<RateCalendarEntry> buffer = new ArrayList<>();
+        for (Map.Entry<String, List<LocalDate[]>> entry : affected.entrySet()) {
+            String resourceId = entry.getKey();
+            for (LocalDate[] range : merge(entry.getValue())) {
+                LocalDate from = max(range[0], windowStart);
+                LocalDate to = min(range[1], materializedUntil);
+                if (to.isBefore(from)) {
+                    continue;
+                }
+                for (Season season : next.findSeasonsInInterval(from, to)) {
+                    Optional<SeasonalRate> rate = next.findRate(season.getId(), resourceId);
+                    if (rate.isPresent()) {
+                        materialize(season, rate.get(), from, to, generation, buffer);
+                    }
+                }
+                flush(buffer);
+                calendarRepository.deleteRangeNotWrittenBy(resourceId, from, to, generation);
+            }
+        }
+
+        materializedCard = next;
+        if (!affected.isEmpty()) {
+            log.debug("Rate calendar refreshed to v{} for {} resources", next.getVersion(), affected.size());
+        }
+    }
+
+    // (resourceId -> date ranges) whose nightly prices may differ between the two snapshots
+    static Map<String, List<LocalDate[]>> affectedRanges(RateCard previous, RateCard next) {
+        Map<String, List<LocalDate[]>> affected = new HashMap<>();
+
+        // seasons created, deleted or moved: every resource priced in them, on the old and new dates
+        Set<String> seasonIds = new HashSet<>();
+        previous.getSeasons().forEach(s -> seasonIds.add(s.getId()));
+        next.getSeasons().forEach(s -> seasonIds.add(s.getId()));
+        for (String seasonId : seasonIds) {
+            Season before = previous.findSeasonById(seasonId).orElse(null);
+            Season after = next.findSeasonById(seasonId).orElse(null);
+            if (sameDates(before, after)) {
+                continue;
+            }
+            Set<String> resources = new HashSet<>(previous.findRatesOfSeason(seasonId).keySet());
+            resources.addAll(next.findRatesOfSeason(seasonId).keySet());
+            for (String resourceId : resources) {
+                addRange(affected, resourceId, before);
+                addRange(affected, resourceId, after);
+            }
+        }
+
+        // rates created, edited, moved or deleted: the season range on each side
+        Map<String, SeasonalRate> ratesBefore = byId(previous.getRates());
+        Map<String, SeasonalRate> ratesAfter = byId(next.getRates());
+        Set<String> rateIds = new HashSet<>(ratesBefore.keySet());
+        rateIds.addAll(ratesAfter.keySet());
+        for (String rateId : rateIds) {
+            SeasonalRate before = ratesBefore.get(rateId);
+            SeasonalRate after = ratesAfter.get(rateId);
+            if (before == after || Objects.equals(before, after)) {
+                continue;
+            }
+            if (before != null) {
+                addRange(affected, before.getResourceId(), previous.findSeasonById(before.getSeasonId()).orElse(null));
+            }
+            if (after != null) {
+                addRange(affected, after.getResourceId(), next.findSeasonById(after.getSeasonId()).orElse(null));
+            }
+        }
+        return affected;
+    }
+
+    private long materialize(Season season, SeasonalRate rate, LocalDate from, LocalDate to, String generation,
+                             List<RateCalendarEntry> buffer) {
+        LocalDate start = max(season.getStartDate(), from);
+        LocalDate end = min(season.getEndDate(), to);
+        long count = 0;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            buffer.add(RateCalendarEntry.builder()
+                    .resourceId(rate.getResourceId())
+                    .date(date)
+                    .seasonId(season.getId())
+                    .generation(generation)
+                    .basePrice(rate.getBasePrice())
+                    .adultPrice(rate.getAdultPrice())
+                    .childPrice(rate.getChildPrice())
+                    .infantPrice(rate.getInfantPrice())
+                    .build());
+            count++;
+            if (buffer.size() >= WRITE_CHUNK) {
+                flush(buffer);
+            }
+        }
+        return count;
+    }
+
+    private void flush(List<RateCalendarEntry> buffer) {
+        if (!buffer.isEmpty()) {
+            calendarRepository.upsertAll(buffer);
+            buffer.clear();
+        }
+    }
+
+    private static String newGeneration() {
+        return UUID.randomUUID().toString();
+    }
+
+    private LocalDate horizonEnd(LocalDate from) {
+        return from.plusMonths(horizonMonths).minusDays(1);
+    }
+
+    private static boolean sameDates(Season a, Season b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getStartDate().equals(b.getStartDate()) && a.getEndDate().equals(b.getEndDate());
+    }
+
+    private static void addRange(Map<String, List<LocalDate[]>> affected, String resourceId, Season season) {
+        if (season != null) {
+            affected.computeIfAbsent(resourceId, k -> new ArrayList<>())
+                    .add(new LocalDate[]{season.getStartDate(), season.getEndDate()});
+        }
+    }
+
+    // sorts and joins overlapping or adjacent ranges
+    private static List<LocalDate[]> merge(List<LocalDate[]> ranges) {
+        ranges.sort(Comparator.comparing(r -> r[0]));
+        List<LocalDate[]> merged = new ArrayList<>();
+        for (LocalDate[] range : ranges) {
+            LocalDate[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !range[0].isAfter(last[1].plusDays(1))) {
+                last[1] = max(last[1], range[1]);
+            } else {
+                merged.add(new LocalDate[]{range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    private static Map<String, SeasonalRate> byId(Collection<SeasonalRate> rates) {
+        Map<String, SeasonalRate> result = new HashMap<>();
+        for (SeasonalRate rate : rates) {
+            result.put(rate.getId(), rate);
+        }
+        return result;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
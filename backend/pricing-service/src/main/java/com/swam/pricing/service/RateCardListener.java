@@ -0,0 +1,10 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCard;
+
+// notified by RateCardService every time a new snapshot is published
+public interface RateCardListener {
+
+    // previous is null on the first load
+    void rateCardChanged(RateCard previous, RateCard next);
+}
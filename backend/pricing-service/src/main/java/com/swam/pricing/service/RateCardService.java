@@ -0,0 +1,266 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.dto.RateCardVersionInfo;
+import com.swam.pricing.engine.OccupancyTable;
+import com.swam.pricing.repository.*;
+import com.swam.shared.exceptions.RateCardVersionNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// holds the published RateCard snapshot: quotes read it lock-free, management writes swap it atomically;
+// superseded snapshots stay addressable by version for the configured retention, together with the occupancy
+// uplifts in force when they were superseded. Versions are seeded from the start time, so a version issued before a
+// restart is never reused: asking for it finds no snapshot instead of aliasing a different card
+@Slf4j
+@Service
+public class RateCardService {
+
+    // room for a million versions per second of uptime before the next start could reach them
+    static final long VERSIONS_PER_SECOND = 1_000_000L;
+
+    private final SeasonRepository seasonRepository;
+    private final SeasonalRateRepository rateRepository;
+    private final CityTaxRuleRepository taxRepository;
+    private final StayRuleRepository stayRuleRepository;
+    private final List<RateCardListener> listeners;
+    private final OccupancyService occupancy;
+
+    private final AtomicReference<RateCard> current = new AtomicReference<>();
+
+    // published snapshots by version: the current one plus the superseded ones still within the retention
+    private final ConcurrentSkipListMap<Long, Published> history = new ConcurrentSkipListMap<>();
+    private final Duration retention;
+    private final int maxVersions;
+    private final Clock clock;
+    private final long firstVersion;
+
+    @Autowired
+    public RateCardService(SeasonRepository seasonRepository,
+                           SeasonalRateRepository rateRepository,
+                           CityTaxRuleRepository taxRepository,
+                           StayRuleRepository stayRuleRepository,
+                           List<RateCardListener> listeners,
+                           OccupancyService occupancy,
+                           @Value("${pricing.rate-card.retention:24h}") Duration retention,
+                           @Value("${pricing.rate-card.max-versions:1000}") int maxVersions) {
+        this(seasonRepository, rateRepository, taxRepository, stayRuleRepository, listeners, occupancy, retention,
+                maxVersions, Clock.systemUTC());
+    }
+
+    RateCardService(SeasonRepository seasonRepository,
+                    SeasonalRateRepository rateRepository,
+                    CityTaxRuleRepository taxRepository,
+                    StayRuleRepository stayRuleRepository,
+                    List<RateCardListener> listeners,
+                    OccupancyService occupancy,
+                    Duration retention,
+                    int maxVersions,
+                    Clock clock) {
+        this.seasonRepository = seasonRepository;
+        this.rateRepository = rateRepository;
+        this.taxRepository = taxRepository;
+        this.stayRuleRepository = stayRuleRepository;
+        this.listeners = List.copyOf(listeners);
+        this.occupancy = occupancy;
+        this.retention = retention;
+        this.maxVersions = Math.max(1, maxVersions);
+        this.clock = clock;
+        this.firstVersion = clock.instant().getEpochSecond() * VERSIONS_PER_SECOND + 1;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    // current snapshot, loaded on first use if the startup load has not run yet
+    public RateCard current() {
+        RateCard card = current.get();
+        return card != null ? card : reload();
+    }
+
+    public long currentVersion() {
+        return current().getVersion();
+    }
+
+    // snapshot of a given version, to reproduce a quote priced on it
+    public RateCard asOf(long version) {
+        RateCard card = current();
+        if (card.getVersion() == version) {
+            return card;
+        }
+        prune();
+        Published published = history.get(version);
+        if (published == null) {
+            throw new RateCardVersionNotFoundException(version);
+        }
+        return published.card();
+    }
+
+    // occupancy a quote on a retained version is priced against: null while the version is current, since the live
+    // counters apply, or when occupancy pricing is off
+    public VersionOccupancy occupancyAsOf(long version) {
+        if (current().getVersion() == version) {
+            return null;
+        }
+        Published published = history.get(version);
+        if (published == null) {
+            throw new RateCardVersionNotFoundException(version);
+        }
+        return published.occupancy();
+    }
+
+    // retained versions, oldest first
+    public List<RateCardVersionInfo> versions() {
+        current();
+        prune();
+        List<RateCardVersionInfo> versions = new ArrayList<>(history.size());
+        Instant supersededAt = null;
+        for (Published published : history.descendingMap().values()) {
+            versions.add(new RateCardVersionInfo(published.card().getVersion(), published.publishedAt(), supersededAt));
+            supersededAt = published.publishedAt();
+        }
+        Collections.reverse(versions);
+        return versions;
+    }
+
+    // full rebuild from Mongo, version keeps increasing across reloads and restarts
+    public synchronized RateCard reload() {
+        RateCard previous = current.get();
+        long version = previous != null ? previous.getVersion() + 1 : firstVersion;
+
+        // the fixed-id rule wins over rules saved before it existed
+        List<CityTaxRule> taxRules = taxRepository.findAll();
+        CityTaxRule rule = taxRules.stream()
+                .filter(r -> CityTaxRule.SINGLETON_ID.equals(r.getId()))
+                .findFirst()
+                .orElse(taxRules.isEmpty() ? null : taxRules.get(0));
+        List<StayRule> stayRules = stayRuleRepository.findAll();
+        RateCard card = RateCard.of(version, seasonRepository.findAll(), rateRepository.findAll(), rule, stayRules);
+        current.set(card);
+
+        log.info("Rate card v{} loaded: {} seasons, {} rates, {} stay rules", version, card.getSeasons().size(),
+                card.getRates().size(), card.getStayRules().size());
+        publish(previous, card);
+        return card;
+    }
+
+    // runs a management write together with its snapshot patch under the writer lock, so concurrent writes reach the
+    // snapshot in the order they reached Mongo
+    public synchronized <T> T write(Supplier<T> write) {
+        return write.get();
+    }
+
+    public RateCard seasonSaved(Season season) {
+        return patch(card -> card.withSeason(season));
+    }
+
+    public RateCard seasonDeleted(String seasonId) {
+        return patch(card -> card.withoutSeason(seasonId));
+    }
+
+    public RateCard rateSaved(SeasonalRate rate) {
+        return patch(card -> card.withRate(rate));
+    }
+
+    public RateCard rateDeleted(String rateId) {
+        return patch(card -> card.withoutRate(rateId));
+    }
+
+    public RateCard cityTaxSaved(CityTaxRule rule) {
+        return patch(card -> card.withCityTaxRule(rule));
+    }
+
+    public RateCard stayRuleSaved(StayRule rule) {
+        return patch(card -> card.withStayRule(rule));
+    }
+
+    public RateCard stayRuleDeleted(String ruleId) {
+        return patch(card -> card.withoutStayRule(ruleId));
+    }
+
+    // writers are serialized so a patch can never be lost behind a concurrent reload
+    private synchronized RateCard patch(UnaryOperator<RateCard> change) {
+        RateCard previous = current();
+        RateCard next = change.apply(previous);
+        current.set(next);
+        publish(previous, next);
+        return next;
+    }
+
+    // listeners run on the writer thread, in publication order; a failing listener never fails the write
+    private void publish(RateCard previous, RateCard next) {
+        if (previous != null) {
+            VersionOccupancy recorded = supersededOccupancy();
+            history.computeIfPresent(previous.getVersion(),
+                    (version, published) -> new Published(published.card(), published.publishedAt(), recorded));
+        }
+        history.put(next.getVersion(), new Published(next, clock.instant(), null));
+        prune();
+
+        for (RateCardListener listener : listeners) {
+            try {
+                listener.rateCardChanged(previous, next);
+            } catch (RuntimeException ex) {
+                log.error("Rate card listener {} failed on v{}", listener.getClass().getSimpleName(), next.getVersion(), ex);
+            }
+        }
+    }
+
+    // drops the versions superseded for longer than the retention, and the oldest ones beyond maxVersions
+    private void prune() {
+        Instant expiredBefore = clock.instant().minus(retention);
+        Map.Entry<Long, Published> oldest;
+        while ((oldest = history.firstEntry()) != null) {
+            Map.Entry<Long, Published> successor = history.higherEntry(oldest.getKey());
+            if (successor == null) {
+                break;
+            }
+            if (history.size() <= maxVersions && !successor.getValue().publishedAt().isBefore(expiredBefore)) {
+                break;
+            }
+            history.remove(oldest.getKey());
+        }
+    }
+
+    // uplifts in force right now, shared with the last superseded version while the counters have not moved
+    private VersionOccupancy supersededOccupancy() {
+        if (!occupancy.hasTiers()) {
+            return null;
+        }
+        // read before the export: an event in between makes the table newer than its version, never older
+        long version = occupancy.version();
+        for (Published published : history.descendingMap().values()) {
+            if (published.occupancy() != null) {
+                if (published.occupancy().version() == version) {
+                    return published.occupancy();
+                }
+                break;
+            }
+        }
+        return new VersionOccupancy(version, occupancy.export());
+    }
+
+    public record VersionOccupancy(long version, OccupancyTable uplifts) {
+    }
+
+    private record Published(RateCard card, Instant publishedAt, VersionOccupancy occupancy) {
+    }
+}
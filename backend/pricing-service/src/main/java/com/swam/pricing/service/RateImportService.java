@@ -0,0 +1,246 @@
+package com.swam.pricing.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.RateImportReport;
+import com.swam.pricing.dto.SetRateRequest;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Bulk upsert of seasonal rates from a CSV or NDJSON stream.
+ * Rows are read one line at a time, validated against the seasons of the current rate card and written in chunks
+ * of unordered bulk upserts on (seasonId, resourceId); only one chunk is ever held in memory. A row failing to parse,
+ * validate or write is reported with its line number and never stops the import. The rate card is reloaded once at
+ * the end instead of being patched row by row, also when a read or database error stops the import after some chunks
+ * were already written.
+ */
+@Slf4j
+@Service
+public class RateImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> CSV_REQUIRED = List.of("seasonId", "resourceId", "basePrice");
+
+    private final MongoTemplate mongoTemplate;
+    private final RateCardService rateCardService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public RateImportService(MongoTemplate mongoTemplate,
+                             RateCardService rateCardService,
+                             ObjectMapper objectMapper,
+                             @Value("${pricing.rate-import.chunk-size:1000}") int chunkSize,
+                             @Value("${pricing.rate-import.max-reported-errors:500}") int maxReportedErrors) {
+        this.mongoTemplate = mongoTemplate;
+        this.rateCardService = rateCardService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public RateImportReport importRates(InputStream body, Format format) {
+        RateCard rateCard = rateCardService.current();
+        RateImportReport report = new RateImportReport();
+
+        // (seasonId, resourceId) -> pending row, a repeated key inside a chunk keeps the last row
+        Map<String, PendingRow> chunk = new LinkedHashMap<>();
+        Map<String, Integer> columns = null;
+        // set before each bulk write: a write failing part way may still have stored some rows
+        boolean sent = false;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && columns == null) {
+                    columns = parseHeader(line);
+                    continue;
+                }
+
+                report.setRowsRead(report.getRowsRead() + 1);
+                try {
+                    SetRateRequest row = format == Format.CSV ? parseCsv(line, columns) : parseJson(line);
+                    validate(row, rateCard);
+                    chunk.put(row.getSeasonId() + '|' + row.getResourceId(), new PendingRow(lineNumber, row));
+                } catch (IllegalArgumentException ex) {
+                    fail(report, lineNumber, ex.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    sent = true;
+                    write(chunk, report);
+                }
+            }
+            sent |= !chunk.isEmpty();
+            write(chunk, report);
+        } catch (IOException ex) {
+            throw new InvalidPricingRequestException("lettura del file interrotta: " + ex.getMessage());
+        } finally {
+            // chunks already sent stay in Mongo when the import stops half way: publish them anyway
+            if (sent) {
+                report.setRateCardVersion(rateCardService.reload().getVersion());
+            }
+        }
+
+        log.info("Rate import: {} rows, {} inserted, {} updated, {} failed",
+                report.getRowsRead(), report.getInserted(), report.getUpdated(), report.getFailed());
+        return report;
+    }
+
+    private void write(Map<String, PendingRow> chunk, RateImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<PendingRow> rows = new ArrayList<>(chunk.values());
+        chunk.clear();
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SeasonalRate.class);
+        for (PendingRow row : rows) {
+            SetRateRequest rate = row.rate();
+            operations.upsert(
+                    Query.query(Criteria.where("seasonId").is(rate.getSeasonId()).and("resourceId").is(rate.getResourceId())),
+                    new Update()
+                            .set("basePrice", rate.getBasePrice())
+                            .set("adultPrice", rate.getAdultPrice())
+                            .set("childPrice", rate.getChildPrice())
+                            .set("infantPrice", rate.getInfantPrice()));
+        }
+
+        BulkWriteResult result;
+        try {
+            result = operations.execute();
+        } catch (BulkOperationException ex) {
+            // unordered: the other rows of the chunk were written anyway
+            for (BulkWriteError error : ex.getErrors()) {
+                fail(report, rows.get(error.getIndex()).line(), "scrittura fallita: " + error.getMessage());
+            }
+            result = ex.getResult();
+        }
+        report.setInserted(report.getInserted() + result.getUpserts().size());
+        report.setUpdated(report.getUpdated() + result.getMatchedCount());
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        String[] names = split(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i], i);
+        }
+        for (String required : CSV_REQUIRED) {
+            if (!columns.containsKey(required)) {
+                throw new InvalidPricingRequestException("colonna obbligatoria mancante nell'intestazione CSV: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private SetRateRequest parseCsv(String line, Map<String, Integer> columns) {
+        String[] values = split(line);
+        SetRateRequest row = new SetRateRequest();
+        row.setSeasonId(column(values, columns, "seasonId"));
+        row.setResourceId(column(values, columns, "resourceId"));
+        row.setBasePrice(amount(column(values, columns, "basePrice")));
+        row.setAdultPrice(amount(column(values, columns, "adultPrice")));
+        row.setChildPrice(amount(column(values, columns, "childPrice")));
+        row.setInfantPrice(amount(column(values, columns, "infantPrice")));
+        return row;
+    }
+
+    private SetRateRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, SetRateRequest.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("JSON non valido: " + ex.getOriginalMessage());
+        }
+    }
+
+    private void validate(SetRateRequest row, RateCard rateCard) {
+        if (row.getSeasonId() == null || row.getSeasonId().isBlank()) {
+            throw new IllegalArgumentException("stagione mancante");
+        }
+        if (row.getResourceId() == null || row.getResourceId().isBlank()) {
+            throw new IllegalArgumentException("risorsa mancante");
+        }
+        if (rateCard.findSeasonById(row.getSeasonId()).isEmpty()) {
+            throw new IllegalArgumentException("stagione inesistente: " + row.getSeasonId());
+        }
+        if (row.getBasePrice() == null) {
+            throw new IllegalArgumentException("prezzo base mancante");
+        }
+        for (BigDecimal price : Arrays.asList(row.getBasePrice(), row.getAdultPrice(), row.getChildPrice(), row.getInfantPrice())) {
+            if (price != null && price.signum() < 0) {
+                throw new IllegalArgumentException("i prezzi non possono essere negativi");
+            }
+        }
+    }
+
+    private void fail(RateImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new RateImportReport.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static String[] split(String line) {
+        String[] values = line.split(",", -1);
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i].trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1).trim();
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+
+    private static String column(String[] values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.length || values[index].isEmpty()) {
+            return null;
+        }
+        return values[index];
+    }
+
+    private static BigDecimal amount(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("importo non valido: " + value);
+        }
+    }
+
+    private record PendingRow(long line, SetRateRequest rate) {
+    }
+}
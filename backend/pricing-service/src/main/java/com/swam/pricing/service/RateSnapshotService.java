@@ -0,0 +1,49 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.SnapshotVersion;
+import org.springframework.stereotype.Service;
+
+/**
+ * Exports the current rate card, with the occupancy uplifts in force, as a {@link RateSnapshot} that other services
+ * replicate to quote in process. They poll {@link #currentVersion()} and fetch the snapshot only when it moved;
+ * the last export is kept until then, so polling replicas never rebuild it.
+ */
+@Service
+public class RateSnapshotService {
+
+    private final RateCardService rateCardService;
+    private final OccupancyService occupancy;
+    private final PricingEngineService engineService;
+
+    private volatile RateSnapshot last;
+
+    public RateSnapshotService(RateCardService rateCardService,
+                               OccupancyService occupancy,
+                               PricingEngineService engineService) {
+        this.rateCardService = rateCardService;
+        this.occupancy = occupancy;
+        this.engineService = engineService;
+    }
+
+    public SnapshotVersion currentVersion() {
+        return new SnapshotVersion(rateCardService.currentVersion(), occupancy.version());
+    }
+
+    public RateSnapshot current() {
+        RateCard rateCard = rateCardService.current();
+        // read before the export: an event in between makes the snapshot newer than its version, never older
+        long occupancyVersion = occupancy.version();
+        RateSnapshot snapshot = last;
+        if (snapshot != null && snapshot.getVersion() == rateCard.getVersion()
+                && snapshot.getOccupancyVersion() == occupancyVersion) {
+            return snapshot;
+        }
+        snapshot = RateSnapshot.of(rateCard.getVersion(), engineService.isFixedPoint(),
+                rateCard.getSeasons(), rateCard.getRates(), rateCard.getCityTaxRule(), rateCard.getStayRules(),
+                occupancyVersion, occupancy.export());
+        last = snapshot;
+        return snapshot;
+    }
+}
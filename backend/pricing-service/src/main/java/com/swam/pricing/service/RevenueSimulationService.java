@@ -0,0 +1,245 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.ForwardBooking;
+import com.swam.pricing.dto.RevenueSimulationRequest;
+import com.swam.pricing.dto.RevenueSimulationResponse;
+import com.swam.pricing.dto.SetRateRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * What-if on the forward book: the proposed season and rate changes are applied to a copy-on-write patch of the
+ * current rate card, never saved, and every booking is priced on both snapshots. The bookings are split recursively
+ * on a dedicated fork-join pool and the per-month totals of the halves merged on the way back; pricing only reads
+ * the two in-memory cards, so the database is not touched whatever the size of the book.
+ */
+@Slf4j
+@Service
+public class RevenueSimulationService {
+
+    // bookings priced sequentially by a leaf task
+    static final int LEAF_SIZE = 256;
+
+    private final PricingEngineService engineService;
+    private final RateCardService rateCardService;
+    private final BookingExportClient bookingExportClient;
+    private final ForkJoinPool forkJoinPool;
+    private final int maxBookings;
+
+    public RevenueSimulationService(PricingEngineService engineService,
+                                    RateCardService rateCardService,
+                                    BookingExportClient bookingExportClient,
+                                    @Qualifier("revenueForkJoinPool") ForkJoinPool forkJoinPool,
+                                    @Value("${pricing.revenue.max-bookings:200000}") int maxBookings) {
+        this.engineService = engineService;
+        this.rateCardService = rateCardService;
+        this.bookingExportClient = bookingExportClient;
+        this.forkJoinPool = forkJoinPool;
+        this.maxBookings = maxBookings;
+    }
+
+    public RevenueSimulationResponse simulate(RevenueSimulationRequest request) {
+        RateCard current = rateCardService.current();
+        RateCard proposed = applyProposal(current, request);
+
+        List<ForwardBooking> bookings = request.getBookings() != null
+                ? request.getBookings()
+                : bookingExportClient.fetchForwardBook();
+        if (bookings.size() > maxBookings) {
+            throw new InvalidPricingRequestException(
+                    String.format("il portafoglio prenotazioni contiene %d prenotazioni, massimo consentito %d",
+                            bookings.size(), maxBookings));
+        }
+
+        long start = System.nanoTime();
+        Totals totals = bookings.isEmpty()
+                ? new Totals()
+                : forkJoinPool.invoke(new SimulationTask(bookings, current, proposed, 0, bookings.size()));
+        log.info("Revenue simulation on rate card v{}: {} bookings in {} ms", current.getVersion(), bookings.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        return toResponse(current, totals);
+    }
+
+    // current card patched with the proposal, validated like the management endpoints would
+    RateCard applyProposal(RateCard current, RevenueSimulationRequest request) {
+        RateCard card = current;
+        for (Season season : nonNull(request.getSeasons())) {
+            if (season.getId() == null || season.getStartDate() == null || season.getEndDate() == null) {
+                throw new InvalidPricingRequestException("id, data di inizio e data di fine della stagione sono obbligatori");
+            }
+            if (season.getStartDate().isAfter(season.getEndDate())) {
+                throw new InvalidPricingRequestException("La data di inizio deve essere precedente alla data di fine: " + season.getId());
+            }
+            if (season.getName() == null) {
+                season.setName(card.findSeasonById(season.getId()).map(Season::getName).orElse(season.getId()));
+            }
+            card = card.withSeason(season);
+        }
+
+        // seasons are sorted by start date, the engine relies on them never overlapping
+        Season previous = null;
+        for (Season season : card.getSeasons()) {
+            if (previous != null && !season.getStartDate().isAfter(previous.getEndDate())) {
+                throw new InvalidPricingRequestException(String.format(
+                        "le stagioni proposte si sovrappongono: %s e %s", previous.getName(), season.getName()));
+            }
+            previous = season;
+        }
+
+        int created = 0;
+        for (SetRateRequest change : nonNull(request.getRates())) {
+            if (change.getSeasonId() == null || change.getResourceId() == null || change.getBasePrice() == null) {
+                throw new InvalidPricingRequestException("stagione, risorsa e prezzo base della tariffa sono obbligatori");
+            }
+            if (card.findSeasonById(change.getSeasonId()).isEmpty()) {
+                throw new InvalidPricingRequestException("stagione sconosciuta: " + change.getSeasonId());
+            }
+            SeasonalRate rate = new SeasonalRate();
+            rate.setId(card.findRate(change.getSeasonId(), change.getResourceId())
+                    .map(SeasonalRate::getId)
+                    .orElse("proposed-" + created++));
+            rate.setSeasonId(change.getSeasonId());
+            rate.setResourceId(change.getResourceId());
+            rate.setBasePrice(change.getBasePrice());
+            rate.setAdultPrice(change.getAdultPrice());
+            rate.setChildPrice(change.getChildPrice());
+            rate.setInfantPrice(change.getInfantPrice());
+            card = card.withRate(rate);
+        }
+        return card;
+    }
+
+    private RevenueSimulationResponse toResponse(RateCard current, Totals totals) {
+        List<RevenueSimulationResponse.MonthDelta> months = new ArrayList<>(totals.months.size());
+        BigDecimal currentRevenue = BigDecimal.ZERO;
+        BigDecimal proposedRevenue = BigDecimal.ZERO;
+        long priced = 0;
+        for (Map.Entry<YearMonth, MonthTotals> entry : new TreeMap<>(totals.months).entrySet()) {
+            MonthTotals month = entry.getValue();
+            months.add(new RevenueSimulationResponse.MonthDelta(entry.getKey(), month.bookings,
+                    month.current, month.proposed, month.proposed.subtract(month.current)));
+            currentRevenue = currentRevenue.add(month.current);
+            proposedRevenue = proposedRevenue.add(month.proposed);
+            priced += month.bookings;
+        }
+        return RevenueSimulationResponse.builder()
+                .rateCardVersion(current.getVersion())
+                .pricedBookings(priced)
+                .failedBookings(totals.failed)
+                .currentRevenue(currentRevenue)
+                .proposedRevenue(proposedRevenue)
+                .delta(proposedRevenue.subtract(currentRevenue))
+                .months(months)
+                .build();
+    }
+
+    private static BigDecimal revenue(PriceBreakdown breakdown) {
+        return nz(breakdown.getBaseAmount())
+                .add(nz(breakdown.getExtrasAmount()))
+                .subtract(nz(breakdown.getDiscountAmount()));
+    }
+
+    private static BigDecimal nz(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    // halves the range until it is small enough, then prices it on both cards
+    private final class SimulationTask extends RecursiveTask<Totals> {
+
+        private final List<ForwardBooking> bookings;
+        private final RateCard current;
+        private final RateCard proposed;
+        private final int from;
+        private final int to;
+
+        SimulationTask(List<ForwardBooking> bookings, RateCard current, RateCard proposed, int from, int to) {
+            this.bookings = bookings;
+            this.current = current;
+            this.proposed = proposed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= LEAF_SIZE) {
+                return priceRange();
+            }
+            int mid = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(bookings, current, proposed, from, mid);
+            left.fork();
+            Totals right = new SimulationTask(bookings, current, proposed, mid, to).compute();
+            return left.join().merge(right);
+        }
+
+        private Totals priceRange() {
+            Totals totals = new Totals();
+            for (int i = from; i < to; i++) {
+                ForwardBooking booking = bookings.get(i);
+                try {
+                    if (booking == null || booking.getRequest() == null || booking.getRequest().getCheckIn() == null) {
+                        throw new InvalidPricingRequestException("prenotazione senza richiesta di prezzo");
+                    }
+                    BigDecimal before = revenue(engineService.calculatePrice(booking.getRequest(), current));
+                    BigDecimal after = revenue(engineService.calculatePrice(booking.getRequest(), proposed));
+                    totals.add(YearMonth.from(booking.getRequest().getCheckIn()), before, after);
+                } catch (RuntimeException ex) {
+                    log.debug("Booking {} left out of the revenue simulation",
+                            booking != null ? booking.getBookingId() : null, ex);
+                    totals.failed++;
+                }
+            }
+            return totals;
+        }
+    }
+
+    private static final class Totals {
+        private final Map<YearMonth, MonthTotals> months = new HashMap<>();
+        private long failed;
+
+        void add(YearMonth month, BigDecimal current, BigDecimal proposed) {
+            MonthTotals totals = months.computeIfAbsent(month, k -> new MonthTotals());
+            totals.bookings++;
+            totals.current = totals.current.add(current);
+            totals.proposed = totals.proposed.add(proposed);
+        }
+
+        Totals merge(Totals other) {
+            other.months.forEach((month, totals) -> months.merge(month, totals, MonthTotals::merge));
+            failed += other.failed;
+            return this;
+        }
+    }
+
+    private static final class MonthTotals {
+        private long bookings;
+        private BigDecimal current = BigDecimal.ZERO;
+        private BigDecimal proposed = BigDecimal.ZERO;
+
+        MonthTotals merge(MonthTotals other) {
+            bookings += other.bookings;
+            current = current.add(other.current);
+            proposed = proposed.add(other.proposed);
+            return this;
+        }
+    }
+}
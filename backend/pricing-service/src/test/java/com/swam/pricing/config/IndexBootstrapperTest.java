@@ -0,0 +1,101 @@
+package com.swam.pricing.config;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.IndexReport;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndexBootstrapperTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations seasonIndexes;
+
+    @Mock
+    private IndexOperations rateIndexes;
+
+    @Mock
+    private IndexOperations calendarIndexes;
+
+    private IndexBootstrapper bootstrapper;
+
+    @BeforeEach
+    void setup() {
+        // java.time types must be simple types, as in the Boot-configured context
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        when(mongoTemplate.getCollectionName(Season.class)).thenReturn("seasons");
+        when(mongoTemplate.getCollectionName(SeasonalRate.class)).thenReturn("seasonal_rates");
+        when(mongoTemplate.getCollectionName(RateCalendarEntry.class)).thenReturn("rate_calendar");
+        when(mongoTemplate.indexOps(Season.class)).thenReturn(seasonIndexes);
+        when(mongoTemplate.indexOps(SeasonalRate.class)).thenReturn(rateIndexes);
+        when(mongoTemplate.indexOps(RateCalendarEntry.class)).thenReturn(calendarIndexes);
+        bootstrapper = new IndexBootstrapper(mongoTemplate, true);
+    }
+
+    @Test
+    @DisplayName("Every declared index is ensured")
+    void testEnsuresDeclaredIndexes() {
+        IndexReport report = bootstrapper.ensureIndexes();
+
+        assertEquals(IndexReport.Status.DONE, report.getStatus());
+        assertEquals(List.of("seasons.start_end", "seasonal_rates.season_resource", "rate_calendar.resource_date"), report.getEnsured());
+        assertTrue(report.getFailures().isEmpty());
+
+        ArgumentCaptor<IndexDefinition> index = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(rateIndexes).ensureIndex(index.capture());
+        assertEquals(new Document("seasonId", 1).append("resourceId", 1), index.getValue().getIndexKeys());
+        assertEquals(Boolean.TRUE, index.getValue().getIndexOptions().get("unique"));
+    }
+
+    @Test
+    @DisplayName("Duplicates blocking a unique index are reported, the other indexes are still created")
+    void testReportsDuplicates() {
+        when(rateIndexes.ensureIndex(any())).thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+        Document group = new Document("_id", new Document("seasonId", "S1").append("resourceId", "ROOM-1"))
+                .append("count", 2)
+                .append("ids", List.of("a", "b"));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("seasonal_rates"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(group), new Document()));
+
+        IndexReport report = bootstrapper.ensureIndexes();
+
+        assertEquals(List.of("seasons.start_end", "rate_calendar.resource_date"), report.getEnsured());
+        assertEquals(1, report.getFailures().size());
+        IndexReport.Failure failure = report.getFailures().get(0);
+        assertEquals("season_resource", failure.getIndex());
+        assertEquals(1, failure.getDuplicates().size());
+        assertEquals("ROOM-1", failure.getDuplicates().get(0).getKey().get("resourceId"));
+        assertEquals(List.of("a", "b"), failure.getDuplicates().get(0).getIds());
+        verify(calendarIndexes).ensureIndex(any());
+    }
+}
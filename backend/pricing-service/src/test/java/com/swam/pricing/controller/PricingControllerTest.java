@@ -1,10 +1,20 @@
 package com.swam.pricing.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swam.pricing.config.IndexBootstrapper;
 import com.swam.pricing.domain.*;
 import com.swam.pricing.dto.*;
+import com.swam.pricing.service.BatchPricingService;
+import com.swam.pricing.service.OccupancyService;
 import com.swam.pricing.service.PricingEngineService;
 import com.swam.pricing.service.PricingManagementService;
+import com.swam.pricing.service.QuoteTokenService;
+import com.swam.pricing.service.RateCalendarService;
+import com.swam.pricing.service.RateCardService;
+import com.swam.pricing.service.RateImportService;
+import com.swam.pricing.service.RateSnapshotService;
+import com.swam.pricing.service.RevenueSimulationService;
+import com.swam.shared.dto.NightlyLines;
 import com.swam.shared.dto.PriceBreakdown;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,13 +24,17 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import com.swam.shared.exceptions.InvalidBookingDateException;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.SnapshotVersion;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -40,6 +54,33 @@ class PricingControllerTest {
     @MockBean
     private PricingManagementService managementService;
 
+    @MockBean
+    private RateCardService rateCardService;
+
+    @MockBean
+    private BatchPricingService batchPricingService;
+
+    @MockBean
+    private RateCalendarService rateCalendarService;
+
+    @MockBean
+    private QuoteTokenService quoteTokenService;
+
+    @MockBean
+    private RateImportService rateImportService;
+
+    @MockBean
+    private IndexBootstrapper indexBootstrapper;
+
+    @MockBean
+    private RevenueSimulationService revenueSimulationService;
+
+    @MockBean
+    private OccupancyService occupancyService;
+
+    @MockBean
+    private RateSnapshotService rateSnapshotService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -245,6 +286,156 @@ class PricingControllerTest {
                 .andExpect(jsonPath("$.finalTotal").value(200.00));
     }
 
+    @Test
+    @DisplayName("POST /calculate?asOfVersion=3 - Quote On A Retained Rate Card Version")
+    void calculateQuoteAsOfVersion() throws Exception {
+        PriceCalculationRequest request = new PriceCalculationRequest();
+        request.setResourceId("room1");
+
+        when(engineService.calculatePrice(any(PriceCalculationRequest.class), eq(3L)))
+                .thenReturn(PriceBreakdown.builder().finalTotal(new BigDecimal("180.00")).rateCardVersion(3L).build());
+
+        mockMvc.perform(post("/api/pricing/calculate")
+                        .param("asOfVersion", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rateCardVersion").value(3));
+
+        verify(engineService, never()).calculatePrice(any(PriceCalculationRequest.class));
+    }
+
+    @Test
+    @DisplayName("POST /calculate?itemized=true - Quote With Nightly Lines")
+    void calculateItemizedQuote() throws Exception {
+        PriceCalculationRequest request = new PriceCalculationRequest();
+        request.setResourceId("room1");
+
+        PriceBreakdown breakdown = PriceBreakdown.builder()
+                .finalTotal(new BigDecimal("160.00"))
+                .nightlyLines(NightlyLines.builder()
+                        .firstNight(LocalDate.of(2024, 1, 12))
+                        .seasonIds(List.of("LOW", "HIGH"))
+                        .season(new int[]{0, 1})
+                        .adults(new int[]{2, 2})
+                        .children(new int[]{0, 0})
+                        .infants(new int[]{0, 0})
+                        .amounts(new BigDecimal[]{new BigDecimal("70.00"), new BigDecimal("90.00")})
+                        .build())
+                .build();
+
+        when(engineService.calculateItemizedPrice(any(PriceCalculationRequest.class))).thenReturn(breakdown);
+
+        mockMvc.perform(post("/api/pricing/calculate")
+                        .param("itemized", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nightlyLines.seasonIds[1]").value("HIGH"))
+                .andExpect(jsonPath("$.nightlyLines.season[1]").value(1))
+                .andExpect(jsonPath("$.nightlyLines.amounts[0]").value(70.00));
+
+        verify(engineService, never()).calculatePrice(any(PriceCalculationRequest.class));
+    }
+
+    @Test
+    @DisplayName("POST /rates/import - CSV Stream Imported With Report")
+    void importRates() throws Exception {
+        RateImportReport report = new RateImportReport();
+        report.setRowsRead(2);
+        report.setInserted(2);
+
+        when(rateImportService.importRates(any(), eq(RateImportService.Format.CSV))).thenReturn(report);
+
+        mockMvc.perform(post("/api/pricing/rates/import")
+                        .contentType("text/csv")
+                        .content("seasonId,resourceId,basePrice\nS1,ROOM-1,80\nS1,ROOM-2,90\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2));
+    }
+
+    @Test
+    @DisplayName("POST /calculate/requote - New Check-Out On A Tokenized Quote")
+    void requote() throws Exception {
+        RequoteRequest request = new RequoteRequest("token-1", LocalDate.of(2024, 1, 20));
+        PriceBreakdown breakdown = PriceBreakdown.builder()
+                .finalTotal(new BigDecimal("640.00"))
+                .quoteToken("token-2")
+                .build();
+
+        when(quoteTokenService.requote(any(RequoteRequest.class))).thenReturn(breakdown);
+
+        mockMvc.perform(post("/api/pricing/calculate/requote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.finalTotal").value(640.00))
+                .andExpect(jsonPath("$.quoteToken").value("token-2"));
+    }
+
+    @Test
+    @DisplayName("POST /calculate/batch - Batch Quotes With Per-Item Errors")
+    void calculateBatch() throws Exception {
+        PriceCalculationRequest item = new PriceCalculationRequest();
+        item.setResourceId("room1");
+        BatchPriceCalculationRequest request = new BatchPriceCalculationRequest(List.of(item, item));
+
+        BatchPriceCalculationResponse response = BatchPriceCalculationResponse.builder()
+                .rateCardVersion(3)
+                .results(List.of(
+                        BatchPriceCalculationResponse.ItemResult.builder()
+                                .index(0)
+                                .breakdown(PriceBreakdown.builder().finalTotal(new BigDecimal("120.00")).build())
+                                .build(),
+                        BatchPriceCalculationResponse.ItemResult.builder()
+                                .index(1)
+                                .errorCode("PRICING_ERROR")
+                                .errorMessage("Prezzo mancante per risorsa room1")
+                                .build()))
+                .build();
+
+        when(batchPricingService.calculateBatch(anyList())).thenReturn(response);
+
+        mockMvc.perform(post("/api/pricing/calculate/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rateCardVersion").value(3))
+                .andExpect(jsonPath("$.results[0].breakdown.finalTotal").value(120.00))
+                .andExpect(jsonPath("$.results[1].errorCode").value("PRICING_ERROR"))
+                .andExpect(jsonPath("$.results[1].breakdown").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /rate-card/version - Current Rate Card Version")
+    void getRateCardVersion() throws Exception {
+        when(rateCardService.currentVersion()).thenReturn(7L);
+
+        mockMvc.perform(get("/api/pricing/rate-card/version"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("7"));
+    }
+
+    @Test
+    @DisplayName("GET /rate-calendar - Nightly Prices of a Resource")
+    void getRateCalendar() throws Exception {
+        RateCalendarEntry night = RateCalendarEntry.builder()
+                .resourceId("ROOM-1")
+                .date(LocalDate.of(2024, 8, 12))
+                .seasonId("HIGH")
+                .basePrice(new BigDecimal("120.00"))
+                .build();
+        when(rateCalendarService.getRange("ROOM-1", LocalDate.of(2024, 8, 12), LocalDate.of(2024, 8, 19)))
+                .thenReturn(List.of(night));
+
+        mockMvc.perform(get("/api/pricing/rate-calendar")
+                        .param("resourceId", "ROOM-1")
+                        .param("from", "2024-08-12")
+                        .param("to", "2024-08-19"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].date").value("2024-08-12"))
+                .andExpect(jsonPath("$[0].basePrice").value(120.00));
+    }
 
     @Test
     @DisplayName("PUT /seasons/{id} - Update Fail on Overlap (Conflitto Date)")
@@ -314,4 +505,77 @@ class PricingControllerTest {
         }
         System.out.println("==================================================================\n");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("POST /simulations/revenue - Forward Book Priced On The Proposed Rate Card")
+    void simulateRevenue() throws Exception {
+        RevenueSimulationRequest request = new RevenueSimulationRequest();
+        SetRateRequest rate = new SetRateRequest();
+        rate.setSeasonId("S1");
+        rate.setResourceId("room1");
+        rate.setBasePrice(new BigDecimal("120.00"));
+        request.setRates(List.of(rate));
+
+        when(revenueSimulationService.simulate(any(RevenueSimulationRequest.class)))
+                .thenReturn(RevenueSimulationResponse.builder()
+                        .rateCardVersion(7)
+                        .pricedBookings(2)
+                        .currentRevenue(new BigDecimal("400.00"))
+                        .proposedRevenue(new BigDecimal("480.00"))
+                        .delta(new BigDecimal("80.00"))
+                        .months(List.of(new RevenueSimulationResponse.MonthDelta(YearMonth.of(2024, 8), 2,
+                                new BigDecimal("400.00"), new BigDecimal("480.00"), new BigDecimal("80.00"))))
+                        .build());
+
+        mockMvc.perform(post("/api/pricing/simulations/revenue")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.delta").value(80.00))
+                .andExpect(jsonPath("$.months[0].month").value("2024-08"));
+    }
+
+    @Test
+    @DisplayName("POST /restrictions/check - Min Stay Per Resource")
+    void checkRestrictions() throws Exception {
+        RestrictionCheckRequest request = new RestrictionCheckRequest(
+                LocalDate.of(2024, 8, 10), LocalDate.of(2024, 8, 12), List.of("room1", "room2"));
+
+        when(engineService.checkRestrictions(any(RestrictionCheckRequest.class)))
+                .thenReturn(new RestrictionCheckResponse(5, List.of(
+                        new RestrictionCheckResponse.ResourceRestriction("room1", false, 3),
+                        new RestrictionCheckResponse.ResourceRestriction("room2", true, null))));
+
+        mockMvc.perform(post("/api/pricing/restrictions/check")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].allowed").value(false))
+                .andExpect(jsonPath("$.results[0].minNights").value(3))
+                .andExpect(jsonPath("$.results[1].minNights").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("POST /occupancy/events - Booking State Applied To Counters")
+    void occupancyEvent() throws Exception {
+        OccupancyEvent event = new OccupancyEvent("b1", "room1", LocalDate.of(2024, 8, 10), LocalDate.of(2024, 8, 12), true);
+
+        mockMvc.perform(post("/api/pricing/occupancy/events")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(event)))
+                .andExpect(status().isAccepted());
+
+        verify(occupancyService).apply(eq(event));
+    }
+
+    @Test
+    @DisplayName("GET /rate-card/snapshot/version - Rate Card And Occupancy Versions")
+    void rateSnapshotVersion() throws Exception {
+        when(rateSnapshotService.currentVersion()).thenReturn(new SnapshotVersion(7, 3));
+
+        mockMvc.perform(get("/api/pricing/rate-card/snapshot/version"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rateCardVersion").value(7))
+                .andExpect(jsonPath("$.occupancyVersion").value(3));
+    }
+}
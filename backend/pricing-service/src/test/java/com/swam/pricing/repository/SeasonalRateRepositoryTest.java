@@ -0,0 +1,82 @@
+package com.swam.pricing.repository;
+
+import com.swam.pricing.domain.SeasonalRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataMongoTest
+class SeasonalRateRepositoryTest {
+
+    @Autowired
+    private SeasonalRateRepository rateRepository;
+
+    @BeforeEach
+    void setup() {
+        rateRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Clone: copia le tariffe e sostituisce quelle già presenti nella stagione di destinazione")
+    void testCloneSeasonRates() {
+        rateRepository.save(rate("S2024", "ROOM-1", "80.00", "10.00"));
+        rateRepository.save(rate("S2024", "ROOM-2", "95.00", null));
+        SeasonalRate existing = rateRepository.save(rate("S2025", "ROOM-1", "70.00", null));
+
+        long copied = rateRepository.cloneSeasonRates("S2024", "S2025", null);
+
+        assertEquals(2, copied);
+        List<SeasonalRate> target = rateRepository.findBySeasonId("S2025");
+        assertEquals(2, target.size());
+        SeasonalRate room1 = rateRepository.findBySeasonIdAndResourceId("S2025", "ROOM-1").orElseThrow();
+        assertEquals(existing.getId(), room1.getId());
+        assertEquals(0, new BigDecimal("80.00").compareTo(room1.getBasePrice()));
+        assertEquals(2, rateRepository.findBySeasonId("S2024").size());
+    }
+
+    @Test
+    @DisplayName("Clone: un prezzo assente nella sorgente azzera quello della destinazione")
+    void testCloneClearsMissingPrices() {
+        rateRepository.save(rate("S2024", "ROOM-1", "80.00", null));
+        rateRepository.save(rate("S2025", "ROOM-1", "70.00", "15.00"));
+
+        rateRepository.cloneSeasonRates("S2024", "S2025", null);
+
+        SeasonalRate room1 = rateRepository.findBySeasonIdAndResourceId("S2025", "ROOM-1").orElseThrow();
+        assertEquals(0, new BigDecimal("80.00").compareTo(room1.getBasePrice()));
+        assertNull(room1.getAdultPrice());
+    }
+
+    @Test
+    @DisplayName("Adjust: prezzi scalati con arrotondamento HALF_UP ai centesimi, filtro per risorsa")
+    void testScalePrices() {
+        rateRepository.save(rate("S2025", "ROOM-1", "9.99", "10.05"));
+        rateRepository.save(rate("S2025", "ROOM-2", "100.00", null));
+
+        long changed = rateRepository.scalePrices("S2025", List.of("ROOM-1"), new BigDecimal("-15"));
+
+        assertEquals(1, changed);
+        SeasonalRate room1 = rateRepository.findBySeasonIdAndResourceId("S2025", "ROOM-1").orElseThrow();
+        assertEquals(new BigDecimal("8.49"), room1.getBasePrice());
+        assertEquals(new BigDecimal("8.54"), room1.getAdultPrice());
+        assertNull(room1.getChildPrice());
+        assertEquals(new BigDecimal("100.00"),
+                rateRepository.findBySeasonIdAndResourceId("S2025", "ROOM-2").orElseThrow().getBasePrice());
+    }
+
+    private SeasonalRate rate(String seasonId, String resourceId, String base, String adult) {
+        SeasonalRate r = new SeasonalRate();
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        r.setAdultPrice(adult != null ? new BigDecimal(adult) : null);
+        return r;
+    }
+}
@@ -0,0 +1,132 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.dto.BatchPriceCalculationResponse;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchPricingServiceTest {
+
+    @Mock private RateCardService rateCardService;
+
+    private ExecutorService executor;
+    private BatchPricingService batchPricingService;
+
+    @BeforeEach
+    void setup() {
+        Season season = new Season();
+        season.setId("JAN");
+        season.setStartDate(LocalDate.of(2024, 1, 1));
+        season.setEndDate(LocalDate.of(2024, 1, 31));
+
+        List<SeasonalRate> rates = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            SeasonalRate rate = new SeasonalRate();
+            rate.setId("R" + i);
+            rate.setSeasonId("JAN");
+            rate.setResourceId("ROOM-" + i);
+            rate.setBasePrice(new BigDecimal(i * 100 + ".00"));
+            rate.setAdultPrice(new BigDecimal("10.00"));
+            rates.add(rate);
+        }
+
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(4);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+
+        lenient().when(rateCardService.current()).thenReturn(RateCard.of(5, List.of(season), rates, rule));
+
+        executor = Executors.newFixedThreadPool(3);
+        batchPricingService = new BatchPricingService(
+                PricingFixtures.pricingEngine(rateCardService), rateCardService, executor, 3, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Batch: results returned in request order, one snapshot for all items")
+    void testResultsInOrder() {
+        List<PriceCalculationRequest> items = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            items.add(request("ROOM-" + (i % 3 + 1), 2));
+        }
+
+        BatchPriceCalculationResponse response = batchPricingService.calculateBatch(items);
+
+        assertEquals(5, response.getRateCardVersion());
+        assertEquals(30, response.getResults().size());
+        for (int i = 0; i < 30; i++) {
+            BatchPriceCalculationResponse.ItemResult result = response.getResults().get(i);
+            assertEquals(i, result.getIndex());
+            // (base + 1 adult * 10) * 2 nights
+            BigDecimal expected = new BigDecimal((i % 3 + 1) * 100 + 10).multiply(BigDecimal.valueOf(2));
+            assertEquals(0, expected.compareTo(result.getBreakdown().getBaseAmount()));
+            assertEquals(5L, result.getBreakdown().getRateCardVersion());
+        }
+        verify(rateCardService, times(1)).current();
+    }
+
+    @Test
+    @DisplayName("Batch: a bad item is reported in place without failing the others")
+    void testBadItemIsolated() {
+        PriceCalculationRequest missingRate = request("ROOM-404", 2);
+        PriceCalculationRequest missingDates = request("ROOM-1", 2);
+        missingDates.setCheckOut(null);
+
+        BatchPriceCalculationResponse response = batchPricingService.calculateBatch(
+                List.of(request("ROOM-1", 1), missingRate, missingDates, request("ROOM-2", 1)));
+
+        List<BatchPriceCalculationResponse.ItemResult> results = response.getResults();
+        assertNotNull(results.get(0).getBreakdown());
+        assertNull(results.get(1).getBreakdown());
+        assertEquals("PRICING_ERROR", results.get(1).getErrorCode());
+        assertEquals("INVALID_PRICING_REQUEST", results.get(2).getErrorCode());
+        assertNotNull(results.get(3).getBreakdown());
+    }
+
+    @Test
+    @DisplayName("Batch: empty or oversized batches are rejected")
+    void testBatchLimits() {
+        assertThrows(InvalidPricingRequestException.class, () -> batchPricingService.calculateBatch(List.of()));
+
+        List<PriceCalculationRequest> tooMany = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            tooMany.add(request("ROOM-1", 1));
+        }
+        assertThrows(InvalidPricingRequestException.class, () -> batchPricingService.calculateBatch(tooMany));
+    }
+
+    private PriceCalculationRequest request(String resourceId, int nights) {
+        LocalDate checkIn = LocalDate.of(2024, 1, 10);
+        return PriceCalculationRequest.builder()
+                .resourceId(resourceId)
+                .checkIn(checkIn)
+                .checkOut(checkIn.plusDays(nights))
+                .guests(List.of(PriceCalculationRequest.GuestProfile.builder()
+                        .type(GuestType.ADULT).days(nights).build()))
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.client.ResourceDirectoryClient;
+import com.swam.pricing.domain.*;
+import com.swam.pricing.dto.OccupancyDay;
+import com.swam.pricing.dto.OccupancyEvent;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.dto.ResourceUnit;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OccupancyServiceTest {
+
+    private final BookingExportClient bookingClient = mock(BookingExportClient.class);
+    private final ResourceDirectoryClient resourceClient = mock(ResourceDirectoryClient.class);
+
+    // 4 sellable rooms, one out of order: 50% = 2 rooms sold, 75% = 3 rooms sold
+    private final List<ResourceUnit> resources = List.of(
+            room("ROOM-1"), room("ROOM-2"), room("ROOM-3"), room("ROOM-4"),
+            new ResourceUnit("ROOM-5", ResourceType.DOUBLE_ROOM, ResourceStatus.OUT_OF_ORDER));
+
+    @Test
+    @DisplayName("Occupazione: contatori aggiornati da creazione, modifica e cancellazione")
+    void testIncrementalEvents() {
+        OccupancyService occupancy = rebuilt(List.of(stay("B1", "ROOM-1", "2024-08-10", "2024-08-13")));
+
+        occupancy.apply(stay("B2", "ROOM-2", "2024-08-11", "2024-08-12"));
+        // the same state sent twice is counted once
+        occupancy.apply(stay("B2", "ROOM-2", "2024-08-11", "2024-08-12"));
+        // B1 shortened by one night
+        occupancy.apply(stay("B1", "ROOM-1", "2024-08-10", "2024-08-12"));
+        assertEquals(List.of(1, 2, 0), sold(occupancy, "2024-08-10", "2024-08-12"));
+
+        occupancy.apply(new OccupancyEvent("B2", null, null, null, false));
+        assertEquals(List.of(1, 1, 0), sold(occupancy, "2024-08-10", "2024-08-12"));
+        assertEquals(4, occupancy.report(ResourceType.DOUBLE_ROOM, date("2024-08-10"), date("2024-08-10")).get(0).getTotal());
+    }
+
+    @Test
+    @DisplayName("Occupazione: fascia applicata per notte, la versione cambia solo quando cambia la fascia")
+    void testTierUpliftAndVersion() {
+        OccupancyService occupancy = rebuilt(List.of(
+                stay("B1", "ROOM-1", "2024-08-10", "2024-08-12"),
+                stay("B2", "ROOM-2", "2024-08-11", "2024-08-12")));
+        long version = occupancy.version();
+
+        // night of the 10th at 25%, night of the 11th at 50%
+        assertEquals(1_000, occupancy.upliftCents("ROOM-3", date("2024-08-10"), 2, 10_000));
+        assertEquals(new BigDecimal("10.00"), occupancy.uplift("ROOM-3", date("2024-08-10"), 2, new BigDecimal("100.00")));
+
+        // a third room on the 10th: 50%, tier changes
+        occupancy.apply(stay("B3", "ROOM-3", "2024-08-10", "2024-08-11"));
+        assertTrue(occupancy.version() > version);
+        version = occupancy.version();
+
+        // a second night below any threshold: no tier change
+        occupancy.apply(stay("B4", "ROOM-4", "2024-08-20", "2024-08-21"));
+        assertEquals(version, occupancy.version());
+
+        occupancy.apply(stay("B4", "ROOM-4", "2024-08-11", "2024-08-12"));
+        // 75% on the 11th
+        List<OccupancyDay> days = occupancy.report(ResourceType.DOUBLE_ROOM, date("2024-08-10"), date("2024-08-11"));
+        assertEquals(0, new BigDecimal("10").compareTo(days.get(0).getUpliftPercent()));
+        assertEquals(0, new BigDecimal("25").compareTo(days.get(1).getUpliftPercent()));
+        assertEquals(3_500, occupancy.upliftCents("ROOM-1", date("2024-08-10"), 2, 10_000));
+    }
+
+    @Test
+    @DisplayName("Occupazione: eventi ricevuti durante la ricostruzione non vanno persi")
+    void testRebuildReplaysConcurrentEvents() {
+        OccupancyService occupancy = new OccupancyService(bookingClient, resourceClient, true, "50:10,75:25");
+        when(resourceClient.fetchResources()).thenReturn(resources);
+        // the aggregation result predates the cancellation of B1 and the creation of B2
+        when(bookingClient.fetchOccupancy()).thenAnswer(invocation -> {
+            occupancy.apply(new OccupancyEvent("B1", null, null, null, false));
+            occupancy.apply(stay("B2", "ROOM-2", "2024-08-10", "2024-08-11"));
+            return List.of(stay("B1", "ROOM-1", "2024-08-10", "2024-08-11"));
+        });
+
+        assertEquals(1, occupancy.rebuild());
+        assertEquals(List.of(1), sold(occupancy, "2024-08-10", "2024-08-10"));
+    }
+
+    @Test
+    @DisplayName("Occupazione: il preventivo include la maggiorazione, indipendente dalla segmentazione")
+    void testEngineAppliesTiers() {
+        OccupancyService occupancy = rebuilt(List.of(
+                stay("B1", "ROOM-2", "2024-08-10", "2024-08-12"),
+                stay("B2", "ROOM-3", "2024-08-11", "2024-08-12")));
+        RateCard card = RateCard.of(1, List.of(season("AUG", "2024-08-01", "2024-08-31")),
+                List.of(rate("AUG", "ROOM-1", "33.33")), cityTax());
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PricingEngineService engine = new PricingEngineService(mock(RateCardService.class),
+                    PricingFixtures.noQuoteCache(), occupancy, fixedPoint);
+            PriceBreakdown quote = engine.calculatePrice(PriceCalculationRequest.builder()
+                    .resourceId("ROOM-1")
+                    .checkIn(date("2024-08-10"))
+                    .checkOut(date("2024-08-13"))
+                    .guests(List.of(PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(3).build()))
+                    .build(), card);
+            // 3 x 33.33 + 10% of the 11th, rounded on that night
+            assertEquals(0, new BigDecimal("103.32").compareTo(quote.getBaseAmount()), quote.getBaseAmount().toPlainString());
+        }
+    }
+
+    @Test
+    @DisplayName("Occupazione: fasce non crescenti rifiutate")
+    void testInvalidTiers() {
+        assertThrows(IllegalArgumentException.class, () -> OccupancyService.parseTiers("80:5,70:10"));
+        assertThrows(IllegalArgumentException.class, () -> OccupancyService.parseTiers("70"));
+        assertEquals(2, OccupancyService.parseTiers(" 70:5 , 90:12.5").size());
+    }
+
+    private OccupancyService rebuilt(List<OccupancyEvent> stays) {
+        when(resourceClient.fetchResources()).thenReturn(resources);
+        when(bookingClient.fetchOccupancy()).thenReturn(stays);
+        OccupancyService occupancy = new OccupancyService(bookingClient, resourceClient, true, "50:10,75:25");
+        occupancy.rebuild();
+        return occupancy;
+    }
+
+    private List<Integer> sold(OccupancyService occupancy, String from, String to) {
+        return occupancy.report(ResourceType.DOUBLE_ROOM, date(from), date(to)).stream().map(OccupancyDay::getSold).toList();
+    }
+
+    private static OccupancyEvent stay(String bookingId, String resourceId, String checkIn, String checkOut) {
+        return new OccupancyEvent(bookingId, resourceId, date(checkIn), date(checkOut), true);
+    }
+
+    private static ResourceUnit room(String id) {
+        return new ResourceUnit(id, ResourceType.DOUBLE_ROOM, ResourceStatus.AVAILABLE);
+    }
+
+    private static LocalDate date(String value) {
+        return LocalDate.parse(value);
+    }
+
+    private static CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        return rule;
+    }
+
+    private static Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private static SeasonalRate rate(String seasonId, String resourceId, String base) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + resourceId);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        return r;
+    }
+}
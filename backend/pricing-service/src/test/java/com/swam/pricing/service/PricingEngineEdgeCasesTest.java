@@ -1,14 +1,14 @@
 package com.swam.pricing.service;
 
 import com.swam.pricing.domain.*;
-import com.swam.pricing.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
 import com.swam.pricing.repository.*;
 import com.swam.shared.dto.PriceBreakdown;
-import com.swam.shared.enums.GuestType;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -16,7 +16,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
@@ -28,9 +27,13 @@ class PricingEngineEdgeCasesTest {
     @Mock private SeasonalRateRepository rateRepository;
     @Mock private CityTaxRuleRepository taxRepository;
 
-    @InjectMocks
     private PricingEngineService pricingEngineService;
 
+    @BeforeEach
+    void setup() {
+        pricingEngineService = PricingFixtures.pricingEngine(PricingFixtures.rateCardService(seasonRepository, rateRepository, taxRepository));
+    }
+
     // --- TEST 1: PRENOTAZIONE LUNGA SU 3 STAGIONI ---
     @Test
     @DisplayName("Edge Case: Prenotazione attraverso 3 stagioni")
@@ -51,10 +54,8 @@ class PricingEngineEdgeCasesTest {
         Season alta = createSeason("HIGH", 2024, 1, 21, 2024, 1, 31);
         SeasonalRate rateAlta = createRate("HIGH", "100.00");
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(bassa, media, alta));
-        when(rateRepository.findBySeasonIdAndResourceId("LOW", "ROOM-1")).thenReturn(Optional.of(rateBassa));
-        when(rateRepository.findBySeasonIdAndResourceId("MID", "ROOM-1")).thenReturn(Optional.of(rateMedia));
-        when(rateRepository.findBySeasonIdAndResourceId("HIGH", "ROOM-1")).thenReturn(Optional.of(rateAlta));
+        when(seasonRepository.findAll()).thenReturn(List.of(bassa, media, alta));
+        when(rateRepository.findAll()).thenReturn(List.of(rateBassa, rateMedia, rateAlta));
 
         // Creiamo 1 Ospite Adulto che sta per tutto il periodo (15 notti)
         List<PriceCalculationRequest.GuestProfile> guests = List.of(
@@ -90,9 +91,8 @@ class PricingEngineEdgeCasesTest {
         Season gen24 = createSeason("S-2024", 2024, 1, 1, 2024, 1, 31);
         SeasonalRate rate24 = createRate("S-2024", "120.00");
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(dic23, gen24));
-        when(rateRepository.findBySeasonIdAndResourceId("S-2023", "ROOM-1")).thenReturn(Optional.of(rate23));
-        when(rateRepository.findBySeasonIdAndResourceId("S-2024", "ROOM-1")).thenReturn(Optional.of(rate24));
+        when(seasonRepository.findAll()).thenReturn(List.of(dic23, gen24));
+        when(rateRepository.findAll()).thenReturn(List.of(rate23, rate24));
 
         List<PriceCalculationRequest.GuestProfile> guests = List.of(
                 createGuest(GuestType.ADULT, 3)
@@ -128,8 +128,8 @@ class PricingEngineEdgeCasesTest {
         taxRule.setAmountPerAdult(new BigDecimal("2.00"));
         taxRule.setAmountPerChild(new BigDecimal("1.00"));
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(season));
-        when(rateRepository.findBySeasonIdAndResourceId("MAY", "ROOM-1")).thenReturn(Optional.of(rate));
+        when(seasonRepository.findAll()).thenReturn(List.of(season));
+        when(rateRepository.findAll()).thenReturn(List.of(rate));
         when(taxRepository.findAll()).thenReturn(List.of(taxRule));
 
         // 2 Adulti (stanno 10 notti) + 1 Bambino (sta 10 notti)
@@ -174,6 +174,7 @@ class PricingEngineEdgeCasesTest {
     private SeasonalRate createRate(String seasonId, String price) {
         SeasonalRate r = new SeasonalRate();
         r.setSeasonId(seasonId);
+        r.setResourceId("ROOM-1");
         r.setBasePrice(new BigDecimal(price));
         r.setAdultPrice(BigDecimal.ZERO);
         return r;
@@ -0,0 +1,254 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.CityTaxRequiredException;
+import com.swam.pricing.engine.MinorUnits;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PricingEngineFixedPointTest {
+
+    private static final String RESOURCE = "ROOM-1";
+
+    private final RateCardService rateCardService = mock(RateCardService.class);
+    private final PricingEngineService bigDecimalEngine = PricingFixtures.pricingEngine(rateCardService, false);
+    private final PricingEngineService fixedPointEngine = PricingFixtures.pricingEngine(rateCardService, true);
+
+    @Test
+    @DisplayName("Fixed-point: stesso risultato del calcolo BigDecimal su input casuali")
+    void testMatchesBigDecimalPath() {
+        Random random = new Random(42L);
+
+        for (int iteration = 0; iteration < 1000; iteration++) {
+            RateCard card = randomCard(random);
+            LocalDate checkIn = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(300));
+            int nights = 1 + random.nextInt(30);
+
+            List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>();
+            int guestCount = 1 + random.nextInt(6);
+            for (int g = 0; g < guestCount; g++) {
+                guests.add(PriceCalculationRequest.GuestProfile.builder()
+                        .type(GuestType.values()[random.nextInt(3)])
+                        .taxExempt(random.nextInt(5) == 0)
+                        .days(random.nextInt(nights + 2))
+                        .build());
+            }
+
+            List<PriceCalculationRequest.BillableExtraItem> extras = new ArrayList<>();
+            for (int e = random.nextInt(4); e > 0; e--) {
+                extras.add(new PriceCalculationRequest.BillableExtraItem(amount(random, true), random.nextInt(5) - 1));
+            }
+
+            PriceCalculationRequest req = PriceCalculationRequest.builder()
+                    .resourceId(RESOURCE)
+                    .checkIn(checkIn)
+                    .checkOut(checkIn.plusDays(nights))
+                    .guests(guests)
+                    .extras(extras)
+                    .manualDiscount(amount(random, true))
+                    .depositAmount(amount(random, true))
+                    .build();
+
+            PriceBreakdown expected = bigDecimalEngine.calculatePrice(req, card);
+            PriceBreakdown actual = fixedPointEngine.calculatePrice(req, card);
+
+            String context = "Iterazione " + iteration;
+            assertSameAmount(expected.getBaseAmount(), actual.getBaseAmount(), context);
+            assertSameAmount(expected.getTaxAmount(), actual.getTaxAmount(), context);
+            assertSameAmount(expected.getExtrasAmount(), actual.getExtrasAmount(), context);
+            assertSameAmount(expected.getDiscountAmount(), actual.getDiscountAmount(), context);
+            assertSameAmount(expected.getDepositAmount(), actual.getDepositAmount(), context);
+            assertSameAmount(expected.getFinalTotal(), actual.getFinalTotal(), context);
+            assertEquals(MinorUnits.SCALE, actual.getFinalTotal().scale());
+        }
+    }
+
+    /**
+     * The one known difference between the two paths: the fixed-point path takes every price, tax rate, extra,
+     * discount and deposit to the cent (HALF_UP) before computing, the BigDecimal path keeps them exact. Rates and
+     * requests in cents, the only ones the tests above draw, give the same quote on both paths.
+     */
+    @Test
+    @DisplayName("Fixed-point: importi sotto il centesimo arrotondati prima del calcolo, il BigDecimal li tiene esatti")
+    void testSubCentAmountsRoundedFirst() {
+        RateCard subCent = RateCard.of(1, List.of(season("S", "2024-01-01", "2024-12-31")),
+                List.of(rate("S", "33.335", "10.005", null, null)), cityTax("1.255"));
+        RateCard inCents = RateCard.of(1, List.of(season("S", "2024-01-01", "2024-12-31")),
+                List.of(rate("S", "33.34", "10.01", null, null)), cityTax("1.26"));
+
+        PriceBreakdown fixedPoint = fixedPointEngine.calculatePrice(subCentRequest("4.999", "1.005", "20.004"), subCent);
+        PriceBreakdown exact = bigDecimalEngine.calculatePrice(subCentRequest("4.999", "1.005", "20.004"), subCent);
+        PriceBreakdown rounded = bigDecimalEngine.calculatePrice(subCentRequest("5.00", "1.01", "20.00"), inCents);
+
+        // fixed-point on sub-cent inputs is the exact quote of the inputs rounded to the cent
+        assertSameAmount(rounded.getBaseAmount(), fixedPoint.getBaseAmount(), "Base");
+        assertSameAmount(rounded.getTaxAmount(), fixedPoint.getTaxAmount(), "Tassa");
+        assertSameAmount(rounded.getExtrasAmount(), fixedPoint.getExtrasAmount(), "Extra");
+        assertSameAmount(rounded.getDiscountAmount(), fixedPoint.getDiscountAmount(), "Sconto");
+        assertSameAmount(rounded.getDepositAmount(), fixedPoint.getDepositAmount(), "Acconto");
+        assertSameAmount(rounded.getFinalTotal(), fixedPoint.getFinalTotal(), "Totale");
+
+        // the BigDecimal path keeps the extra decimals: 3 nights of 33.335 + 2 x 10.005
+        assertSameAmount(new BigDecimal("160.035"), exact.getBaseAmount(), "Base esatta");
+        assertNotEquals(0, exact.getFinalTotal().compareTo(fixedPoint.getFinalTotal()));
+    }
+
+    private PriceCalculationRequest subCentRequest(String extra, String discount, String deposit) {
+        return PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(LocalDate.of(2024, 3, 4))
+                .checkOut(LocalDate.of(2024, 3, 7))
+                .guests(List.of(
+                        PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(3).build(),
+                        PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(3).build()))
+                .extras(List.of(new PriceCalculationRequest.BillableExtraItem(new BigDecimal(extra), 3)))
+                .manualDiscount(new BigDecimal(discount))
+                .depositAmount(new BigDecimal(deposit))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Fixed-point: overflow dei centesimi ricade sul calcolo BigDecimal")
+    void testOverflowFallsBack() {
+        RateCard card = RateCard.of(1,
+                List.of(season("S", "2024-01-01", "2024-12-31")),
+                List.of(rate("S", "90000000000000000.00", null, null, null)),
+                cityTax("1.00"));
+
+        PriceCalculationRequest req = PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(LocalDate.of(2024, 1, 1))
+                .checkOut(LocalDate.of(2024, 1, 11))
+                .guests(List.of(PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(10).build()))
+                .build();
+
+        PriceBreakdown result = fixedPointEngine.calculatePrice(req, card);
+
+        assertEquals(new BigDecimal("900000000000000000.00"), result.getBaseAmount());
+        assertEquals(0, bigDecimalEngine.calculatePrice(req, card).getFinalTotal().compareTo(result.getFinalTotal()));
+    }
+
+    @Test
+    @DisplayName("Fixed-point: tassa di soggiorno obbligatoria anche in centesimi")
+    void testCityTaxStillRequired() {
+        RateCard card = RateCard.of(1,
+                List.of(season("S", "2024-01-01", "2024-12-31")),
+                List.of(rate("S", "50.00", null, null, null)),
+                null);
+
+        PriceCalculationRequest req = PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(LocalDate.of(2024, 1, 1))
+                .checkOut(LocalDate.of(2024, 1, 3))
+                .guests(List.of())
+                .build();
+
+        assertThrows(CityTaxRequiredException.class, () -> fixedPointEngine.calculatePrice(req, card));
+    }
+
+    @Test
+    @DisplayName("MinorUnits: arrotondamento HALF_UP e overflow esplicito")
+    void testMinorUnits() {
+        assertEquals(1235, MinorUnits.of(new BigDecimal("12.345")));
+        assertEquals(-1235, MinorUnits.of(new BigDecimal("-12.345")));
+        assertEquals(8000, MinorUnits.of(new BigDecimal("80")));
+        assertEquals(0, MinorUnits.of(null));
+        assertEquals(new BigDecimal("80.00"), MinorUnits.toBigDecimal(8000));
+
+        assertThrows(ArithmeticException.class, () -> MinorUnits.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.of(new BigDecimal("1e30")));
+    }
+
+    private void assertSameAmount(BigDecimal expected, BigDecimal actual, String context) {
+        assertEquals(0, expected.compareTo(actual), context + ": atteso " + expected + ", ottenuto " + actual);
+    }
+
+    private RateCard randomCard(Random random) {
+        List<Season> seasons = new ArrayList<>();
+        List<SeasonalRate> rates = new ArrayList<>();
+        LocalDate start = LocalDate.of(2023, 12, 1);
+        int index = 0;
+        while (start.isBefore(LocalDate.of(2025, 2, 1))) {
+            LocalDate end = start.plusDays(random.nextInt(40));
+            String id = "S" + index++;
+            seasons.add(season(id, start.toString(), end.toString()));
+            rates.add(rate(id, amount(random, false), amount(random, true), amount(random, true), amount(random, true)));
+            start = end.plusDays(1);
+        }
+
+        CityTaxRule rule = cityTax(amount(random, true));
+        rule.setAmountPerChild(amount(random, true));
+        rule.setAmountPerInfant(amount(random, true));
+        rule.setMaxNightsCap(random.nextInt(10));
+        return RateCard.of(1, seasons, rates, rule);
+    }
+
+    // amounts expressed in cents with mixed scales: "80", "12.5", "33.25"
+    private String amountString(Random random) {
+        int cents = random.nextInt(20000);
+        return switch (random.nextInt(3)) {
+            case 0 -> String.valueOf(cents / 100);
+            case 1 -> BigDecimal.valueOf(cents / 10, 1).toPlainString();
+            default -> BigDecimal.valueOf(cents, 2).toPlainString();
+        };
+    }
+
+    private BigDecimal amount(Random random, boolean nullable) {
+        if (nullable && random.nextInt(4) == 0) {
+            return null;
+        }
+        return new BigDecimal(amountString(random));
+    }
+
+    private CityTaxRule cityTax(String amountPerAdult) {
+        return cityTax(new BigDecimal(amountPerAdult));
+    }
+
+    private CityTaxRule cityTax(BigDecimal amountPerAdult) {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(amountPerAdult);
+        return rule;
+    }
+
+    private Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private SeasonalRate rate(String seasonId, String base, String adult, String child, String infant) {
+        return rate(seasonId, new BigDecimal(base),
+                adult != null ? new BigDecimal(adult) : null,
+                child != null ? new BigDecimal(child) : null,
+                infant != null ? new BigDecimal(infant) : null);
+    }
+
+    private SeasonalRate rate(String seasonId, BigDecimal base, BigDecimal adult, BigDecimal child, BigDecimal infant) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + RESOURCE);
+        r.setSeasonId(seasonId);
+        r.setResourceId(RESOURCE);
+        r.setBasePrice(base);
+        r.setAdultPrice(adult);
+        r.setChildPrice(child);
+        r.setInfantPrice(infant);
+        return r;
+    }
+}
@@ -0,0 +1,268 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.dto.NightlyLines;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.pricing.engine.StaySegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PricingEngineSegmentTest {
+
+    private static final String RESOURCE = "ROOM-1";
+
+    private final PricingEngineService pricingEngineService = PricingFixtures.pricingEngine(mock(RateCardService.class));
+
+    @Test
+    @DisplayName("Segmenti: stagioni e partenze scalate producono run massimali")
+    void testSegmentBoundaries() {
+        RateCard card = RateCard.of(1,
+                List.of(season("LOW", "2024-01-01", "2024-01-12"), season("HIGH", "2024-01-13", "2024-01-31")),
+                List.of(rate("LOW", "50.00", "10.00", "5.00", null), rate("HIGH", "80.00", "20.00", "10.00", null)),
+                null);
+
+        PriceCalculationRequest req = request(LocalDate.of(2024, 1, 10), 5, List.of(
+                guest(GuestType.ADULT, 5),
+                guest(GuestType.ADULT, 4),
+                guest(GuestType.CHILD, 2)));
+
+        List<StaySegment> segments = pricingEngineService.segmentStay(req, card);
+
+        // 10-11 LOW (2A+1C), 12 LOW (2A), 13 HIGH (2A), 14 HIGH (1A)
+        assertEquals(4, segments.size());
+        assertSegment(segments.get(0), "2024-01-10", 2, "LOW", 2, 1);
+        assertSegment(segments.get(1), "2024-01-12", 1, "LOW", 2, 0);
+        assertSegment(segments.get(2), "2024-01-13", 1, "HIGH", 2, 0);
+        assertSegment(segments.get(3), "2024-01-14", 1, "HIGH", 1, 0);
+    }
+
+    @Test
+    @DisplayName("Segmenti: soggiorno lungo a ospiti costanti = un run per stagione")
+    void testLongStayCollapses() {
+        RateCard card = RateCard.of(1,
+                List.of(season("WINTER", "2024-01-01", "2024-03-31"), season("SPRING", "2024-04-01", "2024-06-30")),
+                List.of(rate("WINTER", "40.00", "5.00", null, null), rate("SPRING", "60.00", "5.00", null, null)),
+                null);
+
+        PriceCalculationRequest req = request(LocalDate.of(2024, 3, 1), 60, List.of(guest(GuestType.ADULT, 60)));
+
+        List<StaySegment> segments = pricingEngineService.segmentStay(req, card);
+
+        assertEquals(2, segments.size());
+        assertEquals(31, segments.get(0).getNights());
+        assertEquals(29, segments.get(1).getNights());
+    }
+
+    @Test
+    @DisplayName("Segmenti: importo identico al calcolo notte per notte su input casuali")
+    void testMatchesNightByNightReference() {
+        Random random = new Random(20240110L);
+
+        for (int iteration = 0; iteration < 500; iteration++) {
+            RateCard card = randomCard(random);
+            LocalDate checkIn = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(300));
+            int nights = 1 + random.nextInt(45);
+
+            List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>();
+            int guestCount = 1 + random.nextInt(8);
+            for (int g = 0; g < guestCount; g++) {
+                GuestType type = GuestType.values()[random.nextInt(3)];
+                guests.add(guest(type, random.nextInt(nights + 3) - 1));
+            }
+
+            PriceCalculationRequest req = request(checkIn, nights, guests);
+
+            BigDecimal expected = referenceBaseAmount(req, card);
+            BigDecimal actual = pricingEngineService.calculatePrice(req, card).getBaseAmount();
+
+            // exact equality, scale included
+            assertEquals(expected, actual, "Iterazione " + iteration + " checkIn " + checkIn + " notti " + nights);
+        }
+    }
+
+    @Test
+    @DisplayName("Segmenti: data scoperta segnalata come nel calcolo notte per notte")
+    void testUncoveredNightError() {
+        RateCard card = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-12")),
+                List.of(rate("JAN", "50.00", null, null, null)),
+                null);
+
+        PriceCalculationRequest req = request(LocalDate.of(2024, 1, 10), 5, List.of(guest(GuestType.ADULT, 5)));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> pricingEngineService.segmentStay(req, card));
+        assertEquals("Nessuna tariffa definita per il 2024-01-13", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Dettaglio notti: colonne coerenti con i segmenti e somma pari all'imponibile")
+    void testItemizedNightlyLines() {
+        RateCard card = RateCard.of(1,
+                List.of(season("LOW", "2024-01-01", "2024-01-12"), season("HIGH", "2024-01-13", "2024-01-31")),
+                List.of(rate("LOW", "50.00", "10.00", "5.00", null), rate("HIGH", "80.00", "20.00", "10.00", null)),
+                cityTax());
+        RateCardService rateCardService = mock(RateCardService.class);
+        when(rateCardService.current()).thenReturn(card);
+
+        PriceCalculationRequest req = request(LocalDate.of(2024, 1, 10), 5, List.of(
+                guest(GuestType.ADULT, 5),
+                guest(GuestType.ADULT, 4),
+                guest(GuestType.CHILD, 2)));
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PriceBreakdown breakdown = PricingFixtures.pricingEngine(rateCardService, fixedPoint).calculateItemizedPrice(req);
+            NightlyLines lines = breakdown.getNightlyLines();
+
+            assertEquals(LocalDate.of(2024, 1, 10), lines.getFirstNight());
+            assertEquals(List.of("LOW", "HIGH"), lines.getSeasonIds());
+            assertArrayEquals(new int[]{0, 0, 0, 1, 1}, lines.getSeason());
+            assertArrayEquals(new int[]{2, 2, 2, 2, 1}, lines.getAdults());
+            assertArrayEquals(new int[]{1, 1, 0, 0, 0}, lines.getChildren());
+            assertArrayEquals(new int[]{0, 0, 0, 0, 0}, lines.getInfants());
+            assertEquals(0, new BigDecimal("75.00").compareTo(lines.getAmounts()[0]));
+            assertEquals(0, new BigDecimal("100.00").compareTo(lines.getAmounts()[4]));
+
+            BigDecimal sum = Arrays.stream(lines.getAmounts()).reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(0, breakdown.getBaseAmount().compareTo(sum));
+        }
+
+        // the plain quote stays compact
+        assertNull(PricingFixtures.pricingEngine(rateCardService).calculatePrice(req, card).getNightlyLines());
+    }
+
+    // original night-by-night algorithm, kept as oracle
+    private BigDecimal referenceBaseAmount(PriceCalculationRequest request, RateCard card) {
+        BigDecimal baseAmount = BigDecimal.ZERO;
+        long totalNights = ChronoUnit.DAYS.between(request.getCheckIn(), request.getCheckOut());
+
+        for (int i = 0; i < totalNights; i++) {
+            LocalDate currentDate = request.getCheckIn().plusDays(i);
+            int night = i;
+
+            long activeAdults = request.getGuests().stream()
+                    .filter(g -> g.getType() == GuestType.ADULT && g.getDays() > night).count();
+            long activeChildren = request.getGuests().stream()
+                    .filter(g -> g.getType() == GuestType.CHILD && g.getDays() > night).count();
+            long activeInfants = request.getGuests().stream()
+                    .filter(g -> g.getType() == GuestType.INFANT && g.getDays() > night).count();
+
+            Season season = card.getSeasons().stream()
+                    .filter(s -> !currentDate.isBefore(s.getStartDate()) && !currentDate.isAfter(s.getEndDate()))
+                    .findFirst().orElseThrow();
+            SeasonalRate rate = card.findRate(season.getId(), request.getResourceId()).orElseThrow();
+
+            BigDecimal nightlyCost = rate.getBasePrice();
+            if (rate.getAdultPrice() != null) {
+                nightlyCost = nightlyCost.add(rate.getAdultPrice().multiply(BigDecimal.valueOf(activeAdults)));
+            }
+            if (rate.getChildPrice() != null) {
+                nightlyCost = nightlyCost.add(rate.getChildPrice().multiply(BigDecimal.valueOf(activeChildren)));
+            }
+            if (rate.getInfantPrice() != null && activeInfants > 0) {
+                nightlyCost = nightlyCost.add(rate.getInfantPrice().multiply(BigDecimal.valueOf(activeInfants)));
+            }
+            baseAmount = baseAmount.add(nightlyCost);
+        }
+        return baseAmount;
+    }
+
+    // contiguous seasons of random length covering the whole test window
+    private RateCard randomCard(Random random) {
+        List<Season> seasons = new ArrayList<>();
+        List<SeasonalRate> rates = new ArrayList<>();
+        LocalDate start = LocalDate.of(2023, 12, 1);
+        int index = 0;
+        while (start.isBefore(LocalDate.of(2025, 2, 1))) {
+            LocalDate end = start.plusDays(random.nextInt(40));
+            String id = "S" + index++;
+            seasons.add(season(id, start.toString(), end.toString()));
+            rates.add(rate(id,
+                    randomPrice(random, false),
+                    randomPrice(random, true),
+                    randomPrice(random, true),
+                    randomPrice(random, true)));
+            start = end.plusDays(1);
+        }
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(new BigDecimal("1.50"));
+        return RateCard.of(1, seasons, rates, rule);
+    }
+
+    private String randomPrice(Random random, boolean nullable) {
+        if (nullable && random.nextInt(4) == 0) {
+            return null;
+        }
+        // mixed scales on purpose: "80", "12.5", "33.25"
+        int cents = random.nextInt(20000);
+        return switch (random.nextInt(3)) {
+            case 0 -> String.valueOf(cents / 100);
+            case 1 -> BigDecimal.valueOf(cents / 10, 1).toPlainString();
+            default -> BigDecimal.valueOf(cents, 2).toPlainString();
+        };
+    }
+
+    private void assertSegment(StaySegment segment, String start, int nights, String seasonId, int adults, int children) {
+        assertEquals(LocalDate.parse(start), segment.getStartDate());
+        assertEquals(nights, segment.getNights());
+        assertEquals(seasonId, segment.getSeason().getId());
+        assertEquals(adults, segment.getAdults());
+        assertEquals(children, segment.getChildren());
+    }
+
+    private PriceCalculationRequest request(LocalDate checkIn, int nights, List<PriceCalculationRequest.GuestProfile> guests) {
+        return PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(checkIn)
+                .checkOut(checkIn.plusDays(nights))
+                .guests(guests)
+                .build();
+    }
+
+    private PriceCalculationRequest.GuestProfile guest(GuestType type, int days) {
+        return PriceCalculationRequest.GuestProfile.builder().type(type).days(days).build();
+    }
+
+    private CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+        return rule;
+    }
+
+    private Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private SeasonalRate rate(String seasonId, String base, String adult, String child, String infant) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + RESOURCE);
+        r.setSeasonId(seasonId);
+        r.setResourceId(RESOURCE);
+        r.setBasePrice(new BigDecimal(base));
+        r.setAdultPrice(adult != null ? new BigDecimal(adult) : null);
+        r.setChildPrice(child != null ? new BigDecimal(child) : null);
+        r.setInfantPrice(infant != null ? new BigDecimal(infant) : null);
+        return r;
+    }
+}
@@ -1,15 +1,14 @@
 package com.swam.pricing.service;
 
 import com.swam.pricing.domain.*;
-import com.swam.pricing.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
 import com.swam.pricing.repository.*;
 import com.swam.shared.dto.PriceBreakdown;
-import com.swam.shared.enums.GuestType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -18,7 +17,6 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.lenient;
@@ -31,7 +29,6 @@ class PricingEngineServiceTest {
     @Mock private SeasonalRateRepository rateRepository;
     @Mock private CityTaxRuleRepository taxRepository;
 
-    @InjectMocks
     private PricingEngineService pricingEngineService;
 
     private Season bassaStagione;
@@ -42,6 +39,8 @@ class PricingEngineServiceTest {
 
     @BeforeEach
     void setup() {
+        pricingEngineService = PricingFixtures.pricingEngine(PricingFixtures.rateCardService(seasonRepository, rateRepository, taxRepository));
+
         bassaStagione = new Season();
         bassaStagione.setId("LOW");
         bassaStagione.setStartDate(LocalDate.of(2024, 1, 1));
@@ -49,6 +48,7 @@ class PricingEngineServiceTest {
 
         tariffaBassa = new SeasonalRate();
         tariffaBassa.setSeasonId("LOW");
+        tariffaBassa.setResourceId("ROOM-101");
         tariffaBassa.setBasePrice(new BigDecimal("50.00"));
         tariffaBassa.setAdultPrice(BigDecimal.ZERO);
 
@@ -59,6 +59,7 @@ class PricingEngineServiceTest {
 
         tariffaAlta = new SeasonalRate();
         tariffaAlta.setSeasonId("HIGH");
+        tariffaAlta.setResourceId("ROOM-101");
         tariffaAlta.setBasePrice(new BigDecimal("100.00"));
         tariffaAlta.setAdultPrice(BigDecimal.ZERO);
 
@@ -80,8 +81,8 @@ class PricingEngineServiceTest {
         LocalDate checkIn = LocalDate.of(2024, 1, 10);
         LocalDate checkOut = LocalDate.of(2024, 1, 13); // 3 notti
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(bassaStagione));
-        when(rateRepository.findBySeasonIdAndResourceId("LOW", "ROOM-101")).thenReturn(Optional.of(tariffaBassa));
+        when(seasonRepository.findAll()).thenReturn(List.of(bassaStagione));
+        when(rateRepository.findAll()).thenReturn(List.of(tariffaBassa));
 
         // 2 Adulti per 3 notti
         List<PriceCalculationRequest.GuestProfile> guests = List.of(
@@ -110,11 +111,10 @@ class PricingEngineServiceTest {
         LocalDate checkIn = LocalDate.of(2024, 1, 14);
         LocalDate checkOut = LocalDate.of(2024, 1, 17); // 3 Notti
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut))
+        when(seasonRepository.findAll())
                 .thenReturn(Arrays.asList(bassaStagione, altaStagione));
 
-        when(rateRepository.findBySeasonIdAndResourceId("LOW", "ROOM-101")).thenReturn(Optional.of(tariffaBassa));
-        when(rateRepository.findBySeasonIdAndResourceId("HIGH", "ROOM-101")).thenReturn(Optional.of(tariffaAlta));
+        when(rateRepository.findAll()).thenReturn(Arrays.asList(tariffaBassa, tariffaAlta));
 
         List<PriceCalculationRequest.GuestProfile> guests = List.of(
                 createGuest(GuestType.ADULT, 3),
@@ -141,8 +141,8 @@ class PricingEngineServiceTest {
         LocalDate checkIn = LocalDate.of(2024, 1, 20);
         LocalDate checkOut = LocalDate.of(2024, 1, 21); // 1 Notte
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(altaStagione));
-        when(rateRepository.findBySeasonIdAndResourceId("HIGH", "ROOM-101")).thenReturn(Optional.of(tariffaAlta));
+        when(seasonRepository.findAll()).thenReturn(List.of(altaStagione));
+        when(rateRepository.findAll()).thenReturn(List.of(tariffaAlta));
 
         List<PriceCalculationRequest.BillableExtraItem> extras = new ArrayList<>();
         extras.add(new PriceCalculationRequest.BillableExtraItem(new BigDecimal("25.00"), 2));
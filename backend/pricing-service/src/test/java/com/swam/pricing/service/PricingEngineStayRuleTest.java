@@ -0,0 +1,178 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.dto.RestrictionCheckRequest;
+import com.swam.pricing.dto.RestrictionCheckResponse;
+import com.swam.pricing.engine.StayQuoteRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.pricing.engine.StayRuleType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PricingEngineStayRuleTest {
+
+    private final RateCardService rateCardService = mock(RateCardService.class);
+
+    private final RateCard card = RateCard.of(1,
+            List.of(season("JAN", "2024-01-01", "2024-01-31"), season("AUG", "2024-08-01", "2024-08-31")),
+            List.of(rate("JAN", "ROOM-1", "100.00"), rate("AUG", "ROOM-1", "100.00"), rate("AUG", "ROOM-2", "100.00")),
+            cityTax(),
+            List.of(uplift("WEEKEND", "15", DayOfWeek.FRIDAY, DayOfWeek.SATURDAY),
+                    losDiscount("WEEK", 7, "10"),
+                    minStay("AUG", null, 3),
+                    minStay("AUG-R2", "ROOM-2", 5)));
+
+    @Test
+    @DisplayName("Regole: maggiorazione del weekend per notte, uguale in BigDecimal e in centesimi")
+    void testWeekdayUplift() {
+        // Monday 8 to Sunday 14 January: Friday 12 and Saturday 13 are uplifted
+        PriceCalculationRequest request = request("ROOM-1", "2024-01-08", 6);
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService, fixedPoint);
+            PriceBreakdown quote = engine.calculatePrice(request, card);
+            assertAmount("630.00", quote.getBaseAmount());
+            // 6 nights, below the length-of-stay threshold
+            assertAmount("0", quote.getDiscountAmount());
+
+            when(rateCardService.current()).thenReturn(card);
+            BigDecimal[] nights = engine.calculateItemizedPrice(request).getNightlyLines().getAmounts();
+            assertAmount("100.00", nights[3]);
+            assertAmount("115.00", nights[4]);
+            assertAmount("115.00", nights[5]);
+        }
+    }
+
+    @Test
+    @DisplayName("Regole: sconto lunga permanenza sulla base maggiorata, sommato allo sconto manuale")
+    void testLengthOfStayDiscount() {
+        PriceCalculationRequest request = request("ROOM-1", "2024-01-08", 7);
+        request.setManualDiscount(new BigDecimal("5.00"));
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PriceBreakdown quote = PricingFixtures.pricingEngine(rateCardService, fixedPoint).calculatePrice(request, card);
+            assertAmount("730.00", quote.getBaseAmount());
+            // 10% of 730 + 5 manual
+            assertAmount("78.00", quote.getDiscountAmount());
+        }
+    }
+
+    @Test
+    @DisplayName("Regole: la base non dipende da come il soggiorno è diviso in segmenti")
+    void testUpliftIndependentOfSegments() {
+        PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService);
+        PriceCalculationRequest single = request("ROOM-1", "2024-01-08", 10);
+
+        StayQuoteRequest split = StayQuoteRequest.builder()
+                .segments(List.of(
+                        new StayQuoteRequest.Segment("ROOM-1", LocalDate.of(2024, 1, 8), LocalDate.of(2024, 1, 13)),
+                        new StayQuoteRequest.Segment("ROOM-1", LocalDate.of(2024, 1, 13), LocalDate.of(2024, 1, 18))))
+                .guests(single.getGuests())
+                .build();
+
+        BigDecimal base = engine.calculatePrice(single, card).getBaseAmount();
+        assertAmount("1030.00", base);
+        assertAmount(base.toPlainString(), engine.calculateStayPrice(split, card).getTotal().getBaseAmount());
+    }
+
+    @Test
+    @DisplayName("Regole: soggiorno minimo per check-in, la regola della risorsa più restrittiva vince")
+    void testCheckRestrictions() {
+        when(rateCardService.current()).thenReturn(card);
+        PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService);
+
+        RestrictionCheckResponse august = engine.checkRestrictions(new RestrictionCheckRequest(
+                LocalDate.of(2024, 8, 10), LocalDate.of(2024, 8, 14), List.of("ROOM-1", "ROOM-2")));
+        assertTrue(august.getResults().get(0).isAllowed());
+        assertEquals(3, august.getResults().get(0).getMinNights());
+        assertFalse(august.getResults().get(1).isAllowed());
+        assertEquals(5, august.getResults().get(1).getMinNights());
+
+        RestrictionCheckResponse january = engine.checkRestrictions(new RestrictionCheckRequest(
+                LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 11), List.of("ROOM-2")));
+        assertTrue(january.getResults().get(0).isAllowed());
+        assertNull(january.getResults().get(0).getMinNights());
+    }
+
+    private void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "atteso " + expected + ", ottenuto " + actual);
+    }
+
+    private PriceCalculationRequest request(String resourceId, String checkIn, int nights) {
+        LocalDate start = LocalDate.parse(checkIn);
+        return PriceCalculationRequest.builder()
+                .resourceId(resourceId)
+                .checkIn(start)
+                .checkOut(start.plusDays(nights))
+                .guests(List.of(PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(nights).build()))
+                .build();
+    }
+
+    private static StayRule uplift(String id, String percent, DayOfWeek... days) {
+        StayRule rule = rule(id, StayRuleType.WEEKDAY_UPLIFT);
+        rule.setDaysOfWeek(Set.of(days));
+        rule.setPercent(new BigDecimal(percent));
+        return rule;
+    }
+
+    private static StayRule losDiscount(String id, int minNights, String percent) {
+        StayRule rule = rule(id, StayRuleType.LENGTH_OF_STAY_DISCOUNT);
+        rule.setMinNights(minNights);
+        rule.setPercent(new BigDecimal(percent));
+        return rule;
+    }
+
+    private static StayRule minStay(String id, String resourceId, int minNights) {
+        StayRule rule = rule(id, StayRuleType.MIN_STAY);
+        rule.setResourceId(resourceId);
+        rule.setMinNights(minNights);
+        rule.setValidFrom(LocalDate.of(2024, 8, 1));
+        rule.setValidTo(LocalDate.of(2024, 8, 31));
+        return rule;
+    }
+
+    private static StayRule rule(String id, StayRuleType type) {
+        StayRule rule = new StayRule();
+        rule.setId(id);
+        rule.setName(id);
+        rule.setType(type);
+        return rule;
+    }
+
+    private static CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+        return rule;
+    }
+
+    private static Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private static SeasonalRate rate(String seasonId, String resourceId, String base) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + resourceId);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        return r;
+    }
+}
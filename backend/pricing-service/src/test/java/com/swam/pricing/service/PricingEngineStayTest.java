@@ -0,0 +1,140 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.QuoteBreakdown;
+import com.swam.pricing.engine.StayQuoteRequest;
+import com.swam.pricing.engine.StayQuoteResponse;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PricingEngineStayTest {
+
+    private final RateCardService rateCardService = mock(RateCardService.class);
+
+    private final RateCard card = RateCard.of(1,
+            List.of(season("LOW", "2024-01-01", "2024-01-31")),
+            List.of(rate("LOW", "ROOM-1", "50.00", "10.00"), rate("LOW", "ROOM-2", "80.00", "15.00")),
+            cityTax("2.00", 7));
+
+    @Test
+    @DisplayName("Soggiorno diviso: tetto della tassa applicato sull'intero soggiorno, subtotali per segmento")
+    void testTaxCapAcrossSegments() {
+        StayQuoteRequest request = stay(
+                List.of(segment("ROOM-1", "2024-01-10", "2024-01-15"), segment("ROOM-2", "2024-01-15", "2024-01-20")),
+                List.of(guest(GuestType.ADULT, 10), guest(GuestType.ADULT, 7)));
+        request.setExtras(List.of(new PriceCalculationRequest.BillableExtraItem(new BigDecimal("5.00"), 2)));
+        request.setDepositAmount(new BigDecimal("100.00"));
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            StayQuoteResponse quote = PricingFixtures.pricingEngine(rateCardService, fixedPoint).calculateStayPrice(request, card);
+            QuoteBreakdown total = quote.getTotal();
+
+            // 5 x (50 + 2x10) + 2 x (80 + 2x15) + 3 x (80 + 15)
+            assertAmount("350.00", quote.getSegments().get(0).getBaseAmount());
+            assertAmount("505.00", quote.getSegments().get(1).getBaseAmount());
+            assertAmount("855.00", total.getBaseAmount());
+
+            // 7 taxed nights per guest over the whole stay, not 5 + 5
+            assertAmount("28.00", total.getTaxAmount());
+            assertAmount("20.00", quote.getSegments().get(0).getTaxAmount());
+            assertAmount("8.00", quote.getSegments().get(1).getTaxAmount());
+
+            // extras and deposit counted once
+            assertAmount("10.00", total.getExtrasAmount());
+            assertAmount("793.00", total.getFinalTotal());
+            assertEquals(5, quote.getSegments().get(1).getNights());
+            assertEquals("ROOM-2", quote.getSegments().get(1).getResourceId());
+        }
+    }
+
+    @Test
+    @DisplayName("Soggiorno su una sola risorsa: stesso risultato del preventivo singolo")
+    void testSingleResourceMatchesSingleQuote() {
+        PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService);
+        List<PriceCalculationRequest.GuestProfile> guests = List.of(guest(GuestType.ADULT, 9), guest(GuestType.CHILD, 4));
+
+        StayQuoteResponse quote = engine.calculateStayPrice(stay(
+                List.of(segment("ROOM-1", "2024-01-01", "2024-01-04"), segment("ROOM-1", "2024-01-04", "2024-01-10")),
+                guests), card);
+
+        PriceBreakdown single = engine.calculatePrice(PriceCalculationRequest.builder()
+                .resourceId("ROOM-1")
+                .checkIn(LocalDate.of(2024, 1, 1))
+                .checkOut(LocalDate.of(2024, 1, 10))
+                .guests(guests)
+                .build(), card);
+
+        assertAmount(single.getBaseAmount().toPlainString(), quote.getTotal().getBaseAmount());
+        assertAmount(single.getTaxAmount().toPlainString(), quote.getTotal().getTaxAmount());
+        assertAmount(single.getFinalTotal().toPlainString(), quote.getTotal().getFinalTotal());
+        BigDecimal subtotalBase = quote.getSegments().get(0).getBaseAmount().add(quote.getSegments().get(1).getBaseAmount());
+        assertAmount(single.getBaseAmount().toPlainString(), subtotalBase);
+    }
+
+    @Test
+    @DisplayName("Soggiorno diviso: segmenti non contigui o vuoti rifiutati")
+    void testInvalidSegments() {
+        PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService);
+        List<PriceCalculationRequest.GuestProfile> guests = List.of(guest(GuestType.ADULT, 5));
+
+        assertThrows(InvalidPricingRequestException.class, () -> engine.calculateStayPrice(stay(
+                List.of(segment("ROOM-1", "2024-01-10", "2024-01-12"), segment("ROOM-2", "2024-01-13", "2024-01-15")),
+                guests), card));
+        assertThrows(InvalidPricingRequestException.class, () -> engine.calculateStayPrice(stay(
+                List.of(segment("ROOM-1", "2024-01-10", "2024-01-10")), guests), card));
+        assertThrows(InvalidPricingRequestException.class, () -> engine.calculateStayPrice(stay(List.of(), guests), card));
+    }
+
+    private void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "atteso " + expected + ", ottenuto " + actual);
+    }
+
+    private StayQuoteRequest stay(List<StayQuoteRequest.Segment> segments, List<PriceCalculationRequest.GuestProfile> guests) {
+        return StayQuoteRequest.builder().segments(segments).guests(guests).build();
+    }
+
+    private StayQuoteRequest.Segment segment(String resourceId, String checkIn, String checkOut) {
+        return new StayQuoteRequest.Segment(resourceId, LocalDate.parse(checkIn), LocalDate.parse(checkOut));
+    }
+
+    private PriceCalculationRequest.GuestProfile guest(GuestType type, int days) {
+        return PriceCalculationRequest.GuestProfile.builder().type(type).days(days).build();
+    }
+
+    private static CityTaxRule cityTax(String amountPerAdult, int cap) {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(cap);
+        rule.setAmountPerAdult(new BigDecimal(amountPerAdult));
+        return rule;
+    }
+
+    private static Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private static SeasonalRate rate(String seasonId, String resourceId, String base, String adult) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + resourceId);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        r.setAdultPrice(new BigDecimal(adult));
+        return r;
+    }
+}
@@ -1,22 +1,20 @@
 package com.swam.pricing.service;
 
 import com.swam.pricing.domain.*;
-import com.swam.pricing.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
 import com.swam.pricing.repository.*;
 import com.swam.shared.dto.PriceBreakdown;
-import com.swam.shared.enums.GuestType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.when;
@@ -28,7 +26,6 @@ class PricingEngineTaxTest {
     @Mock private SeasonalRateRepository rateRepository;
     @Mock private CityTaxRuleRepository taxRepository;
 
-    @InjectMocks
     private PricingEngineService pricingEngineService;
 
     private CityTaxRule taxRule;
@@ -37,6 +34,8 @@ class PricingEngineTaxTest {
 
     @BeforeEach
     void setup() {
+        pricingEngineService = PricingFixtures.pricingEngine(PricingFixtures.rateCardService(seasonRepository, rateRepository, taxRepository));
+
         LocalDate now = LocalDate.now();
         season = new Season();
         season.setId("S1");
@@ -45,6 +44,7 @@ class PricingEngineTaxTest {
 
         rate = new SeasonalRate();
         rate.setSeasonId("S1");
+        rate.setResourceId("ROOM-1");
         rate.setBasePrice(new BigDecimal("100.00"));
 
         taxRule = new CityTaxRule();
@@ -63,8 +63,8 @@ class PricingEngineTaxTest {
         LocalDate checkIn = LocalDate.now();
         LocalDate checkOut = checkIn.plusDays(3); // 3 Notti
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(season));
-        when(rateRepository.findBySeasonIdAndResourceId("S1", "ROOM-1")).thenReturn(Optional.of(rate));
+        when(seasonRepository.findAll()).thenReturn(List.of(season));
+        when(rateRepository.findAll()).thenReturn(List.of(rate));
         when(taxRepository.findAll()).thenReturn(List.of(taxRule));
 
         // Creiamo la lista mista
@@ -102,8 +102,8 @@ class PricingEngineTaxTest {
         LocalDate checkIn = LocalDate.now();
         LocalDate checkOut = checkIn.plusDays(2);
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(List.of(season));
-        when(rateRepository.findBySeasonIdAndResourceId("S1", "ROOM-1")).thenReturn(Optional.of(rate));
+        when(seasonRepository.findAll()).thenReturn(List.of(season));
+        when(rateRepository.findAll()).thenReturn(List.of(rate));
         when(taxRepository.findAll()).thenReturn(List.of(taxRule));
 
         List<PriceCalculationRequest.GuestProfile> guests = List.of(
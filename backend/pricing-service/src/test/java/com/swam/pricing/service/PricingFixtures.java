@@ -0,0 +1,44 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.client.ResourceDirectoryClient;
+import com.swam.pricing.repository.CityTaxRuleRepository;
+import com.swam.pricing.repository.SeasonRepository;
+import com.swam.pricing.repository.SeasonalRateRepository;
+import com.swam.pricing.repository.StayRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+
+// services wired like in production, with the quote cache, occupancy pricing and stay rules switched off
+final class PricingFixtures {
+
+    private PricingFixtures() {
+    }
+
+    static PricingEngineService pricingEngine(RateCardService rateCardService) {
+        return pricingEngine(rateCardService, false);
+    }
+
+    static PricingEngineService pricingEngine(RateCardService rateCardService, boolean fixedPoint) {
+        return new PricingEngineService(rateCardService, noQuoteCache(), noOccupancy(), fixedPoint);
+    }
+
+    static RateCardService rateCardService(SeasonRepository seasonRepository,
+                                           SeasonalRateRepository rateRepository,
+                                           CityTaxRuleRepository taxRepository) {
+        return new RateCardService(seasonRepository, rateRepository, taxRepository, mock(StayRuleRepository.class),
+                List.of(), noOccupancy(), Duration.ofHours(24), 1000);
+    }
+
+    static QuoteCache noQuoteCache() {
+        return new QuoteCache(false, 1, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    static OccupancyService noOccupancy() {
+        return new OccupancyService(mock(BookingExportClient.class), mock(ResourceDirectoryClient.class), false, "");
+    }
+}
@@ -1,22 +1,46 @@
 package com.swam.pricing.service;
 
+import com.swam.pricing.domain.CityTaxRule;
+import com.swam.pricing.domain.RateCard;
 import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.domain.StayRule;
+import com.swam.pricing.dto.AdjustRatesRequest;
+import com.swam.pricing.dto.BulkRateOperationResult;
+import com.swam.pricing.dto.CityTaxConfig;
+import com.swam.pricing.dto.CloneSeasonRatesRequest;
 import com.swam.pricing.dto.CreateSeasonRequest;
+import com.swam.pricing.dto.SetRateRequest;
+import com.swam.pricing.repository.CityTaxRuleRepository;
 import com.swam.pricing.repository.SeasonRepository;
+import com.swam.pricing.repository.SeasonalRateRepository;
+import com.swam.pricing.repository.StayRuleRepository;
 import com.swam.shared.exceptions.InvalidBookingDateException;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import com.swam.shared.exceptions.ResourceNotFoundException;
+import com.swam.pricing.engine.StayRuleType;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,9 +49,26 @@ class PricingManagementServiceTest {
     @Mock
     private SeasonRepository seasonRepository;
 
+    @Mock
+    private SeasonalRateRepository rateRepository;
+
+    @Mock
+    private StayRuleRepository stayRuleRepository;
+
+    @Mock
+    private CityTaxRuleRepository taxRepository;
+
+    @Mock
+    private RateCardService rateCardService;
+
     @InjectMocks
     private PricingManagementService managementService;
 
+    @BeforeEach
+    void writesRunInline() {
+        lenient().when(rateCardService.write(any())).thenAnswer(inv -> inv.<Supplier<?>>getArgument(0).get());
+    }
+
     @Test
     @DisplayName("Errore se Data Inizio dopo Data Fine")
     void testCreateSeason_InvalidDates() {
@@ -89,6 +130,119 @@ class PricingManagementServiceTest {
 
         assertNotNull(result);
         assertEquals("Nuova Stagione", result.getName());
+        verify(rateCardService).seasonSaved(result);
         System.out.println("Stagione creata correttamente: " + result.getName());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Clonazione stagione: una sola operazione bulk e un solo reload")
+    void testCloneSeasonRates() {
+        CloneSeasonRatesRequest req = new CloneSeasonRatesRequest();
+        req.setSourceSeasonId("S2024");
+        req.setTargetSeasonId("S2025");
+        req.setResourceIds(List.of("ROOM-1", "ROOM-2"));
+
+        when(seasonRepository.existsById(anyString())).thenReturn(true);
+        when(rateRepository.cloneSeasonRates("S2024", "S2025", List.of("ROOM-1", "ROOM-2"))).thenReturn(2L);
+        when(rateCardService.reload()).thenReturn(RateCard.of(8, List.of(), List.of(), null));
+
+        BulkRateOperationResult result = managementService.cloneSeasonRates(req);
+
+        assertEquals(2, result.getAffectedRates());
+        assertEquals(8, result.getRateCardVersion());
+        verify(rateCardService, times(1)).reload();
+        verify(rateCardService, never()).rateSaved(any());
+    }
+
+    @Test
+    @DisplayName("Operazioni bulk: stagione inesistente o percentuale non valida rifiutate")
+    void testBulkOperationsValidation() {
+        CloneSeasonRatesRequest clone = new CloneSeasonRatesRequest();
+        clone.setSourceSeasonId("S2024");
+        clone.setTargetSeasonId("MISSING");
+        when(seasonRepository.existsById("S2024")).thenReturn(true);
+        when(seasonRepository.existsById("MISSING")).thenReturn(false);
+        assertThrows(ResourceNotFoundException.class, () -> managementService.cloneSeasonRates(clone));
+
+        AdjustRatesRequest adjust = new AdjustRatesRequest();
+        adjust.setPercent(new BigDecimal("-100"));
+        assertThrows(InvalidPricingRequestException.class, () -> managementService.adjustRates(adjust));
+
+        verifyNoInteractions(rateRepository);
+        verify(rateCardService, never()).reload();
+    }
+
+    @Test
+    @DisplayName("setRate concorrente: su chiave duplicata aggiorna la tariffa inserita per prima")
+    void testSetRate_DuplicateKeyUpdatesWinner() {
+        SetRateRequest req = new SetRateRequest();
+        req.setSeasonId("S1");
+        req.setResourceId("ROOM-1");
+        req.setBasePrice(new BigDecimal("90.00"));
+
+        SeasonalRate winner = new SeasonalRate();
+        winner.setId("r1");
+        winner.setSeasonId("S1");
+        winner.setResourceId("ROOM-1");
+        winner.setBasePrice(new BigDecimal("80.00"));
+
+        when(rateRepository.findBySeasonIdAndResourceId("S1", "ROOM-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(rateRepository.save(any(SeasonalRate.class)))
+                .thenThrow(new DuplicateKeyException("E11000"))
+                .thenAnswer(i -> i.getArguments()[0]);
+
+        SeasonalRate saved = managementService.setRate(req);
+
+        assertEquals("r1", saved.getId());
+        assertEquals(new BigDecimal("90.00"), saved.getBasePrice());
+        verify(rateCardService).rateSaved(saved);
+    }
+
+    @Test
+    @DisplayName("Regole di soggiorno: salvate e ripubblicate con il listino, incomplete rifiutate")
+    void testSaveStayRule() {
+        StayRule uplift = new StayRule();
+        uplift.setType(StayRuleType.WEEKDAY_UPLIFT);
+        uplift.setDaysOfWeek(Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+        uplift.setPercent(new BigDecimal("15"));
+        when(stayRuleRepository.save(uplift)).thenReturn(uplift);
+
+        assertSame(uplift, managementService.saveStayRule(uplift));
+        verify(rateCardService).stayRuleSaved(uplift);
+
+        StayRule noNights = new StayRule();
+        noNights.setType(StayRuleType.MIN_STAY);
+        assertThrows(InvalidPricingRequestException.class, () -> managementService.saveStayRule(noNights));
+
+        StayRule tooMuch = new StayRule();
+        tooMuch.setType(StayRuleType.LENGTH_OF_STAY_DISCOUNT);
+        tooMuch.setMinNights(7);
+        tooMuch.setPercent(new BigDecimal("120"));
+        assertThrows(InvalidPricingRequestException.class, () -> managementService.saveStayRule(tooMuch));
+
+        verify(stayRuleRepository, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("Tassa di soggiorno: upsert sull'id fisso, mai un momento senza regola")
+    void testUpdateCityTax_UpsertOnFixedId() {
+        CityTaxConfig config = new CityTaxConfig();
+        config.setEnabled(true);
+        config.setAmountPerAdult(new BigDecimal("3.00"));
+        config.setMaxNightsCap(5);
+        when(taxRepository.save(any(CityTaxRule.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CityTaxRule saved = managementService.updateCityTax(config);
+
+        assertEquals(CityTaxRule.SINGLETON_ID, saved.getId());
+        assertEquals(new BigDecimal("3.00"), saved.getAmountPerAdult());
+        // the snapshot is swapped before the legacy documents are removed, never deleteAll
+        InOrder order = inOrder(taxRepository, rateCardService);
+        order.verify(taxRepository).save(saved);
+        order.verify(rateCardService).cityTaxSaved(saved);
+        order.verify(taxRepository).deleteByIdNot(CityTaxRule.SINGLETON_ID);
+        verify(taxRepository, never()).deleteAll();
+    }
+}
@@ -3,16 +3,16 @@ package com.swam.pricing.service;
 import com.swam.pricing.domain.CityTaxRule;
 import com.swam.pricing.domain.Season;
 import com.swam.pricing.domain.SeasonalRate;
-import com.swam.pricing.dto.PriceCalculationRequest;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
 import com.swam.pricing.repository.CityTaxRuleRepository;
 import com.swam.pricing.repository.SeasonRepository;
 import com.swam.pricing.repository.SeasonalRateRepository;
 import com.swam.shared.dto.PriceBreakdown;
-import com.swam.shared.enums.GuestType;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -20,7 +20,6 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.lenient;
@@ -33,9 +32,13 @@ class PricingTestComplexScenario {
     @Mock private SeasonalRateRepository rateRepository;
     @Mock private CityTaxRuleRepository taxRepository;
 
-    @InjectMocks
     private PricingEngineService pricingEngineService;
 
+    @BeforeEach
+    void setup() {
+        pricingEngineService = PricingFixtures.pricingEngine(PricingFixtures.rateCardService(seasonRepository, rateRepository, taxRepository));
+    }
+
     @Test
     @DisplayName("Scenario Complesso: Partenze Multiple Scalate + Prezzi Dinamici per Persona")
     void testStaggeredDeparturesWithDynamicPricing() {
@@ -55,6 +58,7 @@ class PricingTestComplexScenario {
         // Tariffa Bassa: Base 50€ + 10€ per Adulto + 5€ per Bambino
         SeasonalRate rateBassa = new SeasonalRate();
         rateBassa.setSeasonId("LOW");
+        rateBassa.setResourceId("ROOM-101");
         rateBassa.setBasePrice(new BigDecimal("50.00"));
         rateBassa.setAdultPrice(new BigDecimal("10.00"));
         rateBassa.setChildPrice(new BigDecimal("5.00"));
@@ -62,13 +66,13 @@ class PricingTestComplexScenario {
         // Tariffa Alta: Base 80€ + 20€ per Adulto + 10€ per Bambino
         SeasonalRate rateAlta = new SeasonalRate();
         rateAlta.setSeasonId("HIGH");
+        rateAlta.setResourceId("ROOM-101");
         rateAlta.setBasePrice(new BigDecimal("80.00"));
         rateAlta.setAdultPrice(new BigDecimal("20.00"));
         rateAlta.setChildPrice(new BigDecimal("10.00"));
 
-        when(seasonRepository.findSeasonsInInterval(checkIn, checkOut)).thenReturn(Arrays.asList(bassa, alta));
-        when(rateRepository.findBySeasonIdAndResourceId("LOW", "ROOM-101")).thenReturn(Optional.of(rateBassa));
-        when(rateRepository.findBySeasonIdAndResourceId("HIGH", "ROOM-101")).thenReturn(Optional.of(rateAlta));
+        when(seasonRepository.findAll()).thenReturn(Arrays.asList(bassa, alta));
+        when(rateRepository.findAll()).thenReturn(Arrays.asList(rateBassa, rateAlta));
 
         // 4. MOCK TASSA
         CityTaxRule taxRule = new CityTaxRule();
@@ -0,0 +1,169 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuoteCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QuoteCache quoteCache;
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        quoteCache = new QuoteCache(true, 100, Duration.ofMinutes(10), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Equivalent requests hit the cache regardless of guest order and exemption motivation")
+    void testCanonicalHit() {
+        RateCard card = RateCard.of(3, List.of(), List.of(), null);
+
+        PriceCalculationRequest first = request("ROOM-1",
+                guest(GuestType.ADULT, 3, true, "Residente"),
+                guest(GuestType.CHILD, 2, false, null));
+        PriceCalculationRequest second = request("ROOM-1",
+                guest(GuestType.CHILD, 2, false, null),
+                guest(GuestType.ADULT, 3, true, "residente "));
+
+        PriceBreakdown a = quoteCache.get(first, card, 0, this::compute);
+        PriceBreakdown b = quoteCache.get(second, card, 0, this::compute);
+
+        assertEquals(a, b);
+        assertEquals(1, computations.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", QuoteCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", QuoteCache.CACHE_NAME).tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Callers get a copy: changing a returned breakdown does not change the cached one")
+    void testReturnsCopies() {
+        RateCard card = RateCard.of(3, List.of(), List.of(), null);
+        PriceCalculationRequest req = request("ROOM-1", guest(GuestType.ADULT, 3, false, null));
+
+        PriceBreakdown first = quoteCache.get(req, card, 0, this::compute);
+        first.setQuoteToken("token-of-the-first-caller");
+        first.setFinalTotal(BigDecimal.ZERO);
+        PriceBreakdown second = quoteCache.get(req, card, 0, this::compute);
+
+        assertNotSame(first, second);
+        assertNull(second.getQuoteToken());
+        assertNotEquals(0, BigDecimal.ZERO.compareTo(second.getFinalTotal()));
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    @DisplayName("Different priced inputs produce different keys")
+    void testDistinctRequestsMiss() {
+        RateCard card = RateCard.of(3, List.of(), List.of(), null);
+
+        quoteCache.get(request("ROOM-1", guest(GuestType.ADULT, 3, false, null)), card, 0, this::compute);
+        quoteCache.get(request("ROOM-2", guest(GuestType.ADULT, 3, false, null)), card, 0, this::compute);
+        quoteCache.get(request("ROOM-1", guest(GuestType.ADULT, 3, true, null)), card, 0, this::compute);
+
+        PriceCalculationRequest withExtra = request("ROOM-1", guest(GuestType.ADULT, 3, false, null));
+        withExtra.setExtras(List.of(new PriceCalculationRequest.BillableExtraItem(new BigDecimal("5.00"), 1)));
+        quoteCache.get(withExtra, card, 0, this::compute);
+
+        assertEquals(4, computations.get());
+    }
+
+    @Test
+    @DisplayName("A new occupancy version misses on the same rate card")
+    void testOccupancyVersionMisses() {
+        RateCard card = RateCard.of(3, List.of(), List.of(), null);
+        PriceCalculationRequest req = request("ROOM-1", guest(GuestType.ADULT, 3, false, null));
+
+        quoteCache.get(req, card, 7, this::compute);
+        quoteCache.get(req, card, 7, this::compute);
+        quoteCache.get(req, card, 8, this::compute);
+
+        assertEquals(2, computations.get());
+    }
+
+    @Test
+    @DisplayName("A new rate card version misses and drops the entries of older versions")
+    void testVersionChangeInvalidates() {
+        PriceCalculationRequest req = request("ROOM-1", guest(GuestType.ADULT, 3, false, null));
+
+        quoteCache.get(req, RateCard.of(1, List.of(), List.of(), null), 0, this::compute);
+        quoteCache.get(request("ROOM-2", guest(GuestType.ADULT, 1, false, null)), RateCard.of(1, List.of(), List.of(), null), 0, this::compute);
+        assertEquals(2, quoteCache.size());
+
+        quoteCache.get(req, RateCard.of(2, List.of(), List.of(), null), 0, this::compute);
+
+        assertEquals(3, computations.get());
+        assertEquals(1, quoteCache.size());
+    }
+
+    @Test
+    @DisplayName("Size bound evicts entries and failures are never cached")
+    void testEvictionAndFailures() {
+        SimpleMeterRegistry smallRegistry = new SimpleMeterRegistry();
+        QuoteCache small = new QuoteCache(true, 2, Duration.ofMinutes(10), smallRegistry);
+        RateCard card = RateCard.of(1, List.of(), List.of(), null);
+
+        for (int i = 0; i < 10; i++) {
+            small.get(request("ROOM-" + i, guest(GuestType.ADULT, 1, false, null)), card, 0, this::compute);
+        }
+        assertTrue(small.size() <= 2);
+        assertTrue(smallRegistry.get("cache.evictions").tag("cache", QuoteCache.CACHE_NAME)
+                .functionCounters().stream().anyMatch(c -> c.count() > 0));
+
+        PriceCalculationRequest failing = request("ROOM-X", guest(GuestType.ADULT, 1, false, null));
+        assertThrows(IllegalStateException.class, () -> small.get(failing, card, 0, () -> {
+            throw new IllegalStateException("boom");
+        }));
+        small.get(failing, card, 0, this::compute);
+        assertEquals(11, computations.get());
+    }
+
+    @Test
+    @DisplayName("Disabled cache always computes")
+    void testDisabled() {
+        QuoteCache disabled = new QuoteCache(false, 100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+        RateCard card = RateCard.of(1, List.of(), List.of(), null);
+        PriceCalculationRequest req = request("ROOM-1", guest(GuestType.ADULT, 1, false, null));
+
+        disabled.get(req, card, 0, this::compute);
+        disabled.get(req, card, 0, this::compute);
+
+        assertEquals(2, computations.get());
+    }
+
+    private PriceBreakdown compute() {
+        computations.incrementAndGet();
+        return PriceBreakdown.builder().finalTotal(BigDecimal.TEN).build();
+    }
+
+    private PriceCalculationRequest request(String resourceId, PriceCalculationRequest.GuestProfile... guests) {
+        return PriceCalculationRequest.builder()
+                .resourceId(resourceId)
+                .checkIn(LocalDate.of(2024, 1, 10))
+                .checkOut(LocalDate.of(2024, 1, 13))
+                .guests(List.of(guests))
+                .build();
+    }
+
+    private PriceCalculationRequest.GuestProfile guest(GuestType type, int days, boolean exempt, String motivation) {
+        return PriceCalculationRequest.GuestProfile.builder()
+                .type(type).days(days).taxExempt(exempt).taxExemptMotivation(motivation).build();
+    }
+}
@@ -0,0 +1,199 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.dto.RequoteRequest;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class QuoteTokenServiceTest {
+
+    private static final String RESOURCE = "ROOM-1";
+
+    private final RateCardService rateCardService = mock(RateCardService.class);
+
+    @Test
+    @DisplayName("Re-quote: extending and shortening matches a full recompute")
+    void testIncrementalMatchesFullQuote() {
+        Random random = new Random(7L);
+        RateCard card = randomCard(random, 1);
+        when(rateCardService.current()).thenReturn(card);
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PricingEngineService engine = PricingFixtures.pricingEngine(rateCardService, fixedPoint);
+            QuoteTokenService tokens = new QuoteTokenService(engine, rateCardService, 100, Duration.ofHours(1));
+
+            for (int iteration = 0; iteration < 200; iteration++) {
+                PriceCalculationRequest request = randomRequest(random);
+                PriceBreakdown quote = tokens.quote(request);
+                PriceCalculationRequest current = request;
+
+                // a few moves in a row, each one starting from the previous token
+                for (int move = 0; move < 4; move++) {
+                    LocalDate newCheckOut = current.getCheckOut().plusDays(random.nextInt(11) - 4);
+                    if (!newCheckOut.isAfter(current.getCheckIn())) {
+                        continue;
+                    }
+                    quote = tokens.requote(new RequoteRequest(quote.getQuoteToken(), newCheckOut));
+                    current = QuoteTokenService.moveCheckOut(current, newCheckOut);
+
+                    PriceBreakdown expected = engine.calculatePrice(current, card);
+                    String context = "Iterazione " + iteration + " spostamento " + move;
+                    assertAmount(expected.getBaseAmount(), quote.getBaseAmount(), context);
+                    assertAmount(expected.getTaxAmount(), quote.getTaxAmount(), context);
+                    assertAmount(expected.getFinalTotal(), quote.getFinalTotal(), context);
+                    assertNotNull(quote.getQuoteToken());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Re-quote: a newer rate card version means a full recompute")
+    void testVersionChangeFallsBack() {
+        RateCard v1 = RateCard.of(1, List.of(season("S", "2024-01-01", "2024-12-31")), List.of(rate("S", "50.00")), cityTax());
+        RateCard v2 = v1.withRate(rate("S", "70.00"));
+        PricingEngineService engine = spy(PricingFixtures.pricingEngine(rateCardService));
+        QuoteTokenService tokens = new QuoteTokenService(engine, rateCardService, 100, Duration.ofHours(1));
+
+        when(rateCardService.current()).thenReturn(v1);
+        PriceBreakdown quote = tokens.quote(request(LocalDate.of(2024, 3, 1), 4, guest(4)));
+
+        when(rateCardService.current()).thenReturn(v2);
+        PriceBreakdown requoted = tokens.requote(new RequoteRequest(quote.getQuoteToken(), LocalDate.of(2024, 3, 7)));
+
+        assertAmount(new BigDecimal("420.00"), requoted.getBaseAmount(), "6 notti a 70");
+        assertEquals(2L, requoted.getRateCardVersion());
+        verify(engine, never()).calculateMovedCheckOut(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Re-quote: a night moved to another occupancy tier means a full recompute")
+    void testOccupancyChangeFallsBack() {
+        RateCard card = RateCard.of(1, List.of(season("S", "2024-01-01", "2024-12-31")), List.of(rate("S", "50.00")), cityTax());
+        when(rateCardService.current()).thenReturn(card);
+        PricingEngineService engine = spy(PricingFixtures.pricingEngine(rateCardService));
+        QuoteTokenService tokens = new QuoteTokenService(engine, rateCardService, 100, Duration.ofHours(1));
+
+        doReturn(3L).when(engine).occupancyVersion();
+        PriceBreakdown quote = tokens.quote(request(LocalDate.of(2024, 3, 1), 4, guest(4)));
+        PriceBreakdown moved = tokens.requote(new RequoteRequest(quote.getQuoteToken(), LocalDate.of(2024, 3, 6)));
+        verify(engine, times(1)).calculateMovedCheckOut(any(), any(), any(), any());
+
+        // same rate card, but the occupancy counters moved since the last quote
+        doReturn(4L).when(engine).occupancyVersion();
+        PriceBreakdown requoted = tokens.requote(new RequoteRequest(moved.getQuoteToken(), LocalDate.of(2024, 3, 7)));
+
+        assertAmount(new BigDecimal("300.00"), requoted.getBaseAmount(), "6 notti a 50");
+        verify(engine, times(1)).calculateMovedCheckOut(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Re-quote: unknown token or check-out before check-in are rejected")
+    void testInvalidRequests() {
+        RateCard card = RateCard.of(1, List.of(season("S", "2024-01-01", "2024-12-31")), List.of(rate("S", "50.00")), cityTax());
+        when(rateCardService.current()).thenReturn(card);
+        QuoteTokenService tokens = new QuoteTokenService(PricingFixtures.pricingEngine(rateCardService), rateCardService, 100, Duration.ofHours(1));
+
+        assertThrows(InvalidPricingRequestException.class,
+                () -> tokens.requote(new RequoteRequest("missing", LocalDate.of(2024, 3, 7))));
+
+        PriceBreakdown quote = tokens.quote(request(LocalDate.of(2024, 3, 1), 4, guest(4)));
+        assertThrows(InvalidPricingRequestException.class,
+                () -> tokens.requote(new RequoteRequest(quote.getQuoteToken(), LocalDate.of(2024, 3, 1))));
+    }
+
+    private void assertAmount(BigDecimal expected, BigDecimal actual, String context) {
+        assertEquals(0, expected.compareTo(actual), context + ": atteso " + expected + ", ottenuto " + actual);
+    }
+
+    private PriceCalculationRequest randomRequest(Random random) {
+        LocalDate checkIn = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(200));
+        int nights = 1 + random.nextInt(60);
+        List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>();
+        for (int g = 1 + random.nextInt(4); g > 0; g--) {
+            guests.add(PriceCalculationRequest.GuestProfile.builder()
+                    .type(GuestType.values()[random.nextInt(3)])
+                    .taxExempt(random.nextInt(5) == 0)
+                    .days(random.nextBoolean() ? nights : 1 + random.nextInt(nights))
+                    .build());
+        }
+        return PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(checkIn)
+                .checkOut(checkIn.plusDays(nights))
+                .guests(guests)
+                .depositAmount(new BigDecimal("50.00"))
+                .build();
+    }
+
+    private PriceCalculationRequest request(LocalDate checkIn, int nights, PriceCalculationRequest.GuestProfile... guests) {
+        return PriceCalculationRequest.builder()
+                .resourceId(RESOURCE)
+                .checkIn(checkIn)
+                .checkOut(checkIn.plusDays(nights))
+                .guests(List.of(guests))
+                .build();
+    }
+
+    private PriceCalculationRequest.GuestProfile guest(int days) {
+        return PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(days).build();
+    }
+
+    private RateCard randomCard(Random random, long version) {
+        List<Season> seasons = new ArrayList<>();
+        List<SeasonalRate> rates = new ArrayList<>();
+        LocalDate start = LocalDate.of(2023, 12, 1);
+        int index = 0;
+        while (start.isBefore(LocalDate.of(2025, 3, 1))) {
+            LocalDate end = start.plusDays(random.nextInt(30));
+            String id = "S" + index++;
+            seasons.add(season(id, start.toString(), end.toString()));
+            SeasonalRate rate = rate(id, BigDecimal.valueOf(random.nextInt(20000), 2).toPlainString());
+            rate.setAdultPrice(BigDecimal.valueOf(random.nextInt(3000), 2));
+            rate.setChildPrice(BigDecimal.valueOf(random.nextInt(2000), 2));
+            rates.add(rate);
+            start = end.plusDays(1);
+        }
+        return RateCard.of(version, seasons, rates, cityTax());
+    }
+
+    private CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(new BigDecimal("2.50"));
+        rule.setAmountPerChild(new BigDecimal("1.00"));
+        return rule;
+    }
+
+    private Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private SeasonalRate rate(String seasonId, String base) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + RESOURCE);
+        r.setSeasonId(seasonId);
+        r.setResourceId(RESOURCE);
+        r.setBasePrice(new BigDecimal(base));
+        return r;
+    }
+}
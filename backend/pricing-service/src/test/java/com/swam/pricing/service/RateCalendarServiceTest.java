@@ -0,0 +1,221 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.RateCalendarEntry;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.repository.RateCalendarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateCalendarServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 15);
+
+    @Mock
+    private RateCalendarRepository calendarRepository;
+
+    private RateCalendarService calendarService;
+    private final List<RateCalendarEntry> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        Clock clock = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        calendarService = new RateCalendarService(calendarRepository, true, 3, Runnable::run, clock);
+        lenient().doAnswer(invocation -> {
+            inserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(calendarRepository).upsertAll(anyList());
+    }
+
+    @Test
+    @DisplayName("First snapshot rebuilds the window from today, past nights excluded")
+    void testInitialRebuild() {
+        RateCard card = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31"), season("FEB", "2024-02-01", "2024-02-29")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00"), rate("R2", "FEB", "ROOM-1", "60.00"), rate("R3", "JAN", "ROOM-2", "70.00")),
+                null);
+
+        calendarService.rateCardChanged(null, card);
+
+        // the nights of older generations are only dropped once the new ones are written
+        InOrder order = inOrder(calendarRepository);
+        order.verify(calendarRepository).upsertAll(anyList());
+        order.verify(calendarRepository).deleteNotWrittenBy(inserted.get(0).getGeneration());
+        verify(calendarRepository, never()).deleteAll();
+        assertTrue(inserted.stream().allMatch(e -> e.getGeneration().equals(inserted.get(0).getGeneration())));
+        // ROOM-1: 17 nights of January from the 15th + 29 of February, ROOM-2: 17 of January
+        assertEquals(17 + 29 + 17, inserted.size());
+        assertTrue(inserted.stream().noneMatch(e -> e.getDate().isBefore(TODAY)));
+        RateCalendarEntry feb = inserted.stream()
+                .filter(e -> e.getResourceId().equals("ROOM-1") && e.getDate().equals(LocalDate.of(2024, 2, 10)))
+                .findFirst().orElseThrow();
+        assertEquals("FEB", feb.getSeasonId());
+        assertEquals(new BigDecimal("60.00"), feb.getBasePrice());
+    }
+
+    @Test
+    @DisplayName("A rate change rewrites only its resource over its season range")
+    void testRateChangeIsIncremental() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31"), season("FEB", "2024-02-01", "2024-02-29")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00"), rate("R2", "FEB", "ROOM-1", "60.00"), rate("R3", "FEB", "ROOM-2", "70.00")),
+                null);
+        calendarService.rateCardChanged(null, v1);
+        inserted.clear();
+
+        RateCard v2 = v1.withRate(rate("R2", "FEB", "ROOM-1", "65.00"));
+        calendarService.rateCardChanged(v1, v2);
+
+        verify(calendarRepository).deleteRangeNotWrittenBy(eq("ROOM-1"), eq(LocalDate.of(2024, 2, 1)), eq(LocalDate.of(2024, 2, 29)), anyString());
+        verify(calendarRepository, never()).deleteRangeNotWrittenBy(eq("ROOM-2"), any(), any(), any());
+        assertEquals(29, inserted.size());
+        assertTrue(inserted.stream().allMatch(e -> e.getBasePrice().equals(new BigDecimal("65.00"))));
+    }
+
+    @Test
+    @DisplayName("Moving a season rewrites old and new dates for every resource priced in it")
+    void testSeasonMove() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31"), season("SKI", "2024-02-01", "2024-02-10")),
+                List.of(rate("R1", "SKI", "ROOM-1", "90.00"), rate("R2", "SKI", "ROOM-2", "95.00"), rate("R3", "JAN", "ROOM-3", "40.00")),
+                null);
+        calendarService.rateCardChanged(null, v1);
+        inserted.clear();
+
+        RateCard v2 = v1.withSeason(season("SKI", "2024-02-20", "2024-02-25"));
+        calendarService.rateCardChanged(v1, v2);
+
+        for (String resource : List.of("ROOM-1", "ROOM-2")) {
+            verify(calendarRepository).deleteRangeNotWrittenBy(eq(resource), eq(LocalDate.of(2024, 2, 1)), eq(LocalDate.of(2024, 2, 10)), anyString());
+            verify(calendarRepository).deleteRangeNotWrittenBy(eq(resource), eq(LocalDate.of(2024, 2, 20)), eq(LocalDate.of(2024, 2, 25)), anyString());
+        }
+        verify(calendarRepository, never()).deleteRangeNotWrittenBy(eq("ROOM-3"), any(), any(), any());
+        assertEquals(12, inserted.size());
+        assertTrue(inserted.stream().allMatch(e -> !e.getDate().isBefore(LocalDate.of(2024, 2, 20))));
+    }
+
+    @Test
+    @DisplayName("Deleting a rate clears its nights, changes outside the horizon are clipped")
+    void testDeleteAndHorizon() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31"), season("SUMMER", "2024-06-01", "2024-08-31")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00"), rate("R2", "SUMMER", "ROOM-1", "150.00")),
+                null);
+        calendarService.rateCardChanged(null, v1);
+        // 3 months horizon: 2024-01-15 .. 2024-04-14, summer is outside
+        assertEquals(17, inserted.size());
+        inserted.clear();
+
+        calendarService.rateCardChanged(v1, v1.withoutRate("R1"));
+        calendarService.rateCardChanged(v1, v1.withRate(rate("R2", "SUMMER", "ROOM-1", "160.00")));
+
+        verify(calendarRepository).deleteRangeNotWrittenBy(eq("ROOM-1"), eq(TODAY), eq(LocalDate.of(2024, 1, 31)), anyString());
+        verify(calendarRepository, times(1)).deleteRangeNotWrittenBy(any(), any(), any(), any());
+        assertTrue(inserted.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A refresh upserts the new nights of a range before dropping the stale ones")
+    void testRefreshWritesBeforeDeleting() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31"), season("FEB", "2024-02-01", "2024-02-29")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00"), rate("R2", "FEB", "ROOM-1", "60.00")),
+                null);
+        calendarService.rateCardChanged(null, v1);
+        inserted.clear();
+        clearInvocations(calendarRepository);
+
+        calendarService.rateCardChanged(v1, v1.withRate(rate("R2", "FEB", "ROOM-1", "65.00")));
+
+        InOrder order = inOrder(calendarRepository);
+        order.verify(calendarRepository).upsertAll(anyList());
+        order.verify(calendarRepository).deleteRangeNotWrittenBy("ROOM-1", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29),
+                inserted.get(0).getGeneration());
+    }
+
+    @Test
+    @DisplayName("Snapshots are applied on the calendar worker, not on the publishing thread")
+    void testAppliedOffThePublishingThread() {
+        Queue<Runnable> worker = new ArrayDeque<>();
+        Clock clock = Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        RateCalendarService queued = new RateCalendarService(calendarRepository, true, 3, worker::add, clock);
+        RateCard card = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00")),
+                null);
+
+        queued.rateCardChanged(null, card);
+        verifyNoInteractions(calendarRepository);
+
+        worker.remove().run();
+        assertEquals(17, inserted.size());
+    }
+
+    @Test
+    @DisplayName("A failed refresh makes the next snapshot rebuild the whole window")
+    void testFailedRefreshRebuilds() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00")),
+                null);
+        calendarService.rateCardChanged(null, v1);
+        RateCard v2 = v1.withRate(rate("R1", "JAN", "ROOM-1", "55.00"));
+        doThrow(new IllegalStateException("mongo down")).when(calendarRepository)
+                .deleteRangeNotWrittenBy(anyString(), any(), any(), anyString());
+        calendarService.rateCardChanged(v1, v2);
+
+        calendarService.rateCardChanged(v2, v2.withRate(rate("R1", "JAN", "ROOM-1", "60.00")));
+
+        verify(calendarRepository, times(2)).deleteNotWrittenBy(anyString());
+    }
+
+    @Test
+    @DisplayName("Untouched rate cards produce no affected ranges")
+    void testNoChangeNoWrites() {
+        RateCard v1 = RateCard.of(1,
+                List.of(season("JAN", "2024-01-01", "2024-01-31")),
+                List.of(rate("R1", "JAN", "ROOM-1", "50.00")),
+                null);
+
+        assertTrue(RateCalendarService.affectedRanges(v1, v1.withCityTaxRule(null)).isEmpty());
+    }
+
+    private Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setName(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private SeasonalRate rate(String id, String seasonId, String resourceId, String basePrice) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(id);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(basePrice));
+        return r;
+    }
+}
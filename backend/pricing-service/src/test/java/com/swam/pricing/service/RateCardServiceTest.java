@@ -0,0 +1,300 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.domain.*;
+import com.swam.pricing.dto.RateCardVersionInfo;
+import com.swam.pricing.engine.OccupancyTable;
+import com.swam.pricing.repository.*;
+import com.swam.shared.exceptions.RateCardVersionNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateCardServiceTest {
+
+    @Mock private SeasonRepository seasonRepository;
+    @Mock private SeasonalRateRepository rateRepository;
+    @Mock private CityTaxRuleRepository taxRepository;
+    @Mock private StayRuleRepository stayRuleRepository;
+
+    private RateCardService rateCardService;
+
+    @BeforeEach
+    void setup() {
+        rateCardService = service(List.of());
+    }
+
+    @Test
+    @DisplayName("Snapshot loaded once, then served without database reads")
+    void testLoadOnce() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        RateCard first = rateCardService.current();
+        RateCard second = rateCardService.current();
+
+        assertSame(first, second);
+        assertEquals(first.getVersion(), rateCardService.currentVersion());
+        assertEquals("LOW", first.findSeason(LocalDate.of(2024, 1, 10)).orElseThrow().getId());
+        assertEquals(new BigDecimal("50.00"), first.findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+        verify(seasonRepository, times(1)).findAll();
+        verify(rateRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Each management write publishes a new version, old snapshot untouched")
+    void testPatchesBumpVersion() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        RateCard original = rateCardService.current();
+
+        rateCardService.rateSaved(rate("R1", "LOW", "ROOM-1", "70.00"));
+        rateCardService.seasonSaved(season("HIGH", "2024-02-01", "2024-02-29"));
+        RateCard latest = rateCardService.rateSaved(rate("R2", "HIGH", "ROOM-1", "90.00"));
+
+        assertEquals(original.getVersion() + 3, latest.getVersion());
+        assertEquals(latest.getVersion(), rateCardService.currentVersion());
+        assertEquals(new BigDecimal("70.00"), latest.findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+        assertEquals("HIGH", latest.findSeason(LocalDate.of(2024, 2, 10)).orElseThrow().getId());
+
+        // the snapshot handed out before the writes still prices with the old data
+        assertEquals(new BigDecimal("50.00"), original.findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+        assertTrue(original.findSeason(LocalDate.of(2024, 2, 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Moving or deleting a rate removes the old (season, resource) entry")
+    void testRateMoveAndDelete() {
+        when(seasonRepository.findAll()).thenReturn(List.of());
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        RateCard moved = rateCardService.rateSaved(rate("R1", "LOW", "ROOM-2", "50.00"));
+        assertTrue(moved.findRate("LOW", "ROOM-1").isEmpty());
+        assertTrue(moved.findRate("LOW", "ROOM-2").isPresent());
+
+        RateCard deleted = rateCardService.rateDeleted("R1");
+        assertTrue(deleted.findRate("LOW", "ROOM-2").isEmpty());
+    }
+
+    @Test
+    @DisplayName("City tax rule and season removal are reflected in the snapshot")
+    void testCityTaxAndSeasonDelete() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+        rateCardService.cityTaxSaved(rule);
+
+        // mutating the saved document afterwards must not leak into the snapshot
+        rule.setAmountPerAdult(new BigDecimal("9.00"));
+
+        RateCard card = rateCardService.seasonDeleted("LOW");
+        assertEquals(new BigDecimal("2.00"), card.getCityTaxRule().getAmountPerAdult());
+        assertTrue(card.findSeason(LocalDate.of(2024, 1, 10)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A patch from another writer waits for a running management write")
+    void testWriteHoldsWriterLock() throws InterruptedException {
+        when(seasonRepository.findAll()).thenReturn(List.of());
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+        rateCardService.current();
+
+        Thread other = new Thread(() -> rateCardService.rateSaved(rate("R1", "LOW", "ROOM-1", "90.00")));
+        rateCardService.write(() -> {
+            other.start();
+            try {
+                other.join(200);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            assertTrue(other.isAlive());
+            return rateCardService.rateSaved(rate("R1", "LOW", "ROOM-1", "70.00"));
+        });
+        other.join();
+
+        // the waiting patch lands last, as its write would have reached Mongo last
+        assertEquals(new BigDecimal("90.00"),
+                rateCardService.current().findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+    }
+
+    @Test
+    @DisplayName("Listeners see every published snapshot, a failing listener does not fail the write")
+    void testListenersNotified() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+
+        List<long[]> seen = new ArrayList<>();
+        RateCardListener failing = (previous, next) -> {
+            throw new IllegalStateException("boom");
+        };
+        RateCardListener recording = (previous, next) ->
+                seen.add(new long[]{previous == null ? -1 : previous.getVersion(), next.getVersion()});
+        RateCardService service = service(List.of(failing, recording));
+
+        long first = service.current().getVersion();
+        RateCard patched = service.rateSaved(rate("R1", "LOW", "ROOM-1", "50.00"));
+
+        assertEquals(first + 1, patched.getVersion());
+        assertEquals(2, seen.size());
+        assertArrayEquals(new long[]{-1, first}, seen.get(0));
+        assertArrayEquals(new long[]{first, first + 1}, seen.get(1));
+    }
+
+    @Test
+    @DisplayName("Superseded versions stay addressable until the retention or the version cap drops them")
+    void testVersionHistoryRetention() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        RateCardService service = new RateCardService(seasonRepository, rateRepository, taxRepository, stayRuleRepository,
+                List.of(), PricingFixtures.noOccupancy(), Duration.ofHours(1), 3, clock);
+
+        long v1 = service.current().getVersion();
+        clock.advance(Duration.ofMinutes(10));
+        service.rateSaved(rate("R1", "LOW", "ROOM-1", "60.00"));
+
+        assertEquals(new BigDecimal("50.00"), service.asOf(v1).findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+        assertEquals(new BigDecimal("60.00"), service.asOf(v1 + 1).findRate("LOW", "ROOM-1").orElseThrow().getBasePrice());
+        List<RateCardVersionInfo> versions = service.versions();
+        assertEquals(List.of(v1, v1 + 1), versions.stream().map(RateCardVersionInfo::getVersion).toList());
+        assertEquals(versions.get(1).getPublishedAt(), versions.get(0).getSupersededAt());
+        assertNull(versions.get(1).getSupersededAt());
+
+        // v1 superseded more than an hour ago
+        clock.advance(Duration.ofMinutes(61));
+        assertThrows(RateCardVersionNotFoundException.class, () -> service.asOf(v1));
+        assertSame(service.current(), service.asOf(v1 + 1));
+
+        // cap of 3 versions, the current one included
+        for (int i = 0; i < 5; i++) {
+            service.rateSaved(rate("R1", "LOW", "ROOM-1", "7" + i + ".00"));
+        }
+        assertEquals(List.of(v1 + 4, v1 + 5, v1 + 6), service.versions().stream().map(RateCardVersionInfo::getVersion).toList());
+        assertThrows(RateCardVersionNotFoundException.class, () -> service.asOf(v1 + 99));
+    }
+
+    @Test
+    @DisplayName("A superseded version keeps the occupancy uplifts in force when it was superseded")
+    void testSupersededVersionRecordsOccupancy() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        OccupancyService occupancy = mock(OccupancyService.class);
+        OccupancyTable before = new OccupancyTable(Map.of("ROOM-1", "DOUBLE"), Map.of("DOUBLE", Map.of(19723L, 1000L)));
+        OccupancyTable after = new OccupancyTable(Map.of("ROOM-1", "DOUBLE"), Map.of("DOUBLE", Map.of(19723L, 2000L)));
+        when(occupancy.hasTiers()).thenReturn(true);
+        when(occupancy.version()).thenReturn(4L, 4L, 5L);
+        when(occupancy.export()).thenReturn(before, after);
+
+        RateCardService service = new RateCardService(seasonRepository, rateRepository, taxRepository, stayRuleRepository,
+                List.of(), occupancy, Duration.ofHours(1), 10, Clock.systemUTC());
+        long v1 = service.current().getVersion();
+        service.rateSaved(rate("R1", "LOW", "ROOM-1", "60.00"));
+        service.rateSaved(rate("R1", "LOW", "ROOM-1", "70.00"));
+        service.rateSaved(rate("R1", "LOW", "ROOM-1", "80.00"));
+
+        // the current version prices on the live counters
+        assertNull(service.occupancyAsOf(v1 + 3));
+        assertEquals(4L, service.occupancyAsOf(v1).version());
+        assertSame(before, service.occupancyAsOf(v1).uplifts());
+        // unchanged occupancy version: the table is shared, not exported again
+        assertSame(service.occupancyAsOf(v1), service.occupancyAsOf(v1 + 1));
+        assertEquals(5L, service.occupancyAsOf(v1 + 2).version());
+        assertSame(after, service.occupancyAsOf(v1 + 2).uplifts());
+        verify(occupancy, times(2)).export();
+        assertThrows(RateCardVersionNotFoundException.class, () -> service.occupancyAsOf(v1 + 99));
+    }
+
+    @Test
+    @DisplayName("Versions are seeded from the start time: a restarted service rejects versions issued before it")
+    void testVersionsSurviveRestart() {
+        when(seasonRepository.findAll()).thenReturn(List.of(season("LOW", "2024-01-01", "2024-01-31")));
+        when(rateRepository.findAll()).thenReturn(List.of(rate("R1", "LOW", "ROOM-1", "50.00")));
+
+        MutableClock clock = new MutableClock(Instant.parse("2024-01-01T10:00:00Z"));
+        RateCardService beforeRestart = new RateCardService(seasonRepository, rateRepository, taxRepository, stayRuleRepository,
+                List.of(), PricingFixtures.noOccupancy(), Duration.ofHours(1), 10, clock);
+        long issued = beforeRestart.current().getVersion();
+        for (int i = 0; i < 3; i++) {
+            issued = beforeRestart.rateSaved(rate("R1", "LOW", "ROOM-1", "6" + i + ".00")).getVersion();
+        }
+
+        clock.advance(Duration.ofSeconds(1));
+        RateCardService afterRestart = new RateCardService(seasonRepository, rateRepository, taxRepository, stayRuleRepository,
+                List.of(), PricingFixtures.noOccupancy(), Duration.ofHours(1), 10, clock);
+
+        assertTrue(afterRestart.currentVersion() > issued);
+        long stale = issued;
+        assertThrows(RateCardVersionNotFoundException.class, () -> afterRestart.asOf(stale));
+        assertThrows(RateCardVersionNotFoundException.class, () -> afterRestart.occupancyAsOf(stale));
+    }
+
+    private RateCardService service(List<RateCardListener> listeners) {
+        return new RateCardService(seasonRepository, rateRepository, taxRepository, stayRuleRepository, listeners,
+                PricingFixtures.noOccupancy(), Duration.ofHours(24), 1000);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private SeasonalRate rate(String id, String seasonId, String resourceId, String basePrice) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(id);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(basePrice));
+        return r;
+    }
+}
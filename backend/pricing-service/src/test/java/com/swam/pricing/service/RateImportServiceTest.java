@@ -0,0 +1,188 @@
+package com.swam.pricing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.RateImportReport;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateImportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private RateCardService rateCardService;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private RateImportService importService;
+
+    @BeforeEach
+    void setup() {
+        importService = new RateImportService(mongoTemplate, rateCardService, new ObjectMapper(), 2, 2);
+
+        RateCard card = RateCard.of(4, List.of(season("S1"), season("S2")), List.of(), null);
+        lenient().when(rateCardService.current()).thenReturn(card);
+        lenient().when(rateCardService.reload()).thenReturn(RateCard.of(5, List.of(), List.of(), null));
+        lenient().when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SeasonalRate.class)).thenReturn(bulkOperations);
+        lenient().when(bulkOperations.upsert(any(Query.class), any(Update.class))).thenReturn(bulkOperations);
+    }
+
+    @Test
+    @DisplayName("CSV: valid rows upserted in chunks, invalid rows reported with their line")
+    void testCsvImport() {
+        when(bulkOperations.execute()).thenReturn(result(1, 1), result(0, 1));
+
+        RateImportReport report = importService.importRates(stream("""
+                resourceId,seasonId,basePrice,adultPrice
+                ROOM-1,S1,80.00,10.00
+                ROOM-2,S1,90.00,
+
+                ROOM-1,S9,80.00,10.00
+                ROOM-3,S2,abc,10.00
+                ROOM-3,S2,-5,10.00
+                ROOM-4,S2,100,
+                """), RateImportService.Format.CSV);
+
+        assertEquals(6, report.getRowsRead());
+        assertEquals(1, report.getInserted());
+        assertEquals(2, report.getUpdated());
+        assertEquals(3, report.getFailed());
+        // only the first two errors are kept
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+        assertEquals(5, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().contains("S9"));
+        assertEquals(6, report.getErrors().get(1).getLine());
+        assertEquals(5L, report.getRateCardVersion());
+
+        verify(bulkOperations, times(3)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+        verify(rateCardService, times(1)).reload();
+    }
+
+    @Test
+    @DisplayName("NDJSON: a repeated key inside a chunk keeps the last row")
+    void testNdjsonImport() {
+        when(bulkOperations.execute()).thenReturn(result(1, 0));
+
+        RateImportReport report = importService.importRates(stream("""
+                {"seasonId":"S1","resourceId":"ROOM-1","basePrice":80.00}
+                {"seasonId":"S1","resourceId":"ROOM-1","basePrice":85.00,"childPrice":5}
+                {"seasonId":"S1","resourceId":
+                """), RateImportService.Format.NDJSON);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(3, report.getErrors().get(0).getLine());
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(1)).upsert(any(Query.class), update.capture());
+        assertEquals("85.00", update.getValue().getUpdateObject().get("$set", Document.class).get("basePrice").toString());
+    }
+
+    @Test
+    @DisplayName("Nothing written: no reload, missing CSV columns rejected")
+    void testNothingWritten() {
+        RateImportReport report = importService.importRates(stream("seasonId,resourceId,basePrice\n"), RateImportService.Format.CSV);
+
+        assertEquals(0, report.getRowsRead());
+        assertNull(report.getRateCardVersion());
+        verify(rateCardService, never()).reload();
+        verifyNoInteractions(mongoTemplate);
+
+        assertThrows(InvalidPricingRequestException.class,
+                () -> importService.importRates(stream("seasonId,basePrice\nS1,10\n"), RateImportService.Format.CSV));
+    }
+
+    @Test
+    @DisplayName("Database error on a later chunk: the chunks already written are still published")
+    void testReloadAfterWriteError() {
+        when(bulkOperations.execute())
+                .thenReturn(result(2, 0))
+                .thenThrow(new DataAccessResourceFailureException("connessione persa"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> importService.importRates(stream("""
+                seasonId,resourceId,basePrice
+                S1,ROOM-1,80.00
+                S1,ROOM-2,90.00
+                S1,ROOM-3,95.00
+                S1,ROOM-4,99.00
+                """), RateImportService.Format.CSV));
+        verify(rateCardService, times(1)).reload();
+    }
+
+    @Test
+    @DisplayName("Stream broken after a chunk: the rows already written are still published")
+    void testReloadAfterReadError() {
+        when(bulkOperations.execute()).thenReturn(result(2, 0));
+
+        InputStream broken = new SequenceInputStream(stream("""
+                seasonId,resourceId,basePrice
+                S1,ROOM-1,80.00
+                S1,ROOM-2,90.00
+                """), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("stream chiuso");
+            }
+        });
+        assertThrows(InvalidPricingRequestException.class,
+                () -> importService.importRates(broken, RateImportService.Format.CSV));
+        verify(rateCardService, times(1)).reload();
+    }
+
+    private BulkWriteResult result(int inserted, int matched) {
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+        for (int i = 0; i < inserted; i++) {
+            upserts.add(new BulkWriteUpsert(i, new BsonString("id" + i)));
+        }
+        return BulkWriteResult.acknowledged(0, matched, 0, matched, upserts, List.of());
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Season season(String id) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.of(2024, 1, 1));
+        s.setEndDate(LocalDate.of(2024, 1, 31));
+        return s;
+    }
+}
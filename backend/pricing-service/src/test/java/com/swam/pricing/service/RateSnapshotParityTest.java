@@ -0,0 +1,194 @@
+package com.swam.pricing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.client.ResourceDirectoryClient;
+import com.swam.pricing.domain.*;
+import com.swam.pricing.dto.OccupancyEvent;
+import com.swam.pricing.dto.ResourceUnit;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.engine.QuoteEngine;
+import com.swam.pricing.engine.RateSnapshot;
+import com.swam.pricing.engine.StayQuoteRequest;
+import com.swam.pricing.engine.StayRuleType;
+import com.swam.shared.dto.PriceBreakdown;
+import com.swam.shared.enums.ResourceStatus;
+import com.swam.shared.enums.ResourceType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// the engine embedded on a replicated snapshot must give the same breakdowns as pricing-service
+class RateSnapshotParityTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final RateCardService rateCardService = mock(RateCardService.class);
+
+    private final RateCard card = RateCard.of(4,
+            List.of(season("JUL", "2024-07-01", "2024-07-31"), season("AUG", "2024-08-01", "2024-08-31")),
+            List.of(rate("JUL", "ROOM-1", "80.00", "10.00"), rate("AUG", "ROOM-1", "95.50", "12.25"),
+                    rate("JUL", "ROOM-2", "70.00", "9.00"), rate("AUG", "ROOM-2", "33.33", "7.77")),
+            cityTax(),
+            List.of(uplift("WEEKEND", "15", DayOfWeek.FRIDAY, DayOfWeek.SATURDAY),
+                    losDiscount("WEEK", 7, "10")));
+
+    @Test
+    @DisplayName("Snapshot: preventivi identici al servizio, in BigDecimal e in centesimi, con occupazione")
+    void testQuotesMatchService() throws Exception {
+        OccupancyService occupancy = occupancy();
+        List<PriceCalculationRequest> requests = List.of(
+                request("ROOM-1", "2024-07-28", 8, 2, 1),
+                request("ROOM-2", "2024-08-09", 3, 1, 0),
+                request("ROOM-2", "2024-07-30", 4, 2, 2));
+
+        for (boolean fixedPoint : new boolean[]{false, true}) {
+            PricingEngineService service = new PricingEngineService(rateCardService,
+                    PricingFixtures.noQuoteCache(), occupancy, fixedPoint);
+            RateSnapshot snapshot = replicate(RateSnapshot.of(card.getVersion(), fixedPoint, card.getSeasons(),
+                    card.getRates(), card.getCityTaxRule(), card.getStayRules(), occupancy.version(), occupancy.export()));
+            QuoteEngine engine = new QuoteEngine(snapshot.isFixedPoint(), snapshot.getOccupancyUplift());
+
+            for (PriceCalculationRequest request : requests) {
+                // a replica maps the engine breakdown the same way the service does
+                assertEquals(service.calculatePrice(request, card),
+                        PricingEngineService.toPriceBreakdown(engine.price(request, snapshot, false)));
+                when(rateCardService.current()).thenReturn(card);
+                assertEquals(service.calculateItemizedPrice(request),
+                        PricingEngineService.toPriceBreakdown(engine.price(request, snapshot, true)));
+            }
+
+            StayQuoteRequest stay = StayQuoteRequest.builder()
+                    .segments(List.of(
+                            new StayQuoteRequest.Segment("ROOM-1", LocalDate.of(2024, 7, 29), LocalDate.of(2024, 8, 2)),
+                            new StayQuoteRequest.Segment("ROOM-2", LocalDate.of(2024, 8, 2), LocalDate.of(2024, 8, 12))))
+                    .guests(List.of(guest(GuestType.ADULT, 14), guest(GuestType.CHILD, 14)))
+                    .build();
+            assertEquals(service.calculateStayPrice(stay, card), engine.calculateStayPrice(stay, snapshot));
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot: senza fasce di occupazione nessuna maggiorazione replicata")
+    void testWithoutTiers() throws Exception {
+        OccupancyService occupancy = new OccupancyService(mock(BookingExportClient.class),
+                mock(ResourceDirectoryClient.class), true, "");
+        assertNull(occupancy.export());
+
+        RateSnapshot snapshot = replicate(RateSnapshot.of(card.getVersion(), false, card.getSeasons(),
+                card.getRates(), card.getCityTaxRule(), card.getStayRules(), occupancy.version(), null));
+        PriceCalculationRequest request = request("ROOM-1", "2024-08-01", 3, 2, 0);
+
+        assertEquals(PricingFixtures.pricingEngine(rateCardService).calculatePrice(request, card),
+                PricingEngineService.toPriceBreakdown(new QuoteEngine(false, snapshot.getOccupancyUplift()).price(request, snapshot, false)));
+        assertEquals(4, snapshot.getSnapshotVersion().getRateCardVersion());
+    }
+
+    // what a replica receives: the snapshot after a JSON round trip
+    private RateSnapshot replicate(RateSnapshot snapshot) throws Exception {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(snapshot), RateSnapshot.class);
+    }
+
+    // 2 of 4 double rooms sold from the 9th to the 11th of August: the 50% tier on ROOM-2's nights
+    private OccupancyService occupancy() {
+        BookingExportClient bookingClient = mock(BookingExportClient.class);
+        ResourceDirectoryClient resourceClient = mock(ResourceDirectoryClient.class);
+        when(resourceClient.fetchResources()).thenReturn(List.of(
+                new ResourceUnit("ROOM-1", ResourceType.SUITE, ResourceStatus.AVAILABLE),
+                new ResourceUnit("ROOM-2", ResourceType.DOUBLE_ROOM, ResourceStatus.AVAILABLE),
+                new ResourceUnit("ROOM-3", ResourceType.DOUBLE_ROOM, ResourceStatus.AVAILABLE),
+                new ResourceUnit("ROOM-4", ResourceType.DOUBLE_ROOM, ResourceStatus.AVAILABLE),
+                new ResourceUnit("ROOM-5", ResourceType.DOUBLE_ROOM, ResourceStatus.AVAILABLE)));
+        when(bookingClient.fetchOccupancy()).thenReturn(List.of(
+                new OccupancyEvent("B1", "ROOM-3", LocalDate.of(2024, 8, 9), LocalDate.of(2024, 8, 12), true),
+                new OccupancyEvent("B2", "ROOM-4", LocalDate.of(2024, 8, 9), LocalDate.of(2024, 8, 11), true)));
+        OccupancyService occupancy = new OccupancyService(bookingClient, resourceClient, true, "50:10,75:25");
+        occupancy.rebuild();
+        return occupancy;
+    }
+
+    private static PriceCalculationRequest request(String resourceId, String checkIn, int nights, int adults, int children) {
+        LocalDate start = LocalDate.parse(checkIn);
+        List<PriceCalculationRequest.GuestProfile> guests = new ArrayList<>();
+        for (int i = 0; i < adults; i++) {
+            guests.add(guest(GuestType.ADULT, nights));
+        }
+        for (int i = 0; i < children; i++) {
+            // children leave one night early
+            guests.add(guest(GuestType.CHILD, Math.max(1, nights - 1)));
+        }
+        return PriceCalculationRequest.builder()
+                .resourceId(resourceId)
+                .checkIn(start)
+                .checkOut(start.plusDays(nights))
+                .guests(guests)
+                .manualDiscount(new BigDecimal("3.00"))
+                .build();
+    }
+
+    private static PriceCalculationRequest.GuestProfile guest(GuestType type, int days) {
+        return PriceCalculationRequest.GuestProfile.builder().type(type).days(days).build();
+    }
+
+    private static StayRule uplift(String id, String percent, DayOfWeek... days) {
+        StayRule rule = rule(id, StayRuleType.WEEKDAY_UPLIFT);
+        rule.setDaysOfWeek(Set.of(days));
+        rule.setPercent(new BigDecimal(percent));
+        return rule;
+    }
+
+    private static StayRule losDiscount(String id, int minNights, String percent) {
+        StayRule rule = rule(id, StayRuleType.LENGTH_OF_STAY_DISCOUNT);
+        rule.setMinNights(minNights);
+        rule.setPercent(new BigDecimal(percent));
+        return rule;
+    }
+
+    private static StayRule rule(String id, StayRuleType type) {
+        StayRule rule = new StayRule();
+        rule.setId(id);
+        rule.setName(id);
+        rule.setType(type);
+        return rule;
+    }
+
+    private static CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setMinAge(14);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+        rule.setAmountPerChild(new BigDecimal("1.00"));
+        return rule;
+    }
+
+    private static Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private static SeasonalRate rate(String seasonId, String resourceId, String base, String adult) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + resourceId);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        r.setAdultPrice(new BigDecimal(adult));
+        r.setChildPrice(new BigDecimal("5.00"));
+        r.setInfantPrice(BigDecimal.ZERO);
+        return r;
+    }
+}
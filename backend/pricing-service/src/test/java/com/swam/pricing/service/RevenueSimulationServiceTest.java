@@ -0,0 +1,176 @@
+package com.swam.pricing.service;
+
+import com.swam.pricing.client.BookingExportClient;
+import com.swam.pricing.domain.CityTaxRule;
+import com.swam.pricing.domain.RateCard;
+import com.swam.pricing.domain.Season;
+import com.swam.pricing.domain.SeasonalRate;
+import com.swam.pricing.dto.ForwardBooking;
+import com.swam.pricing.engine.GuestType;
+import com.swam.pricing.engine.PriceCalculationRequest;
+import com.swam.pricing.dto.RevenueSimulationRequest;
+import com.swam.pricing.dto.RevenueSimulationResponse;
+import com.swam.pricing.dto.SetRateRequest;
+import com.swam.shared.exceptions.InvalidPricingRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RevenueSimulationServiceTest {
+
+    private final RateCardService rateCardService = mock(RateCardService.class);
+    private final BookingExportClient exportClient = mock(BookingExportClient.class);
+
+    private final RateCard card = RateCard.of(4,
+            List.of(season("JAN", "2024-01-01", "2024-01-31"), season("FEB", "2024-02-01", "2024-02-29")),
+            List.of(rate("JAN", "ROOM-1", "50.00"), rate("FEB", "ROOM-1", "60.00")),
+            cityTax());
+
+    private ForkJoinPool pool;
+    private RevenueSimulationService simulationService;
+
+    @BeforeEach
+    void setup() {
+        pool = new ForkJoinPool(4);
+        when(rateCardService.current()).thenReturn(card);
+        simulationService = new RevenueSimulationService(PricingFixtures.pricingEngine(rateCardService),
+                rateCardService, exportClient, pool, 10_000);
+    }
+
+    @AfterEach
+    void teardown() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Every booking priced on both cards, deltas grouped by check-in month")
+    void testMonthlyDeltas() {
+        List<ForwardBooking> bookings = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // one night, one adult: 60 in January, 70 in February on the current card
+            String checkIn = i % 2 == 0 ? "2024-01-10" : "2024-02-10";
+            bookings.add(booking("B" + i, checkIn, 1));
+        }
+        // no season covers March on either card
+        bookings.add(booking("B-MAR", "2024-03-05", 2));
+
+        RevenueSimulationRequest request = new RevenueSimulationRequest();
+        request.setRates(List.of(setRate("FEB", "ROOM-1", "75.00")));
+        request.setBookings(bookings);
+
+        RevenueSimulationResponse response = simulationService.simulate(request);
+
+        assertEquals(4, response.getRateCardVersion());
+        assertEquals(2000, response.getPricedBookings());
+        assertEquals(1, response.getFailedBookings());
+        assertEquals(List.of(YearMonth.of(2024, 1), YearMonth.of(2024, 2)),
+                response.getMonths().stream().map(RevenueSimulationResponse.MonthDelta::getMonth).toList());
+
+        RevenueSimulationResponse.MonthDelta january = response.getMonths().get(0);
+        assertEquals(1000, january.getBookings());
+        assertAmount("60000.00", january.getCurrentRevenue());
+        assertAmount("0", january.getDelta());
+
+        RevenueSimulationResponse.MonthDelta february = response.getMonths().get(1);
+        assertAmount("70000.00", february.getCurrentRevenue());
+        assertAmount("85000.00", february.getProposedRevenue());
+        assertAmount("15000.00", response.getDelta());
+
+        // the published card is left untouched
+        assertEquals(new BigDecimal("60.00"), card.findRate("FEB", "ROOM-1").orElseThrow().getBasePrice());
+        verifyNoInteractions(exportClient);
+    }
+
+    @Test
+    @DisplayName("Without inline bookings the forward book is read from booking-service, seasons can be moved")
+    void testExportedBookAndMovedSeason() {
+        when(exportClient.fetchForwardBook()).thenReturn(List.of(booking("B1", "2024-01-30", 3)));
+
+        // February now starts on the 30th of January
+        RevenueSimulationRequest request = new RevenueSimulationRequest();
+        request.setSeasons(List.of(season("JAN", "2024-01-01", "2024-01-29"), season("FEB", "2024-01-30", "2024-02-29")));
+
+        RevenueSimulationResponse response = simulationService.simulate(request);
+
+        // 2 nights of January + 1 of February before, 3 of February after
+        assertAmount("190.00", response.getCurrentRevenue());
+        assertAmount("210.00", response.getProposedRevenue());
+        verify(exportClient).fetchForwardBook();
+    }
+
+    @Test
+    @DisplayName("Overlapping seasons or rates on unknown seasons are rejected before pricing")
+    void testInvalidProposal() {
+        RevenueSimulationRequest overlapping = new RevenueSimulationRequest();
+        overlapping.setSeasons(List.of(season("FEB", "2024-01-20", "2024-02-29")));
+        overlapping.setBookings(List.of());
+        assertThrows(InvalidPricingRequestException.class, () -> simulationService.simulate(overlapping));
+
+        RevenueSimulationRequest unknownSeason = new RevenueSimulationRequest();
+        unknownSeason.setRates(List.of(setRate("SUMMER", "ROOM-1", "90.00")));
+        unknownSeason.setBookings(List.of());
+        assertThrows(InvalidPricingRequestException.class, () -> simulationService.simulate(unknownSeason));
+    }
+
+    private void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "atteso " + expected + ", ottenuto " + actual);
+    }
+
+    private ForwardBooking booking(String id, String checkIn, int nights) {
+        LocalDate start = LocalDate.parse(checkIn);
+        return new ForwardBooking(id, PriceCalculationRequest.builder()
+                .resourceId("ROOM-1")
+                .checkIn(start)
+                .checkOut(start.plusDays(nights))
+                .guests(List.of(PriceCalculationRequest.GuestProfile.builder().type(GuestType.ADULT).days(nights).build()))
+                .build());
+    }
+
+    private SetRateRequest setRate(String seasonId, String resourceId, String basePrice) {
+        SetRateRequest request = new SetRateRequest();
+        request.setSeasonId(seasonId);
+        request.setResourceId(resourceId);
+        request.setBasePrice(new BigDecimal(basePrice));
+        request.setAdultPrice(new BigDecimal("10.00"));
+        return request;
+    }
+
+    // taxed, but city tax is not revenue
+    private static CityTaxRule cityTax() {
+        CityTaxRule rule = new CityTaxRule();
+        rule.setEnabled(true);
+        rule.setMaxNightsCap(7);
+        rule.setAmountPerAdult(new BigDecimal("2.00"));
+        return rule;
+    }
+
+    private static Season season(String id, String start, String end) {
+        Season s = new Season();
+        s.setId(id);
+        s.setName(id);
+        s.setStartDate(LocalDate.parse(start));
+        s.setEndDate(LocalDate.parse(end));
+        return s;
+    }
+
+    private static SeasonalRate rate(String seasonId, String resourceId, String base) {
+        SeasonalRate r = new SeasonalRate();
+        r.setId(seasonId + "-" + resourceId);
+        r.setSeasonId(seasonId);
+        r.setResourceId(resourceId);
+        r.setBasePrice(new BigDecimal(base));
+        r.setAdultPrice(new BigDecimal("10.00"));
+        return r;
+    }
+}
@@ -0,0 +1,29 @@
+package com.swam.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Per-night lines of a quote in columnar form: every array has one element per night, night i is firstNight + i.
+ * Seasons are dictionary encoded, {@code season[i]} is an index into {@code seasonIds}.
+ * The amounts are the nightly stay cost (base + active guests) and add up to {@link PriceBreakdown#getBaseAmount()}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NightlyLines {
+    private LocalDate firstNight;
+    private List<String> seasonIds;
+    private int[] season;
+    private int[] adults;
+    private int[] children;
+    private int[] infants;
+    private BigDecimal[] amounts;
+}
@@ -1,5 +1,6 @@
 package com.swam.shared.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +25,15 @@ public class PriceBreakdown {
     private BigDecimal depositAmount;
 
     private BigDecimal finalTotal;
+
+    // version of the pricing-service rate card that produced this breakdown
+    private Long rateCardVersion;
+
+    // only filled when an itemized quote is requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private NightlyLines nightlyLines;
+
+    // only filled by quotes that can be re-quoted incrementally
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String quoteToken;
 }
\ No newline at end of file
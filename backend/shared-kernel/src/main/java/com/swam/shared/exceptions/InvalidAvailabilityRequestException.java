@@ -0,0 +1,14 @@
+package com.swam.shared.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidAvailabilityRequestException extends DomainException {
+
+    public InvalidAvailabilityRequestException(String reason) {
+        super(
+            String.format("Richiesta di disponibilità non valida: %s", reason),
+            "INVALID_AVAILABILITY_REQUEST",
+            HttpStatus.BAD_REQUEST
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package com.swam.shared.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidPricingRequestException extends DomainException {
+
+    public InvalidPricingRequestException(String reason) {
+        super(
+            String.format("Richiesta di calcolo prezzo non valida: %s", reason),
+            "INVALID_PRICING_REQUEST",
+            HttpStatus.BAD_REQUEST
+        );
+    }
+}
@@ -0,0 +1,14 @@
+package com.swam.shared.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class RateCardVersionNotFoundException extends DomainException {
+
+    public RateCardVersionNotFoundException(long version) {
+        super(
+            String.format("Versione del listino non disponibile: %d", version),
+            "RATE_CARD_VERSION_NOT_FOUND",
+            HttpStatus.NOT_FOUND
+        );
+    }
+}
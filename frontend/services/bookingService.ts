@@ -73,6 +73,15 @@ export interface ExtendBookingPayload {
 export interface UnavailablePeriod {
   start: string;
   end: string;
+  // only with details
+  bookingId?: string;
+  status?: string;
+}
+
+export interface AvailabilityMatrix {
+  from: string;
+  to: string;
+  resources: Record<string, UnavailablePeriod[]>;
 }
 
 export interface ConfirmBookingParams {
@@ -254,6 +263,22 @@ export const bookingService = {
     return data;
   },
 
+  // Get unavailable periods of every resource in [from, to) in one call
+  getAvailabilityMatrix: async (
+    from: string,
+    to: string,
+    details?: boolean,
+  ): Promise<AvailabilityMatrix> => {
+    const { data } = await api.get("/api/bookings/availability-matrix", {
+      params: {
+        from,
+        to,
+        details,
+      },
+    });
+    return data;
+  },
+
   // Update Payment Status
   updatePaymentStatus: async ({
     id,